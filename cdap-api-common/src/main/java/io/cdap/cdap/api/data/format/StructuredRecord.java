@@ -21,6 +21,10 @@ import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.data.schema.Schema.LogicalType;
 import io.cdap.cdap.api.data.schema.SchemaCache;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -36,9 +40,11 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -47,7 +53,8 @@ import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
- * Instance of a record structured by a {@link Schema}. Fields are accessible by name.
+ * Instance of a record structured by a {@link Schema}. Fields are accessible by name, or by the
+ * position of the field in {@link Schema#getFields()}.
  */
 @Beta
 public class StructuredRecord implements Serializable {
@@ -55,8 +62,18 @@ public class StructuredRecord implements Serializable {
   private static final SimpleDateFormat DEFAULT_FORMAT = new SimpleDateFormat(
       "YYYY-MM-DD'T'HH:mm:ss z");
 
-  private final Schema schema;
-  private final Map<String, Object> fields;
+  // Marker for fields that are not set in the Builder
+  private static final Object UNSET = new Object();
+
+  // Values are stored by field position, but are serialized as a map from field name to value
+  // to stay compatible with records serialized by older versions.
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("schema", Schema.class),
+      new ObjectStreamField("fields", Map.class)
+  };
+
+  private Schema schema;
+  private Object[] values;
 
   private static final long serialVersionUID = -6547770456592865613L;
 
@@ -64,9 +81,9 @@ public class StructuredRecord implements Serializable {
     DEFAULT_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
   }
 
-  private StructuredRecord(Schema schema, Map<String, Object> fields) {
+  private StructuredRecord(Schema schema, Object[] values) {
     this.schema = SchemaCache.intern(schema);
-    this.fields = fields;
+    this.values = values;
   }
 
   /**
@@ -88,7 +105,23 @@ public class StructuredRecord implements Serializable {
   @SuppressWarnings("unchecked")
   @Nullable
   public <T> T get(String fieldName) {
-    return (T) fields.get(fieldName);
+    int index = schema.getFieldIndex(fieldName);
+    return index < 0 ? null : (T) values[index];
+  }
+
+  /**
+   * Get the value of a field in the record by the position of the field in
+   * {@link Schema#getFields()}.
+   *
+   * @param index position of the field to get.
+   * @param <T> type of object of the field value.
+   * @return value of the field.
+   * @throws IndexOutOfBoundsException if the index is out of range of the schema fields.
+   */
+  @SuppressWarnings("unchecked")
+  @Nullable
+  public <T> T get(int index) {
+    return (T) values[index];
   }
 
   /**
@@ -104,7 +137,7 @@ public class StructuredRecord implements Serializable {
   public LocalDate getDate(String fieldName) {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
         EnumSet.of(LogicalType.DATE));
-    Object val = fields.get(fieldName);
+    Object val = get(fieldName);
     try {
       Integer value = (Integer) val;
       return (value == null || logicalTypeSchema == null) ? null
@@ -129,7 +162,7 @@ public class StructuredRecord implements Serializable {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
         EnumSet.of(LogicalType.TIME_MILLIS,
             LogicalType.TIME_MICROS));
-    Object val = fields.get(fieldName);
+    Object val = get(fieldName);
     if (val == null || logicalTypeSchema == null) {
       return null;
     }
@@ -186,7 +219,7 @@ public class StructuredRecord implements Serializable {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
         EnumSet.of(LogicalType.TIMESTAMP_MILLIS,
             LogicalType.TIMESTAMP_MICROS));
-    Object val = fields.get(fieldName);
+    Object val = get(fieldName);
     if (val == null || logicalTypeSchema == null) {
       return null;
     }
@@ -219,7 +252,7 @@ public class StructuredRecord implements Serializable {
   public BigDecimal getDecimal(String fieldName) {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
         EnumSet.of(LogicalType.DECIMAL));
-    Object value = fields.get(fieldName);
+    Object value = get(fieldName);
     if (value == null || logicalTypeSchema == null) {
       return null;
     }
@@ -250,7 +283,7 @@ public class StructuredRecord implements Serializable {
   public LocalDateTime getDateTime(String fieldName) {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
         EnumSet.of(LogicalType.DATETIME));
-    Object value = fields.get(fieldName);
+    Object value = get(fieldName);
     if (value == null || logicalTypeSchema == null) {
       return null;
     }
@@ -366,11 +399,14 @@ public class StructuredRecord implements Serializable {
   public static class Builder {
 
     private final Schema schema;
-    private Map<String, Object> fields;
+    private final List<Schema.Field> schemaFields;
+    private final Object[] values;
 
     private Builder(Schema schema) {
       this.schema = schema;
-      this.fields = new HashMap<>();
+      this.schemaFields = schema.getFields();
+      this.values = new Object[schemaFields.size()];
+      Arrays.fill(values, UNSET);
     }
 
     /**
@@ -383,8 +419,21 @@ public class StructuredRecord implements Serializable {
      *     nullable but a null value is given
      */
     public Builder set(String fieldName, @Nullable Object value) {
-      validateAndGetField(fieldName, value);
-      fields.put(fieldName, value);
+      return set(getFieldIndex(fieldName), value);
+    }
+
+    /**
+     * Set the field at the given position in {@link Schema#getFields()} to the given value.
+     *
+     * @param index position of the field to set
+     * @param value value for the field
+     * @return this builder
+     * @throws IndexOutOfBoundsException if the index is out of range of the schema fields
+     * @throws UnexpectedFormatException if the field is not nullable but a null value is given
+     */
+    public Builder set(int index, @Nullable Object value) {
+      validateAndGetField(index, value);
+      values[index] = value;
       return this;
     }
 
@@ -398,14 +447,15 @@ public class StructuredRecord implements Serializable {
      *     nullable but a null value is given or if the provided date is an invalid date
      */
     public Builder setDate(String fieldName, @Nullable LocalDate localDate) {
-      validateAndGetLogicalTypeSchema(validateAndGetField(fieldName, localDate),
+      int index = getFieldIndex(fieldName);
+      validateAndGetLogicalTypeSchema(validateAndGetField(index, localDate),
           EnumSet.of(LogicalType.DATE));
       if (localDate == null) {
-        fields.put(fieldName, null);
+        values[index] = null;
         return this;
       }
       try {
-        fields.put(fieldName, Math.toIntExact(localDate.toEpochDay()));
+        values[index] = Math.toIntExact(localDate.toEpochDay());
       } catch (ArithmeticException e) {
         // Highest integer is 2,147,483,647 which is Jan 1 2038.
         throw new UnexpectedFormatException(
@@ -426,13 +476,14 @@ public class StructuredRecord implements Serializable {
      *     nullable but a null value is given
      */
     public Builder setTime(String fieldName, @Nullable LocalTime localTime) {
+      int index = getFieldIndex(fieldName);
       Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(
-          validateAndGetField(fieldName, localTime),
+          validateAndGetField(index, localTime),
           EnumSet.of(LogicalType.TIME_MILLIS,
               LogicalType.TIME_MICROS));
 
       if (localTime == null) {
-        fields.put(fieldName, null);
+        values[index] = null;
         return this;
       }
 
@@ -441,7 +492,7 @@ public class StructuredRecord implements Serializable {
       if (logicalTypeSchema.getLogicalType() == LogicalType.TIME_MILLIS) {
         try {
           int millis = Math.toIntExact(TimeUnit.NANOSECONDS.toMillis(nanos));
-          fields.put(fieldName, millis);
+          values[index] = millis;
         } catch (ArithmeticException e) {
           throw new UnexpectedFormatException(
               String.format("Field %s was set to a time that is too large.",
@@ -451,7 +502,7 @@ public class StructuredRecord implements Serializable {
       }
 
       long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
-      fields.put(fieldName, micros);
+      values[index] = micros;
       return this;
     }
 
@@ -466,13 +517,14 @@ public class StructuredRecord implements Serializable {
      *     nullable but a null value is given or if the provided date is an invalid timestamp
      */
     public Builder setTimestamp(String fieldName, @Nullable ZonedDateTime zonedDateTime) {
+      int index = getFieldIndex(fieldName);
       Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(
-          validateAndGetField(fieldName, zonedDateTime),
+          validateAndGetField(index, zonedDateTime),
           EnumSet.of(LogicalType.TIMESTAMP_MILLIS,
               LogicalType.TIMESTAMP_MICROS));
 
       if (zonedDateTime == null) {
-        fields.put(fieldName, null);
+        values[index] = null;
         return this;
       }
 
@@ -481,13 +533,13 @@ public class StructuredRecord implements Serializable {
         if (logicalTypeSchema.getLogicalType() == LogicalType.TIMESTAMP_MILLIS) {
           long millis = TimeUnit.SECONDS.toMillis(instant.getEpochSecond());
           long tsMillis = Math.addExact(millis, TimeUnit.NANOSECONDS.toMillis(instant.getNano()));
-          fields.put(fieldName, tsMillis);
+          values[index] = tsMillis;
           return this;
         }
 
         long micros = TimeUnit.SECONDS.toMicros(instant.getEpochSecond());
         long tsMicros = Math.addExact(micros, TimeUnit.NANOSECONDS.toMicros(instant.getNano()));
-        fields.put(fieldName, tsMicros);
+        values[index] = tsMicros;
         return this;
       } catch (ArithmeticException e) {
         throw new UnexpectedFormatException(
@@ -508,11 +560,12 @@ public class StructuredRecord implements Serializable {
      *     nullable but a null value is given or if the provided decimal is invalid
      */
     public Builder setDecimal(String fieldName, @Nullable BigDecimal decimal) {
+      int index = getFieldIndex(fieldName);
       Schema logicalSchema = validateAndGetLogicalTypeSchema(
-          validateAndGetField(fieldName, decimal),
+          validateAndGetField(index, decimal),
           EnumSet.of(LogicalType.DECIMAL));
       if (decimal == null) {
-        fields.put(fieldName, null);
+        values[index] = null;
         return this;
       }
 
@@ -529,7 +582,7 @@ public class StructuredRecord implements Serializable {
                 fieldName, decimal.scale(), logicalSchema.getScale()));
       }
 
-      fields.put(fieldName, decimal.unscaledValue().toByteArray());
+      values[index] = decimal.unscaledValue().toByteArray();
       return this;
     }
 
@@ -542,14 +595,15 @@ public class StructuredRecord implements Serializable {
      * @return {@link Builder} for the StructuredRecord
      */
     public Builder setDateTime(String fieldName, @Nullable LocalDateTime localDateTime) {
-      validateAndGetLogicalTypeSchema(validateAndGetField(fieldName, localDateTime),
+      int index = getFieldIndex(fieldName);
+      validateAndGetLogicalTypeSchema(validateAndGetField(index, localDateTime),
           EnumSet.of(LogicalType.DATETIME));
       if (localDateTime == null) {
-        fields.put(fieldName, null);
+        values[index] = null;
         return this;
       }
       // Save as ISO-8601 format without the offset
-      fields.put(fieldName, localDateTime.format(DateTimeFormatter.ISO_DATE_TIME));
+      values[index] = localDateTime.format(DateTimeFormatter.ISO_DATE_TIME);
       return this;
     }
 
@@ -592,20 +646,21 @@ public class StructuredRecord implements Serializable {
     @Deprecated
     public Builder convertAndSet(String fieldName, @Nullable Date date,
         @Nullable DateFormat dateFormat) throws UnexpectedFormatException {
-      Schema.Field field = validateAndGetField(fieldName, date);
+      int index = getFieldIndex(fieldName);
+      Schema.Field field = validateAndGetField(index, date);
       boolean isNullable = field.getSchema().isNullable();
       if (isNullable && date == null) {
-        fields.put(fieldName, null);
+        values[index] = null;
         return this;
       }
 
       Schema.Type fieldType =
           isNullable ? field.getSchema().getNonNullable().getType() : field.getSchema().getType();
       if (fieldType == Schema.Type.LONG) {
-        fields.put(fieldName, date.getTime());
+        values[index] = date.getTime();
       } else if (fieldType == Schema.Type.STRING) {
         DateFormat format = dateFormat == null ? DEFAULT_FORMAT : dateFormat;
-        fields.put(fieldName, format.format(date));
+        values[index] = format.format(date);
       } else {
         throw new UnexpectedFormatException(
             "Date must be either a long or a string, not a " + fieldType);
@@ -626,8 +681,9 @@ public class StructuredRecord implements Serializable {
      */
     public Builder convertAndSet(String fieldName, @Nullable String strVal)
         throws UnexpectedFormatException {
-      Schema.Field field = validateAndGetField(fieldName, strVal);
-      fields.put(fieldName, convertString(field.getSchema(), strVal));
+      int index = getFieldIndex(fieldName);
+      Schema.Field field = validateAndGetField(index, strVal);
+      values[index] = convertString(field.getSchema(), strVal);
       return this;
     }
 
@@ -640,19 +696,20 @@ public class StructuredRecord implements Serializable {
      */
     public StructuredRecord build() throws UnexpectedFormatException {
       // check that all non-nullable fields have a value.
-      for (Schema.Field field : schema.getFields()) {
-        String fieldName = field.getName();
-        if (!fields.containsKey(fieldName)) {
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] == UNSET) {
+          Schema.Field field = schemaFields.get(i);
           // if the field is not nullable and there is no value set for the field, this is invalid.
           if (!field.getSchema().isNullable()) {
-            throw new UnexpectedFormatException("Field " + fieldName + " must contain a value.");
+            throw new UnexpectedFormatException(
+                "Field " + field.getName() + " must contain a value.");
           } else {
             // otherwise, set the value for the field to null
-            fields.put(fieldName, null);
+            values[i] = null;
           }
         }
       }
-      return new StructuredRecord(schema, fields);
+      return new StructuredRecord(schema, values);
     }
 
     private Object convertString(Schema schema, String strVal) throws UnexpectedFormatException {
@@ -694,11 +751,17 @@ public class StructuredRecord implements Serializable {
       }
     }
 
-    private Schema.Field validateAndGetField(String fieldName, Object val) {
-      Schema.Field field = schema.getField(fieldName);
-      if (field == null) {
+    private int getFieldIndex(String fieldName) {
+      int index = schema.getFieldIndex(fieldName);
+      if (index < 0) {
         throw new UnexpectedFormatException("field " + fieldName + " is not in the schema.");
       }
+      return index;
+    }
+
+    private Schema.Field validateAndGetField(int index, Object val) {
+      Schema.Field field = schemaFields.get(index);
+      String fieldName = field.getName();
       Schema fieldSchema = field.getSchema();
       if (val == null) {
         if (fieldSchema.getType() == Schema.Type.NULL) {
@@ -731,12 +794,36 @@ public class StructuredRecord implements Serializable {
 
     StructuredRecord that = (StructuredRecord) o;
 
-    return Objects.equals(schema, that.schema) && Objects.equals(fields, that.fields);
+    return Objects.equals(schema, that.schema) && Arrays.equals(values, that.values);
 
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(schema, fields);
+    return 31 * Objects.hashCode(schema) + Arrays.hashCode(values);
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    Map<String, Object> fields = new HashMap<>();
+    List<Schema.Field> schemaFields = schema.getFields();
+    for (int i = 0; i < values.length; i++) {
+      fields.put(schemaFields.get(i).getName(), values[i]);
+    }
+    ObjectOutputStream.PutField putField = out.putFields();
+    putField.put("schema", schema);
+    putField.put("fields", fields);
+    out.writeFields();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField getField = in.readFields();
+    schema = SchemaCache.intern((Schema) getField.get("schema", null));
+    Map<String, Object> fields = (Map<String, Object>) getField.get("fields", null);
+    List<Schema.Field> schemaFields = schema.getFields();
+    values = new Object[schemaFields.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = fields.get(schemaFields.get(i).getName());
+    }
   }
 }
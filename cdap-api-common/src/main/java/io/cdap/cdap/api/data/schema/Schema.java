@@ -625,6 +625,8 @@ public final class Schema implements Serializable {
 
   // This is a on demand cache for case insensitive field lookup. No need to serialize.
   private transient Map<String, Field> ignoreCaseFieldMap;
+  // This is a on demand cache for field name to field position lookup. No need to serialize.
+  private transient Map<String, Integer> fieldIndexes;
 
   private Schema(Type type,
       @Nullable LogicalType logicalType,
@@ -814,6 +816,30 @@ public final class Schema implements Serializable {
     return ignoreCaseFieldMap.get(name.toLowerCase());
   }
 
+  /**
+   * Returns the position of the record {@link Field} of the given name in the list returned by
+   * {@link #getFields()}.
+   *
+   * @param name Name of the field
+   * @return The position of the field or {@code -1} if there is no such field in this record or
+   *     this is not a {@link Type#RECORD RECORD} schema.
+   */
+  public int getFieldIndex(String name) {
+    if (fields == null) {
+      return -1;
+    }
+    Map<String, Integer> indexes = fieldIndexes;
+    if (indexes == null) {
+      indexes = new HashMap<>();
+      for (int i = 0; i < fields.size(); i++) {
+        indexes.put(fields.get(i).getName(), i);
+      }
+      fieldIndexes = indexes;
+    }
+    Integer index = indexes.get(name);
+    return index == null ? -1 : index;
+  }
+
   /**
    * @return An immutable {@link List} of schemas inside this union or {@code null} if this is not a
    *     {@link Type#UNION UNION} schema.
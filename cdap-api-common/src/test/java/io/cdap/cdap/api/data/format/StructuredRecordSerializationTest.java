@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.api.data.format;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the Java serialization of {@link StructuredRecord}, which must stay compatible with
+ * records serialized by older versions, where the values were kept in a map from field name to
+ * value.
+ */
+public class StructuredRecordSerializationTest {
+
+  private static final Schema INNER_SCHEMA = Schema.recordType(
+      "inner",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+  private static final Schema SCHEMA = Schema.recordType(
+      "outer",
+      Schema.Field.of("str", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("nullableLong", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+      Schema.Field.of("inner", INNER_SCHEMA),
+      Schema.Field.of("nullableInner", Schema.nullableOf(INNER_SCHEMA)),
+      Schema.Field.of("inners", Schema.arrayOf(INNER_SCHEMA)),
+      Schema.Field.of("map", Schema.mapOf(Schema.of(Schema.Type.STRING),
+          Schema.of(Schema.Type.STRING))));
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    StructuredRecord record = createRecord();
+    StructuredRecord copy = (StructuredRecord) deserialize(serialize(record));
+
+    Assert.assertEquals(record, copy);
+    Assert.assertEquals(SCHEMA, copy.getSchema());
+    Assert.assertNull(copy.get("nullableLong"));
+    Assert.assertNull(copy.get("nullableInner"));
+    StructuredRecord inner = copy.get("inner");
+    Assert.assertEquals(INNER_SCHEMA, inner.getSchema());
+    Assert.assertEquals(1, (int) inner.get(0));
+    Assert.assertNull(inner.get("name"));
+    Assert.assertEquals(record.<List<StructuredRecord>>get("inners"), copy.get("inners"));
+  }
+
+  @Test
+  public void testReadLegacyForm() throws Exception {
+    Map<String, Object> innerFields = new HashMap<>();
+    innerFields.put("id", 1);
+    // null fields were either stored as null, or not stored at all
+    innerFields.put("name", null);
+    LegacyRecord inner = new LegacyRecord(INNER_SCHEMA, innerFields);
+
+    List<LegacyRecord> inners = new ArrayList<>();
+    inners.add(inner);
+    Map<String, Object> secondFields = new HashMap<>();
+    secondFields.put("id", 2);
+    secondFields.put("name", "second");
+    inners.add(new LegacyRecord(INNER_SCHEMA, secondFields));
+
+    Map<String, String> map = new HashMap<>();
+    map.put("k", "v");
+
+    Map<String, Object> fields = new HashMap<>();
+    fields.put("str", "value");
+    fields.put("nullableInner", null);
+    fields.put("inner", inner);
+    fields.put("inners", inners);
+    fields.put("map", map);
+    byte[] legacyBytes = replaceClassName(serialize(new LegacyRecord(SCHEMA, fields)),
+        LegacyRecord.class.getName(), StructuredRecord.class.getName());
+
+    StructuredRecord record = (StructuredRecord) deserialize(legacyBytes);
+    Assert.assertEquals(createRecord(), record);
+    Assert.assertEquals("value", record.get(0));
+    Assert.assertNull(record.get("nullableLong"));
+    Assert.assertNull(record.get("nullableInner"));
+    StructuredRecord innerRecord = record.get("inner");
+    Assert.assertEquals(INNER_SCHEMA, innerRecord.getSchema());
+    Assert.assertEquals(1, (int) innerRecord.get("id"));
+    Assert.assertNull(innerRecord.get(1));
+    List<StructuredRecord> innerRecords = record.get("inners");
+    Assert.assertEquals("second", innerRecords.get(1).get("name"));
+  }
+
+  @Test
+  public void testWriteLegacyForm() throws Exception {
+    // records written by this version can still be read by older versions
+    byte[] bytes = replaceClassName(serialize(createRecord()),
+        StructuredRecord.class.getName(), LegacyRecord.class.getName());
+    LegacyRecord record = (LegacyRecord) deserialize(bytes);
+
+    Assert.assertEquals(SCHEMA, record.schema);
+    Assert.assertEquals(SCHEMA.getFields().size(), record.fields.size());
+    Assert.assertEquals("value", record.fields.get("str"));
+    Assert.assertTrue(record.fields.containsKey("nullableLong"));
+    Assert.assertNull(record.fields.get("nullableLong"));
+    Assert.assertNull(record.fields.get("nullableInner"));
+    LegacyRecord inner = (LegacyRecord) record.fields.get("inner");
+    Assert.assertEquals(INNER_SCHEMA, inner.schema);
+    Assert.assertEquals(1, inner.fields.get("id"));
+    Assert.assertNull(inner.fields.get("name"));
+    List<?> inners = (List<?>) record.fields.get("inners");
+    Assert.assertEquals(inner, inners.get(0));
+    Assert.assertEquals("second", ((LegacyRecord) inners.get(1)).fields.get("name"));
+  }
+
+  private static StructuredRecord createRecord() {
+    StructuredRecord inner = StructuredRecord.builder(INNER_SCHEMA).set("id", 1).build();
+    StructuredRecord second = StructuredRecord.builder(INNER_SCHEMA)
+        .set("id", 2)
+        .set("name", "second")
+        .build();
+    Map<String, String> map = new HashMap<>();
+    map.put("k", "v");
+    return StructuredRecord.builder(SCHEMA)
+        .set("str", "value")
+        .set("inner", inner)
+        .set("inners", Arrays.asList(inner, second))
+        .set("map", map)
+        .build();
+  }
+
+  private static byte[] serialize(Object object) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(object);
+    }
+    return bos.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    }
+  }
+
+  /**
+   * Replaces the name of a class in the class descriptors of a serialized stream. Class
+   * descriptors are never written inside block data, so the name can change in length.
+   */
+  private static byte[] replaceClassName(byte[] bytes, String from, String to) throws IOException {
+    byte[] fromBytes = toUtf(from);
+    byte[] toBytes = toUtf(to);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    int replaced = 0;
+    int i = 0;
+    while (i < bytes.length) {
+      if (startsWith(bytes, i, fromBytes)) {
+        bos.write(toBytes);
+        i += fromBytes.length;
+        replaced++;
+      } else {
+        bos.write(bytes[i++]);
+      }
+    }
+    Assert.assertTrue("Class " + from + " not found in the serialized stream", replaced > 0);
+    return bos.toByteArray();
+  }
+
+  private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+    if (offset + prefix.length > bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] toUtf(String str) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream os = new DataOutputStream(bos)) {
+      os.writeUTF(str);
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * Has the serialized form of {@link StructuredRecord} in older versions, which had a schema and
+   * a map from field name to value, and no custom serialization.
+   */
+  private static final class LegacyRecord implements Serializable {
+
+    private static final long serialVersionUID = -6547770456592865613L;
+
+    private final Schema schema;
+    private final Map<String, Object> fields;
+
+    LegacyRecord(Schema schema, Map<String, Object> fields) {
+      this.schema = schema;
+      this.fields = fields;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      LegacyRecord that = (LegacyRecord) o;
+      return Objects.equals(schema, that.schema) && Objects.equals(fields, that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(schema, fields);
+    }
+  }
+}
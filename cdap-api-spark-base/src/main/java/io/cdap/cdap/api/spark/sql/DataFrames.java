@@ -37,16 +37,25 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 
 /**
  * Utility class for conversions between {@link DataType} and {@link Schema}.
+ *
+ * The conversions between {@link StructuredRecord} and {@link Row} are resolved once for each {@link StructType}
+ * and {@link Schema}, and cached, since they are normally applied to every record of a dataset.
  */
 public final class DataFrames {
 
+  private static final int MAX_CACHED_CONVERTERS = 1000;
+  private static final Map<StructType, ValueConverter> ROW_CONVERTERS = createConverterCache();
+  private static final Map<Schema, ValueConverter> RECORD_CONVERTERS = createConverterCache();
+
   // A default union selector that will return the non-nullable part of it if the schema is nullable.
   // Otherwise exception will be thrown.
   private static final Function1<Schema, DataType> DEFAULT_UNION_SELECTOR = new AbstractFunction1<Schema, DataType>() {
@@ -99,7 +108,8 @@ public final class DataFrames {
    * @return a new {@link Row} instance
    */
   public static Row toRow(StructuredRecord record, StructType structType) {
-    return (Row) toRowValue(record, structType, "");
+    ValueConverter converter = getConverter(ROW_CONVERTERS, structType, type -> new RowConverter(type, ""));
+    return (Row) convert(converter, record);
   }
 
   /**
@@ -113,7 +123,8 @@ public final class DataFrames {
     if (schema.getType() != Schema.Type.RECORD) {
       throw new IllegalArgumentException("Only record type schema is supported");
     }
-    return (StructuredRecord) fromRowValue(row, schema, "");
+    ValueConverter converter = getConverter(RECORD_CONVERTERS, schema, type -> new RecordConverter(type, ""));
+    return (StructuredRecord) convert(converter, row);
   }
 
   /**
@@ -247,139 +258,135 @@ public final class DataFrames {
   }
 
   /**
-   * Converts an object value to a value type acceptable by {@link Row}
+   * Creates a synchronized cache of {@link ValueConverter} that evicts the least recently used entry
+   * once it holds {@link #MAX_CACHED_CONVERTERS} entries.
+   */
+  private static <K> Map<K, ValueConverter> createConverterCache() {
+    return Collections.synchronizedMap(new LinkedHashMap<K, ValueConverter>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, ValueConverter> eldest) {
+        return size() > MAX_CACHED_CONVERTERS;
+      }
+    });
+  }
+
+  /**
+   * Returns the cached {@link ValueConverter} for the given key, creating it if it is not cached yet.
+   */
+  private static <K> ValueConverter getConverter(Map<K, ValueConverter> cache, K key,
+                                                 Function<K, ValueConverter> factory) {
+    ValueConverter converter = cache.get(key);
+    if (converter != null) {
+      return converter;
+    }
+    // Create the converter outside of the lock. If another thread cached one in the meantime, use that one.
+    converter = factory.apply(key);
+    ValueConverter existing = cache.putIfAbsent(key, converter);
+    return existing == null ? converter : existing;
+  }
+
+  /**
+   * Creates a {@link ValueConverter} that converts an object value to a value type acceptable by {@link Row}.
    *
-   * @param value the value to convert
    * @param dataType the target {@link DataType} of the value
    * @param path the current field path from the top. It is just for error message purpose.
-   * @return an object that is compatible with Spark {@link Row}.
+   * @return a {@link ValueConverter} that returns objects that are compatible with Spark {@link Row}.
    */
-  private static Object toRowValue(@Nullable Object value, DataType dataType, String path) {
-    if (value == null) {
-      return null;
-    }
+  private static ValueConverter createRowValueConverter(DataType dataType, String path) {
     if (dataType.equals(DataTypes.NullType)) {
-      return null;
-    }
-    if (dataType.equals(DataTypes.BooleanType)) {
-      return value;
-    }
-    if (dataType.equals(DataTypes.ByteType)) {
-      return value;
+      return value -> null;
     }
-    if (dataType.equals(DataTypes.ShortType)) {
-      return value;
-    }
-    if (dataType.equals(DataTypes.IntegerType)) {
-      return value;
-    }
-    if (dataType.equals(DataTypes.LongType)) {
-      return value;
-    }
-    if (dataType.equals(DataTypes.FloatType)) {
-      return value;
-    }
-    if (dataType.equals(DataTypes.DoubleType)) {
-      return value;
+    if (dataType.equals(DataTypes.BooleanType) || dataType.equals(DataTypes.ByteType)
+      || dataType.equals(DataTypes.ShortType) || dataType.equals(DataTypes.IntegerType)
+      || dataType.equals(DataTypes.LongType) || dataType.equals(DataTypes.FloatType)
+      || dataType.equals(DataTypes.DoubleType) || dataType.equals(DataTypes.StringType)) {
+      return value -> value;
     }
     if (dataType.equals(DataTypes.BinaryType)) {
-      if (value instanceof ByteBuffer) {
-        return Bytes.toBytes((ByteBuffer) value);
-      }
-      return value;
-    }
-    if (dataType.equals(DataTypes.StringType)) {
-      return value;
+      return value -> value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : value;
     }
     if (dataType instanceof ArrayType) {
-      @SuppressWarnings("unchecked")
-      Collection<Object> collection;
-      int size;
-      if (value instanceof Collection) {
-        collection = (Collection<Object>) value;
-      } else if (value.getClass().isArray()) {
-        collection = Arrays.asList((Object[]) value);
-      } else {
-        throw new IllegalArgumentException(
-          "Value type " + value.getClass()
-            + " is not supported as array type value. It must either be a Collection or an array");
-      }
-
-      List<Object> result = new ArrayList<>(collection.size());
-      String elementPath = path + "[]";
       ArrayType arrayType = (ArrayType) dataType;
+      String elementPath = path + "[]";
+      ValueConverter elementConverter = createRowValueConverter(arrayType.elementType(), elementPath);
+      boolean containsNull = arrayType.containsNull();
+      return value -> {
+        Collection<?> collection;
+        if (value instanceof Collection) {
+          collection = (Collection<?>) value;
+        } else if (value.getClass().isArray()) {
+          collection = Arrays.asList((Object[]) value);
+        } else {
+          throw new IllegalArgumentException(
+            "Value type " + value.getClass()
+              + " is not supported as array type value. It must either be a Collection or an array");
+        }
 
-      for (Object obj : collection) {
-        Object elementValue = toRowValue(obj, arrayType.elementType(), elementPath);
-        if (elementValue == null && !arrayType.containsNull()) {
-          throw new IllegalArgumentException("Null value is not allowed for array element at " + elementPath);
+        List<Object> result = new ArrayList<>(collection.size());
+        for (Object obj : collection) {
+          Object elementValue = convert(elementConverter, obj);
+          if (elementValue == null && !containsNull) {
+            throw new IllegalArgumentException("Null value is not allowed for array element at " + elementPath);
+          }
+          result.add(elementValue);
         }
-        result.add(elementValue);
-      }
-      return JavaConversions.asScalaBuffer(result).toSeq();
+        return JavaConversions.asScalaBuffer(result).toSeq();
+      };
     }
     if (dataType instanceof MapType) {
-      @SuppressWarnings("unchecked")
-      Map<Object, Object> map = (Map<Object, Object>) value;
-      Map<Object, Object> result = new LinkedHashMap<>(map.size());
-      String mapPath = path + "<>";
       MapType mapType = (MapType) dataType;
-
-      for (Map.Entry<?, ?> entry : map.entrySet()) {
-        Object mapKey = toRowValue(entry.getKey(), mapType.keyType(), mapPath);
-        if (mapKey == null) {
-          throw new IllegalArgumentException("Null key is not allowed for map at " + mapPath);
-        }
-        Object mapValue = toRowValue(entry.getValue(), mapType.valueType(), mapPath);
-        if (mapValue == null && !mapType.valueContainsNull()) {
-          throw new IllegalArgumentException("Null value is not allowed for map at " + mapPath);
+      String mapPath = path + "<>";
+      ValueConverter keyConverter = createRowValueConverter(mapType.keyType(), mapPath);
+      ValueConverter valueConverter = createRowValueConverter(mapType.valueType(), mapPath);
+      boolean valueContainsNull = mapType.valueContainsNull();
+      return value -> {
+        Map<?, ?> map = (Map<?, ?>) value;
+        Map<Object, Object> result = new LinkedHashMap<>(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          Object mapKey = convert(keyConverter, entry.getKey());
+          if (mapKey == null) {
+            throw new IllegalArgumentException("Null key is not allowed for map at " + mapPath);
+          }
+          Object mapValue = convert(valueConverter, entry.getValue());
+          if (mapValue == null && !valueContainsNull) {
+            throw new IllegalArgumentException("Null value is not allowed for map at " + mapPath);
+          }
+          result.put(mapKey, mapValue);
         }
-        result.put(mapKey, mapValue);
-      }
-      return JavaConversions.mapAsScalaMap(result);
+        return JavaConversions.mapAsScalaMap(result);
+      };
     }
     if (dataType instanceof StructType) {
-      StructuredRecord record = (StructuredRecord) value;
-      StructField[] fields = ((StructType) dataType).fields();
-      Object[] fieldValues = new Object[fields.length];
-      for (int i = 0; i < fields.length; i++) {
-        String fieldName = fields[i].name();
-        String fieldPath = path + "/" + fieldName;
-        Object fieldValue = toRowValue(record.get(fieldName), fields[i].dataType(), fieldPath);
-
-        if (fieldValue == null && !fields[i].nullable()) {
-          throw new IllegalArgumentException("Null value is not allowed for row field at " + fieldPath);
-        }
-        fieldValues[i] = fieldValue;
-      }
-      return RowFactory.create(fieldValues);
+      return new RowConverter((StructType) dataType, path);
     }
 
     // Some special types in Spark SQL
     if (dataType.equals(DataTypes.TimestampType)) {
-      return new Timestamp((long) value);
+      return value -> new Timestamp((long) value);
     }
     if (dataType.equals(DataTypes.DateType)) {
-      return new Date((long) value);
+      return value -> new Date((long) value);
     }
 
     // Not support the CalendarInterval type for now, as there is no equivalent in Schema
-    throw new IllegalArgumentException("Unsupported data type: " + dataType.typeName());
+    return value -> {
+      throw new IllegalArgumentException("Unsupported data type: " + dataType.typeName());
+    };
   }
 
   /**
-   * Converts a value from Spark {@link Row} into value acceptable for {@link StructuredRecord}.
+   * Creates a {@link ValueConverter} that converts a value from Spark {@link Row} into value acceptable for
+   * {@link StructuredRecord}.
    *
-   * @param value the value to convert from
    * @param schema the target {@link Schema} of the value
    * @param path the current field path from the top. It is just for error message purpose.
-   * @return a value object acceptable to be used in {@link StructuredRecord}.
+   * @return a {@link ValueConverter} that returns objects acceptable to be used in {@link StructuredRecord}.
    */
-  private static Object fromRowValue(Object value, Schema schema, String path) {
+  private static ValueConverter createRecordValueConverter(Schema schema, String path) {
     switch (schema.getType()) {
       // For all simple types, return as is.
       case NULL:
-        return null;
+        return value -> null;
       case BOOLEAN:
       case INT:
       case LONG:
@@ -387,99 +394,204 @@ public final class DataFrames {
       case DOUBLE:
       case STRING:
       case BYTES:
-        return value;
+        return value -> value;
       case ARRAY: {
-        // Value must be a collection
-        @SuppressWarnings("unchecked")
-        Collection<Object> collection = (Collection<Object>) value;
-        List<Object> result = new ArrayList<>(collection.size());
-
         Schema componentSchema = schema.getComponentSchema();
-        Schema valueSchema = getNonNullIfNullable(componentSchema);
-
+        boolean elementNullable = componentSchema.isNullable();
+        ValueConverter elementConverter = createRecordValueConverter(getNonNullIfNullable(componentSchema), path);
         String elementPath = path + "[]";
-        for (Object element : collection) {
-          if (element == null && !componentSchema.isNullable()) {
-            throw new IllegalArgumentException("Null value is not allowed for array element at " + elementPath);
+        return value -> {
+          // Value must be a collection
+          Collection<?> collection = (Collection<?>) value;
+          List<Object> result = new ArrayList<>(collection.size());
+          for (Object element : collection) {
+            if (element == null && !elementNullable) {
+              throw new IllegalArgumentException("Null value is not allowed for array element at " + elementPath);
+            }
+            result.add(convert(elementConverter, element));
           }
-          result.add(fromRowValue(element, valueSchema, path));
-        }
-        return result;
+          return result;
+        };
       }
       case MAP: {
-        // Value must be a Map
-        Map<?, ?> map = (Map<?, ?>) value;
-        Map<Object, Object> result = new LinkedHashMap<>(map.size());
         Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
-
+        boolean valueNullable = mapSchema.getValue().isNullable();
         // Map in Row object won't have null key, as StructType doesn't support it.
-        Schema keySchema = getNonNullIfNullable(mapSchema.getKey());
-        Schema valueSchema = getNonNullIfNullable(mapSchema.getValue());
-
+        ValueConverter keyConverter = createRecordValueConverter(getNonNullIfNullable(mapSchema.getKey()), path);
+        ValueConverter valueConverter = createRecordValueConverter(getNonNullIfNullable(mapSchema.getValue()), path);
         String mapPath = path + "<>";
-        for (Map.Entry<?, ?> entry : map.entrySet()) {
-          if (entry.getValue() == null && !mapSchema.getValue().isNullable()) {
-            throw new IllegalArgumentException("Null value is not allowed for map at " + mapPath);
+        return value -> {
+          // Value must be a Map
+          Map<?, ?> map = (Map<?, ?>) value;
+          Map<Object, Object> result = new LinkedHashMap<>(map.size());
+          for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() == null && !valueNullable) {
+              throw new IllegalArgumentException("Null value is not allowed for map at " + mapPath);
+            }
+            result.put(convert(keyConverter, entry.getKey()), convert(valueConverter, entry.getValue()));
           }
-          result.put(fromRowValue(entry.getKey(), keySchema, path),
-                     fromRowValue(entry.getValue(), valueSchema, path));
-        }
-        return result;
+          return result;
+        };
       }
-      case RECORD: {
-        // Value must be a Row
-        Row row = (Row) value;
-        StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-        int idx = 0;
-        for (Schema.Field field : schema.getFields()) {
-          String fieldPath = path + "/" + field.getName();
-          Schema fieldSchema = field.getSchema();
+      case RECORD:
+        return new RecordConverter(schema, path);
+    }
 
-          if (row.isNullAt(idx) && !fieldSchema.isNullable()) {
-            throw new NullPointerException("Null value is not allowed in record field at " + fieldPath);
-          }
+    return value -> {
+      throw new IllegalArgumentException("Unsupported schema: " + schema);
+    };
+  }
 
-          fieldSchema = getNonNullIfNullable(fieldSchema);
+  /**
+   * Converts the given value with the given {@link ValueConverter}. A {@code null} value is always converted
+   * to {@code null}.
+   */
+  @Nullable
+  private static Object convert(ValueConverter converter, @Nullable Object value) {
+    return value == null ? null : converter.convert(value);
+  }
 
-          // If the value is null for the field, just continue without setting anything to the StructuredRecord
-          if (row.isNullAt(idx)) {
-            idx++;
-            continue;
-          }
+  /**
+   * Returns the non-nullable part of the given {@link Schema} if it is nullable; otherwise return it as is.
+   */
+  private static Schema getNonNullIfNullable(Schema schema) {
+    return schema.isNullable() ? schema.getNonNullable() : schema;
+  }
 
-          // Special case handling for ARRAY and MAP in order to get the Java type
-          if (fieldSchema.getType() == Schema.Type.ARRAY) {
-            builder.set(field.getName(), fromRowValue(row.getList(idx), fieldSchema, fieldPath));
-          } else if (fieldSchema.getType() == Schema.Type.MAP) {
-            builder.set(field.getName(), fromRowValue(row.getJavaMap(idx), fieldSchema, fieldPath));
-          } else {
-            Object fieldValue = row.get(idx);
-
-            // Date and timestamp special return type handling
-            if (fieldValue instanceof Date) {
-              fieldValue = ((Date) fieldValue).getTime();
-            } else if (fieldValue instanceof Timestamp) {
-              fieldValue = ((Timestamp) fieldValue).getTime();
-            }
-            builder.set(field.getName(), fromRowValue(fieldValue, fieldSchema, fieldPath));
-          }
+  private DataFrames() {
+  }
 
-          idx++;
-        }
-        return builder.build();
+  /**
+   * Converts a non-null value between the {@link StructuredRecord} and the Spark {@link Row} representation.
+   * Converters are resolved once from the target type, and must be thread safe since they are cached and
+   * shared.
+   */
+  private interface ValueConverter {
+    Object convert(Object value);
+  }
+
+  /**
+   * Converts a {@link StructuredRecord} into a {@link Row}. Record fields are looked up by name once for each
+   * record schema that is seen, and are then read by position.
+   */
+  private static final class RowConverter implements ValueConverter {
+    private final String[] names;
+    private final String[] paths;
+    private final boolean[] nullable;
+    private final ValueConverter[] converters;
+    private volatile FieldIndices fieldIndices;
+
+    private RowConverter(StructType structType, String path) {
+      StructField[] fields = structType.fields();
+      this.names = new String[fields.length];
+      this.paths = new String[fields.length];
+      this.nullable = new boolean[fields.length];
+      this.converters = new ValueConverter[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+        names[i] = fields[i].name();
+        paths[i] = path + "/" + names[i];
+        nullable[i] = fields[i].nullable();
+        converters[i] = createRowValueConverter(fields[i].dataType(), paths[i]);
       }
     }
 
-    throw new IllegalArgumentException("Unsupported schema: " + schema);
+    @Override
+    public Object convert(Object value) {
+      StructuredRecord record = (StructuredRecord) value;
+      FieldIndices indices = fieldIndices;
+      if (indices == null || indices.schema != record.getSchema()) {
+        indices = new FieldIndices(record.getSchema(), names);
+        fieldIndices = indices;
+      }
+
+      Object[] fieldValues = new Object[names.length];
+      for (int i = 0; i < names.length; i++) {
+        int index = indices.indices[i];
+        Object fieldValue = index < 0 ? null : DataFrames.convert(converters[i], record.get(index));
+        if (fieldValue == null && !nullable[i]) {
+          throw new IllegalArgumentException("Null value is not allowed for row field at " + paths[i]);
+        }
+        fieldValues[i] = fieldValue;
+      }
+      return RowFactory.create(fieldValues);
+    }
   }
 
   /**
-   * Returns the non-nullable part of the given {@link Schema} if it is nullable; otherwise return it as is.
+   * The positions of a list of fields in a record {@link Schema}.
    */
-  private static Schema getNonNullIfNullable(Schema schema) {
-    return schema.isNullable() ? schema.getNonNullable() : schema;
+  private static final class FieldIndices {
+    private final Schema schema;
+    private final int[] indices;
+
+    private FieldIndices(Schema schema, String[] names) {
+      this.schema = schema;
+      this.indices = new int[names.length];
+      for (int i = 0; i < names.length; i++) {
+        indices[i] = schema.getFieldIndex(names[i]);
+      }
+    }
   }
 
-  private DataFrames() {
+  /**
+   * Converts a {@link Row} into a {@link StructuredRecord}.
+   */
+  private static final class RecordConverter implements ValueConverter {
+    private final Schema schema;
+    private final String[] paths;
+    private final boolean[] nullable;
+    private final Schema.Type[] types;
+    private final ValueConverter[] converters;
+
+    private RecordConverter(Schema schema, String path) {
+      List<Schema.Field> fields = schema.getFields();
+      this.schema = schema;
+      this.paths = new String[fields.size()];
+      this.nullable = new boolean[fields.size()];
+      this.types = new Schema.Type[fields.size()];
+      this.converters = new ValueConverter[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        Schema.Field field = fields.get(i);
+        Schema fieldSchema = getNonNullIfNullable(field.getSchema());
+        paths[i] = path + "/" + field.getName();
+        nullable[i] = field.getSchema().isNullable();
+        types[i] = fieldSchema.getType();
+        converters[i] = createRecordValueConverter(fieldSchema, paths[i]);
+      }
+    }
+
+    @Override
+    public Object convert(Object value) {
+      // Value must be a Row
+      Row row = (Row) value;
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (int i = 0; i < converters.length; i++) {
+        // If the value is null for the field, just continue without setting anything to the StructuredRecord
+        if (row.isNullAt(i)) {
+          if (!nullable[i]) {
+            throw new NullPointerException("Null value is not allowed in record field at " + paths[i]);
+          }
+          continue;
+        }
+
+        // Special case handling for ARRAY and MAP in order to get the Java type
+        Object fieldValue;
+        if (types[i] == Schema.Type.ARRAY) {
+          fieldValue = row.getList(i);
+        } else if (types[i] == Schema.Type.MAP) {
+          fieldValue = row.getJavaMap(i);
+        } else {
+          fieldValue = row.get(i);
+          // Date and timestamp special return type handling
+          if (fieldValue instanceof Date) {
+            fieldValue = ((Date) fieldValue).getTime();
+          } else if (fieldValue instanceof Timestamp) {
+            fieldValue = ((Timestamp) fieldValue).getTime();
+          }
+        }
+        builder.set(i, converters[i].convert(fieldValue));
+      }
+      return builder.build();
+    }
   }
 }
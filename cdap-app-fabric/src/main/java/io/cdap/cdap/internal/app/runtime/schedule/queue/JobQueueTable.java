@@ -214,6 +214,7 @@ public class JobQueueTable implements JobQueue {
 
   @Override
   public void markJobsForDeletion(ScheduleId scheduleId, long markedTime) throws IOException {
+    List<Collection<Field<?>>> deleteRows = new ArrayList<>();
     try (CloseableIterator<Job> iterator =
         createJobIterator(jobQueueTable.scan(Range.singleton(getScheduleScanKeys(scheduleId)),
             Integer.MAX_VALUE))) {
@@ -222,10 +223,12 @@ public class JobQueueTable implements JobQueue {
         // only mark jobs that are not marked yet to avoid chance of conflict with concurrent delete
         if (job.getState() != Job.State.PENDING_LAUNCH && !job.isToBeDeleted()) {
           // jobs that are pending launch will be deleted by the launcher anyway
-          writeJobDelete(job, markedTime);
+          deleteRows.add(getJobDeleteFields(job, markedTime));
         }
       }
     }
+    // write all the delete markers at once after the scan is closed
+    jobQueueTable.multiUpsert(deleteRows);
   }
 
   @Override
@@ -379,11 +382,15 @@ public class JobQueueTable implements JobQueue {
   }
 
   private void writeJobDelete(Job job, Long deleteTime) throws IOException {
+    jobQueueTable.upsert(getJobDeleteFields(job, deleteTime));
+  }
+
+  private Collection<Field<?>> getJobDeleteFields(Job job, Long deleteTime) {
     Collection<Field<?>> fields = getJobKeys(job.getSchedule().getScheduleId(),
         job.getGenerationId(),
         StoreDefinition.JobQueueStore.RowType.DELETE);
     fields.add(Fields.longField(StoreDefinition.JobQueueStore.DELETE_TIME, deleteTime));
-    jobQueueTable.upsert(fields);
+    return fields;
   }
 
   private void writeJobObsolete(Job job, long obsoleteTime) throws IOException {
@@ -156,12 +156,14 @@ public class ProgramScheduleStoreDataset {
     scheduleStore.upsert(scheduleFields);
 
     int count = 0;
+    List<Collection<Field<?>>> triggers = new ArrayList<>();
     for (String triggerKey : extractTriggerKeys(schedule)) {
       Collection<Field<?>> triggerFields = getTriggerKeys(scheduleKeys, count++);
       triggerFields.add(
           Fields.stringField(StoreDefinition.ProgramScheduleStore.TRIGGER_KEY, triggerKey));
-      triggerStore.upsert(triggerFields);
+      triggers.add(triggerFields);
     }
+    triggerStore.multiUpsert(triggers);
   }
 
   /**
@@ -831,6 +831,91 @@ public class DataPipelineTest extends HydratorTestBase {
     validateMetric(3, appId, "sink2.records.in");
   }
 
+  @Test
+  public void testFusedTransforms() throws Exception {
+    testFusedTransforms(true);
+    testFusedTransforms(false);
+  }
+
+  private void testFusedTransforms(boolean fuseTransforms) throws Exception {
+    String sourceName = "fusedIn-" + fuseTransforms;
+    String sinkName = "fusedOut-" + fuseTransforms;
+    String errorSinkName = "fusedErrOut-" + fuseTransforms;
+
+    Schema inputSchema = Schema.recordOf("user",
+                                         Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                                         Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+    /*
+     * source --> identity --> filter1 --> filter2 --> sink
+     *                                        |
+     *                                        |--> errorflatten --> errorsink
+     *
+     * identity, filter1 and filter2 are run as a single fused function when transforms are fused.
+     * filter1 has no error output, so its error records are dropped.
+     */
+    ETLBatchConfig config = ETLBatchConfig.builder()
+      .setEngine(Engine.SPARK)
+      .addStage(new ETLStage("source", MockSource.getPlugin(sourceName, inputSchema)))
+      .addStage(new ETLStage("identity", IdentityTransform.getPlugin()))
+      .addStage(new ETLStage("filter1", StringValueFilterTransform.getPlugin("name", "Leo")))
+      .addStage(new ETLStage("filter2", StringValueFilterTransform.getPlugin("name", "Ralph")))
+      .addStage(new ETLStage("errorflatten", FlattenErrorTransform.getPlugin()))
+      .addStage(new ETLStage("sink", MockSink.getPlugin(sinkName)))
+      .addStage(new ETLStage("errorsink", MockSink.getPlugin(errorSinkName)))
+      .addConnection("source", "identity")
+      .addConnection("identity", "filter1")
+      .addConnection("filter1", "filter2")
+      .addConnection("filter2", "sink")
+      .addConnection("filter2", "errorflatten")
+      .addConnection("errorflatten", "errorsink")
+      .build();
+
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(APP_ARTIFACT, config);
+    ApplicationId appId = NamespaceId.DEFAULT.app("FusedTransformsTest-" + fuseTransforms);
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    StructuredRecord leo = StructuredRecord.builder(inputSchema).set("name", "Leo").set("id", 1).build();
+    StructuredRecord ralph = StructuredRecord.builder(inputSchema).set("name", "Ralph").set("id", 2).build();
+    StructuredRecord don = StructuredRecord.builder(inputSchema).set("name", "Don").set("id", 3).build();
+    StructuredRecord mike = StructuredRecord.builder(inputSchema).set("name", "Mike").set("id", 4).build();
+    DataSetManager<Table> sourceTable = getDataset(sourceName);
+    MockSource.writeInput(sourceTable, ImmutableList.of(leo, ralph, don, mike));
+
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+    Map<String, String> args = Collections.singletonMap(io.cdap.cdap.etl.common.Constants.FUSE_TRANSFORMS,
+                                                        String.valueOf(fuseTransforms));
+    startAndWaitForGoodRun(workflowManager, args);
+
+    DataSetManager<Table> sinkTable = getDataset(sinkName);
+    Assert.assertEquals(ImmutableSet.of(don, mike), new HashSet<>(MockSink.readOutput(sinkTable)));
+
+    Schema flattenSchema =
+      Schema.recordOf("erroruser",
+                      Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                      Schema.Field.of("errMsg", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                      Schema.Field.of("errCode", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+                      Schema.Field.of("errStage", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    StructuredRecord expectedError = StructuredRecord.builder(flattenSchema).set("name", "Ralph").set("id", 2)
+      .set("errMsg", "bad string value").set("errCode", 1).set("errStage", "filter2").build();
+    DataSetManager<Table> errorSinkTable = getDataset(errorSinkName);
+    Assert.assertEquals(Collections.singletonList(expectedError), MockSink.readOutput(errorSinkTable));
+
+    // every stage of a fused chain still emits its own metrics
+    validateMetric(4, appId, "source.records.out");
+    validateMetric(4, appId, "identity.records.in");
+    validateMetric(4, appId, "identity.records.out");
+    validateMetric(4, appId, "filter1.records.in");
+    validateMetric(3, appId, "filter1.records.out");
+    validateMetric(1, appId, "filter1.records.error");
+    validateMetric(3, appId, "filter2.records.in");
+    validateMetric(2, appId, "filter2.records.out");
+    validateMetric(1, appId, "filter2.records.error");
+    validateMetric(1, appId, "errorflatten.records.in");
+    validateMetric(2, appId, "sink.records.in");
+    validateMetric(1, appId, "errorsink.records.in");
+  }
+
   @Test
   public void testPipelineWithAllActions() throws Exception {
     String actionTable = "actionTable";
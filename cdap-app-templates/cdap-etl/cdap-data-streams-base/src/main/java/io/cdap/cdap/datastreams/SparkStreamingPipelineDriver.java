@@ -290,9 +290,11 @@ public class SparkStreamingPipelineDriver implements JavaSparkMain {
           sec.getRuntimeArguments().getOrDefault(Constants.CONSOLIDATE_STAGES, Boolean.TRUE.toString()));
         boolean shouldCacheFunctions = Boolean.parseBoolean(
           sec.getRuntimeArguments().getOrDefault(Constants.CACHE_FUNCTIONS, Boolean.TRUE.toString()));
+        // transforms are not fused in streaming pipelines, since each transform goes through a DynamicTransform
+        // so that code changes are picked up and macros are evaluated when recovering from a checkpoint
         runner.runPipeline(phaseSpec, StreamingSource.PLUGIN_TYPE, sec, Collections.emptyMap(),
                            pluginContext, Collections.emptyMap(), uncombinableSinks, shouldConsolidateStages,
-                           shouldCacheFunctions);
+                           shouldCacheFunctions, false);
       } catch (Exception e) {
         throw new RuntimeException(e);
       }
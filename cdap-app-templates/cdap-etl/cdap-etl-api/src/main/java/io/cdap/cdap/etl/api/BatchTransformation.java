@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.api;
+
+import io.cdap.cdap.api.annotation.Beta;
+import java.util.List;
+
+/**
+ * Transforms a batch of input objects into zero or more output objects. A {@link Transformation}
+ * can additionally implement this interface to process multiple records in a single call when the
+ * pipeline runs with batch execution enabled. The single record
+ * {@link Transformation#transform(Object, Emitter)} method is still used otherwise.
+ *
+ * @param <IN> Type of input object
+ * @param <OUT> Type of output object
+ */
+@Beta
+public interface BatchTransformation<IN, OUT> {
+
+  /**
+   * Transform the inputs and emit output using {@link Emitter}. The input list must not be
+   * modified or kept after this method returns.
+   *
+   * @param inputs input data to be transformed
+   * @param emitter {@link Emitter} to emit data to the next stage
+   * @throws Exception if there's an error during this method invocation
+   */
+  void transform(List<IN> inputs, Emitter<OUT> emitter) throws Exception;
+}
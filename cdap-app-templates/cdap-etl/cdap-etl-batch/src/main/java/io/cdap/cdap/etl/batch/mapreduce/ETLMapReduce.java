@@ -254,6 +254,17 @@ public class ETLMapReduce extends AbstractMapReduce {
       }
     }
 
+    @Override
+    protected void cleanup(Context context) {
+      // outputs can no longer be written in destroy, so send out anything still buffered here
+      try {
+        transformRunner.flush();
+      } catch (StageFailureException e) {
+        PIPELINE_LOG.error("{}", e.getMessage(), e.getCause());
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+
     @Override
     public void destroy() {
       transformRunner.destroy();
@@ -293,6 +304,17 @@ public class ETLMapReduce extends AbstractMapReduce {
       }
     }
 
+    @Override
+    protected void cleanup(Context context) {
+      // outputs can no longer be written in destroy, so send out anything still buffered here
+      try {
+        transformRunner.flush();
+      } catch (StageFailureException e) {
+        PIPELINE_LOG.error("{}", e.getMessage(), e.getCause());
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+
     @Override
     public void destroy() {
       transformRunner.destroy();
@@ -103,11 +103,13 @@ public class TransformRunner<KEY, VALUE> {
       }
     }
 
+    BasicArguments arguments = new BasicArguments(context.getWorkflowToken(), runtimeArgs);
     MapReduceTransformExecutorFactory<KeyValue<KEY, VALUE>> transformExecutorFactory =
-        new MapReduceTransformExecutorFactory<>(context, pluginInstantiator, metrics,
-            new BasicArguments(context.getWorkflowToken(), runtimeArgs),
+        new MapReduceTransformExecutorFactory<>(context, pluginInstantiator, metrics, arguments,
             sourceStage, phaseSpec.pipelineContainsCondition(), outputWriter);
-    this.transformExecutor = transformExecutorFactory.create(phase);
+    String batchSize = arguments.get(Constants.TRANSFORM_BATCH_SIZE);
+    this.transformExecutor = transformExecutorFactory.create(phase,
+        batchSize == null ? 1 : Integer.parseInt(batchSize));
   }
 
   // this is needed because we need to write to the context differently depending on the number of outputs
@@ -146,6 +148,14 @@ public class TransformRunner<KEY, VALUE> {
     transformExecutor.runOneIteration(input);
   }
 
+  /**
+   * Sends any records buffered by the transform executor through the rest of the pipeline. Must be
+   * called after the last input and while outputs can still be written.
+   */
+  public void flush() {
+    transformExecutor.flush();
+  }
+
   public void destroy() {
     Destroyables.destroyQuietly(transformExecutor);
   }
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import io.cdap.cdap.etl.api.BatchTransformation;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.Transformation;
+import java.util.List;
+
+/**
+ * A {@link BatchTransformation} that calls a single record {@link Transformation} for each input
+ * in the batch.
+ *
+ * @param <IN> Type of input object
+ * @param <OUT> Type of output object
+ */
+public final class BatchTransformationAdapter<IN, OUT> implements BatchTransformation<IN, OUT> {
+
+  private final Transformation<IN, OUT> transformation;
+
+  private BatchTransformationAdapter(Transformation<IN, OUT> transformation) {
+    this.transformation = transformation;
+  }
+
+  /**
+   * Returns a {@link BatchTransformation} for the given {@link Transformation}. If the
+   * transformation already implements {@link BatchTransformation}, it is returned as is.
+   */
+  @SuppressWarnings("unchecked")
+  public static <IN, OUT> BatchTransformation<IN, OUT> of(Transformation<IN, OUT> transformation) {
+    if (transformation instanceof BatchTransformation) {
+      return (BatchTransformation<IN, OUT>) transformation;
+    }
+    return new BatchTransformationAdapter<>(transformation);
+  }
+
+  @Override
+  public void transform(List<IN> inputs, Emitter<OUT> emitter) throws Exception {
+    for (IN input : inputs) {
+      transformation.transform(input, emitter);
+    }
+  }
+}
@@ -35,8 +35,16 @@ public final class Constants {
   public static final String FIELD_OPERATION_KEY_IN_WORKFLOW_TOKEN = "field.operations";
   public static final String SPARK_PIPELINE_AUTOCACHE_ENABLE_FLAG = "spark.cdap.pipeline.autocache.enable";
   public static final String SPARK_PIPELINE_CACHING_STORAGE_LEVEL = "spark.cdap.pipeline.caching.storage.level";
+  public static final String SPARK_PIPELINE_CACHING_MIN_SAVINGS = "spark.cdap.pipeline.caching.min.savings";
+  public static final String SPARK_PIPELINE_CACHING_MEMORY_MAX_FANOUT =
+      "spark.cdap.pipeline.caching.memory.max.fanout";
+  public static final String SPARK_PIPELINE_CACHING_MEMORY_MAX_COLLECTIONS =
+      "spark.cdap.pipeline.caching.memory.max.collections";
+  public static final String SPARK_PIPELINE_CACHING_MEMORY_MIN_SAVINGS =
+      "spark.cdap.pipeline.caching.memory.min.savings";
   public static final String CONSOLIDATE_STAGES = "spark.cdap.pipeline.consolidate.stages";
   public static final String CACHE_FUNCTIONS = "spark.cdap.pipeline.functioncache.enable";
+  public static final String FUSE_TRANSFORMS = "spark.cdap.pipeline.fuse.transforms";
   public static final String DATASET_KRYO_ENABLED = "spark.cdap.pipeline.dataset.kryo.enable";
 
   /**
@@ -46,8 +54,28 @@ public final class Constants {
   public static final String DATASET_FORCE = "spark.cdap.pipeline.dataset.force";
   public static final String DATASET_AGGREGATE_ENABLED = "spark.cdap.pipeline.aggregate.dataset.enable";
   public static final String DISABLE_ELT_PUSHDOWN = "cdap.pipeline.pushdown.disable";
+  // Can be used as a runtime argument for MapReduce pipelines to send records through the transforms
+  // in batches of the given size. Only safe if sources and aggregators do not reuse the objects they emit.
+  public static final String TRANSFORM_BATCH_SIZE = "cdap.pipeline.transform.batch.size";
   public static final String DATASET_AGGREGATE_IGNORE_PARTITIONS =
       "spark.cdap.pipeline.aggregate.dataset.partitions.ignore";
+  // Strategy for joins on keys without a broadcast hint. One of auto, sort_merge or shuffle_hash.
+  public static final String SPARK_PIPELINE_JOIN_STRATEGY = "spark.cdap.pipeline.join.strategy";
+  // Joins are automatically broadcast if the estimated size of the joined side is at most this many bytes.
+  // Defaults to spark.sql.autoBroadcastJoinThreshold, and a negative value disables it.
+  public static final String SPARK_PIPELINE_JOIN_BROADCAST_MAX_BYTES =
+      "spark.cdap.pipeline.join.broadcast.max.bytes";
+  public static final String SPARK_PIPELINE_JOIN_SHUFFLE_HASH_MAX_PARTITION_BYTES =
+      "spark.cdap.pipeline.join.shufflehash.max.partition.bytes";
+  // Can be used to salt keys that are found to be skewed by sampling the input of joins without a distribution
+  public static final String SPARK_PIPELINE_JOIN_SKEW_SALTING_ENABLE =
+      "spark.cdap.pipeline.join.skew.salting.enable";
+  public static final String SPARK_PIPELINE_JOIN_SKEW_SAMPLE_FRACTION =
+      "spark.cdap.pipeline.join.skew.sample.fraction";
+  public static final String SPARK_PIPELINE_JOIN_SKEW_MIN_RECORDS =
+      "spark.cdap.pipeline.join.skew.min.records";
+  public static final String SPARK_PIPELINE_JOIN_SKEW_MAX_KEYS = "spark.cdap.pipeline.join.skew.max.keys";
+  public static final String SPARK_PIPELINE_JOIN_SKEW_SALT_FACTOR = "spark.cdap.pipeline.join.skew.salt.factor";
   public static final String DEFAULT_CACHING_STORAGE_LEVEL = "DISK_ONLY";
   // Can be used as a runtime argument for streaming pipeline to disable at least once processing.
   public static final String CDAP_STREAMING_ATLEASTONCE_ENABLED = "cdap.streaming.atleastonce.enabled";
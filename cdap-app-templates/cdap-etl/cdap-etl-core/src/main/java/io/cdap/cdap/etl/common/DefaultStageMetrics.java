@@ -24,18 +24,28 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
 /**
  * Wrapper around the {@link Metrics} instance from CDAP that prefixes metric names with the ETL
  * context the metric was emitted from.
+ *
+ * <p>An instance created with {@link #batching(Metrics, String, int)} accumulates counts locally
+ * and only writes them to the underlying {@link Metrics} every N counted records or when
+ * {@link #flush()} is called. Such an instance must be confined to a single thread, and the
+ * owner is responsible to call {@link #flush()} when it is done with processing.</p>
  */
 public class DefaultStageMetrics implements StageMetrics, Externalizable {
 
   private Metrics metrics;
   private String prefix;
   private transient Caller caller;
+  // Pending counts are never serialized, hence a deserialized instance always writes through
+  private transient int flushInterval;
+  private transient Map<String, PendingCount> pendingCounts;
+  private transient int pendingRecords;
 
   // Only used by Externalizable
   public DefaultStageMetrics() {
@@ -43,13 +53,57 @@ public class DefaultStageMetrics implements StageMetrics, Externalizable {
   }
 
   public DefaultStageMetrics(Metrics metrics, String stageName) {
+    this(metrics, stageName, 0);
+  }
+
+  private DefaultStageMetrics(Metrics metrics, String stageName, int flushInterval) {
     this.metrics = metrics;
     this.prefix = stageName + ".";
     this.caller = NoStageLoggingCaller.wrap(Caller.DEFAULT);
+    this.flushInterval = flushInterval;
+  }
+
+  /**
+   * Creates a {@link DefaultStageMetrics} that accumulates counts in memory and flushes them to
+   * the given {@link Metrics} once every {@code flushInterval} counted records. The returned
+   * instance is not thread safe.
+   *
+   * @param metrics the {@link Metrics} to write to
+   * @param stageName name of the stage
+   * @param flushInterval number of counted records before flushing. If it is smaller than or
+   *     equal to one, counts are written to the {@link Metrics} immediately
+   * @return a new {@link DefaultStageMetrics}
+   */
+  public static DefaultStageMetrics batching(Metrics metrics, String stageName,
+      int flushInterval) {
+    return new DefaultStageMetrics(metrics, stageName, flushInterval > 1 ? flushInterval : 0);
+  }
+
+  /**
+   * Writes all counts accumulated in batching mode to the underlying {@link Metrics}. This method
+   * does nothing if the instance is not in batching mode or there is nothing pending.
+   */
+  public void flush() {
+    if (pendingRecords == 0) {
+      return;
+    }
+    pendingRecords = 0;
+    for (Map.Entry<String, PendingCount> entry : pendingCounts.entrySet()) {
+      PendingCount pending = entry.getValue();
+      if (pending.value != 0) {
+        long delta = pending.value;
+        pending.value = 0;
+        writeCount(entry.getKey(), delta);
+      }
+    }
   }
 
   @Override
   public void count(final String metricName, final int delta) {
+    if (flushInterval > 0) {
+      accumulate(metricName, delta);
+      return;
+    }
     caller.callUnchecked(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
@@ -60,7 +114,15 @@ public class DefaultStageMetrics implements StageMetrics, Externalizable {
   }
 
   @Override
-  public void countLong(final String metricName, final long delta) {
+  public void countLong(String metricName, long delta) {
+    if (flushInterval > 0) {
+      accumulate(metricName, delta);
+      return;
+    }
+    writeCount(metricName, delta);
+  }
+
+  private void writeCount(final String metricName, final long delta) {
     caller.callUnchecked(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
@@ -70,6 +132,21 @@ public class DefaultStageMetrics implements StageMetrics, Externalizable {
     });
   }
 
+  private void accumulate(String metricName, long delta) {
+    if (pendingCounts == null) {
+      pendingCounts = new HashMap<>();
+    }
+    PendingCount pending = pendingCounts.get(metricName);
+    if (pending == null) {
+      pending = new PendingCount();
+      pendingCounts.put(metricName, pending);
+    }
+    pending.value += delta;
+    if (++pendingRecords >= flushInterval) {
+      flush();
+    }
+  }
+
   @Override
   public void gauge(final String metricName, final long value) {
     caller.callUnchecked(new Callable<Void>() {
@@ -124,4 +201,12 @@ public class DefaultStageMetrics implements StageMetrics, Externalizable {
     metrics = (Metrics) in.readObject();
     prefix = (String) in.readObject();
   }
+
+  /**
+   * A mutable count that is updated in place to avoid boxing for every counted record.
+   */
+  private static final class PendingCount {
+
+    private long value;
+  }
 }
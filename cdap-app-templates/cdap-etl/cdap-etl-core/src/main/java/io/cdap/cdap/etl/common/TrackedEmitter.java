@@ -34,6 +34,7 @@ public class TrackedEmitter<T> implements Emitter<T> {
   private final String emitMetricName;
   private final DataTracer dataTracer;
   private final StageStatisticsCollector collector;
+  private final boolean countOutputRecords;
 
   public TrackedEmitter(Emitter<T> delegate, StageMetrics stageMetrics, String emitMetricName,
       DataTracer dataTracer,
@@ -43,12 +44,20 @@ public class TrackedEmitter<T> implements Emitter<T> {
     this.emitMetricName = emitMetricName;
     this.dataTracer = dataTracer;
     this.collector = collector;
+    this.countOutputRecords = Constants.Metrics.RECORDS_OUT.equals(emitMetricName);
+  }
+
+  /**
+   * Returns the emitter this emitter delegates to.
+   */
+  Emitter<T> getDelegate() {
+    return delegate;
   }
 
   @Override
   public void emit(T value) {
     stageMetrics.count(emitMetricName, 1);
-    if (emitMetricName.equals(Constants.Metrics.RECORDS_OUT)) {
+    if (countOutputRecords) {
       collector.incrementOutputRecordCount();
     }
     if (dataTracer.isEnabled()) {
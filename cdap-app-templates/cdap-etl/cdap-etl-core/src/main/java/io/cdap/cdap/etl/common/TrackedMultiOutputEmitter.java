@@ -20,6 +20,7 @@ import io.cdap.cdap.api.preview.DataTracer;
 import io.cdap.cdap.etl.api.InvalidEntry;
 import io.cdap.cdap.etl.api.MultiOutputEmitter;
 import io.cdap.cdap.etl.api.StageMetrics;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -34,6 +35,7 @@ public class TrackedMultiOutputEmitter<E> implements MultiOutputEmitter<E> {
   private final StageMetrics stageMetrics;
   private final DataTracer dataTracer;
   private final StageStatisticsCollector collector;
+  private final Map<String, String> portMetricNames;
 
   public TrackedMultiOutputEmitter(MultiOutputEmitter<E> delegate, StageMetrics stageMetrics,
       DataTracer dataTracer,
@@ -42,11 +44,23 @@ public class TrackedMultiOutputEmitter<E> implements MultiOutputEmitter<E> {
     this.stageMetrics = stageMetrics;
     this.dataTracer = dataTracer;
     this.collector = collector;
+    this.portMetricNames = new HashMap<>();
+  }
+
+  /**
+   * Returns the emitter this emitter delegates to.
+   */
+  MultiOutputEmitter<E> getDelegate() {
+    return delegate;
   }
 
   @Override
   public void emit(String port, Object value) {
-    String metricName = Constants.Metrics.RECORDS_OUT + "." + port;
+    String metricName = portMetricNames.get(port);
+    if (metricName == null) {
+      metricName = Constants.Metrics.RECORDS_OUT + "." + port;
+      portMetricNames.put(port, metricName);
+    }
     stageMetrics.count(metricName, 1);
     collector.incrementOutputRecordCount();
     if (dataTracer.isEnabled()) {
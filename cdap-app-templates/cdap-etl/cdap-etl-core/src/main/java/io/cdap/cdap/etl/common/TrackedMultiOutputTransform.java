@@ -38,6 +38,8 @@ public class TrackedMultiOutputTransform<IN, ERROR> implements MultiOutputTransf
   private final StageMetrics metrics;
   private final DataTracer dataTracer;
   private final StageStatisticsCollector collector;
+  // The tracked emitter for the last emitter passed to transform, which is usually the same one
+  private TrackedMultiOutputEmitter<ERROR> trackedEmitter;
 
   public TrackedMultiOutputTransform(MultiOutputTransformation<IN, ERROR> transform,
       StageMetrics metrics,
@@ -58,14 +60,24 @@ public class TrackedMultiOutputTransform<IN, ERROR> implements MultiOutputTransf
   public void transform(IN input, MultiOutputEmitter<ERROR> emitter) throws Exception {
     metrics.count(Constants.Metrics.RECORDS_IN, 1);
     collector.incrementInputRecordCount();
-    transform.transform(input,
-        new TrackedMultiOutputEmitter<>(emitter, metrics, dataTracer, collector));
+    TrackedMultiOutputEmitter<ERROR> tracked = trackedEmitter;
+    if (tracked == null || tracked.getDelegate() != emitter) {
+      tracked = new TrackedMultiOutputEmitter<>(emitter, metrics, dataTracer, collector);
+      trackedEmitter = tracked;
+    }
+    transform.transform(input, tracked);
   }
 
   @Override
   public void destroy() {
-    if (transform instanceof Destroyable) {
-      ((Destroyable) transform).destroy();
+    try {
+      if (transform instanceof Destroyable) {
+        ((Destroyable) transform).destroy();
+      }
+    } finally {
+      if (metrics instanceof DefaultStageMetrics) {
+        ((DefaultStageMetrics) metrics).flush();
+      }
     }
   }
 }
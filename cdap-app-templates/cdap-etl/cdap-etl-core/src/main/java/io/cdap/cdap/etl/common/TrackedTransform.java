@@ -17,10 +17,12 @@
 package io.cdap.cdap.etl.common;
 
 import io.cdap.cdap.api.preview.DataTracer;
+import io.cdap.cdap.etl.api.BatchTransformation;
 import io.cdap.cdap.etl.api.Destroyable;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.StageMetrics;
 import io.cdap.cdap.etl.api.Transformation;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -30,14 +32,19 @@ import javax.annotation.Nullable;
  * @param <IN> Type of input object
  * @param <OUT> Type of output object
  */
-public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destroyable {
+public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>,
+    BatchTransformation<IN, OUT>, Destroyable {
 
   private final Transformation<IN, OUT> transform;
+  private final BatchTransformation<IN, OUT> batchTransform;
   private final StageMetrics metrics;
   private final String metricInName;
   private final String metricOutName;
   private final DataTracer dataTracer;
   private final StageStatisticsCollector collector;
+  private final boolean countInputRecords;
+  // The tracked emitter for the last emitter passed to transform, which is usually the same one
+  private TrackedEmitter<OUT> trackedEmitter;
 
   public TrackedTransform(Transformation<IN, OUT> transform, StageMetrics metrics,
       DataTracer dataTracer) {
@@ -62,29 +69,59 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
       @Nullable String metricInName,
       @Nullable String metricOutName, DataTracer dataTracer, StageStatisticsCollector collector) {
     this.transform = transform;
+    this.batchTransform = BatchTransformationAdapter.of(transform);
     this.metrics = metrics;
     this.metricInName = metricInName;
     this.metricOutName = metricOutName;
     this.dataTracer = dataTracer;
     this.collector = collector;
+    this.countInputRecords = Constants.Metrics.RECORDS_IN.equals(metricInName);
   }
 
   @Override
   public void transform(IN input, Emitter<OUT> emitter) throws Exception {
     if (metricInName != null) {
       metrics.count(metricInName, 1);
-      if (metricInName.equals(Constants.Metrics.RECORDS_IN)) {
+      if (countInputRecords) {
         collector.incrementInputRecordCount();
       }
     }
-    transform.transform(input, metricOutName == null ? emitter :
-        new TrackedEmitter<>(emitter, metrics, metricOutName, dataTracer, collector));
+    transform.transform(input, metricOutName == null ? emitter : getTrackedEmitter(emitter));
+  }
+
+  @Override
+  public void transform(List<IN> inputs, Emitter<OUT> emitter) throws Exception {
+    if (inputs.isEmpty()) {
+      return;
+    }
+    if (metricInName != null) {
+      metrics.count(metricInName, inputs.size());
+      if (countInputRecords) {
+        collector.incrementInputRecordCount(inputs.size());
+      }
+    }
+    batchTransform.transform(inputs, metricOutName == null ? emitter : getTrackedEmitter(emitter));
   }
 
   @Override
   public void destroy() {
-    if (transform instanceof Destroyable) {
-      ((Destroyable) transform).destroy();
+    try {
+      if (transform instanceof Destroyable) {
+        ((Destroyable) transform).destroy();
+      }
+    } finally {
+      if (metrics instanceof DefaultStageMetrics) {
+        ((DefaultStageMetrics) metrics).flush();
+      }
+    }
+  }
+
+  private TrackedEmitter<OUT> getTrackedEmitter(Emitter<OUT> emitter) {
+    TrackedEmitter<OUT> tracked = trackedEmitter;
+    if (tracked == null || tracked.getDelegate() != emitter) {
+      tracked = new TrackedEmitter<>(emitter, metrics, metricOutName, dataTracer, collector);
+      trackedEmitter = tracked;
     }
+    return tracked;
   }
 }
@@ -17,12 +17,14 @@
 package io.cdap.cdap.etl.common.plugin;
 
 import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.etl.api.BatchTransformation;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
 import io.cdap.cdap.etl.api.batch.BatchSource;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -35,7 +37,8 @@ import java.util.concurrent.Callable;
  */
 public class WrappedBatchSink<IN, KEY_OUT, VAL_OUT>
     extends BatchSink<IN, KEY_OUT, VAL_OUT>
-    implements PluginWrapper<BatchSink<IN, KEY_OUT, VAL_OUT>> {
+    implements BatchTransformation<IN, KeyValue<KEY_OUT, VAL_OUT>>,
+    PluginWrapper<BatchSink<IN, KEY_OUT, VAL_OUT>> {
 
   private final BatchSink<IN, KEY_OUT, VAL_OUT> batchSink;
   private final Caller caller;
@@ -78,6 +81,36 @@ public class WrappedBatchSink<IN, KEY_OUT, VAL_OUT>
     }
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public void transform(List<IN> inputs,
+      Emitter<KeyValue<KEY_OUT, VAL_OUT>> emitter) throws Exception {
+    Emitter<KeyValue<KEY_OUT, VAL_OUT>> untimedEmitter =
+        new UntimedEmitter<>(emitter, operationTimer);
+    // switch the logging and classloading context once for the entire batch
+    caller.call((Callable<Void>) () -> {
+      if (batchSink instanceof BatchTransformation) {
+        operationTimer.start();
+        try {
+          ((BatchTransformation<IN, KeyValue<KEY_OUT, VAL_OUT>>) batchSink)
+              .transform(inputs, untimedEmitter);
+        } finally {
+          operationTimer.reset();
+        }
+        return null;
+      }
+      for (IN input : inputs) {
+        operationTimer.start();
+        try {
+          batchSink.transform(input, untimedEmitter);
+        } finally {
+          operationTimer.reset();
+        }
+      }
+      return null;
+    });
+  }
+
   @Override
   public void destroy() {
     caller.callUnchecked((Callable<Void>) () -> {
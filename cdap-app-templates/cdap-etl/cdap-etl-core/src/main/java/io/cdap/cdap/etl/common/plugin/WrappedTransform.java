@@ -16,11 +16,13 @@
 
 package io.cdap.cdap.etl.common.plugin;
 
+import io.cdap.cdap.etl.api.BatchTransformation;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -31,7 +33,7 @@ import java.util.concurrent.Callable;
  * @param <OUT> type of output
  */
 public class WrappedTransform<IN, OUT> extends Transform<IN, OUT> implements
-    PluginWrapper<Transform<IN, OUT>> {
+    BatchTransformation<IN, OUT>, PluginWrapper<Transform<IN, OUT>> {
 
   private final Transform<IN, OUT> transform;
   private final Caller caller;
@@ -97,6 +99,33 @@ public class WrappedTransform<IN, OUT> extends Transform<IN, OUT> implements
     }
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public void transform(List<IN> inputs, Emitter<OUT> emitter) throws Exception {
+    Emitter<OUT> untimedEmitter = new UntimedEmitter<>(emitter, operationTimer);
+    // switch the logging and classloading context once for the entire batch
+    caller.call((Callable<Void>) () -> {
+      if (transform instanceof BatchTransformation) {
+        operationTimer.start();
+        try {
+          ((BatchTransformation<IN, OUT>) transform).transform(inputs, untimedEmitter);
+        } finally {
+          operationTimer.reset();
+        }
+        return null;
+      }
+      for (IN input : inputs) {
+        operationTimer.start();
+        try {
+          transform.transform(input, untimedEmitter);
+        } finally {
+          operationTimer.reset();
+        }
+      }
+      return null;
+    });
+  }
+
   @Override
   public Transform<IN, OUT> getWrapped() {
     return transform;
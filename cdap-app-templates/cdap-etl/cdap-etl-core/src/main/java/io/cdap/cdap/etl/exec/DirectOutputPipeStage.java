@@ -16,11 +16,14 @@
 
 package io.cdap.cdap.etl.exec;
 
+import io.cdap.cdap.etl.api.BatchTransformation;
 import io.cdap.cdap.etl.api.Destroyable;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.Transformation;
+import io.cdap.cdap.etl.common.BatchTransformationAdapter;
 import io.cdap.cdap.etl.common.Destroyables;
 import io.cdap.cdap.etl.common.RecordInfo;
+import java.util.List;
 
 
 /**
@@ -32,12 +35,14 @@ import io.cdap.cdap.etl.common.RecordInfo;
 public class DirectOutputPipeStage<T> extends PipeStage<RecordInfo<T>> {
 
   private final Transformation<RecordInfo<T>, Object> transform;
+  private final BatchTransformation<RecordInfo<T>, Object> batchTransform;
   private final Emitter<Object> emitter;
 
   public DirectOutputPipeStage(String stageName, Transformation<RecordInfo<T>, Object> transform,
       Emitter<Object> emitter) {
     super(stageName);
     this.transform = transform;
+    this.batchTransform = BatchTransformationAdapter.of(transform);
     this.emitter = emitter;
   }
 
@@ -46,6 +51,25 @@ public class DirectOutputPipeStage<T> extends PipeStage<RecordInfo<T>> {
     transform.transform(input, emitter);
   }
 
+  @Override
+  protected void consumeInputs(List<RecordInfo<T>> inputs) throws Exception {
+    batchTransform.transform(inputs, emitter);
+  }
+
+  @Override
+  protected void startBatch() {
+    if (emitter instanceof PipeEmitter) {
+      ((PipeEmitter) emitter).startBatch();
+    }
+  }
+
+  @Override
+  protected void finishBatch() {
+    if (emitter instanceof PipeEmitter) {
+      ((PipeEmitter) emitter).finishBatch();
+    }
+  }
+
   @Override
   public void destroy() {
     if (transform instanceof Destroyable) {
@@ -46,6 +46,20 @@ public class MultiOutputTransformPipeStage<T> extends PipeStage<RecordInfo<T>> {
     transform.transform(input.getValue(), emitter);
   }
 
+  @Override
+  protected void startBatch() {
+    if (emitter instanceof PipeEmitter) {
+      ((PipeEmitter) emitter).startBatch();
+    }
+  }
+
+  @Override
+  protected void finishBatch() {
+    if (emitter instanceof PipeEmitter) {
+      ((PipeEmitter) emitter).finishBatch();
+    }
+  }
+
   @Override
   public void destroy() {
     if (transform instanceof Destroyable) {
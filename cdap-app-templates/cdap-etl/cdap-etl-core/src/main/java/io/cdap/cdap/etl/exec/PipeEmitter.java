@@ -29,7 +29,11 @@ import io.cdap.cdap.etl.api.MultiOutputEmitter;
 import io.cdap.cdap.etl.common.BasicErrorRecord;
 import io.cdap.cdap.etl.common.RecordInfo;
 import io.cdap.cdap.etl.common.RecordType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -40,6 +44,9 @@ import org.slf4j.LoggerFactory;
  * that within the transform method of one stage, another stage's transform method can be called.
  *
  * This class always emits RecordInfo for output.
+ *
+ * Between calls to {@link #startBatch()} and {@link #finishBatch()}, records are buffered and sent
+ * to the next stages as a batch instead.
  */
 public class PipeEmitter implements Emitter<Object>, MultiOutputEmitter<Object> {
 
@@ -50,7 +57,13 @@ public class PipeEmitter implements Emitter<Object>, MultiOutputEmitter<Object>
   private final Multimap<String, PipeStage<RecordInfo>> outputPortConsumers;
   private final Set<PipeStage<RecordInfo<ErrorRecord<Object>>>> errorConsumers;
   private final Set<PipeStage<RecordInfo<Alert>>> alertConsumers;
+  private final List<RecordInfo> outputBuffer;
+  // port -> records emitted to that port
+  private final Map<String, List<RecordInfo>> outputPortBuffers;
+  private final List<RecordInfo<ErrorRecord<Object>>> errorBuffer;
+  private final List<RecordInfo<Alert>> alertBuffer;
   private boolean logWarning;
+  private boolean batching;
 
   public PipeEmitter(String stageName,
       Set<PipeStage<RecordInfo>> outputConsumers,
@@ -62,15 +75,49 @@ public class PipeEmitter implements Emitter<Object>, MultiOutputEmitter<Object>
     this.outputPortConsumers = ImmutableMultimap.copyOf(outputPortConsumers);
     this.errorConsumers = ImmutableSet.copyOf(errorConsumers);
     this.alertConsumers = ImmutableSet.copyOf(alertConsumers);
+    this.outputBuffer = new ArrayList<>();
+    this.outputPortBuffers = new HashMap<>();
+    this.errorBuffer = new ArrayList<>();
+    this.alertBuffer = new ArrayList<>();
     this.logWarning = true;
   }
 
+  /**
+   * Starts buffering emitted records until {@link #finishBatch()} is called.
+   */
+  public void startBatch() {
+    batching = true;
+    // clear anything left over from a batch that failed
+    outputBuffer.clear();
+    outputPortBuffers.values().forEach(List::clear);
+    errorBuffer.clear();
+    alertBuffer.clear();
+  }
+
+  /**
+   * Stops buffering emitted records and sends all records buffered since {@link #startBatch()} to
+   * the next stages.
+   */
+  public void finishBatch() {
+    batching = false;
+    sendBatch(outputConsumers, outputBuffer);
+    for (Map.Entry<String, List<RecordInfo>> entry : outputPortBuffers.entrySet()) {
+      sendBatch(outputPortConsumers.get(entry.getKey()), entry.getValue());
+    }
+    sendBatch(errorConsumers, errorBuffer);
+    sendBatch(alertConsumers, alertBuffer);
+  }
+
   @Override
   public void emit(String port, Object value) {
     if (port == null) {
       throw new IllegalArgumentException("Port cannot be null.");
     }
     RecordInfo record = getPipeRecord(value);
+    if (batching) {
+      outputPortBuffers.computeIfAbsent(port, p -> new ArrayList<>()).add(record);
+      return;
+    }
     for (PipeStage<RecordInfo> outputPortConsumer : outputPortConsumers.get(port)) {
       outputPortConsumer.consume(record);
     }
@@ -79,6 +126,10 @@ public class PipeEmitter implements Emitter<Object>, MultiOutputEmitter<Object>
   @Override
   public void emit(Object value) {
     RecordInfo record = getPipeRecord(value);
+    if (batching) {
+      outputBuffer.add(record);
+      return;
+    }
     for (PipeStage<RecordInfo> outputConsumer : outputConsumers) {
       outputConsumer.consume(record);
     }
@@ -99,6 +150,10 @@ public class PipeEmitter implements Emitter<Object>, MultiOutputEmitter<Object>
         invalidEntry.getErrorCode(), invalidEntry.getErrorMsg());
     RecordInfo<ErrorRecord<Object>> errorRecordInfo =
         RecordInfo.builder(errorRecord, stageName, RecordType.ERROR).build();
+    if (batching) {
+      errorBuffer.add(errorRecordInfo);
+      return;
+    }
     for (PipeStage<RecordInfo<ErrorRecord<Object>>> pipeTransform : errorConsumers) {
       pipeTransform.consume(errorRecordInfo);
     }
@@ -108,6 +163,10 @@ public class PipeEmitter implements Emitter<Object>, MultiOutputEmitter<Object>
   public void emitAlert(Map<String, String> payload) {
     Alert alert = new Alert(stageName, ImmutableMap.copyOf(payload));
     RecordInfo<Alert> alertRecord = RecordInfo.builder(alert, stageName, RecordType.ALERT).build();
+    if (batching) {
+      alertBuffer.add(alertRecord);
+      return;
+    }
     for (PipeStage<RecordInfo<Alert>> alertConsumer : alertConsumers) {
       alertConsumer.consume(alertRecord);
     }
@@ -117,6 +176,19 @@ public class PipeEmitter implements Emitter<Object>, MultiOutputEmitter<Object>
     return RecordInfo.builder(value, stageName, RecordType.OUTPUT).build();
   }
 
+  private static <T> void sendBatch(Collection<PipeStage<T>> consumers, List<T> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      for (PipeStage<T> consumer : consumers) {
+        consumer.consumeBatch(batch);
+      }
+    } finally {
+      batch.clear();
+    }
+  }
+
   /**
    * Get a builder to create a PipeEmitter for the specified stage
    *
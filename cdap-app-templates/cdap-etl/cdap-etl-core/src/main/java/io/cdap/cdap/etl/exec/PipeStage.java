@@ -18,11 +18,13 @@ package io.cdap.cdap.etl.exec;
 
 import com.google.common.base.Throwables;
 import io.cdap.cdap.etl.api.Destroyable;
+import java.util.List;
 
 
 /**
  * A stage in the PipeTransformExecutor. Pipe transforms should send each output record immediately
- * to all output stages without buffering anything in memory.
+ * to all output stages without buffering anything in memory, unless they are consuming a batch of
+ * records, in which case the outputs for the batch are sent to the output stages together.
  *
  * @param <T> type of input record
  */
@@ -47,15 +49,27 @@ public abstract class PipeStage<T> implements Destroyable {
       // Another stage has already failed, just throw the exception as-is
       throw e;
     } catch (Exception e) {
-      Throwable rootCause = Throwables.getRootCause(e);
-      // Create StageFailureException to save the Stage information
-      throw new StageFailureException(
-          String.format(
-              "Failed to execute pipeline stage '%s' with the error: %s. Please review your pipeline "
+      throw createFailure(e);
+    }
+  }
 
-                  + "configuration and check the system logs for more details.", stageName,
-              rootCause.getMessage()),
-          rootCause);
+  /**
+   * Consume a batch of records and send the outputs to the relevant output transforms. Outputs are
+   * sent to the output stages as a batch once all inputs have been consumed.
+   *
+   * @param inputs the records to consume
+   * @throws StageFailureException if there was an exception consuming the inputs
+   */
+  public void consumeBatch(List<T> inputs) {
+    try {
+      startBatch();
+      consumeInputs(inputs);
+      finishBatch();
+    } catch (StageFailureException e) {
+      // Another stage has already failed, just throw the exception as-is
+      throw e;
+    } catch (Exception e) {
+      throw createFailure(e);
     }
   }
 
@@ -66,4 +80,45 @@ public abstract class PipeStage<T> implements Destroyable {
    * @throws Exception if there was a failure processing the input
    */
   protected abstract void consumeInput(T input) throws Exception;
+
+  /**
+   * Consume a batch of input records, throwing an exception if there is a failure. By default,
+   * each record is consumed individually through {@link #consumeInput(Object)}.
+   *
+   * @param inputs the inputs to consume
+   * @throws Exception if there was a failure processing the inputs
+   */
+  protected void consumeInputs(List<T> inputs) throws Exception {
+    for (T input : inputs) {
+      consumeInput(input);
+    }
+  }
+
+  /**
+   * Called before a batch of records is consumed. Stages that emit to other stages in the pipe
+   * should start buffering their outputs until {@link #finishBatch()} is called.
+   */
+  protected void startBatch() {
+    // no-op
+  }
+
+  /**
+   * Called after a batch of records is consumed. Stages that emit to other stages in the pipe
+   * should send all buffered outputs to those stages.
+   */
+  protected void finishBatch() {
+    // no-op
+  }
+
+  private StageFailureException createFailure(Exception e) {
+    Throwable rootCause = Throwables.getRootCause(e);
+    // Create StageFailureException to save the Stage information
+    return new StageFailureException(
+        String.format(
+            "Failed to execute pipeline stage '%s' with the error: %s. Please review your pipeline "
+
+                + "configuration and check the system logs for more details.", stageName,
+            rootCause.getMessage()),
+        rootCause);
+  }
 }
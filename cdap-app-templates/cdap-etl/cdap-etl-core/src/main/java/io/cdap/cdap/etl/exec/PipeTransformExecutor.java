@@ -19,29 +19,90 @@ package io.cdap.cdap.etl.exec;
 import io.cdap.cdap.etl.api.Destroyable;
 import io.cdap.cdap.etl.common.RecordInfo;
 import io.cdap.cdap.etl.common.RecordType;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Executes chain of transforms
  *
+ * <p>If created with a batch size greater than one, the outputs of the starting stages are
+ * buffered and sent through the rest of the pipeline as a batch once outputs for that many input
+ * records have been collected. Only the outputs are buffered, not the inputs, since inputs can be
+ * objects that are reused by the caller. {@link #flush()} must be called after the last input to
+ * process any records that are still buffered.</p>
+ *
  * @param <IN> Type of input
  */
 public class PipeTransformExecutor<IN> implements Destroyable {
 
   private final Set<String> startingPoints;
   private final Map<String, PipeStage> pipeStages;
+  private final int batchSize;
+  private int batchCount;
 
   public PipeTransformExecutor(Map<String, PipeStage> pipeStages, Set<String> startingPoints) {
+    this(pipeStages, startingPoints, 1);
+  }
+
+  public PipeTransformExecutor(Map<String, PipeStage> pipeStages, Set<String> startingPoints,
+      int batchSize) {
     this.pipeStages = pipeStages;
     this.startingPoints = startingPoints;
+    this.batchSize = batchSize;
   }
 
   public void runOneIteration(IN input) {
+    boolean batching = batchSize > 1;
+    if (batching && batchCount == 0) {
+      for (String stageName : startingPoints) {
+        pipeStages.get(stageName).startBatch();
+      }
+    }
     for (String stageName : startingPoints) {
       PipeStage<RecordInfo> pipeStage = pipeStages.get(stageName);
       pipeStage.consume(RecordInfo.builder(input, stageName, RecordType.OUTPUT).build());
     }
+    if (batching && ++batchCount >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Runs a batch of inputs through the pipeline. Each stage consumes the entire batch before its
+   * outputs are sent to the next stages.
+   *
+   * @param inputs the inputs to process
+   */
+  public void runBatch(List<IN> inputs) {
+    // send out anything buffered by runOneIteration first to preserve order
+    flush();
+    if (inputs.isEmpty()) {
+      return;
+    }
+    for (String stageName : startingPoints) {
+      List<RecordInfo> records = new ArrayList<>(inputs.size());
+      for (IN input : inputs) {
+        records.add(RecordInfo.builder(input, stageName, RecordType.OUTPUT).build());
+      }
+      PipeStage<RecordInfo> pipeStage = pipeStages.get(stageName);
+      pipeStage.consumeBatch(records);
+    }
+  }
+
+  /**
+   * Sends all outputs buffered by the starting stages through the rest of the pipeline. This is a
+   * no-op if the executor is not batching.
+   */
+  public void flush() {
+    if (batchCount == 0) {
+      return;
+    }
+    batchCount = 0;
+    for (String stageName : startingPoints) {
+      pipeStages.get(stageName).finishBatch();
+    }
   }
 
   @Override
@@ -124,6 +124,22 @@ public abstract class TransformExecutorFactory<T> {
    * @throws Exception if there was an error initializing a plugin
    */
   public PipeTransformExecutor<T> create(PipelinePhase pipeline) throws Exception {
+    return create(pipeline, 1);
+  }
+
+  /**
+   * Create a transform executor for the specified pipeline that sends records through the pipeline
+   * in batches of the given size. Will instantiate and initialize all sources, transforms, and
+   * sinks in the pipeline.
+   *
+   * @param pipeline the pipeline to create a transform executor for
+   * @param batchSize the number of records in each batch. Values of 1 or less disable batching
+   * @return executor for the pipeline
+   * @throws InstantiationException if there was an error instantiating a plugin
+   * @throws Exception if there was an error initializing a plugin
+   */
+  public PipeTransformExecutor<T> create(PipelinePhase pipeline, int batchSize)
+      throws Exception {
     // populate the pipe stages in reverse topological order to ensure that an output is always created before its
     // input. this will allow us to setup all outputs for a stage when we get to it.
     Dag pipelineDag = pipeline.getDag();
@@ -141,7 +157,7 @@ public abstract class TransformExecutorFactory<T> {
     // sourceStageName will be null in reducers, so need to handle that case
     Set<String> startingPoints =
         (sourceStageName == null) ? pipeline.getSources() : Sets.newHashSet(sourceStageName);
-    return new PipeTransformExecutor<>(pipeStages, startingPoints);
+    return new PipeTransformExecutor<>(pipeStages, startingPoints, batchSize);
   }
 
   private PipeStage getPipeStage(PipelinePhase pipeline, String stageName,
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import io.cdap.cdap.app.preview.DataTracerFactory;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.internal.app.preview.NoopDataTracerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DefaultStageMetrics}.
+ */
+public class DefaultStageMetricsTest {
+
+  private final DataTracerFactory dataTracerFactory = new NoopDataTracerFactory();
+
+  @Test
+  public void testBatching() {
+    MockMetrics mockMetrics = new MockMetrics();
+    DefaultStageMetrics stageMetrics = DefaultStageMetrics.batching(mockMetrics, "stage", 3);
+
+    stageMetrics.count("records.in", 1);
+    stageMetrics.countLong("records.out", 5);
+    Assert.assertEquals(0L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(0L, mockMetrics.getCount("stage.records.out"));
+
+    // Third counted record triggers the flush
+    stageMetrics.count("records.in", 1);
+    Assert.assertEquals(2L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(5L, mockMetrics.getCount("stage.records.out"));
+
+    // Gauges and pipeline metrics are not batched
+    stageMetrics.gauge("gauge", 10L);
+    stageMetrics.pipelineCount("pipeline", 1);
+    Assert.assertEquals(10L, mockMetrics.getGauge("stage.gauge"));
+    Assert.assertEquals(1L, mockMetrics.getCount("pipeline"));
+
+    stageMetrics.count("records.in", 1);
+    Assert.assertEquals(2L, mockMetrics.getCount("stage.records.in"));
+    stageMetrics.flush();
+    Assert.assertEquals(3L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(5L, mockMetrics.getCount("stage.records.out"));
+
+    // Flush without pending counts is a no-op
+    stageMetrics.flush();
+    Assert.assertEquals(3L, mockMetrics.getCount("stage.records.in"));
+  }
+
+  @Test
+  public void testNoBatching() {
+    MockMetrics mockMetrics = new MockMetrics();
+    DefaultStageMetrics stageMetrics = DefaultStageMetrics.batching(mockMetrics, "stage", 1);
+    stageMetrics.count("records.in", 1);
+    Assert.assertEquals(1L, mockMetrics.getCount("stage.records.in"));
+
+    stageMetrics = new DefaultStageMetrics(mockMetrics, "stage");
+    stageMetrics.countLong("records.in", 2);
+    Assert.assertEquals(3L, mockMetrics.getCount("stage.records.in"));
+  }
+
+  @Test
+  public void testTrackedTransformFlushOnDestroy() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    DefaultStageMetrics stageMetrics = DefaultStageMetrics.batching(mockMetrics, "stage", 100);
+    TrackedTransform<String, String> transform = new TrackedTransform<>(
+        new Transform<String, String>() {
+          @Override
+          public void transform(String input, Emitter<String> emitter) {
+            emitter.emit(input);
+            emitter.emit(input);
+          }
+        }, stageMetrics, dataTracerFactory.getDataTracer(null, "stage"));
+
+    ListEmitter<String> emitter = new ListEmitter<>();
+    for (int i = 0; i < 10; i++) {
+      transform.transform("x" + i, emitter);
+    }
+    Assert.assertEquals(20, emitter.emitted.size());
+    Assert.assertEquals(0L, mockMetrics.getCount("stage.records.in"));
+
+    transform.destroy();
+    Assert.assertEquals(10L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(20L, mockMetrics.getCount("stage.records.out"));
+  }
+
+  /**
+   * An {@link Emitter} that collects emitted records into a list.
+   */
+  private static final class ListEmitter<T> implements Emitter<T> {
+
+    private final List<T> emitted = new ArrayList<>();
+
+    @Override
+    public void emit(T value) {
+      emitted.add(value);
+    }
+
+    @Override
+    public void emitAlert(Map<String, String> payload) {
+      // no-op
+    }
+
+    @Override
+    public void emitError(InvalidEntry<T> invalidEntry) {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.exec;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.app.preview.DataTracerFactory;
+import io.cdap.cdap.etl.api.BatchTransformation;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.ErrorRecord;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.etl.common.DefaultStageMetrics;
+import io.cdap.cdap.etl.common.MockMetrics;
+import io.cdap.cdap.etl.common.RecordInfo;
+import io.cdap.cdap.etl.common.TrackedTransform;
+import io.cdap.cdap.internal.app.preview.NoopDataTracerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PipeTransformExecutor}.
+ */
+public class PipeTransformExecutorTest {
+
+  private final DataTracerFactory dataTracerFactory = new NoopDataTracerFactory();
+
+  @Test
+  public void testBatchedIterations() {
+    MockMetrics mockMetrics = new MockMetrics();
+    ListEmitter sinkOutput = new ListEmitter();
+    ListEmitter errorOutput = new ListEmitter();
+    PipeTransformExecutor<Integer> executor = createExecutor(mockMetrics, new Doubler(),
+        sinkOutput, errorOutput, 3);
+
+    executor.runOneIteration(1);
+    executor.runOneIteration(-1);
+    // outputs of the first stage are buffered until the batch is full
+    Assert.assertTrue(sinkOutput.emitted.isEmpty());
+    Assert.assertEquals(2L, mockMetrics.getCount("double.records.in"));
+    Assert.assertEquals(0L, mockMetrics.getCount("sink.records.in"));
+
+    executor.runOneIteration(2);
+    Assert.assertEquals(ImmutableList.of(2, 2, 4, 4), sinkOutput.emitted);
+    Assert.assertEquals(ImmutableList.of(-1), errorOutput.emitted);
+    Assert.assertEquals(4L, mockMetrics.getCount("sink.records.in"));
+
+    executor.runOneIteration(3);
+    Assert.assertEquals(4, sinkOutput.emitted.size());
+    executor.flush();
+    Assert.assertEquals(ImmutableList.of(2, 2, 4, 4, 6, 6), sinkOutput.emitted);
+    Assert.assertEquals(6L, mockMetrics.getCount("sink.records.in"));
+
+    // flush without buffered records is a no-op
+    executor.flush();
+    Assert.assertEquals(6, sinkOutput.emitted.size());
+  }
+
+  @Test
+  public void testRunBatch() {
+    MockMetrics mockMetrics = new MockMetrics();
+    ListEmitter sinkOutput = new ListEmitter();
+    ListEmitter errorOutput = new ListEmitter();
+    BatchDoubler doubler = new BatchDoubler();
+    PipeTransformExecutor<Integer> executor = createExecutor(mockMetrics, doubler, sinkOutput,
+        errorOutput, 1);
+
+    executor.runOneIteration(1);
+    Assert.assertEquals(ImmutableList.of(2, 2), sinkOutput.emitted);
+    Assert.assertEquals(0, doubler.batches);
+
+    executor.runBatch(ImmutableList.of(2, -1, 3));
+    Assert.assertEquals(ImmutableList.of(2, 2, 4, 4, 6, 6), sinkOutput.emitted);
+    Assert.assertEquals(ImmutableList.of(-1), errorOutput.emitted);
+    Assert.assertEquals(1, doubler.batches);
+    Assert.assertEquals(4L, mockMetrics.getCount("double.records.in"));
+    Assert.assertEquals(6L, mockMetrics.getCount("double.records.out"));
+    Assert.assertEquals(6L, mockMetrics.getCount("sink.records.in"));
+  }
+
+  @Test
+  public void testBatchFailure() {
+    MockMetrics mockMetrics = new MockMetrics();
+    PipeTransformExecutor<Integer> executor = createExecutor(mockMetrics, new Doubler(),
+        new ListEmitter(), new ListEmitter(), 1);
+    try {
+      executor.runBatch(ImmutableList.of(1, 0));
+      Assert.fail("Expected the batch to fail");
+    } catch (StageFailureException e) {
+      Assert.assertTrue(e.getMessage().contains("'double'"));
+      Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+  }
+
+  /**
+   * Creates an executor for a pipeline with a single transform that writes to a sink and an error
+   * stage, both of which write to a {@link ListEmitter}.
+   */
+  private PipeTransformExecutor<Integer> createExecutor(MockMetrics metrics,
+      Transform<Integer, Object> transform, ListEmitter sinkOutput, ListEmitter errorOutput,
+      int batchSize) {
+    PipeStage<RecordInfo<Object>> sink = new UnwrapPipeStage<>("sink",
+        new TrackedTransform<>(new Identity(), new DefaultStageMetrics(metrics, "sink"),
+            dataTracerFactory.getDataTracer(null, "sink")),
+        sinkOutput);
+    PipeStage<RecordInfo<ErrorRecord<Object>>> error = new DirectOutputPipeStage<>("error",
+        (input, emitter) -> emitter.emit(input.getValue().getRecord()), errorOutput);
+
+    PipeEmitter emitter = PipeEmitter.builder("double")
+        .addOutputConsumer((PipeStage) sink)
+        .addErrorConsumer(error)
+        .build();
+    PipeStage<RecordInfo<Integer>> stage = new UnwrapPipeStage<>("double",
+        new TrackedTransform<>(transform, new DefaultStageMetrics(metrics, "double"),
+            dataTracerFactory.getDataTracer(null, "double")),
+        emitter);
+
+    Map<String, PipeStage> stages = new HashMap<>();
+    stages.put("double", stage);
+    stages.put("sink", sink);
+    stages.put("error", error);
+    return new PipeTransformExecutor<>(stages, ImmutableSet.of("double"), batchSize);
+  }
+
+  /**
+   * Emits each positive input twice, and negative inputs as errors. Fails on zero.
+   */
+  private static class Doubler extends Transform<Integer, Object> {
+
+    @Override
+    public void transform(Integer input, Emitter<Object> emitter) {
+      if (input == 0) {
+        throw new IllegalArgumentException("Zero is not allowed");
+      }
+      if (input < 0) {
+        emitter.emitError(new InvalidEntry<>(1, "negative", input));
+        return;
+      }
+      emitter.emit(input * 2);
+      emitter.emit(input * 2);
+    }
+  }
+
+  /**
+   * A {@link Doubler} that also processes batches of records.
+   */
+  private static class BatchDoubler extends Doubler
+      implements BatchTransformation<Integer, Object> {
+
+    private int batches;
+
+    @Override
+    public void transform(List<Integer> inputs, Emitter<Object> emitter) {
+      batches++;
+      for (Integer input : inputs) {
+        transform(input, emitter);
+      }
+    }
+  }
+
+  /**
+   * Emits its input.
+   */
+  private static class Identity extends Transform<Object, Object> {
+
+    @Override
+    public void transform(Object input, Emitter<Object> emitter) {
+      emitter.emit(input);
+    }
+  }
+
+  /**
+   * An {@link Emitter} that collects emitted records into a list.
+   */
+  private static final class ListEmitter implements Emitter<Object> {
+
+    private final List<Object> emitted = new ArrayList<>();
+
+    @Override
+    public void emit(Object value) {
+      emitted.add(value);
+    }
+
+    @Override
+    public void emitAlert(Map<String, String> payload) {
+      // no-op
+    }
+
+    @Override
+    public void emitError(InvalidEntry<Object> invalidEntry) {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark;
+
+import com.google.common.collect.Sets;
+import io.cdap.cdap.api.metrics.Metrics;
+import io.cdap.cdap.etl.common.Constants;
+import io.cdap.cdap.etl.common.DefaultStageMetrics;
+import io.cdap.cdap.etl.planner.Dag;
+import org.apache.spark.SparkConf;
+import org.apache.spark.storage.StorageLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Decides whether the output of a stage should be cached, and with which storage level.
+ *
+ * The output of a non-shuffle stage with multiple outputs needs to be cached if there is a path from the stage back
+ * to a source that does not pass through another branch point or shuffle. Otherwise, each branch would re-read the
+ * source and re-run every stage in between. How the output is cached depends on the cost of that re-computation,
+ * measured as the number of stage executions the cache saves, and on how many branches read it:
+ *
+ * <ul>
+ *   <li>Collections that save fewer than a configurable number of stage executions are not cached, and are
+ *   re-computed by each branch instead. This is off by default, since re-computing a collection also re-reads
+ *   its source.</li>
+ *   <li>Collections that save at least a configurable number of stage executions, and are read by at most a
+ *   configurable number of branches, are stored serialized in memory, spilling to disk, as long as the number of
+ *   in-memory collections stays within a configurable budget. The budget is empty by default, since the size of
+ *   the collections is not known and memory caching competes with execution memory.</li>
+ *   <li>All other collections are stored on disk only.</li>
+ * </ul>
+ *
+ * If a storage level is explicitly configured, it is used for every cached collection. Decisions are made once per
+ * stage and then reused, which is needed for streaming pipelines where stages are processed for every batch. Each
+ * decision is logged, and counted in the {@code cache.none}, {@code cache.memory} or {@code cache.disk} metric of
+ * the stage.
+ */
+public class CachePlanner {
+  private static final Logger LOG = LoggerFactory.getLogger(CachePlanner.class);
+  private static final int DEFAULT_MIN_SAVINGS = 0;
+  private static final int DEFAULT_MAX_MEMORY_FANOUT = 3;
+  private static final int DEFAULT_MAX_MEMORY_COLLECTIONS = 0;
+  private static final int DEFAULT_MIN_MEMORY_SAVINGS = 3;
+  private static final String MEMORY_AND_DISK_SER = "MEMORY_AND_DISK_SER";
+
+  private final Metrics metrics;
+  private final boolean enabled;
+  private final String configuredStorageLevel;
+  private final int minSavings;
+  private final int maxMemoryFanOut;
+  private final int maxMemoryCollections;
+  private final int minMemorySavings;
+  private final Map<String, Optional<StorageLevel>> decisions;
+  private int memoryCollections;
+
+  public CachePlanner(SparkConf sparkConf, Metrics metrics) {
+    this.metrics = metrics;
+    this.enabled = sparkConf.getBoolean(Constants.SPARK_PIPELINE_AUTOCACHE_ENABLE_FLAG, true);
+    this.configuredStorageLevel = sparkConf.get(Constants.SPARK_PIPELINE_CACHING_STORAGE_LEVEL, null);
+    this.minSavings = sparkConf.getInt(Constants.SPARK_PIPELINE_CACHING_MIN_SAVINGS, DEFAULT_MIN_SAVINGS);
+    this.maxMemoryFanOut = sparkConf.getInt(Constants.SPARK_PIPELINE_CACHING_MEMORY_MAX_FANOUT,
+                                            DEFAULT_MAX_MEMORY_FANOUT);
+    this.maxMemoryCollections = sparkConf.getInt(Constants.SPARK_PIPELINE_CACHING_MEMORY_MAX_COLLECTIONS,
+                                                 DEFAULT_MAX_MEMORY_COLLECTIONS);
+    this.minMemorySavings = sparkConf.getInt(Constants.SPARK_PIPELINE_CACHING_MEMORY_MIN_SAVINGS,
+                                             DEFAULT_MIN_MEMORY_SAVINGS);
+    this.decisions = new HashMap<>();
+  }
+
+  /**
+   * Returns the storage level to cache the output of the given stage with, or null if it should not be cached.
+   *
+   * Cache points can't be pre-computed because we don't know which joins are broadcast joins until the
+   * actual plugin is instantiated and the JoinDefinition is fetched from the plugin. This method assumes it
+   * will be called on stages in topological order, where any parent that is a joiner will be included in the
+   * provided shufflers set.
+   *
+   * @param dag the dag of the pipeline
+   * @param stageName the stage whose output may be cached
+   * @param branchers stages that have multiple outputs
+   * @param shufflers stages that shuffle their input
+   * @return the storage level to use, or null if the output should not be cached
+   */
+  @Nullable
+  public StorageLevel getStorageLevel(Dag dag, String stageName, Set<String> branchers, Set<String> shufflers) {
+    if (!enabled || !branchers.contains(stageName) || shufflers.contains(stageName)) {
+      return null;
+    }
+    Optional<StorageLevel> decision = decisions.get(stageName);
+    if (decision == null) {
+      decision = Optional.ofNullable(plan(dag, stageName, branchers, shufflers));
+      decisions.put(stageName, decision);
+    }
+    return decision.orElse(null);
+  }
+
+  @Nullable
+  private StorageLevel plan(Dag dag, String stageName, Set<String> branchers, Set<String> shufflers) {
+    // the stage is a non-shuffle stage with multiple outputs.
+    // check if there is a path from this stage back to a source without passing through another branch point
+    // or a shuffler. If so, this stage needs to be cached.
+    Set<String> stopNodes = new HashSet<>(branchers);
+    stopNodes.addAll(shufflers);
+    Set<String> parents = dag.parentsOf(stageName, stopNodes);
+    if (Sets.intersection(dag.getSources(), parents).isEmpty()) {
+      return null;
+    }
+
+    // every branch after the first one would re-run all the stages up to the previous cache point or shuffle
+    int fanOut = dag.getNodeOutputs(stageName).size();
+    int savings = (fanOut - 1) * parents.size();
+
+    String storageLevel;
+    String reason;
+    if (savings < minSavings) {
+      storageLevel = null;
+      reason = String.format("it only saves %d stage executions", savings);
+    } else if (configuredStorageLevel != null) {
+      storageLevel = configuredStorageLevel;
+      reason = "it is configured by " + Constants.SPARK_PIPELINE_CACHING_STORAGE_LEVEL;
+    } else if (fanOut > maxMemoryFanOut) {
+      storageLevel = Constants.DEFAULT_CACHING_STORAGE_LEVEL;
+      reason = String.format("it is read by %d branches", fanOut);
+    } else if (savings < minMemorySavings) {
+      storageLevel = Constants.DEFAULT_CACHING_STORAGE_LEVEL;
+      reason = String.format("it only saves %d stage executions", savings);
+    } else if (memoryCollections >= maxMemoryCollections) {
+      storageLevel = Constants.DEFAULT_CACHING_STORAGE_LEVEL;
+      reason = String.format("%d collections are already cached in memory", memoryCollections);
+    } else {
+      memoryCollections++;
+      storageLevel = MEMORY_AND_DISK_SER;
+      reason = String.format("it is read by %d branches and saves %d stage executions", fanOut, savings);
+    }
+
+    if (storageLevel == null) {
+      LOG.info("Not caching the output of stage '{}' since {}.", stageName, reason);
+      new DefaultStageMetrics(metrics, stageName).count("cache.none", 1);
+      return null;
+    }
+    LOG.info("Caching the output of stage '{}' with storage level {} since {}.", stageName, storageLevel, reason);
+    StorageLevel level = StorageLevel.fromString(storageLevel);
+    new DefaultStageMetrics(metrics, stageName).count(level.useMemory() ? "cache.memory" : "cache.disk", 1);
+    return level;
+  }
+}
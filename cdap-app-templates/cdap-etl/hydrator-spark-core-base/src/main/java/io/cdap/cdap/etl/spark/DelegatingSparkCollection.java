@@ -38,6 +38,7 @@ import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
+import org.apache.spark.storage.StorageLevel;
 
 /**
  * A helper class to write collections that mostly delegate to underlying one
@@ -87,6 +88,11 @@ public abstract class DelegatingSparkCollection<T> implements SparkCollection<T>
     return getDelegate().cache();
   }
 
+  @Override
+  public SparkCollection<T> cache(StorageLevel storageLevel) {
+    return getDelegate().cache(storageLevel);
+  }
+
   @Override
   public SparkCollection union(SparkCollection other) {
     return getDelegate().union(other);
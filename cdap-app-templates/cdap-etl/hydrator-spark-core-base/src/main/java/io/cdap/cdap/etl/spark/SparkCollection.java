@@ -31,6 +31,7 @@ import io.cdap.cdap.etl.spark.join.JoinRequest;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
+import org.apache.spark.storage.StorageLevel;
 
 import java.util.Map;
 import java.util.Optional;
@@ -53,6 +54,11 @@ public interface SparkCollection<T> {
 
   SparkCollection<T> cache();
 
+  /**
+   * Persists the collection with the given storage level, regardless of the pipeline caching settings.
+   */
+  SparkCollection<T> cache(StorageLevel storageLevel);
+
   SparkCollection<T> union(SparkCollection<T> other);
 
   SparkCollection<RecordInfo<Object>> transform(StageSpec stageSpec, StageStatisticsCollector collector);
@@ -68,12 +68,14 @@ import io.cdap.cdap.etl.planner.Dag;
 import io.cdap.cdap.etl.proto.v2.spec.StageSpec;
 import io.cdap.cdap.etl.proto.v2.spec.StageSpec.Port;
 import io.cdap.cdap.etl.spark.batch.BatchSinkRunnableProvider;
+import io.cdap.cdap.etl.spark.batch.DataframeCollection;
 import io.cdap.cdap.etl.spark.batch.SQLBackedCollection;
 import io.cdap.cdap.etl.spark.batch.WrappedSQLEngineCollection;
 import io.cdap.cdap.etl.spark.function.AlertPassFilter;
 import io.cdap.cdap.etl.spark.function.ErrorPassFilter;
 import io.cdap.cdap.etl.spark.function.ErrorTransformFunction;
 import io.cdap.cdap.etl.spark.function.FunctionCache;
+import io.cdap.cdap.etl.spark.function.FusedTransformFunction;
 import io.cdap.cdap.etl.spark.function.InitialJoinFunction;
 import io.cdap.cdap.etl.spark.function.JoinFlattenFunction;
 import io.cdap.cdap.etl.spark.function.LeftJoinFlattenFunction;
@@ -102,6 +104,7 @@ import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.storage.StorageLevel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -113,6 +116,11 @@ public abstract class SparkPipelineRunner {
   private static final Set<String> UNCOMBINABLE_PLUGIN_TYPES = ImmutableSet.of(
     BatchJoiner.PLUGIN_TYPE, BatchAggregator.PLUGIN_TYPE, Constants.Connector.PLUGIN_TYPE,
     SparkCompute.PLUGIN_TYPE, SparkSink.PLUGIN_TYPE, AlertPublisher.PLUGIN_TYPE);
+  // head of each fused chain of transforms -> all stages in the chain, in order
+  private final Map<String, List<String>> fusedChains = new HashMap<>();
+  // stages that are part of a fused chain but are not its head
+  private final Set<String> fusedStages = new HashSet<>();
+  private CachePlanner cachePlanner;
 
   protected abstract SparkCollection<RecordInfo<Object>> getSource(StageSpec stageSpec,
                                                                    FunctionCache.Factory functionCacheFactory,
@@ -136,7 +144,8 @@ public abstract class SparkPipelineRunner {
                           Map<String, StageStatisticsCollector> collectors,
                           Set<String> uncombinableSinks,
                           boolean consolidateStages,
-                          boolean cacheFunctions) throws Exception {
+                          boolean cacheFunctions,
+                          boolean fuseTransforms) throws Exception {
     PipelinePhase pipelinePhase = phaseSpec.getPhase();
     BasicArguments arguments = new BasicArguments(sec);
     FunctionCache.Factory functionCacheFactory = FunctionCache.Factory.newInstance(cacheFunctions);
@@ -179,6 +188,13 @@ public abstract class SparkPipelineRunner {
       .map(StageSpec::getName)
       .collect(Collectors.toSet());
 
+    cachePlanner = new CachePlanner(getSparkContext().getConf(), sec.getMetrics());
+    fusedChains.clear();
+    fusedStages.clear();
+    if (fuseTransforms) {
+      findFusedChains(pipelinePhase, groupedDag, groups, pluginContext);
+    }
+
     processDag(phaseSpec, sourcePluginType, sec, stagePartitions, pluginContext, collectors, pipelinePhase,
                functionCacheFactory, macroEvaluator, groupedDag, groups, branchers, shufflers);
   }
@@ -204,6 +220,15 @@ public abstract class SparkPipelineRunner {
   }
 
   protected void executeSinkRunnables(JavaSparkExecutionContext sec, Collection<Runnable> sinkRunnables) {
+    try {
+      runSinkRunnables(sec, sinkRunnables);
+    } finally {
+      // the inputs cached for joins are not read anymore once the sinks have run
+      DataframeCollection.uncacheJoinInputs(getSparkContext());
+    }
+  }
+
+  private void runSinkRunnables(JavaSparkExecutionContext sec, Collection<Runnable> sinkRunnables) {
     boolean shouldWriteInParallel = Boolean.parseBoolean(
       sec.getRuntimeArguments().get("pipeline.spark.parallel.sinks.enabled"));
     if (!shouldWriteInParallel) {
@@ -255,6 +280,10 @@ public abstract class SparkPipelineRunner {
           sinkRunnableProvider));
       return;
     }
+    if (fusedStages.contains(stageName)) {
+      // processed as part of the chain it was fused into
+      return;
+    }
 
     StageSpec stageSpec = pipelinePhase.getStage(stageName);
     String pluginType = stageSpec.getPluginType();
@@ -269,22 +298,20 @@ public abstract class SparkPipelineRunner {
 
       jsc.setCallSite(stageName + " (Plugin " + pluginName + " of Type " + pluginType + ", " + artifactInfo + ")");
 
+      if (fusedChains.containsKey(stageName)) {
+        List<String> chain = fusedChains.get(stageName);
+        emittedRecords.put(chain.get(chain.size() - 1),
+                           processFusedChain(sec, pipelinePhase, collectors, functionCacheFactory, emittedRecords,
+                                             groupedDag, branchers, shufflers, chain));
+        return;
+      }
+
       // don't want to do an additional filter for stages that can emit errors,
       // but aren't connected to an ErrorTransform
       // similarly, don't want to do an additional filter for alerts when the stage isn't connected to
       // an AlertPublisher
-      boolean hasErrorOutput = false;
-      boolean hasAlertOutput = false;
-      Set<String> outputs = pipelinePhase.getStageOutputs(stageName);
-      for (String output : outputs) {
-        String outputPluginType = pipelinePhase.getStage(output).getPluginType();
-        //noinspection ConstantConditions
-        if (ErrorTransform.PLUGIN_TYPE.equals(outputPluginType)) {
-          hasErrorOutput = true;
-        } else if (AlertPublisher.PLUGIN_TYPE.equals(outputPluginType)) {
-          hasAlertOutput = true;
-        }
-      }
+      boolean hasErrorOutput = hasOutputOfType(pipelinePhase, stageName, ErrorTransform.PLUGIN_TYPE);
+      boolean hasAlertOutput = hasOutputOfType(pipelinePhase, stageName, AlertPublisher.PLUGIN_TYPE);
 
       Set<String> stageInputs = pipelinePhase.getStageInputs(stageName);
       Map<String, SparkCollection<Object>> inputDataCollections = getInputDataCollections(pipelinePhase, emittedRecords,
@@ -358,6 +385,79 @@ public abstract class SparkPipelineRunner {
     }
   }
 
+  /**
+   * Finds the chains of Transform stages to run in a single Spark function. Relational transforms are found by
+   * their plugin class, so that plugins don't need to be instantiated on the driver.
+   */
+  private void findFusedChains(PipelinePhase pipelinePhase, CombinerDag groupedDag, Map<String, Set<String>> groups,
+                               PluginContext pluginContext) {
+    Set<String> relationalStages = new HashSet<>();
+    for (StageSpec stageSpec : pipelinePhase.getStagesOfType(Transform.PLUGIN_TYPE)) {
+      Class<?> pluginClass = pluginContext.loadPluginClass(stageSpec.getName());
+      if (RelationalTransform.class.isAssignableFrom(pluginClass)) {
+        relationalStages.add(stageSpec.getName());
+      }
+    }
+
+    Map<String, List<String>> chains =
+      TransformFusionPlanner.getFusedChains(pipelinePhase, groupedDag, groups.keySet(), relationalStages);
+    for (Map.Entry<String, List<String>> chain : chains.entrySet()) {
+      LOG.debug("Fusing transforms {}.", chain.getValue());
+      fusedChains.put(chain.getKey(), chain.getValue());
+      fusedStages.addAll(chain.getValue().subList(1, chain.getValue().size()));
+    }
+  }
+
+  /**
+   * Runs a chain of Transform stages in a single Spark function.
+   *
+   * @return the emitted records of the last stage in the chain
+   */
+  private EmittedRecords processFusedChain(JavaSparkExecutionContext sec, PipelinePhase pipelinePhase,
+                                           Map<String, StageStatisticsCollector> collectors,
+                                           FunctionCache.Factory functionCacheFactory,
+                                           Map<String, EmittedRecords> emittedRecords, CombinerDag groupedDag,
+                                           Set<String> branchers, Set<String> shufflers, List<String> chain) {
+    String headName = chain.get(0);
+    Map<String, SparkCollection<Object>> inputDataCollections =
+      getInputDataCollections(pipelinePhase, emittedRecords, headName, Transform.PLUGIN_TYPE,
+                              pipelinePhase.getStageInputs(headName));
+    SparkCollection<Object> stageData = getStageData(Transform.PLUGIN_TYPE, inputDataCollections);
+    if (stageData == null) {
+      throw new IllegalStateException(String.format("Stage '%s' has no input and is not a source.", headName));
+    }
+
+    List<PluginFunctionContext> pluginFunctionContexts = new ArrayList<>(chain.size());
+    List<FunctionCache> functionCaches = new ArrayList<>(chain.size());
+    for (String stageName : chain) {
+      StageStatisticsCollector collector = collectors.get(stageName) == null ? new NoopStageStatisticsCollector()
+        : collectors.get(stageName);
+      pluginFunctionContexts.add(new PluginFunctionContext(pipelinePhase.getStage(stageName), sec, collector));
+      functionCaches.add(functionCacheFactory.newCache());
+    }
+
+    String tailName = chain.get(chain.size() - 1);
+    StageSpec tailSpec = pipelinePhase.getStage(tailName);
+    SparkCollection<RecordInfo<Object>> combinedData =
+      stageData.flatMap(tailSpec, new FusedTransformFunction<>(pluginFunctionContexts, functionCaches));
+    return getEmittedRecords(pipelinePhase, tailSpec, combinedData, groupedDag, branchers, shufflers,
+                             hasOutputOfType(pipelinePhase, tailName, ErrorTransform.PLUGIN_TYPE),
+                             hasOutputOfType(pipelinePhase, tailName, AlertPublisher.PLUGIN_TYPE));
+  }
+
+  /**
+   * Returns whether the stage is connected to a stage of the given plugin type. Used to avoid an additional filter
+   * for errors or alerts when the stage isn't connected to an ErrorTransform or AlertPublisher.
+   */
+  private boolean hasOutputOfType(PipelinePhase pipelinePhase, String stageName, String pluginType) {
+    for (String output : pipelinePhase.getStageOutputs(stageName)) {
+      if (pluginType.equals(pipelinePhase.getStage(output).getPluginType())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private EmittedRecords processOtherPluginTypes(String pluginType, Map<String, EmittedRecords> emittedRecords,
                                                  Set<String> stageInputs, StageSpec stageSpec,
                                                  StageStatisticsCollector collector,
@@ -533,8 +633,9 @@ public abstract class SparkPipelineRunner {
   private EmittedRecords getEmittedRecords(PipelinePhase pipelinePhase, StageSpec stageSpec,
       SparkCollection<Object> records, CombinerDag groupedDag,
       Set<String> branchers, Set<String> shufflers, String stageName) {
-    if (shouldCache(groupedDag, stageSpec.getName(), branchers, shufflers, records)) {
-      records = records.cache();
+    StorageLevel storageLevel = getCacheStorageLevel(groupedDag, stageSpec.getName(), branchers, shufflers, records);
+    if (storageLevel != null) {
+      records = records.cache(storageLevel);
     }
     SparkCollection<RecordInfo<Object>> stageData = mapToRecordInfoCollection(stageName, records);
     EmittedRecords.Builder builder = EmittedRecords.builder();
@@ -1088,32 +1189,21 @@ public abstract class SparkPipelineRunner {
    * When there is a shuffle, Spark knows to re-read from the shuffle data instead of the source.
    * Aggregators and non-broadcast joins will shuffle data.
    *
-   * Cache points can't be pre-computed because we don't know which joins are broadcast joins until the
-   * actual plugin is instantiated and the JoinDefinition is fetched from the plugin. This method assumes it
-   * will be called on stages in topological order, where any parent that is a joiner will be included in the
-   * provided shufflers set.
+   * Whether a stage is cached and the storage level it is cached with are decided by the {@link CachePlanner}.
+   *
+   * @return the storage level to cache the stage output with, or null if it should not be cached
    */
-  private boolean shouldCache(Dag dag,
-                              String stageName,
-                              Set<String> branchers,
-                              Set<String> shufflers,
-                              SparkCollection<?> stageData) {
-    if (!branchers.contains(stageName) || shufflers.contains(stageName)) {
-      return false;
-    }
-
+  @Nullable
+  private StorageLevel getCacheStorageLevel(Dag dag,
+                                            String stageName,
+                                            Set<String> branchers,
+                                            Set<String> shufflers,
+                                            SparkCollection<?> stageData) {
     // Skip caching for SQL engine collections
     if (stageData instanceof SQLBackedCollection) {
-      return false;
+      return null;
     }
-
-    // the stage is a non-shuffle stage with multiple outputs.
-    // check if there is a path from this stage back to a source without passing through another branch point
-    // or a shuffler. If so, this stage needs to be cached.
-    Set<String> stopNodes = new HashSet<>(branchers);
-    stopNodes.addAll(shufflers);
-    Set<String> parents = dag.parentsOf(stageName, stopNodes);
-    return !Sets.intersection(dag.getSources(), parents).isEmpty();
+    return cachePlanner.getStorageLevel(dag, stageName, branchers, shufflers);
   }
 
   /**
@@ -1142,8 +1232,9 @@ public abstract class SparkPipelineRunner {
     EmittedRecords.Builder builder = EmittedRecords.builder();
     builder.setRawData(stageData);
 
-    if (shouldCache(dag, stageSpec.getName(), branchers, shufflers, stageData)) {
-      stageData = stageData.cache();
+    StorageLevel storageLevel = getCacheStorageLevel(dag, stageSpec.getName(), branchers, shufflers, stageData);
+    if (storageLevel != null) {
+      stageData = stageData.cache(storageLevel);
     }
 
     if (hasErrors) {
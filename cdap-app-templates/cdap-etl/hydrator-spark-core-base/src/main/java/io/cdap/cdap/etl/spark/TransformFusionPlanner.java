@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark;
+
+import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.etl.common.PipelinePhase;
+import io.cdap.cdap.etl.planner.Dag;
+import io.cdap.cdap.etl.proto.v2.spec.StageSpec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds linear chains of Transform stages that can be run in a single Spark function instead of one Spark operation
+ * per stage.
+ *
+ * A stage is added to the chain of its input if it is the only input of the stage, and the stage is the only output
+ * of that input. Since the only output of a stage in the middle of a chain is the next stage, errors and alerts can
+ * only be emitted from the end of a chain. Stages that are not Transforms, consolidated groups and relational
+ * transforms are never fused, since they are executed differently.
+ */
+public final class TransformFusionPlanner {
+
+  private TransformFusionPlanner() {
+    // no-op
+  }
+
+  /**
+   * Finds the chains of Transforms to fuse.
+   *
+   * @param pipelinePhase the pipeline phase
+   * @param groupedDag the dag of the phase, with consolidated groups replaced by a single node
+   * @param groups the ids of the consolidated group nodes in the grouped dag
+   * @param relationalStages the names of the Transform stages that are relational transforms
+   * @return the chains to fuse, keyed by the first stage of the chain. Each chain contains at least two stages,
+   *   in the order they are run.
+   */
+  public static Map<String, List<String>> getFusedChains(PipelinePhase pipelinePhase, Dag groupedDag,
+                                                         Set<String> groups, Set<String> relationalStages) {
+    Set<String> fusible = new HashSet<>();
+    for (String stageName : groupedDag.getNodes()) {
+      if (groups.contains(stageName) || relationalStages.contains(stageName)) {
+        continue;
+      }
+      StageSpec stageSpec = pipelinePhase.getStage(stageName);
+      if (stageSpec != null && Transform.PLUGIN_TYPE.equals(stageSpec.getPluginType())) {
+        fusible.add(stageName);
+      }
+    }
+
+    Map<String, List<String>> chains = new HashMap<>();
+    Set<String> fused = new HashSet<>();
+    // stages are visited in topological order, so the head of a chain is always visited before the rest of it
+    for (String stageName : groupedDag.getTopologicalOrder()) {
+      if (!fusible.contains(stageName) || fused.contains(stageName)) {
+        continue;
+      }
+      List<String> chain = new ArrayList<>();
+      chain.add(stageName);
+      String current = stageName;
+      while (groupedDag.getNodeOutputs(current).size() == 1 && pipelinePhase.getStageOutputs(current).size() == 1) {
+        String next = groupedDag.getNodeOutputs(current).iterator().next();
+        if (!fusible.contains(next) || groupedDag.getNodeInputs(next).size() != 1) {
+          break;
+        }
+        chain.add(next);
+        current = next;
+      }
+      if (chain.size() > 1) {
+        chains.put(stageName, chain);
+        fused.addAll(chain);
+      }
+    }
+    return chains;
+  }
+}
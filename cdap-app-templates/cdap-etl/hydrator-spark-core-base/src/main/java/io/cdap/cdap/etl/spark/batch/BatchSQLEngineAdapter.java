@@ -331,6 +331,9 @@ public class BatchSQLEngineAdapter implements Closeable {
 
         // Note that we only support Spark collections at this time.
         // If the collection that got generarted is not an instance of a SparkRecordCollection, skip.
+        // The dataframe is kept as is, and rows are only converted to records when a stage that is not
+        // executed as SQL reads them. A columnar exchange, such as Arrow record batches, would need a new
+        // capability implemented by the engines, and is not supported.
         if (recordCollection instanceof SparkRecordCollection) {
           countExecutionStage(SQLEngineJobTypeMetric.SPARK_PULL);
           return new DataframeCollectionFactory<T>(
@@ -348,10 +351,7 @@ public class BatchSQLEngineAdapter implements Closeable {
                                                    getClass().getClassLoader());
     JavaPairRDD pairRDD = RDDUtils.readUsingInputFormat(jsc, sqlPullDataset, classLoader, Object.class,
                                                         Object.class);
-    JavaRDD<T> rdd = pairRDD.flatMap(new TransformFromPairFunction(sqlPullDataset.fromKeyValue()))
-      .map(f -> {
-        return f;
-      });
+    JavaRDD<T> rdd = pairRDD.flatMap(new TransformFromPairFunction(sqlPullDataset.fromKeyValue()));
     countExecutionStage(SQLEngineJobTypeMetric.PULL);
     return new RDDCollectionFactory<>(rdd);
   }
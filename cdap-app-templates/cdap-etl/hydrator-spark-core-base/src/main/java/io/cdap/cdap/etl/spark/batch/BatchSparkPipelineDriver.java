@@ -235,6 +235,8 @@ public class BatchSparkPipelineDriver extends SparkPipelineRunner implements Jav
         sec.getRuntimeArguments().getOrDefault(Constants.CONSOLIDATE_STAGES, Boolean.TRUE.toString()));
       boolean shouldCacheFunctions = Boolean.parseBoolean(
         sec.getRuntimeArguments().getOrDefault(Constants.CACHE_FUNCTIONS, Boolean.TRUE.toString()));
+      boolean shouldFuseTransforms = Boolean.parseBoolean(
+        sec.getRuntimeArguments().getOrDefault(Constants.FUSE_TRANSFORMS, Boolean.TRUE.toString()));
       boolean shouldDisablePushdown = Boolean.parseBoolean(
         sec.getRuntimeArguments().getOrDefault(Constants.DISABLE_ELT_PUSHDOWN, Boolean.FALSE.toString()));
 
@@ -276,7 +278,8 @@ public class BatchSparkPipelineDriver extends SparkPipelineRunner implements Jav
                                                      true);
 
       runPipeline(phaseSpec, BatchSource.PLUGIN_TYPE, sec, stagePartitions, pluginInstantiator, collectors,
-                  sinkFactory.getUncombinableSinks(), shouldConsolidateStages, shouldCacheFunctions);
+                  sinkFactory.getUncombinableSinks(), shouldConsolidateStages, shouldCacheFunctions,
+                  shouldFuseTransforms);
     } catch (Throwable t) {
       // Mark this execution as not successful.
       isSuccessful = false;
@@ -32,9 +32,12 @@ import io.cdap.cdap.etl.proto.v2.spec.StageSpec;
 import io.cdap.cdap.etl.spark.SparkCollection;
 import io.cdap.cdap.etl.spark.function.CountingFunction;
 import io.cdap.cdap.etl.spark.function.FunctionCache;
+import io.cdap.cdap.etl.spark.function.RowToRecordFunction;
 import io.cdap.cdap.etl.spark.join.JoinCollection;
 import io.cdap.cdap.etl.spark.join.JoinExpressionRequest;
 import io.cdap.cdap.etl.spark.join.JoinRequest;
+import io.cdap.cdap.etl.spark.join.JoinStrategy;
+import io.cdap.cdap.etl.spark.join.JoinStrategySelector;
 import io.cdap.cdap.etl.spark.plugin.LiteralsBridge;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -42,17 +45,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import javax.annotation.Nullable;
 import org.apache.spark.SparkConf;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FilterFunction;
-import org.apache.spark.api.java.function.MapFunction;
 import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.catalog.Catalog;
+import org.apache.spark.sql.catalyst.plans.logical.LogicalPlan;
 import org.apache.spark.sql.functions;
 import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
@@ -62,6 +69,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import scala.collection.JavaConversions;
 import scala.collection.Seq;
+import scala.math.BigInt;
 
 /**
  * This SpartCollection stores data in Spark Dataframe ({@link Dataset}&lt;{@link Row}&gt;).
@@ -74,6 +82,8 @@ import scala.collection.Seq;
 public class DataframeCollection extends DatasetCollection<StructuredRecord>
     implements BatchCollection<StructuredRecord>{
   private static final Logger LOG = LoggerFactory.getLogger(DataframeCollection.class);
+  // temporary views of the join inputs that are cached until the sinks have run
+  private static final Set<String> CACHED_JOIN_INPUT_VIEWS = ConcurrentHashMap.newKeySet();
 
   private final Schema schema;
   private final Dataset<Row> dataframe;
@@ -103,10 +113,7 @@ public class DataframeCollection extends DatasetCollection<StructuredRecord>
   @Override
   protected synchronized Dataset<StructuredRecord> getDataset() {
     if (dataset == null) {
-      //Copy schema to ensure we don't pull containing object into the lambda
-      Schema schema = this.schema;
-      MapFunction<Row, StructuredRecord> rowFunction = r -> DataFrames.fromRow(r, schema);
-      dataset = dataframe.map(rowFunction, objectEncoder());
+      dataset = dataframe.map(new RowToRecordFunction(schema), objectEncoder());
     }
     return dataset;
   }
@@ -117,7 +124,7 @@ public class DataframeCollection extends DatasetCollection<StructuredRecord>
   }
 
   @Override
-  protected DataframeCollection cache(StorageLevel cacheStorageLevel) {
+  public DataframeCollection cache(StorageLevel cacheStorageLevel) {
     return wrap(dataframe.persist(cacheStorageLevel), schema);
   }
 
@@ -153,6 +160,7 @@ public class DataframeCollection extends DatasetCollection<StructuredRecord>
         Join #3 is an inner join even though it contains 2 optional datasets, because 'B' is still required.
      */
     Integer joinPartitions = joinRequest.getNumPartitions();
+    JoinStrategySelector strategySelector = new JoinStrategySelector(jsc.getConf());
     boolean seenRequired = joinRequest.isLeftRequired();
     Dataset<Row> joined = left;
     List<List<Column>> listOfListOfLeftCols = new ArrayList<>();
@@ -168,8 +176,22 @@ public class DataframeCollection extends DatasetCollection<StructuredRecord>
           .map(right::col)
           .collect(Collectors.toList());
 
+      String joinType;
+      if (seenRequired && toJoin.isRequired()) {
+        joinType = "inner";
+      } else if (seenRequired && !toJoin.isRequired()) {
+        joinType = "leftouter";
+      } else if (!seenRequired && toJoin.isRequired()) {
+        joinType = "rightouter";
+      } else {
+        joinType = "outer";
+      }
+      JoinStrategy strategy = selectJoinStrategy(stageName, strategySelector, toJoin, joinType, joined, right,
+                                                 joinPartitions);
+
       // UUID for salt column name to avoid name collisions
       String saltColumn = UUID.randomUUID().toString();
+      boolean salted = false;
       if (joinRequest.isDistributionEnabled()) {
 
         boolean isLeftStageSkewed =
@@ -183,7 +205,23 @@ public class DataframeCollection extends DatasetCollection<StructuredRecord>
           left = explodeDataset(left, saltColumn, joinRequest.getDistribution().getDistributionFactor());
           right = saltDataset(right, saltColumn, joinRequest.getDistribution().getDistributionFactor());
         }
+        salted = true;
+      } else if (strategySelector.shouldSaltSkewedKeys(joinRequest, strategy, joinType)) {
+        // sampling the left side runs a separate job. Cache it so that it is not computed again by the join,
+        // which would re-read the source and count its records twice. The cache is dropped once the sinks have run.
+        Dataset<Row> cachedLeft = cacheJoinInput(left);
+        List<Row> skewedKeys = findSkewedKeys(cachedLeft, leftJoinColumns, strategySelector);
+        if (!skewedKeys.isEmpty()) {
+          LOG.info("Salting {} skewed keys of '{}' in stage '{}'.",
+                   skewedKeys.size(), joinRequest.getLeftStage(), stageName);
+          int saltFactor = strategySelector.getSkewSaltFactor();
+          left = saltDataset(cachedLeft, saltColumn, saltFactor, isSkewedKey(skewedKeys, leftJoinColumns));
+          right = explodeDataset(right, saltColumn, saltFactor, isSkewedKey(skewedKeys, rightJoinColumns));
+          salted = true;
+        }
+      }
 
+      if (salted) {
         // Add the salt column to the join key
         leftJoinColumns.add(left.col(saltColumn));
         rightJoinColumns.add(right.col(saltColumn));
@@ -213,22 +251,8 @@ public class DataframeCollection extends DatasetCollection<StructuredRecord>
             })
             .reduce((a, b) -> a.and(b)).get();
       }
-
-      String joinType;
-      if (seenRequired && toJoin.isRequired()) {
-        joinType = "inner";
-      } else if (seenRequired && !toJoin.isRequired()) {
-        joinType = "leftouter";
-      } else if (!seenRequired && toJoin.isRequired()) {
-        joinType = "rightouter";
-      } else {
-        joinType = "outer";
-      }
       seenRequired = seenRequired || toJoin.isRequired();
 
-      if (toJoin.isBroadcast()) {
-        right = functions.broadcast(right);
-      }
       // repartition on the join keys with the number of partitions specified in the join request.
       // since they are partitioned on the same thing, spark will not repartition during the join,
       // which allows us to use a different number of partitions per joiner instead of using the global
@@ -236,13 +260,14 @@ public class DataframeCollection extends DatasetCollection<StructuredRecord>
       // Note that it does not work with Spark 2.3+ as they changed partitioning column set in
       // https://github.com/apache/spark/pull/19937. Now we ignore user setting unless
       // we are forced to with spark.cdap.pipeline.aggregate.dataset.partitions.ignore = false
-      if (!ignorePartitionsDuringDatasetAggregation && joinPartitions != null && !toJoin.isBroadcast()) {
+      if (!ignorePartitionsDuringDatasetAggregation && joinPartitions != null
+          && strategy != JoinStrategy.BROADCAST_HASH) {
         List<String> rightKeys = new ArrayList<>(toJoin.getKey());
         List<String> leftKeys = new ArrayList<>(joinRequest.getLeftKey());
 
-        // If distribution is enabled we need to add it to the partition keys to ensure we end up with the desired
+        // If the join is salted we need to add the salt to the partition keys to ensure we end up with the desired
         // number of partitions
-        if (joinRequest.isDistributionEnabled()) {
+        if (salted) {
           rightKeys.add(saltColumn);
           leftKeys.add(saltColumn);
         }
@@ -254,6 +279,11 @@ public class DataframeCollection extends DatasetCollection<StructuredRecord>
               leftSparkSchema, joinPartitions);
         }
       }
+      if (strategy == JoinStrategy.BROADCAST_HASH) {
+        right = functions.broadcast(right);
+      } else if (strategy != null) {
+        right = right.hint(strategy.getHint());
+      }
       joined = joined.join(right, joinOn, joinType);
 
       /*
@@ -413,6 +443,130 @@ public class DataframeCollection extends DatasetCollection<StructuredRecord>
     return explodedData;
   }
 
+  /**
+   * Helper method that adds a salt column to a dataframe, where only rows that match a condition are salted.
+   *
+   * @param data               Dataframe add salt to
+   * @param saltColumnName     Name to use for the new salt column
+   * @param distributionFactor The desired salt size, values in the salt column will range [0,distributionFactor)
+   *                           for rows that match the condition, and will be 0 for all other rows
+   * @param condition          Condition for the rows to salt
+   * @return Dataframe with an additional salt column
+   */
+  private Dataset<Row> saltDataset(Dataset<Row> data, String saltColumnName, int distributionFactor,
+                                   Column condition) {
+    Column salt = functions.floor(functions.rand().multiply(distributionFactor)).cast(DataTypes.IntegerType);
+    return data.withColumn(saltColumnName, functions.when(condition, salt).otherwise(functions.lit(0)));
+  }
+
+  /**
+   * Helper method that adds salt column to a dataframe and explodes the rows that match a condition
+   *
+   * @param data               Dataframe to explode
+   * @param saltColumnName     Name to use for the new salt column
+   * @param distributionFactor The desired salt size, rows that match the condition are repeated for every value
+   *                           in [0,distributionFactor), and all other rows get a salt of 0
+   * @param condition          Condition for the rows to explode
+   * @return Dataframe with an additional salt column
+   */
+  private Dataset<Row> explodeDataset(Dataset<Row> data, String saltColumnName, int distributionFactor,
+                                      Column condition) {
+    Column[] salts = IntStream.range(0, distributionFactor).boxed().map(functions::lit).toArray(Column[]::new);
+    Column saltArray = functions.when(condition, functions.array(salts))
+        .otherwise(functions.array(functions.lit(0)));
+    return data.withColumn(saltColumnName, functions.explode(saltArray));
+  }
+
+  /**
+   * Caches a dataframe on disk as a temporary view, which is dropped by {@link #uncacheJoinInputs(JavaSparkContext)}.
+   */
+  private Dataset<Row> cacheJoinInput(Dataset<Row> data) {
+    String viewName = "join_input_" + UUID.randomUUID().toString().replaceAll("-", "");
+    data.createOrReplaceTempView(viewName);
+    CACHED_JOIN_INPUT_VIEWS.add(viewName);
+    sqlContext.sparkSession().catalog().cacheTable(viewName, StorageLevel.DISK_ONLY());
+    return sqlContext.table(viewName);
+  }
+
+  /**
+   * Drops the join inputs that were cached for sampling, which also removes their cached data. This must only be
+   * called once the sinks that read from the joins have run.
+   *
+   * @param jsc the Spark context the joins were run with
+   */
+  public static void uncacheJoinInputs(JavaSparkContext jsc) {
+    if (CACHED_JOIN_INPUT_VIEWS.isEmpty()) {
+      return;
+    }
+    Catalog catalog = new SQLContext(jsc).sparkSession().catalog();
+    for (String viewName : CACHED_JOIN_INPUT_VIEWS) {
+      catalog.dropTempView(viewName);
+      CACHED_JOIN_INPUT_VIEWS.remove(viewName);
+    }
+  }
+
+  /**
+   * Finds the keys with the most records in a dataframe by sampling it. This runs a Spark job.
+   *
+   * @param data       Dataframe to sample
+   * @param keyColumns Key columns of the dataframe
+   * @param selector   Selector that has the sampling configuration
+   * @return the keys that are estimated to have at least the configured minimum number of records, with the most
+   *     common key first
+   */
+  private List<Row> findSkewedKeys(Dataset<Row> data, List<Column> keyColumns, JoinStrategySelector selector) {
+    double fraction = selector.getSkewSampleFraction();
+    long minSampledRecords = Math.max(1L, (long) Math.ceil(selector.getSkewMinRecords() * fraction));
+    // UUID for count column name to avoid name collisions
+    String countColumn = UUID.randomUUID().toString();
+    return data.sample(false, fraction)
+        .groupBy(JavaConversions.asScalaBuffer(keyColumns).toSeq())
+        .agg(functions.count(functions.lit(1)).alias(countColumn))
+        .filter(functions.col(countColumn).geq(minSampledRecords))
+        .orderBy(functions.col(countColumn).desc())
+        .limit(selector.getSkewMaxKeys())
+        .collectAsList();
+  }
+
+  /**
+   * Returns a condition that matches rows with one of the given keys.
+   */
+  private Column isSkewedKey(List<Row> skewedKeys, List<Column> keyColumns) {
+    return skewedKeys.stream()
+        .map(key -> IntStream.range(0, keyColumns.size())
+            .mapToObj(i -> keyColumns.get(i).eqNullSafe(functions.lit(key.get(i))))
+            .reduce(Column::and).get())
+        .reduce(Column::or).get();
+  }
+
+  /**
+   * Chooses the strategy to join a collection, using the size Spark estimates for each side of the join.
+   */
+  private JoinStrategy selectJoinStrategy(String stageName, JoinStrategySelector selector, JoinCollection toJoin,
+      String joinType, Dataset<Row> left, Dataset<Row> right, @Nullable Integer joinPartitions) {
+    int numPartitions = !ignorePartitionsDuringDatasetAggregation && joinPartitions != null ? joinPartitions
+        : Integer.parseInt(sqlContext.getConf("spark.sql.shuffle.partitions", "200"));
+    return selector.select(stageName, toJoin, joinType, estimateSize(left), estimateSize(right), numPartitions);
+  }
+
+  /**
+   * Returns the size in bytes Spark estimates for a dataframe, or null if it is not known.
+   */
+  @Nullable
+  private static Long estimateSize(Dataset<Row> data) {
+    LogicalPlan plan = data.queryExecution().optimizedPlan();
+    // Spark uses spark.sql.defaultSizeInBytes, which is Long.MAX_VALUE by default, for inputs that it can't estimate,
+    // such as RDDs. Any estimate derived from it is meaningless.
+    for (LogicalPlan leaf : JavaConversions.seqAsJavaList(plan.collectLeaves())) {
+      BigInt leafSize = leaf.stats().sizeInBytes();
+      if (!leafSize.isValidLong() || leafSize.longValue() == Long.MAX_VALUE) {
+        return null;
+      }
+    }
+    BigInt size = plan.stats().sizeInBytes();
+    return size.isValidLong() ? size.longValue() : null;
+  }
+
   private void collectLeftJoinOnCols(List<List<Column>> listOfListOfColumns, int index, Column leftJoinOnCurrent) {
     if (listOfListOfColumns.size() <= index) {
       listOfListOfColumns.add(new ArrayList<Column>());
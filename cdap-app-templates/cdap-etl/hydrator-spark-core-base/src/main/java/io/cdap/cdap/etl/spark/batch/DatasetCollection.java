@@ -169,7 +169,8 @@ public abstract class DatasetCollection<T> extends DelegatingSparkCollection<T>
     }
   }
 
-  protected DatasetCollection<T> cache(StorageLevel cacheStorageLevel) {
+  @Override
+  public DatasetCollection<T> cache(StorageLevel cacheStorageLevel) {
     return wrap(getDataset().persist(cacheStorageLevel));
   }
 
@@ -24,6 +24,7 @@ import io.cdap.cdap.api.spark.sql.DataFrames;
 import io.cdap.cdap.etl.common.Constants;
 import io.cdap.cdap.etl.spark.SparkCollection;
 import io.cdap.cdap.etl.spark.function.FunctionCache;
+import io.cdap.cdap.etl.spark.function.RecordToRowFunction;
 import io.cdap.cdap.etl.spark.join.JoinExpressionRequest;
 import io.cdap.cdap.etl.spark.join.JoinRequest;
 import org.apache.spark.api.java.JavaRDD;
@@ -110,7 +111,7 @@ public class OpaqueDatasetCollection<T> extends DatasetCollection<T> {
     StructType sparkSchema = DataFrames.toDataType(schema);
     ExpressionEncoder<Row> encoder = RowEncoder.apply(sparkSchema);
     Dataset<StructuredRecord> ds = (Dataset<StructuredRecord>) getDataset();
-    MapFunction<StructuredRecord, Row> converter = r -> DataFrames.toRow(r, sparkSchema);
+    MapFunction<StructuredRecord, Row> converter = new RecordToRowFunction(sparkSchema);
     return new DataframeCollection(schema, ds.map(converter, encoder),
         sec, jsc, sqlContext, datasetContext, sinkFactory, functionCacheFactory);
   }
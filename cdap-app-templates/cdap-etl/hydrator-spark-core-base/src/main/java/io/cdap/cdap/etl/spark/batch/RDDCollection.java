@@ -59,6 +59,7 @@ import io.cdap.cdap.etl.spark.function.FunctionCache;
 import io.cdap.cdap.etl.spark.function.MultiOutputTransformFunction;
 import io.cdap.cdap.etl.spark.function.MultiSinkFunction;
 import io.cdap.cdap.etl.spark.function.PluginFunctionContext;
+import io.cdap.cdap.etl.spark.function.RecordToRowFunction;
 import io.cdap.cdap.etl.spark.function.TransformFunction;
 import io.cdap.cdap.etl.spark.join.JoinExpressionRequest;
 import io.cdap.cdap.etl.spark.join.JoinRequest;
@@ -129,12 +130,17 @@ public class RDDCollection<T> implements BatchCollection<T> {
       String cacheStorageLevelString = sparkConf.get(Constants.SPARK_PIPELINE_CACHING_STORAGE_LEVEL,
                                                      Constants.DEFAULT_CACHING_STORAGE_LEVEL);
       StorageLevel cacheStorageLevel = StorageLevel.fromString(cacheStorageLevelString);
-      return wrap(rdd.persist(cacheStorageLevel));
+      return cache(cacheStorageLevel);
     } else {
       return wrap(rdd);
     }
   }
 
+  @Override
+  public SparkCollection<T> cache(StorageLevel storageLevel) {
+    return wrap(rdd.persist(storageLevel));
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public SparkCollection<T> union(SparkCollection<T> other) {
@@ -202,7 +208,7 @@ public class RDDCollection<T> implements BatchCollection<T> {
   public DataframeCollection toDataframeCollection(Schema schema) {
     StructType sparkSchema = DataFrames.toDataType(schema);
     JavaRDD<Row> rowRDD = ((JavaRDD<StructuredRecord>) rdd)
-        .map(record -> DataFrames.toRow(record, sparkSchema));
+        .map(new RecordToRowFunction(sparkSchema));
     Dataset<Row> dataframe = sqlContext.createDataFrame(rowRDD.rdd(), sparkSchema);
     return new DataframeCollection(
         schema, dataframe, sec, jsc, sqlContext, datasetContext,
@@ -41,6 +41,7 @@ import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
 import org.apache.spark.sql.SQLContext;
+import org.apache.spark.storage.StorageLevel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -155,6 +156,11 @@ public class SQLEngineCollection<T> implements SQLBackedCollection<T> {
     return pull().cache();
   }
 
+  @Override
+  public SparkCollection<T> cache(StorageLevel storageLevel) {
+    return pull().cache(storageLevel);
+  }
+
   @Override
   public SparkCollection<T> union(SparkCollection<T> other) {
     return pull().union(other);
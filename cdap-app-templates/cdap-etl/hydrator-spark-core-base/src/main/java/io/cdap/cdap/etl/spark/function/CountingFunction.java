@@ -19,7 +19,6 @@ package io.cdap.cdap.etl.spark.function;
 import io.cdap.cdap.api.metrics.Metrics;
 import io.cdap.cdap.api.preview.DataTracer;
 import io.cdap.cdap.etl.api.StageMetrics;
-import io.cdap.cdap.etl.common.DefaultStageMetrics;
 import org.apache.spark.api.java.function.FilterFunction;
 import org.apache.spark.api.java.function.Function;
 
@@ -49,7 +48,7 @@ public class CountingFunction<T> implements Function<T, T>, MapFunction<T, T> {
   @Override
   public T call(T in) throws Exception {
     if (stageMetrics == null) {
-      stageMetrics = new DefaultStageMetrics(metrics, stageName);
+      stageMetrics = PluginFunctionContext.createStageMetrics(metrics, stageName);
     }
     // we only want to trace the data for records.out
     if (dataTracer != null && dataTracer.isEnabled()) {
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.etl.common.RecordInfo;
+import io.cdap.cdap.etl.common.TrackedTransform;
+import io.cdap.cdap.etl.exec.PipeEmitter;
+import io.cdap.cdap.etl.exec.PipeStage;
+import io.cdap.cdap.etl.exec.PipeTransformExecutor;
+import io.cdap.cdap.etl.exec.StageFailureException;
+import io.cdap.cdap.etl.exec.UnwrapPipeStage;
+import io.cdap.cdap.etl.spark.CombinedEmitter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import org.apache.spark.api.java.function.FlatMapFunction;
+
+/**
+ * Function that runs a linear chain of Transforms on each input record, passing records between the
+ * transforms in memory with a {@link PipeTransformExecutor} instead of running each transform as a
+ * separate Spark operation. The output of the last transform in the chain is emitted, tagged with
+ * the name of that stage.
+ * Non-serializable fields are lazily created since this is used in a Spark closure.
+ *
+ * @param <T> type of input object
+ */
+public class FusedTransformFunction<T> implements FlatMapFunction<T, RecordInfo<Object>> {
+
+  private final List<PluginFunctionContext> pluginFunctionContexts;
+  private final List<FunctionCache> functionCaches;
+  private transient PipeTransformExecutor<T> executor;
+  private transient CombinedEmitter<Object> emitter;
+
+  /**
+   * @param pluginFunctionContexts contexts for the stages in the chain, in the order they are run
+   * @param functionCaches function caches for the stages in the chain, in the same order
+   */
+  public FusedTransformFunction(List<PluginFunctionContext> pluginFunctionContexts,
+      List<FunctionCache> functionCaches) {
+    this.pluginFunctionContexts = new ArrayList<>(pluginFunctionContexts);
+    this.functionCaches = new ArrayList<>(functionCaches);
+  }
+
+  @Override
+  public Iterator<RecordInfo<Object>> call(T input) throws Exception {
+    if (executor == null) {
+      executor = createExecutor();
+    }
+    emitter.reset();
+    try {
+      executor.runOneIteration(input);
+    } catch (StageFailureException e) {
+      throw new ExecutionException(e.getMessage(), e.getCause());
+    }
+    return emitter.getEmitted().iterator();
+  }
+
+  private PipeTransformExecutor<T> createExecutor() throws Exception {
+    int numStages = pluginFunctionContexts.size();
+    String lastStageName = pluginFunctionContexts.get(numStages - 1).getStageName();
+    emitter = new CombinedEmitter<>(lastStageName);
+
+    // create stages from last to first so that the output of each stage exists when the stage is created
+    Map<String, PipeStage> pipeStages = new HashMap<>();
+    PipeStage<RecordInfo<Object>> nextStage = null;
+    for (int i = numStages - 1; i >= 0; i--) {
+      PluginFunctionContext pluginFunctionContext = pluginFunctionContexts.get(i);
+      String stageName = pluginFunctionContext.getStageName();
+      Transform<Object, Object> plugin;
+      try {
+        plugin = pluginFunctionContext.createAndInitializePlugin(functionCaches.get(i));
+      } catch (Exception e) {
+        throw new ExecutionException("Error when initializing stage " + stageName + ": " + e, e);
+      }
+      TrackedTransform<Object, Object> transform = new TrackedTransform<>(plugin,
+          pluginFunctionContext.createStageMetrics(), pluginFunctionContext.getDataTracer(),
+          pluginFunctionContext.getStageStatisticsCollector());
+      Emitter<Object> stageEmitter = nextStage == null
+          ? emitter : PipeEmitter.builder(stageName).addOutputConsumer((PipeStage) nextStage).build();
+      nextStage = new UnwrapPipeStage<>(stageName, transform, stageEmitter);
+      pipeStages.put(stageName, nextStage);
+    }
+    String firstStageName = pluginFunctionContexts.get(0).getStageName();
+    return new PipeTransformExecutor<>(pipeStages, Collections.singleton(firstStageName));
+  }
+}
@@ -41,6 +41,8 @@ import io.cdap.cdap.etl.proto.v2.spec.StageSpec;
 import io.cdap.cdap.etl.spark.batch.SparkBatchRuntimeContext;
 import io.cdap.cdap.etl.spark.plugin.SparkPipelinePluginContext;
 import io.cdap.cdap.etl.validation.LoggingFailureCollector;
+import org.apache.spark.TaskContext;
+import org.apache.spark.util.TaskCompletionListener;
 
 import java.io.Serializable;
 import java.util.Map;
@@ -50,7 +52,9 @@ import java.util.Map;
  */
 public class PluginFunctionContext implements Serializable {
   private static final long serialVersionUID = -7897960584858589315L;
-  
+  // Number of counted records before stage metrics are flushed when running in a Spark task
+  private static final int METRICS_FLUSH_INTERVAL = 1000;
+
   private final String namespace;
   private final String pipelineName;
   private final long logicalStartTime;
@@ -128,7 +132,27 @@ public class PluginFunctionContext implements Serializable {
   }
 
   public StageMetrics createStageMetrics() {
-    return new DefaultStageMetrics(metrics, stageSpec.getName());
+    return createStageMetrics(metrics, stageSpec.getName());
+  }
+
+  /**
+   * Creates a {@link StageMetrics} for the given stage. When called from a Spark task, counts are
+   * accumulated locally and flushed periodically as well as when the task completes.
+   */
+  static StageMetrics createStageMetrics(Metrics metrics, String stageName) {
+    TaskContext taskContext = TaskContext.get();
+    if (taskContext == null) {
+      return new DefaultStageMetrics(metrics, stageName);
+    }
+    DefaultStageMetrics stageMetrics = DefaultStageMetrics.batching(metrics, stageName,
+                                                                    METRICS_FLUSH_INTERVAL);
+    taskContext.addTaskCompletionListener(new TaskCompletionListener() {
+      @Override
+      public void onTaskCompletion(TaskContext context) {
+        stageMetrics.flush();
+      }
+    });
+    return stageMetrics;
   }
 
   public StageStatisticsCollector getStageStatisticsCollector() {
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.cdap.etl.spark.function;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.spark.sql.DataFrames;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.api.java.function.MapFunction;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.StructType;
+
+/**
+ * Function that converts a {@link StructuredRecord} into a Spark {@link Row} with the given {@link StructType},
+ * using {@link DataFrames#toRow(StructuredRecord, StructType)}.
+ */
+public class RecordToRowFunction implements Function<StructuredRecord, Row>, MapFunction<StructuredRecord, Row> {
+  private final StructType structType;
+
+  public RecordToRowFunction(StructType structType) {
+    this.structType = structType;
+  }
+
+  @Override
+  public Row call(StructuredRecord record) {
+    return DataFrames.toRow(record, structType);
+  }
+}
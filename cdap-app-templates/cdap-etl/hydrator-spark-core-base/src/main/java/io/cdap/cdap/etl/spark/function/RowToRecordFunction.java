@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.cdap.etl.spark.function;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.spark.sql.DataFrames;
+import org.apache.spark.api.java.function.MapFunction;
+import org.apache.spark.sql.Row;
+
+/**
+ * Function that converts a Spark {@link Row} into a {@link StructuredRecord} with the given {@link Schema},
+ * using {@link DataFrames#fromRow(Row, Schema)}.
+ */
+public class RowToRecordFunction implements MapFunction<Row, StructuredRecord> {
+  private final Schema schema;
+
+  public RowToRecordFunction(Schema schema) {
+    if (schema.getType() != Schema.Type.RECORD) {
+      throw new IllegalArgumentException("Only record type schema is supported");
+    }
+    this.schema = schema;
+  }
+
+  @Override
+  public StructuredRecord call(Row row) {
+    return DataFrames.fromRow(row, schema);
+  }
+}
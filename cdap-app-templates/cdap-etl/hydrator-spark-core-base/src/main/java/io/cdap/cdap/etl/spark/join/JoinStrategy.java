@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.join;
+
+/**
+ * Physical strategy used by Spark to join two collections on keys.
+ */
+public enum JoinStrategy {
+  /**
+   * The joined side is sent to every executor and loaded into an in-memory hash table. Nothing is shuffled.
+   */
+  BROADCAST_HASH("broadcast"),
+  /**
+   * Both sides are shuffled on the key, and each partition of the joined side is loaded into a hash table.
+   */
+  SHUFFLE_HASH("shuffle_hash"),
+  /**
+   * Both sides are shuffled on the key and sorted within each partition before being merged.
+   */
+  SORT_MERGE("merge");
+
+  private final String hint;
+
+  JoinStrategy(String hint) {
+    this.hint = hint;
+  }
+
+  /**
+   * @return the Spark join hint for this strategy
+   */
+  public String getHint() {
+    return hint;
+  }
+}
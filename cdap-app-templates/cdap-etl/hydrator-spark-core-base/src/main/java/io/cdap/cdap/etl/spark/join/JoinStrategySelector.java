@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.join;
+
+import io.cdap.cdap.etl.common.Constants;
+import org.apache.spark.SparkConf;
+import org.apache.spark.network.util.JavaUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import javax.annotation.Nullable;
+
+/**
+ * Chooses how each join in a {@link JoinRequest} is executed.
+ *
+ * A collection that the plugin asked to broadcast is always broadcast. Otherwise, the strategy is chosen from the
+ * estimated size of each side of the join:
+ *
+ * <ul>
+ *   <li>If the joined side is at most a configurable number of bytes, it is broadcast. The threshold defaults to
+ *   spark.sql.autoBroadcastJoinThreshold.</li>
+ *   <li>If the joined side is much smaller than the other side, and each of its partitions is small enough to fit
+ *   in a hash table, both sides are shuffled and joined with a hash table built from the joined side.
+ *   This avoids sorting the larger side.</li>
+ *   <li>Otherwise, no strategy is chosen and the join is left to Spark, which can still switch to a broadcast join
+ *   at runtime with adaptive query execution. This is always the case when the sizes are not known, such as for
+ *   inputs read from RDDs.</li>
+ * </ul>
+ *
+ * A strategy can also be configured for all joins that are not broadcast.
+ *
+ * When a join has no distribution, it can also be salted to spread keys that are found to be skewed by sampling the
+ * other side of the join. Salting is disabled by default, since sampling runs a separate Spark job.
+ */
+public class JoinStrategySelector {
+  private static final Logger LOG = LoggerFactory.getLogger(JoinStrategySelector.class);
+  private static final String AUTO = "auto";
+  private static final String SPARK_BROADCAST_THRESHOLD = "spark.sql.autoBroadcastJoinThreshold";
+  // Spark's default for spark.sql.autoBroadcastJoinThreshold
+  private static final String DEFAULT_SPARK_BROADCAST_THRESHOLD = "10MB";
+  // only build a hash table from a side that is at least this many times smaller than the other
+  private static final int SHUFFLE_HASH_SIZE_RATIO = 3;
+  private static final long DEFAULT_SHUFFLE_HASH_MAX_PARTITION_BYTES = 64L * 1024 * 1024;
+  private static final double DEFAULT_SKEW_SAMPLE_FRACTION = 0.01d;
+  private static final long DEFAULT_SKEW_MIN_RECORDS = 1000000L;
+  private static final int DEFAULT_SKEW_MAX_KEYS = 100;
+  private static final int DEFAULT_SKEW_SALT_FACTOR = 16;
+
+  @Nullable
+  private final JoinStrategy configuredStrategy;
+  private final long broadcastMaxBytes;
+  private final long shuffleHashMaxPartitionBytes;
+  private final boolean skewSaltingEnabled;
+  private final double skewSampleFraction;
+  private final long skewMinRecords;
+  private final int skewMaxKeys;
+  private final int skewSaltFactor;
+
+  public JoinStrategySelector(SparkConf sparkConf) {
+    String strategy = sparkConf.get(Constants.SPARK_PIPELINE_JOIN_STRATEGY, AUTO).trim().toLowerCase(Locale.ROOT);
+    if (AUTO.equals(strategy)) {
+      this.configuredStrategy = null;
+    } else if (JoinStrategy.SORT_MERGE.name().equalsIgnoreCase(strategy)) {
+      this.configuredStrategy = JoinStrategy.SORT_MERGE;
+    } else if (JoinStrategy.SHUFFLE_HASH.name().equalsIgnoreCase(strategy)) {
+      this.configuredStrategy = JoinStrategy.SHUFFLE_HASH;
+    } else {
+      throw new IllegalArgumentException(
+        String.format("Invalid value '%s' for %s. It must be one of auto, sort_merge or shuffle_hash.",
+                      strategy, Constants.SPARK_PIPELINE_JOIN_STRATEGY));
+    }
+    this.broadcastMaxBytes = getBytes(sparkConf, Constants.SPARK_PIPELINE_JOIN_BROADCAST_MAX_BYTES,
+                                      sparkConf.get(SPARK_BROADCAST_THRESHOLD, DEFAULT_SPARK_BROADCAST_THRESHOLD));
+    this.shuffleHashMaxPartitionBytes = sparkConf.getLong(
+      Constants.SPARK_PIPELINE_JOIN_SHUFFLE_HASH_MAX_PARTITION_BYTES, DEFAULT_SHUFFLE_HASH_MAX_PARTITION_BYTES);
+    this.skewSaltingEnabled = sparkConf.getBoolean(Constants.SPARK_PIPELINE_JOIN_SKEW_SALTING_ENABLE, false);
+    this.skewSampleFraction = sparkConf.getDouble(Constants.SPARK_PIPELINE_JOIN_SKEW_SAMPLE_FRACTION,
+                                                  DEFAULT_SKEW_SAMPLE_FRACTION);
+    this.skewMinRecords = sparkConf.getLong(Constants.SPARK_PIPELINE_JOIN_SKEW_MIN_RECORDS, DEFAULT_SKEW_MIN_RECORDS);
+    this.skewMaxKeys = sparkConf.getInt(Constants.SPARK_PIPELINE_JOIN_SKEW_MAX_KEYS, DEFAULT_SKEW_MAX_KEYS);
+    this.skewSaltFactor = sparkConf.getInt(Constants.SPARK_PIPELINE_JOIN_SKEW_SALT_FACTOR, DEFAULT_SKEW_SALT_FACTOR);
+    if (skewSaltingEnabled) {
+      if (skewSampleFraction <= 0d || skewSampleFraction > 1d) {
+        throw new IllegalArgumentException(
+          String.format("Invalid value '%s' for %s. It must be greater than 0 and at most 1.",
+                        skewSampleFraction, Constants.SPARK_PIPELINE_JOIN_SKEW_SAMPLE_FRACTION));
+      }
+      if (skewSaltFactor < 2) {
+        throw new IllegalArgumentException(
+          String.format("Invalid value '%d' for %s. It must be at least 2.",
+                        skewSaltFactor, Constants.SPARK_PIPELINE_JOIN_SKEW_SALT_FACTOR));
+      }
+    }
+  }
+
+  /**
+   * Chooses the strategy to join a collection to the result of the previous joins.
+   *
+   * @param stageName the name of the joiner stage
+   * @param toJoin the collection to join
+   * @param joinType the Spark join type
+   * @param leftSize estimated size in bytes of the result of the previous joins, or null if it is not known
+   * @param rightSize estimated size in bytes of the collection to join, or null if it is not known
+   * @param numPartitions the number of partitions the join will shuffle to
+   * @return the strategy to join with, or null to let Spark choose the strategy
+   */
+  @Nullable
+  public JoinStrategy select(String stageName, JoinCollection toJoin, String joinType,
+                             @Nullable Long leftSize, @Nullable Long rightSize, int numPartitions) {
+    if (toJoin.isBroadcast()) {
+      return JoinStrategy.BROADCAST_HASH;
+    }
+
+    JoinStrategy strategy;
+    String reason;
+    if (configuredStrategy != null) {
+      strategy = configuredStrategy;
+      reason = "it is configured by " + Constants.SPARK_PIPELINE_JOIN_STRATEGY;
+    } else if (rightSize != null && canBuildRight(joinType) && rightSize <= broadcastMaxBytes) {
+      strategy = JoinStrategy.BROADCAST_HASH;
+      reason = String.format("it is estimated to be %d bytes", rightSize);
+    } else if (rightSize != null && leftSize != null && canBuildRight(joinType)
+      && rightSize <= leftSize / SHUFFLE_HASH_SIZE_RATIO
+      && rightSize / Math.max(1, numPartitions) <= shuffleHashMaxPartitionBytes) {
+      strategy = JoinStrategy.SHUFFLE_HASH;
+      reason = String.format("it is estimated to be %d bytes, compared to %d bytes for the other side",
+                             rightSize, leftSize);
+    } else {
+      LOG.debug("Joining '{}' in stage '{}' with the strategy chosen by Spark since {}.", toJoin.getStage(), stageName,
+                rightSize == null || leftSize == null ? "the size of the inputs is not known"
+                  : String.format("it is estimated to be %d bytes, compared to %d bytes for the other side",
+                                  rightSize, leftSize));
+      return null;
+    }
+    LOG.info("Joining '{}' in stage '{}' with strategy {} since {}.", toJoin.getStage(), stageName, strategy, reason);
+    return strategy;
+  }
+
+  /**
+   * Returns whether keys that are skewed on the left side of the join should be found and salted.
+   * This is only done for a join between two collections without a distribution, where the right side is not
+   * preserved by the join, since rows on the right side are duplicated for every salt value.
+   *
+   * @param request the join request
+   * @param strategy the strategy chosen for the join, or null if it is chosen by Spark
+   * @param joinType the Spark join type
+   * @return whether skewed keys should be salted
+   */
+  public boolean shouldSaltSkewedKeys(JoinRequest request, @Nullable JoinStrategy strategy, String joinType) {
+    return skewSaltingEnabled && request.getDistribution() == null && request.getToJoin().size() == 1
+      && strategy != JoinStrategy.BROADCAST_HASH && canBuildRight(joinType);
+  }
+
+  /**
+   * @return the fraction of records to sample when looking for skewed keys
+   */
+  public double getSkewSampleFraction() {
+    return skewSampleFraction;
+  }
+
+  /**
+   * @return the estimated number of records a key must have to be considered skewed
+   */
+  public long getSkewMinRecords() {
+    return skewMinRecords;
+  }
+
+  /**
+   * @return the maximum number of skewed keys to salt
+   */
+  public int getSkewMaxKeys() {
+    return skewMaxKeys;
+  }
+
+  /**
+   * @return the number of salt values that records with a skewed key are spread across
+   */
+  public int getSkewSaltFactor() {
+    return skewSaltFactor;
+  }
+
+  /**
+   * Returns a size in bytes from the configuration, where a negative value disables the size threshold.
+   */
+  private static long getBytes(SparkConf sparkConf, String key, String defaultValue) {
+    String value = sparkConf.get(key, defaultValue).trim();
+    return value.startsWith("-") ? -1L : JavaUtils.byteStringAsBytes(value);
+  }
+
+  /**
+   * Spark can only build a hash table from, or duplicate, the right side of the join if its unmatched rows
+   * are not part of the output.
+   */
+  private static boolean canBuildRight(String joinType) {
+    return "inner".equals(joinType) || "leftouter".equals(joinType);
+  }
+}
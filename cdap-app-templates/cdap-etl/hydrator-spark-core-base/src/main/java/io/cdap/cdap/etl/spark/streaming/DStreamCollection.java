@@ -98,12 +98,17 @@ public class DStreamCollection<T> implements SparkCollection<T> {
       String cacheStorageLevelString = sparkConf.get(Constants.SPARK_PIPELINE_CACHING_STORAGE_LEVEL, 
                                                      Constants.DEFAULT_CACHING_STORAGE_LEVEL);
       StorageLevel cacheStorageLevel = StorageLevel.fromString(cacheStorageLevelString);
-      return wrap(stream.persist(cacheStorageLevel));
+      return cache(cacheStorageLevel);
     } else {
       return wrap(stream);
     }
   }
 
+  @Override
+  public SparkCollection<T> cache(StorageLevel storageLevel) {
+    return wrap(stream.persist(storageLevel));
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public SparkCollection<T> union(SparkCollection<T> other) {
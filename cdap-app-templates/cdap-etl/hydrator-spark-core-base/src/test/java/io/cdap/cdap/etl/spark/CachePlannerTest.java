@@ -0,0 +1,233 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark;
+
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.api.metrics.Metrics;
+import io.cdap.cdap.etl.common.Constants;
+import io.cdap.cdap.etl.planner.Dag;
+import io.cdap.cdap.etl.proto.Connection;
+import org.apache.spark.SparkConf;
+import org.apache.spark.storage.StorageLevel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link CachePlanner}.
+ */
+public class CachePlannerTest {
+
+  @Test
+  public void testStorageLevels() {
+    /*
+                                    |--> s1
+        src --> t1 --> t2 --> t3 ---|
+                  |                 |--> s2
+                  |
+                  |--> s3
+     */
+    Dag dag = new Dag(ImmutableSet.of(
+      new Connection("src", "t1"), new Connection("t1", "t2"), new Connection("t1", "s3"),
+      new Connection("t2", "t3"), new Connection("t3", "s1"), new Connection("t3", "s2")));
+    Set<String> branchers = ImmutableSet.of("t1", "t3");
+    MockMetrics metrics = new MockMetrics();
+    CachePlanner planner = new CachePlanner(new SparkConf(false), metrics);
+
+    // caching t1 only saves re-running src and t1 for the second branch
+    Assert.assertEquals(StorageLevel.DISK_ONLY(),
+                        planner.getStorageLevel(dag, "t1", branchers, Collections.emptySet()));
+    // t3 does not need to be cached, since t2 and t3 are re-computed from the output of t1
+    Assert.assertNull(planner.getStorageLevel(dag, "t3", branchers, Collections.emptySet()));
+    // stages with a single output are never cached
+    Assert.assertNull(planner.getStorageLevel(dag, "t2", branchers, Collections.emptySet()));
+    Assert.assertEquals(1, metrics.getCount("t1.cache.disk"));
+    Assert.assertEquals(0, metrics.getCount("t3.cache.none"));
+
+    SparkConf memoryConf = new SparkConf(false).set(Constants.SPARK_PIPELINE_CACHING_MEMORY_MAX_COLLECTIONS, "2");
+
+    /*
+                                    |--> s1
+        src --> t1 --> t2 --> t3 ---|
+                                    |--> s2
+     */
+    dag = new Dag(ImmutableSet.of(
+      new Connection("src", "t1"), new Connection("t1", "t2"), new Connection("t2", "t3"),
+      new Connection("t3", "s1"), new Connection("t3", "s2")));
+    planner = new CachePlanner(new SparkConf(false), metrics);
+    // collections are not cached in memory unless there is a memory budget
+    Assert.assertEquals(StorageLevel.DISK_ONLY(),
+                        planner.getStorageLevel(dag, "t3", ImmutableSet.of("t3"), Collections.emptySet()));
+    planner = new CachePlanner(memoryConf, metrics);
+    // caching t3 saves re-running src, t1, t2 and t3 for the second branch
+    Assert.assertEquals(StorageLevel.MEMORY_AND_DISK_SER(),
+                        planner.getStorageLevel(dag, "t3", ImmutableSet.of("t3"), Collections.emptySet()));
+
+    /*
+                             |--> s1
+                             |--> s2
+        src --> t1 --> t2 ---|
+                             |--> s3
+                             |--> s4
+     */
+    dag = new Dag(ImmutableSet.of(
+      new Connection("src", "t1"), new Connection("t1", "t2"),
+      new Connection("t2", "s1"), new Connection("t2", "s2"), new Connection("t2", "s3"), new Connection("t2", "s4")));
+    planner = new CachePlanner(memoryConf, metrics);
+    // t2 is read by too many branches to be kept in memory
+    Assert.assertEquals(StorageLevel.DISK_ONLY(),
+                        planner.getStorageLevel(dag, "t2", ImmutableSet.of("t2"), Collections.emptySet()));
+  }
+
+  @Test
+  public void testNoCacheAfterShuffle() {
+    /*
+                              |--> s1
+        src --> agg --> t1 ---|
+                              |--> s2
+     */
+    Dag dag = new Dag(ImmutableSet.of(
+      new Connection("src", "agg"), new Connection("agg", "t1"),
+      new Connection("t1", "s1"), new Connection("t1", "s2")));
+    Set<String> branchers = ImmutableSet.of("t1");
+    MockMetrics metrics = new MockMetrics();
+    CachePlanner planner = new CachePlanner(new SparkConf(false), metrics);
+    Assert.assertNull(planner.getStorageLevel(dag, "t1", branchers, ImmutableSet.of("agg")));
+
+    // if agg does not shuffle, for example because it is a broadcast join, t1 must be cached
+    planner = new CachePlanner(new SparkConf(false), metrics);
+    Assert.assertEquals(StorageLevel.DISK_ONLY(),
+                        planner.getStorageLevel(dag, "t1", branchers, Collections.emptySet()));
+  }
+
+  @Test
+  public void testMemoryBudget() {
+    /*
+                             |--> s1
+        src1 --> t1 --> t2 --|
+                             |--> s2
+                             |
+        src2 --> t3 --> t4 --|
+                             |--> s3
+     */
+    Dag dag = new Dag(ImmutableSet.of(
+      new Connection("src1", "t1"), new Connection("t1", "t2"),
+      new Connection("t2", "s1"), new Connection("t2", "s2"),
+      new Connection("src2", "t3"), new Connection("t3", "t4"),
+      new Connection("t4", "s2"), new Connection("t4", "s3")));
+    Set<String> branchers = ImmutableSet.of("t2", "t4");
+    SparkConf sparkConf = new SparkConf(false)
+      .set(Constants.SPARK_PIPELINE_CACHING_MEMORY_MAX_COLLECTIONS, "1");
+    MockMetrics metrics = new MockMetrics();
+    CachePlanner planner = new CachePlanner(sparkConf, metrics);
+
+    Assert.assertEquals(StorageLevel.MEMORY_AND_DISK_SER(),
+                        planner.getStorageLevel(dag, "t2", branchers, Collections.emptySet()));
+    Assert.assertEquals(StorageLevel.DISK_ONLY(),
+                        planner.getStorageLevel(dag, "t4", branchers, Collections.emptySet()));
+    // decisions are reused for stages that were already planned
+    Assert.assertEquals(StorageLevel.MEMORY_AND_DISK_SER(),
+                        planner.getStorageLevel(dag, "t2", branchers, Collections.emptySet()));
+    Assert.assertEquals(1, metrics.getCount("t2.cache.memory"));
+    Assert.assertEquals(1, metrics.getCount("t4.cache.disk"));
+  }
+
+  @Test
+  public void testNoCacheForCheapRecompute() {
+    /*
+                       |--> s1
+        src1 --> t1 ---|
+                       |--> s2
+
+                                     |--> s3
+        src2 --> t2 --> t3 --> t4 ---|
+                                     |--> s4
+     */
+    Dag dag = new Dag(ImmutableSet.of(
+      new Connection("src1", "t1"), new Connection("t1", "s1"), new Connection("t1", "s2"),
+      new Connection("src2", "t2"), new Connection("t2", "t3"), new Connection("t3", "t4"),
+      new Connection("t4", "s3"), new Connection("t4", "s4")));
+    Set<String> branchers = ImmutableSet.of("t1", "t4");
+    SparkConf sparkConf = new SparkConf(false).set(Constants.SPARK_PIPELINE_CACHING_MIN_SAVINGS, "3");
+    MockMetrics metrics = new MockMetrics();
+    CachePlanner planner = new CachePlanner(sparkConf, metrics);
+
+    // re-running src1 and t1 for the second branch is cheaper than caching
+    Assert.assertNull(planner.getStorageLevel(dag, "t1", branchers, Collections.emptySet()));
+    Assert.assertEquals(StorageLevel.DISK_ONLY(),
+                        planner.getStorageLevel(dag, "t4", branchers, Collections.emptySet()));
+    // decisions are reused for stages that were already planned
+    Assert.assertNull(planner.getStorageLevel(dag, "t1", branchers, Collections.emptySet()));
+    Assert.assertEquals(1, metrics.getCount("t1.cache.none"));
+    Assert.assertEquals(1, metrics.getCount("t4.cache.disk"));
+  }
+
+  @Test
+  public void testConfiguredStorageLevel() {
+    Dag dag = new Dag(ImmutableSet.of(
+      new Connection("src", "t1"), new Connection("t1", "t2"), new Connection("t2", "t3"),
+      new Connection("t3", "s1"), new Connection("t3", "s2")));
+    Set<String> branchers = ImmutableSet.of("t3");
+    MockMetrics metrics = new MockMetrics();
+
+    SparkConf sparkConf = new SparkConf(false)
+      .set(Constants.SPARK_PIPELINE_CACHING_STORAGE_LEVEL, "MEMORY_ONLY");
+    CachePlanner planner = new CachePlanner(sparkConf, metrics);
+    Assert.assertEquals(StorageLevel.MEMORY_ONLY(),
+                        planner.getStorageLevel(dag, "t3", branchers, Collections.emptySet()));
+    Assert.assertEquals(1, metrics.getCount("t3.cache.memory"));
+
+    sparkConf = new SparkConf(false).set(Constants.SPARK_PIPELINE_AUTOCACHE_ENABLE_FLAG, "false");
+    planner = new CachePlanner(sparkConf, metrics);
+    Assert.assertNull(planner.getStorageLevel(dag, "t3", branchers, Collections.emptySet()));
+  }
+
+  /**
+   * {@link Metrics} that keeps counts in memory.
+   */
+  private static final class MockMetrics implements Metrics {
+    private final Map<String, Long> counts = new HashMap<>();
+
+    @Override
+    public void count(String metricName, int delta) {
+      counts.merge(metricName, (long) delta, Long::sum);
+    }
+
+    @Override
+    public void gauge(String metricName, long value) {
+      // no-op
+    }
+
+    @Override
+    public Metrics child(Map<String, String> tags) {
+      return this;
+    }
+
+    @Override
+    public Map<String, String> getTags() {
+      return Collections.emptyMap();
+    }
+
+    long getCount(String metricName) {
+      return counts.getOrDefault(metricName, 0L);
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.etl.api.AlertPublisher;
+import io.cdap.cdap.etl.api.ErrorTransform;
+import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.etl.api.batch.BatchAggregator;
+import io.cdap.cdap.etl.api.batch.BatchSink;
+import io.cdap.cdap.etl.api.batch.BatchSource;
+import io.cdap.cdap.etl.common.PipelinePhase;
+import io.cdap.cdap.etl.planner.CombinerDag;
+import io.cdap.cdap.etl.proto.v2.spec.PluginSpec;
+import io.cdap.cdap.etl.proto.v2.spec.StageSpec;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link TransformFusionPlanner}.
+ */
+public class TransformFusionPlannerTest {
+  private static final Set<String> PLUGIN_TYPES =
+    ImmutableSet.of(BatchSource.PLUGIN_TYPE, Transform.PLUGIN_TYPE, BatchAggregator.PLUGIN_TYPE,
+                    ErrorTransform.PLUGIN_TYPE, AlertPublisher.PLUGIN_TYPE, BatchSink.PLUGIN_TYPE);
+
+  @Test
+  public void testLinearChains() {
+    /*
+        src --> t1 --> agg --> t2 --> t3 --> t4 --> k1
+     */
+    PipelinePhase phase = new PhaseBuilder()
+      .add("src", BatchSource.PLUGIN_TYPE)
+      .add("t1", Transform.PLUGIN_TYPE)
+      .add("agg", BatchAggregator.PLUGIN_TYPE)
+      .add("t2", Transform.PLUGIN_TYPE)
+      .add("t3", Transform.PLUGIN_TYPE)
+      .add("t4", Transform.PLUGIN_TYPE)
+      .add("k1", BatchSink.PLUGIN_TYPE)
+      .connect("src", "t1", "agg", "t2", "t3", "t4", "k1")
+      .build();
+
+    // t1 is not fused with the aggregator
+    Map<String, List<String>> expected = ImmutableMap.of("t2", ImmutableList.of("t2", "t3", "t4"));
+    Assert.assertEquals(expected, TransformFusionPlanner.getFusedChains(phase, phase.getDag(), Collections.emptySet(),
+                                                                        Collections.emptySet()));
+  }
+
+  @Test
+  public void testBranches() {
+    /*
+                              |--> t3 --> k1
+        src --> t1 --> t2 ----|
+                              |--> t4 --> t5 --|
+                                               |--> t7 --> t8 --> k2
+        src2 --> t6 ---------------------------|
+     */
+    PipelinePhase phase = new PhaseBuilder()
+      .add("src", BatchSource.PLUGIN_TYPE)
+      .add("src2", BatchSource.PLUGIN_TYPE)
+      .add("t1", Transform.PLUGIN_TYPE)
+      .add("t2", Transform.PLUGIN_TYPE)
+      .add("t3", Transform.PLUGIN_TYPE)
+      .add("t4", Transform.PLUGIN_TYPE)
+      .add("t5", Transform.PLUGIN_TYPE)
+      .add("t6", Transform.PLUGIN_TYPE)
+      .add("t7", Transform.PLUGIN_TYPE)
+      .add("t8", Transform.PLUGIN_TYPE)
+      .add("k1", BatchSink.PLUGIN_TYPE)
+      .add("k2", BatchSink.PLUGIN_TYPE)
+      .connect("src", "t1", "t2", "t3", "k1")
+      .connect("t2", "t4", "t5", "t7", "t8", "k2")
+      .connect("src2", "t6", "t7")
+      .build();
+
+    // stages with multiple outputs end a chain, and stages with multiple inputs start one
+    Map<String, List<String>> expected = ImmutableMap.of("t1", ImmutableList.of("t1", "t2"),
+                                                         "t4", ImmutableList.of("t4", "t5"),
+                                                         "t7", ImmutableList.of("t7", "t8"));
+    Assert.assertEquals(expected, TransformFusionPlanner.getFusedChains(phase, phase.getDag(), Collections.emptySet(),
+                                                                        Collections.emptySet()));
+  }
+
+  @Test
+  public void testErrorAndAlertOutputs() {
+    /*
+        src --> t1 --> t2 --> t3 --> t4 --> t5 --> k1
+                        |             |
+                        |--> err      |--> alerts
+     */
+    PipelinePhase phase = new PhaseBuilder()
+      .add("src", BatchSource.PLUGIN_TYPE)
+      .add("t1", Transform.PLUGIN_TYPE)
+      .add("t2", Transform.PLUGIN_TYPE)
+      .add("t3", Transform.PLUGIN_TYPE)
+      .add("t4", Transform.PLUGIN_TYPE)
+      .add("t5", Transform.PLUGIN_TYPE)
+      .add("err", ErrorTransform.PLUGIN_TYPE)
+      .add("alerts", AlertPublisher.PLUGIN_TYPE)
+      .add("k1", BatchSink.PLUGIN_TYPE)
+      .connect("src", "t1", "t2", "t3", "t4", "t5", "k1")
+      .connect("t2", "err")
+      .connect("t4", "alerts")
+      .build();
+
+    // errors and alerts can only be emitted from the end of a chain
+    Map<String, List<String>> expected = ImmutableMap.of("t1", ImmutableList.of("t1", "t2"),
+                                                         "t3", ImmutableList.of("t3", "t4"));
+    Assert.assertEquals(expected, TransformFusionPlanner.getFusedChains(phase, phase.getDag(), Collections.emptySet(),
+                                                                        Collections.emptySet()));
+  }
+
+  @Test
+  public void testRelationalTransforms() {
+    /*
+        src --> t1 --> t2 --> t3 --> t4 --> t5 --> k1
+     */
+    PipelinePhase phase = new PhaseBuilder()
+      .add("src", BatchSource.PLUGIN_TYPE)
+      .add("t1", Transform.PLUGIN_TYPE)
+      .add("t2", Transform.PLUGIN_TYPE)
+      .add("t3", Transform.PLUGIN_TYPE)
+      .add("t4", Transform.PLUGIN_TYPE)
+      .add("t5", Transform.PLUGIN_TYPE)
+      .add("k1", BatchSink.PLUGIN_TYPE)
+      .connect("src", "t1", "t2", "t3", "t4", "t5", "k1")
+      .build();
+
+    Map<String, List<String>> expected = ImmutableMap.of("t3", ImmutableList.of("t3", "t4", "t5"));
+    Assert.assertEquals(expected, TransformFusionPlanner.getFusedChains(phase, phase.getDag(), Collections.emptySet(),
+                                                                        ImmutableSet.of("t2")));
+    // no chains if every other stage is relational
+    Assert.assertEquals(Collections.emptyMap(),
+                        TransformFusionPlanner.getFusedChains(phase, phase.getDag(), Collections.emptySet(),
+                                                              ImmutableSet.of("t2", "t4")));
+  }
+
+  @Test
+  public void testConsolidatedGroups() {
+    /*
+                                      |--> t4 --> t5 --> k1
+        src --> t1 --> t2 --> t3 -----|
+                                      |--> k2
+     */
+    PipelinePhase phase = new PhaseBuilder()
+      .add("src", BatchSource.PLUGIN_TYPE)
+      .add("t1", Transform.PLUGIN_TYPE)
+      .add("t2", Transform.PLUGIN_TYPE)
+      .add("t3", Transform.PLUGIN_TYPE)
+      .add("t4", Transform.PLUGIN_TYPE)
+      .add("t5", Transform.PLUGIN_TYPE)
+      .add("k1", BatchSink.PLUGIN_TYPE)
+      .add("k2", BatchSink.PLUGIN_TYPE)
+      .connect("src", "t1", "t2", "t3", "t4", "t5", "k1")
+      .connect("t3", "k2")
+      .build();
+
+    Map<String, List<String>> expected = ImmutableMap.of("t1", ImmutableList.of("t1", "t2", "t3"),
+                                                         "t4", ImmutableList.of("t4", "t5"));
+    Assert.assertEquals(expected, TransformFusionPlanner.getFusedChains(phase, phase.getDag(), Collections.emptySet(),
+                                                                        Collections.emptySet()));
+
+    // t4, t5, k1 and k2 are consolidated into a group, so t4 and t5 are no longer fused
+    CombinerDag groupedDag = new CombinerDag(phase.getDag(), Collections.emptySet());
+    Map<String, Set<String>> groups = groupedDag.groupNodes();
+    Assert.assertEquals(Collections.singleton(ImmutableSet.of("t4", "t5", "k1", "k2")),
+                        ImmutableSet.copyOf(groups.values()));
+    expected = ImmutableMap.of("t1", ImmutableList.of("t1", "t2", "t3"));
+    Assert.assertEquals(expected, TransformFusionPlanner.getFusedChains(phase, groupedDag, groups.keySet(),
+                                                                        Collections.emptySet()));
+  }
+
+  /**
+   * Builds a {@link PipelinePhase} from stage names and plugin types.
+   */
+  private static final class PhaseBuilder {
+    private final PipelinePhase.Builder builder = PipelinePhase.builder(PLUGIN_TYPES);
+
+    PhaseBuilder add(String stageName, String pluginType) {
+      PluginSpec pluginSpec = new PluginSpec(pluginType, stageName, Collections.emptyMap(), null);
+      builder.addStage(StageSpec.builder(stageName, pluginSpec).build());
+      return this;
+    }
+
+    /**
+     * Connects the given stages one after the other.
+     */
+    PhaseBuilder connect(String... stageNames) {
+      for (int i = 1; i < stageNames.length; i++) {
+        builder.addConnection(stageNames[i - 1], stageNames[i]);
+      }
+      return this;
+    }
+
+    PipelinePhase build() {
+      return builder.build();
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.join;
+
+import io.cdap.cdap.etl.api.join.JoinDistribution;
+import io.cdap.cdap.etl.common.Constants;
+import org.apache.spark.SparkConf;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link JoinStrategySelector}.
+ */
+public class JoinStrategySelectorTest {
+  private static final long MB = 1024L * 1024;
+  private static final JoinCollection RIGHT = new JoinCollection("right", null, null, Collections.singletonList("id"),
+                                                                 true, false);
+  private static final JoinCollection BROADCAST = new JoinCollection("right", null, null,
+                                                                     Collections.singletonList("id"), true, true);
+
+  @Test
+  public void testSelectBySize() {
+    // pipelines disable auto broadcast in Spark by default
+    JoinStrategySelector selector = new JoinStrategySelector(
+      new SparkConf(false).set("spark.sql.autoBroadcastJoinThreshold", "-1"));
+
+    // plugin hints are always used
+    Assert.assertEquals(JoinStrategy.BROADCAST_HASH, selector.select("j", BROADCAST, "inner", null, null, 10));
+    // unknown sizes are left to Spark
+    Assert.assertNull(selector.select("j", RIGHT, "inner", null, null, 10));
+    Assert.assertNull(selector.select("j", RIGHT, "inner", 1000 * MB, null, 10));
+    // small right side is not broadcast if auto broadcast is disabled
+    Assert.assertEquals(JoinStrategy.SHUFFLE_HASH, selector.select("j", RIGHT, "inner", 1000 * MB, MB, 10));
+    Assert.assertEquals(JoinStrategy.SHUFFLE_HASH, selector.select("j", RIGHT, "leftouter", 1000 * MB, MB, 10));
+    // the right side can't be used to build a hash table if its unmatched rows are in the output
+    Assert.assertNull(selector.select("j", RIGHT, "rightouter", 1000 * MB, MB, 10));
+    Assert.assertNull(selector.select("j", RIGHT, "outer", 1000 * MB, MB, 10));
+    // sides of similar size
+    Assert.assertNull(selector.select("j", RIGHT, "inner", 1000 * MB, 500 * MB, 10));
+    // partitions of the right side are too big for a hash table
+    Assert.assertNull(selector.select("j", RIGHT, "inner", 10000 * MB, 1000 * MB, 10));
+    Assert.assertEquals(JoinStrategy.SHUFFLE_HASH, selector.select("j", RIGHT, "inner", 10000 * MB, 1000 * MB, 100));
+
+    selector = new JoinStrategySelector(
+      new SparkConf(false)
+        .set("spark.sql.autoBroadcastJoinThreshold", "-1")
+        .set(Constants.SPARK_PIPELINE_JOIN_BROADCAST_MAX_BYTES, String.valueOf(10 * MB)));
+    Assert.assertEquals(JoinStrategy.BROADCAST_HASH, selector.select("j", RIGHT, "inner", null, MB, 10));
+    Assert.assertEquals(JoinStrategy.BROADCAST_HASH, selector.select("j", RIGHT, "leftouter", null, 10 * MB, 10));
+    Assert.assertNull(selector.select("j", RIGHT, "rightouter", null, MB, 10));
+    Assert.assertEquals(JoinStrategy.SHUFFLE_HASH, selector.select("j", RIGHT, "inner", 1000 * MB, 20 * MB, 10));
+  }
+
+  @Test
+  public void testBroadcastThreshold() {
+    // defaults to the default of Spark
+    JoinStrategySelector selector = new JoinStrategySelector(new SparkConf(false));
+    Assert.assertEquals(JoinStrategy.BROADCAST_HASH, selector.select("j", RIGHT, "inner", 1000 * MB, 10 * MB, 10));
+    Assert.assertNull(selector.select("j", RIGHT, "inner", null, 11 * MB, 10));
+
+    // follows the threshold of Spark
+    selector = new JoinStrategySelector(new SparkConf(false).set("spark.sql.autoBroadcastJoinThreshold", "5m"));
+    Assert.assertEquals(JoinStrategy.BROADCAST_HASH, selector.select("j", RIGHT, "inner", null, 5 * MB, 10));
+    Assert.assertNull(selector.select("j", RIGHT, "inner", null, 6 * MB, 10));
+
+    // the pipeline threshold overrides the one of Spark
+    selector = new JoinStrategySelector(
+      new SparkConf(false)
+        .set("spark.sql.autoBroadcastJoinThreshold", "5m")
+        .set(Constants.SPARK_PIPELINE_JOIN_BROADCAST_MAX_BYTES, "-1"));
+    Assert.assertNull(selector.select("j", RIGHT, "inner", null, MB, 10));
+  }
+
+  @Test
+  public void testConfiguredStrategy() {
+    JoinStrategySelector selector = new JoinStrategySelector(
+      new SparkConf(false).set(Constants.SPARK_PIPELINE_JOIN_STRATEGY, "sort_merge"));
+    Assert.assertEquals(JoinStrategy.SORT_MERGE, selector.select("j", RIGHT, "inner", 1000 * MB, MB, 10));
+    Assert.assertEquals(JoinStrategy.BROADCAST_HASH, selector.select("j", BROADCAST, "inner", 1000 * MB, MB, 10));
+
+    selector = new JoinStrategySelector(
+      new SparkConf(false).set(Constants.SPARK_PIPELINE_JOIN_STRATEGY, "SHUFFLE_HASH"));
+    Assert.assertEquals(JoinStrategy.SHUFFLE_HASH, selector.select("j", RIGHT, "inner", null, null, 10));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidStrategy() {
+    new JoinStrategySelector(new SparkConf(false).set(Constants.SPARK_PIPELINE_JOIN_STRATEGY, "broadcast_hash"));
+  }
+
+  @Test
+  public void testSaltSkewedKeys() {
+    JoinRequest request = createRequest(Collections.singletonList(RIGHT), null);
+    JoinStrategySelector selector = new JoinStrategySelector(new SparkConf(false));
+    // disabled by default
+    Assert.assertFalse(selector.shouldSaltSkewedKeys(request, JoinStrategy.SORT_MERGE, "inner"));
+
+    selector = new JoinStrategySelector(
+      new SparkConf(false).set(Constants.SPARK_PIPELINE_JOIN_SKEW_SALTING_ENABLE, "true"));
+    Assert.assertTrue(selector.shouldSaltSkewedKeys(request, JoinStrategy.SORT_MERGE, "inner"));
+    Assert.assertTrue(selector.shouldSaltSkewedKeys(request, JoinStrategy.SHUFFLE_HASH, "leftouter"));
+    Assert.assertTrue(selector.shouldSaltSkewedKeys(request, null, "inner"));
+    // right side rows are duplicated for each salt, so they can't be preserved by the join
+    Assert.assertFalse(selector.shouldSaltSkewedKeys(request, JoinStrategy.SORT_MERGE, "rightouter"));
+    Assert.assertFalse(selector.shouldSaltSkewedKeys(request, JoinStrategy.SORT_MERGE, "outer"));
+    // broadcast joins are not skewed
+    Assert.assertFalse(selector.shouldSaltSkewedKeys(request, JoinStrategy.BROADCAST_HASH, "inner"));
+    // the plugin already specified how to distribute the join
+    Assert.assertFalse(selector.shouldSaltSkewedKeys(
+      createRequest(Collections.singletonList(RIGHT), new JoinDistribution(4, "left")), JoinStrategy.SORT_MERGE,
+      "inner"));
+    // more than two sides
+    Assert.assertFalse(selector.shouldSaltSkewedKeys(
+      createRequest(Arrays.asList(RIGHT, RIGHT), null), JoinStrategy.SORT_MERGE, "inner"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSaltFactor() {
+    new JoinStrategySelector(new SparkConf(false)
+                               .set(Constants.SPARK_PIPELINE_JOIN_SKEW_SALTING_ENABLE, "true")
+                               .set(Constants.SPARK_PIPELINE_JOIN_SKEW_SALT_FACTOR, "1"));
+  }
+
+  private static JoinRequest createRequest(List<JoinCollection> toJoin, @Nullable JoinDistribution distribution) {
+    return new JoinRequest("j", "left", Collections.singletonList("id"), null, true, false,
+                           Collections.emptyList(), null, toJoin, null, distribution, null);
+  }
+}
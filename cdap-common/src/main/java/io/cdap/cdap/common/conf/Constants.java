@@ -731,6 +731,8 @@ public final class Constants {
         "data.storage.sql.jdbc.connection.pool.idle.millis";
     public static final String DATA_STORAGE_SQL_CONNECTION_IDLE_EVICTION_MILLIS =
         "data.storage.sql.jdbc.connection.pool.idle.eviction.millis";
+    public static final String DATA_STORAGE_SQL_STATEMENT_CACHE_QUERIES =
+        "data.storage.sql.jdbc.statement.cache.queries";
     public static final String DATA_STORAGE_SQL_SCAN_FETCH_SIZE_ROWS = "data.storage.sql.scan.size.rows";
     public static final String DATA_STORAGE_SQL_TRANSACTION_RUNNER_MAX_RETRIES =
         "data.storage.sql.tx.runner.max.retries";
@@ -1394,10 +1396,15 @@ public final class Constants {
     // log buffer writer configs
     public static final String LOG_BUFFER_BASE_DIR = "log.buffer.base.dir";
     public static final String LOG_BUFFER_MAX_FILE_SIZE_BYTES = "log.buffer.max.file.size.bytes";
+    public static final String LOG_BUFFER_SYNC_ON_WRITE = "log.buffer.sync.on.write";
     // log buffer recovery configs
     public static final String LOG_BUFFER_RECOVERY_BATCH_SIZE = "log.buffer.recovery.batch.size";
     // number of events to be sent to time event queue processor from incoming queue
     public static final String LOG_BUFFER_PIPELINE_BATCH_SIZE = "log.buffer.pipeline.batch.size";
+    // number of shards to process the events of each log buffer pipeline in parallel
+    public static final String LOG_BUFFER_PIPELINE_SHARDS = "log.buffer.pipeline.shards";
+    // logger context property with the shard of the appenders, only set for the additional shards
+    public static final String LOG_BUFFER_PIPELINE_SHARD = "log.buffer.pipeline.shard";
     // log buffer server configs
     public static final String LOG_BUFFER_SERVER_BIND_ADDRESS = "log.buffer.server.bind.address";
     public static final String LOG_BUFFER_SERVER_BIND_PORT = "log.buffer.server.bind.port";
@@ -1493,6 +1500,11 @@ public final class Constants {
     public static final String PIPELINE_LOGGER_CACHE_SIZE = "log.process.pipeline.logger.cache.size";
     public static final String PIPELINE_LOGGER_CACHE_EXPIRATION_MS = "log.process.pipeline.logger.cache.expiration.ms";
 
+    // log reader configs
+    public static final String READER_PARALLELISM = "log.reader.parallelism";
+    public static final String READER_PREFETCH_EVENTS = "log.reader.prefetch.events";
+    public static final String READER_THREADS = "log.reader.threads";
+
     // log appender configs
     public static final String LOG_APPENDER_PROVIDER = "app.program.log.appender.provider";
     public static final String LOG_APPENDER_PROVISIONERS = "app.program.log.appender.provisioners";
@@ -2093,11 +2105,14 @@ public final class Constants {
     public static final String LOCAL_DATA_DIR = "messaging.local.data.dir";
     public static final String LOCAL_DATA_CLEANUP_FREQUENCY = "messaging.local.data.cleanup.frequency.secs";
     public static final String LOCAL_DATA_PARTITION_SECONDS = "messaging.local.data.partition.secs";
+    public static final String LOCAL_DATA_READ_AHEAD_THREADS = "messaging.local.data.read.ahead.threads";
 
     public static final String EXTENSIONS_DIR = "messaging.service.extensions.dir";
 
     public static final String MESSAGING_SERVICE_NAME = "messaging.service.name";
     public static final String CACHE_SIZE_MB = "messaging.cache.size.mb";
+    public static final String CACHE_TYPE = "messaging.cache.type";
+    public static final String CACHE_SEGMENT_SIZE_KB = "messaging.cache.segment.size.kb";
 
     public static final String HBASE_MAX_SCAN_THREADS = "messaging.hbase.max.scan.threads";
     public static final String HBASE_SCAN_CACHE_ROWS = "messaging.hbase.scan.cache.rows";
@@ -2118,6 +2133,10 @@ public final class Constants {
     public static final String HTTP_SERVER_MAX_REQUEST_SIZE_MB = "messaging.http.server.max.request.size.mb";
     public static final String HTTP_SERVER_CONSUME_CHUNK_SIZE = "messaging.http.server.consume.chunk.size";
     public static final String HTTP_COMPRESS_PAYLOAD = "messaging.http.compress.payload";
+    public static final String HTTP_CLIENT_FRAMED_FETCH = "messaging.http.client.framed.fetch";
+    public static final String HTTP_SERVER_FETCH_MAX_WAIT_MS = "messaging.http.server.fetch.max.wait.ms";
+    public static final String HTTP_SERVER_FETCH_WAIT_THREADS = "messaging.http.server.fetch.wait.threads";
+    public static final String HTTP_FETCH_WAIT_HEADER = "CDAP-Messaging-Fetch-Wait-Ms";
 
     // Distributed mode related configurations
     public static final String HA_FENCING_DELAY_SECONDS = "messaging.ha.fencing.delay.seconds";
@@ -35,6 +35,7 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,9 +46,13 @@ public class MetricsReporterHook extends AbstractHandlerHook {
 
   private static final Logger LOG = LoggerFactory.getLogger(MetricsReporterHook.class);
   private static final String LATENCY_METRIC_NAME = "response.latency";
+  private static final String[] RESPONSE_METRIC_NAMES = {
+      "response.unknown", "response.information", "response.successful", "response.redirect",
+      "response.client-error", "response.server-error"
+  };
 
   private final String serviceName;
-  private final LoadingCache<Map<String, String>, MetricsContext> collectorCache;
+  private final LoadingCache<Map<String, String>, HandlerMetrics> collectorCache;
 
   private final FeatureFlagsProvider featureFlagsProvider;
 
@@ -58,10 +63,10 @@ public class MetricsReporterHook extends AbstractHandlerHook {
     if (metricsCollectionService != null) {
       this.collectorCache = CacheBuilder.newBuilder()
           .expireAfterAccess(1, TimeUnit.HOURS)
-          .build(new CacheLoader<Map<String, String>, MetricsContext>() {
+          .build(new CacheLoader<Map<String, String>, HandlerMetrics>() {
             @Override
-            public MetricsContext load(Map<String, String> key) {
-              return metricsCollectionService.getContext(key);
+            public HandlerMetrics load(Map<String, String> key) {
+              return new HandlerMetrics(metricsCollectionService.getContext(key));
             }
           });
     } else {
@@ -75,8 +80,7 @@ public class MetricsReporterHook extends AbstractHandlerHook {
       return true;
     }
     try {
-      MetricsContext collector = collectorCache.get(createContext(handlerInfo));
-      collector.increment("request.received", 1);
+      collectorCache.get(createContext(handlerInfo)).requestReceived.increment(1);
       request.headers().add(HttpHeaderNames.CDAP_REQ_TIMESTAMP_HDR, System.nanoTime());
     } catch (Throwable e) {
       LOG.error("Got exception while getting collector", e);
@@ -90,34 +94,20 @@ public class MetricsReporterHook extends AbstractHandlerHook {
       return;
     }
     try {
-      MetricsContext collector = collectorCache.get(createContext(handlerInfo));
-      String name;
+      HandlerMetrics metrics = collectorCache.get(createContext(handlerInfo));
       int code = status.code();
-      if (code < 100) {
-        name = "unknown";
-      } else if (code < 200) {
-        name = "information";
-      } else if (code < 300) {
-        name = "successful";
-      } else if (code < 400) {
-        name = "redirect";
-      } else if (code < 500) {
-        name = "client-error";
-      } else if (code < 600) {
-        name = "server-error";
-      } else {
-        name = "unknown";
-      }
+      // the status class of 1xx to 5xx codes indexes RESPONSE_METRIC_NAMES, other codes are unknown
+      int responseIndex = code >= 100 && code < 600 ? code / 100 : 0;
 
       // todo: report metrics broken down by status
-      collector.increment("response." + name, 1/*, "status:" + code*/);
+      metrics.getResponseCounter(responseIndex).increment(1);
 
       // store response time metric
       long currTime = System.nanoTime();
       String startTimeStr = request.headers().get(HttpHeaderNames.CDAP_REQ_TIMESTAMP_HDR);
       if (startTimeStr != null) {
         long responseTimeNanos = currTime - Long.parseLong(startTimeStr);
-        collector.event(LATENCY_METRIC_NAME, responseTimeNanos);
+        metrics.context.event(LATENCY_METRIC_NAME, responseTimeNanos);
       }
 
     } catch (Throwable e) {
@@ -138,4 +128,36 @@ public class MetricsReporterHook extends AbstractHandlerHook {
     int ind = className.lastIndexOf('.');
     return className.substring(ind + 1);
   }
+
+  /**
+   * The {@link MetricsContext} of a handler method, with the {@link MetricsContext.Counter} handles
+   * that are incremented on every request.
+   */
+  private static final class HandlerMetrics {
+
+    private final MetricsContext context;
+    private final MetricsContext.Counter requestReceived;
+    private final AtomicReferenceArray<MetricsContext.Counter> responseCounters;
+
+    private HandlerMetrics(MetricsContext context) {
+      this.context = context;
+      this.requestReceived = context.counter("request.received");
+      this.responseCounters = new AtomicReferenceArray<>(RESPONSE_METRIC_NAMES.length);
+    }
+
+    /**
+     * Returns the counter of the given index in {@link #RESPONSE_METRIC_NAMES}. Counters are
+     * created on first use, since most handler methods only return a few kinds of status.
+     */
+    private MetricsContext.Counter getResponseCounter(int index) {
+      MetricsContext.Counter counter = responseCounters.get(index);
+      if (counter == null) {
+        counter = context.counter(RESPONSE_METRIC_NAMES[index]);
+        if (!responseCounters.compareAndSet(index, null, counter)) {
+          counter = responseCounters.get(index);
+        }
+      }
+      return counter;
+    }
+  }
 }
@@ -18,8 +18,10 @@ package io.cdap.cdap.common.metrics;
 
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -42,6 +44,8 @@ public class MetricsReporterHookTest {
     @Test
     public void testReponseTimeCollection() throws InterruptedException {
         MetricsContext mockCollector = mock(MetricsContext.class);
+        MetricsContext.Counter mockCounter = mock(MetricsContext.Counter.class);
+        when(mockCollector.counter(anyString())).thenReturn(mockCounter);
         MetricsCollectionService mockCollectionService = mock(MetricsCollectionService.class);
         when(mockCollectionService.getContext(anyMap())).thenReturn(mockCollector);
 
@@ -55,4 +59,35 @@ public class MetricsReporterHookTest {
 
         verify(mockCollector).event(eq("response.latency"), anyLong());
     }
+
+    @Test
+    public void testCounterHandlesReused() {
+        MetricsContext mockCollector = mock(MetricsContext.class);
+        MetricsContext.Counter requestCounter = mock(MetricsContext.Counter.class);
+        MetricsContext.Counter successCounter = mock(MetricsContext.Counter.class);
+        MetricsContext.Counter errorCounter = mock(MetricsContext.Counter.class);
+        when(mockCollector.counter("request.received")).thenReturn(requestCounter);
+        when(mockCollector.counter("response.successful")).thenReturn(successCounter);
+        when(mockCollector.counter("response.server-error")).thenReturn(errorCounter);
+        MetricsCollectionService mockCollectionService = mock(MetricsCollectionService.class);
+        when(mockCollectionService.getContext(anyMap())).thenReturn(mockCollector);
+
+        HandlerInfo handlerInfo = new HandlerInfo(TESTHANDLERNAME, TESTMETHODNAME);
+        MetricsReporterHook hook = new MetricsReporterHook(CConfiguration.create(),
+                                                           mockCollectionService, TESTSERVICENAME);
+        for (int i = 0; i < 3; i++) {
+            HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "http://ignore");
+            hook.preCall(request, null, handlerInfo);
+            hook.postCall(request, i == 0 ? HttpResponseStatus.INTERNAL_SERVER_ERROR : HttpResponseStatus.OK,
+                          handlerInfo);
+        }
+
+        // each counter is resolved once and incremented for every request
+        verify(mockCollector, times(1)).counter("request.received");
+        verify(mockCollector, times(1)).counter("response.successful");
+        verify(mockCollector, times(1)).counter("response.server-error");
+        verify(requestCounter, times(3)).increment(1);
+        verify(successCounter, times(2)).increment(1);
+        verify(errorCounter, times(1)).increment(1);
+    }
 }
@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.data2.dataset2.lib.table;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
@@ -73,9 +74,11 @@ import org.slf4j.LoggerFactory;
  * persistent store. Given the snapshot isolation tx model, this can be improved in future
  * implementations.
  * <p>
- * NOTE: current implementation persists changes only at the end of transaction. Beware of OOME.
- * There should be better implementation for MapReduce case (YMMV though, for counters/aggregations
- * this implementation looks sweet)
+ * NOTE: by default, changes are persisted only at the end of transaction. Beware of OOME. For large
+ * transactions, such as in MapReduce or Spark tasks, the {@link #BUFFER_FLUSH_THRESHOLD_BYTES}
+ * property can be set to persist the buffer before the end of the transaction whenever it grows
+ * above the given size. Persisted changes are still only visible to other transactions after commit,
+ * and are undone if the transaction is rolled back.
  * <p>
  * NOTE: Using {@link #get(byte[], byte[], byte[], int)} is generally always not efficient since it
  * always hits the persisted store even if all needed data is in-memory buffer. See more info at
@@ -88,6 +91,18 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   protected static final byte[] DELETE_MARKER = new byte[0];
 
+  /**
+   * Property to set the approximate size in bytes of the in-memory buffer above which buffered
+   * changes are persisted before the transaction commits. Not set or zero means that changes are
+   * only persisted on commit. It is ignored if readless increments are enabled, since increments
+   * persisted more than once in the same transaction would overwrite each other.
+   */
+  public static final String BUFFER_FLUSH_THRESHOLD_BYTES = "dataset.table.buffer.flush.threshold.bytes";
+
+  // rough estimate of the memory used by the buffer for each row and column, besides the keys and values
+  private static final int ROW_OVERHEAD_BYTES = 96;
+  private static final int COLUMN_OVERHEAD_BYTES = 80;
+
   // name of the table
   private final String name;
   // conflict detection level
@@ -101,9 +116,16 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   // that the corresponded column was removed.
   private NavigableMap<byte[], NavigableMap<byte[], Update>> buff;
 
-  // Keeps track of what was persisted so far
+  // Keeps track of what was persisted so far. If the buffer was persisted before commit, it only keeps the
+  // rows and columns that were changed, since the values are not needed to undo the changes.
   private NavigableMap<byte[], NavigableMap<byte[], Update>> toUndo;
 
+  // Approximate size of the in-memory buffer in bytes
+  private long bufferSize;
+
+  // Size of the in-memory buffer above which it is persisted before commit, or zero if it is only persisted on commit
+  private long flushThreshold;
+
   // Report data ops metrics to
   private MetricsCollector metricsCollector;
 
@@ -155,6 +177,25 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // Default uses the above scheme. Subclasses can change it by overriding the #getNameAsTxChangePrefix method
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) name.length()}, Bytes.toBytes(name));
     this.buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    setFlushThreshold(properties.get(BUFFER_FLUSH_THRESHOLD_BYTES));
+  }
+
+  /**
+   * Sets the approximate size in bytes of the in-memory buffer above which buffered changes are
+   * persisted before the transaction commits. See {@link #BUFFER_FLUSH_THRESHOLD_BYTES}.
+   *
+   * @param threshold the threshold, or null to only persist changes on commit
+   */
+  protected void setFlushThreshold(@Nullable String threshold) {
+    long flushThreshold = threshold == null ? 0L : Long.parseLong(threshold.trim());
+    Preconditions.checkArgument(flushThreshold >= 0,
+        "Invalid value %s for %s, it must not be negative", threshold, BUFFER_FLUSH_THRESHOLD_BYTES);
+    if (flushThreshold > 0 && enableReadlessIncrements) {
+      LOG.debug("Ignoring {} for table {} since readless increments are enabled",
+          BUFFER_FLUSH_THRESHOLD_BYTES, name);
+      flushThreshold = 0L;
+    }
+    this.flushThreshold = flushThreshold;
   }
 
   /**
@@ -282,6 +323,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
     // starting with fresh buffer when tx starts
     buff.clear();
+    bufferSize = 0L;
     toUndo = null;
     this.tx = tx;
   }
@@ -315,10 +357,25 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
   }
 
+  /**
+   * Returns the rows and columns changed by the current transaction, including changes that were
+   * already persisted before commit.
+   */
+  private NavigableMap<byte[], NavigableMap<byte[], Update>> getChanges() {
+    if (toUndo == null) {
+      return buff;
+    }
+    NavigableMap<byte[], NavigableMap<byte[], Update>> changes = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    addChangedColumns(changes, toUndo);
+    addChangedColumns(changes, buff);
+    return changes;
+  }
+
   private Collection<byte[]> getRowChanges() {
     // we resolve conflicts on row level of individual table
-    List<byte[]> changes = new ArrayList<>(buff.size());
-    for (byte[] changedRow : buff.keySet()) {
+    NavigableMap<byte[], NavigableMap<byte[], Update>> changed = getChanges();
+    List<byte[]> changes = new ArrayList<>(changed.size());
+    for (byte[] changedRow : changed.keySet()) {
       changes.add(Bytes.add(getNameAsTxChangePrefix(), changedRow));
     }
     return changes;
@@ -326,8 +383,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   private Collection<byte[]> getColumnChanges() {
     // we resolve conflicts on row level of individual table
-    List<byte[]> changes = new ArrayList<>(buff.size());
-    for (Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange : buff.entrySet()) {
+    NavigableMap<byte[], NavigableMap<byte[], Update>> changed = getChanges();
+    List<byte[]> changes = new ArrayList<>(changed.size());
+    for (Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange : changed.entrySet()) {
       if (rowChange.getValue() == null) {
         // NOTE: as of now we cannot detect conflict between delete whole row and row's column value change.
         //       this is not a big problem as of now, as row deletion is now act as deletion of every column, but this
@@ -348,24 +406,81 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public boolean commitTx() throws Exception {
     if (!buff.isEmpty()) {
-      // We first assume that all data will be persisted. So that if exception happen during persist we try to
-      // rollback everything we had in in-memory buffer.
-      toUndo = buff;
-      // clearing up in-memory buffer by initializing new map.
-      // NOTE: we want to init map here so that if no changes are made we re-use same instance of the map in next tx
-      // NOTE: we could cache two maps and swap them to avoid creation of map instances, but code would be ugly
-      buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
-      // TODO: tracking of persisted items can be optimized by returning a pair {succeededOrNot, persisted} which
-      //       tells if persisting succeeded and what was persisted (i.e. what we will have to undo in case of rollback)
-      persist(toUndo);
+      persistBuffer(true);
     }
     return true;
   }
 
+  private void persistBuffer(boolean commit) throws Exception {
+    NavigableMap<byte[], NavigableMap<byte[], Update>> toPersist = buff;
+    // clearing up in-memory buffer by initializing new map.
+    // NOTE: we want to init map here so that if no changes are made we re-use same instance of the map in next tx
+    // NOTE: we could cache two maps and swap them to avoid creation of map instances, but code would be ugly
+    buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    bufferSize = 0L;
+    // We first assume that all data will be persisted. So that if exception happen during persist we try to
+    // rollback everything we had in in-memory buffer.
+    if (commit && toUndo == null) {
+      toUndo = toPersist;
+    } else {
+      // the buffer was or is being persisted before commit: only keep what was changed, so that the memory used
+      // by the values can be freed
+      if (toUndo == null) {
+        toUndo = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      }
+      addChangedColumns(toUndo, toPersist);
+    }
+    // TODO: tracking of persisted items can be optimized by returning a pair {succeededOrNot, persisted} which
+    //       tells if persisting succeeded and what was persisted (i.e. what we will have to undo in case of rollback)
+    persist(toPersist);
+  }
+
+  /**
+   * Returns the approximate size in bytes of the changes buffered in memory. Every write to the
+   * buffer, including deletes and increments, is counted until the buffer is persisted.
+   */
+  @VisibleForTesting
+  long getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Persists the in-memory buffer if it grew above the flush threshold.
+   */
+  private void flushIfNeeded() {
+    if (flushThreshold <= 0 || bufferSize < flushThreshold) {
+      return;
+    }
+    try {
+      persistBuffer(false);
+    } catch (Exception e) {
+      LOG.debug("flush failed for table: " + getTransactionAwareName(), e);
+      throw new DataSetException("flush failed", e);
+    }
+  }
+
+  /**
+   * Adds the rows and columns of the given changes to another map of changes, without the values.
+   */
+  private static void addChangedColumns(NavigableMap<byte[], NavigableMap<byte[], Update>> changes,
+      NavigableMap<byte[], NavigableMap<byte[], Update>> toAdd) {
+    for (Map.Entry<byte[], NavigableMap<byte[], Update>> row : toAdd.entrySet()) {
+      NavigableMap<byte[], Update> columns = changes.get(row.getKey());
+      if (columns == null) {
+        columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        changes.put(row.getKey(), columns);
+      }
+      for (byte[] column : row.getValue().keySet()) {
+        columns.put(column, null);
+      }
+    }
+  }
+
   @Override
   public void postTxCommit() {
     // don't need buffer anymore: tx has been committed
     buff.clear();
+    bufferSize = 0L;
     toUndo = null;
     tx = null;
   }
@@ -373,6 +488,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public boolean rollbackTx() throws Exception {
     buff.clear();
+    bufferSize = 0L;
     if (toUndo != null) {
       undo(toUndo);
       toUndo = null;
@@ -516,6 +632,10 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     reportWrite(1, getSize(row) + getSize(columns) + getSize(values));
   }
 
+  /**
+   * Writes the given values to the in-memory buffer, a null value being a delete. Deletes, increments
+   * and compare-and-swaps also write through this method, so that they are counted in the buffer size.
+   */
   private void putInternal(byte[] row, byte[][] columns, byte[][] values) {
     NavigableMap<byte[], Update> colVals = buff.get(row);
     boolean newRow = false;
@@ -530,11 +650,15 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         warnAboutEmptyValue(columns[i]);
       }
       colVals.put(copy(columns[i]), new PutValue(copy(values[i])));
+      // overwritten columns are counted again, which is fine for deciding when to flush
+      bufferSize += COLUMN_OVERHEAD_BYTES + getSize(columns[i]) + getSize(values[i]);
     }
     if (newRow) {
       // NOTE: we copy passed row's byte arrays to protect buffer against possible changes of this array on client
       buff.put(copy(row), colVals);
+      bufferSize += ROW_OVERHEAD_BYTES + getSize(row);
     }
+    flushIfNeeded();
   }
 
   /**
@@ -644,11 +768,15 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       if (colVals == null) {
         colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
         buff.put(row, colVals);
+        bufferSize += ROW_OVERHEAD_BYTES + getSize(row);
       }
       for (int i = 0; i < columns.length; i++) {
         colVals.put(columns[i],
             Updates.mergeUpdates(colVals.get(columns[i]), new IncrementValue(amounts[i])));
+        bufferSize += COLUMN_OVERHEAD_BYTES + getSize(columns[i]) + Bytes.SIZEOF_LONG;
       }
+      // the flush threshold is disabled with readless increments, but the buffer size is kept accurate
+      flushIfNeeded();
       reportWrite(1, getSize(row) + getSize(columns) + getSize(amounts));
     } else {
       internalIncrementAndGet(row, columns, amounts);
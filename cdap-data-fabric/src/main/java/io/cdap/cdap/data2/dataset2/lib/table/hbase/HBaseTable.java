@@ -142,6 +142,10 @@ public class HBaseTable extends BufferingTable {
         Bytes.toBytes(this.hTableName));
     this.safeReadlessIncrements =
         args.containsKey(SAFE_INCREMENTS) && Boolean.valueOf(args.get(SAFE_INCREMENTS));
+    // the buffer flush threshold can also be set per run, for example for large batch jobs
+    if (args.containsKey(BUFFER_FLUSH_THRESHOLD_BYTES)) {
+      setFlushThreshold(args.get(BUFFER_FLUSH_THRESHOLD_BYTES));
+    }
     this.txMaxLifetimeMillis = Bytes.toBytes(TimeUnit.SECONDS.toMillis(
         cConf.getInt(TxConstants.Manager.CFG_TX_MAX_LIFETIME,
             TxConstants.Manager.DEFAULT_TX_MAX_LIFETIME)));
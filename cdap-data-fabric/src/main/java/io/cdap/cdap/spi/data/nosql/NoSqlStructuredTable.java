@@ -91,6 +91,18 @@ public final class NoSqlStructuredTable implements StructuredTable {
     table.put(convertFieldsToBytes(fields));
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+      throws InvalidFieldException {
+    LOG.trace("Table {}: Write multiple rows {}", schema.getTableId(), multiFields);
+    // Convert all the rows first so that an invalid row fails the call before anything is written
+    List<Put> puts = new ArrayList<>(multiFields.size());
+    for (Collection<Field<?>> fields : multiFields) {
+      puts.add(convertFieldsToBytes(fields));
+    }
+    puts.forEach(table::put);
+  }
+
   @Override
   public void update(Collection<Field<?>> fields) throws InvalidFieldException {
     LOG.trace("Table {}: Update fields {}", schema.getTableId(), fields);
@@ -446,6 +458,17 @@ public final class NoSqlStructuredTable implements StructuredTable {
     table.delete(convertKeyToBytes(keys, false));
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+      throws InvalidFieldException {
+    LOG.trace("Table {}: Delete with multiple keys {}", schema.getTableId(), multiKeys);
+    List<byte[]> rowKeys = new ArrayList<>(multiKeys.size());
+    for (Collection<Field<?>> keys : multiKeys) {
+      rowKeys.add(convertKeyToBytes(keys, false));
+    }
+    rowKeys.forEach(table::delete);
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", schema.getTableId(), keyRange);
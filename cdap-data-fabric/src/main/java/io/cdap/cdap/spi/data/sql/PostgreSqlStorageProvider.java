@@ -54,6 +54,7 @@ import org.slf4j.LoggerFactory;
 public class PostgreSqlStorageProvider implements StorageProvider {
 
   private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlStorageProvider.class);
+  private static final String PG_STATEMENT_CACHE_QUERIES = "preparedStatementCacheQueries";
 
   private final DataSource dataSource;
   private final StructuredTableAdmin admin;
@@ -161,6 +162,11 @@ public class PostgreSqlStorageProvider implements StorageProvider {
       properties.setProperty("password", password);
     }
 
+    // The PostgreSQL driver keeps the server side prepared statements of each connection in a cache keyed by
+    // the SQL string, which outlives the PreparedStatement objects. It can still be overridden by a jdbc property.
+    properties.setProperty(PG_STATEMENT_CACHE_QUERIES,
+        Integer.toString(cConf.getInt(Constants.Dataset.DATA_STORAGE_SQL_STATEMENT_CACHE_QUERIES)));
+
     for (Map.Entry<String, String> cConfEntry : cConf) {
       if (cConfEntry.getKey().startsWith(Constants.Dataset.DATA_STORAGE_SQL_PROPERTY_PREFIX)) {
         properties.put(cConfEntry.getKey()
@@ -17,6 +17,7 @@
 package io.cdap.cdap.spi.data.sql;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.spi.data.InvalidFieldException;
@@ -42,11 +43,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -59,21 +63,27 @@ public class PostgreSqlStructuredTable implements StructuredTable {
 
   private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlStructuredTable.class);
 
+  // Maximum number of statements sent to the server in one JDBC batch for multi-row operations
+  private static final int WRITE_BATCH_SIZE = 500;
+  // Maximum number of keys looked up by one statement in multiRead
+  private static final int MULTI_READ_CHUNK_SIZE = 500;
 
   private final Connection connection;
   private final StructuredTableSchema tableSchema;
   private final FieldValidator fieldValidator;
   private final int fetchSize;
+  private final SqlQueryCache queryCache;
 
   /**
    * Default constructor for PostgreSqlStructuredTable.
    */
   public PostgreSqlStructuredTable(Connection connection, StructuredTableSchema tableSchema,
-      int fetchSize) {
+      int fetchSize, SqlQueryCache queryCache) {
     this.connection = connection;
     this.tableSchema = tableSchema;
     this.fieldValidator = new FieldValidator(tableSchema);
     this.fetchSize = fetchSize;
+    this.queryCache = queryCache;
   }
 
   @Override
@@ -88,6 +98,27 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     upsertInternal(fields);
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+      throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Write multiple rows {}", tableSchema.getTableId(), multiFields);
+    for (Collection<Field<?>> fields : multiFields) {
+      Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
+      if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
+        throw new InvalidFieldException(tableSchema.getTableId(), fields,
+            String.format("Given fields %s do not contain all the "
+                + "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
+      }
+    }
+
+    try {
+      executeBatch(multiFields, this::getWriteQuery);
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to write %d rows to table %s",
+          multiFields.size(), tableSchema.getTableId().getName()), e);
+    }
+  }
+
   @Override
   public void update(Collection<Field<?>> fields) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Update fields {}", tableSchema.getTableId(), fields);
@@ -128,47 +159,56 @@ public class PostgreSqlStructuredTable implements StructuredTable {
       return Collections.emptyList();
     }
 
+    // Deduplicate the keys so that a row is returned at most once even if its key is repeated
+    Set<List<Field<?>>> uniqueKeys = new LinkedHashSet<>();
     for (Collection<Field<?>> keys : multiKeys) {
       fieldValidator.validatePrimaryKeys(keys, false);
-    }
-
-    try (PreparedStatement statement = prepareMultiReadQuery(multiKeys)) {
-      LOG.trace("SQL statement: {}", statement);
-      Collection<StructuredRow> result = new ArrayList<>();
-      try (ResultSet resultSet = statement.executeQuery()) {
-        while (resultSet.next()) {
-          result.add(resultSetToRow(resultSet));
+      uniqueKeys.add(new ArrayList<>(keys));
+    }
+
+    // Since the keys must be the full primary keys, all of them have the same shape.
+    // Look them up in chunks, so that each statement has a bounded number of parameters and
+    // all the full chunks share the same query.
+    Collection<StructuredRow> result = new ArrayList<>();
+    List<List<Field<?>>> keysList = new ArrayList<>(uniqueKeys);
+    for (List<List<Field<?>>> chunk : Lists.partition(keysList, MULTI_READ_CHUNK_SIZE)) {
+      try (PreparedStatement statement = prepareMultiReadQuery(chunk)) {
+        LOG.trace("SQL statement: {}", statement);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          while (resultSet.next()) {
+            result.add(resultSetToRow(resultSet));
+          }
         }
-        return result;
+      } catch (SQLException e) {
+        throw new IOException(String.format("Failed to read from table %s with multi keys %s",
+            tableSchema.getTableId().getName(), chunk), e);
       }
-    } catch (SQLException e) {
-      throw new IOException(String.format("Failed to read from table %s with multi keys %s",
-          tableSchema.getTableId().getName(), multiKeys), e);
     }
+    return result;
   }
 
   /**
-   * Creates a SELECT query that fetches rows from a given set of keys. This has OR with nested AND
-   * logic. E.g. SELECT * FROM table WHERE (key1 = ? AND key2 = ?) OR (key1 = ? AND key2 = ?) OR ...
-   * LIMIT limit
+   * Creates a SELECT query that fetches rows from a given set of primary keys. The keys are
+   * matched as a set using a VALUES list, which the database executes as a join on the primary key
+   * instead of evaluating an OR predicate for every key. E.g.
    *
-   * @param multiKeys a map from field name to set of field values to query
-   * @return a SELECT query ready to be used for creating prepared statement
+   * <p>SELECT * FROM table WHERE (key1,key2) IN (VALUES (?,?),(?,?),...);
+   *
+   * @param multiKeys the full primary keys to read
+   * @return a prepared statement with all the key fields set
    */
-  private PreparedStatement prepareMultiReadQuery(
-      Collection<? extends Collection<Field<?>>> multiKeys)
+  private PreparedStatement prepareMultiReadQuery(List<List<Field<?>>> multiKeys)
       throws SQLException {
-    StringBuilder queryString =
-        new StringBuilder("SELECT * FROM ")
-            .append(tableSchema.getTableId().getName())
-            .append(" WHERE ");
-
-    Joiner.on(" OR ").appendTo(
-        queryString, multiKeys.stream().map(keys -> "(" + getEqualsClause(keys) + ")").iterator()
-    );
-    queryString.append(";");
-
-    PreparedStatement preparedStatement = connection.prepareStatement(queryString.toString());
+    String query = queryCache.getQuery(createShape("multi.read", multiKeys.size()), () -> {
+      StringBuilder queryString =
+          new StringBuilder("SELECT * FROM ")
+              .append(tableSchema.getTableId().getName())
+              .append(" WHERE ");
+      appendInValues(queryString, tableSchema.getPrimaryKeys(), multiKeys.size());
+      return queryString.append(";").toString();
+    });
+
+    PreparedStatement preparedStatement = connection.prepareStatement(query);
     preparedStatement.setFetchSize(fetchSize);
 
     // Set fields to the statement
@@ -180,6 +220,25 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     return preparedStatement;
   }
 
+  /**
+   * Appends a "(col1,col2) IN (VALUES (?,?),(?,?),...)" clause to the query.
+   *
+   * @param query the query to append to
+   * @param columns the columns to match
+   * @param rows number of rows in the VALUES list
+   */
+  private void appendInValues(StringBuilder query, Collection<String> columns, int rows) {
+    String row = columns.stream().map(c -> "?").collect(Collectors.joining(",", "(", ")"));
+    query.append(columns.stream().collect(Collectors.joining(",", "(", ")")))
+        .append(" IN (VALUES ");
+    String separator = "";
+    for (int i = 0; i < rows; i++) {
+      query.append(separator).append(row);
+      separator = ",";
+    }
+    query.append(")");
+  }
+
   /**
    * Creates a {@link StructuredRow} from the given {@link ResultSet}.
    *
@@ -210,13 +269,17 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     LOG.trace("Table {}: Scan range {} with limit {} order {}", tableSchema.getTableId(), keyRange,
         limit, sortOrder);
     fieldValidator.validateScanRange(keyRange);
-    String scanQuery = getScanQuery(keyRange, limit, tableSchema.getPrimaryKeys(), sortOrder);
+    List<Object> shape = createShape("scan", keyRange);
+    shape.add(sortOrder);
+    String scanQuery = queryCache.getQuery(shape,
+        () -> getScanQuery(keyRange, tableSchema.getPrimaryKeys(), sortOrder));
 
     // We don't close the statement here because once it is closed, the result set is also closed.
     try {
       PreparedStatement statement = connection.prepareStatement(scanQuery);
       statement.setFetchSize(fetchSize);
-      setStatementFieldByRange(keyRange, statement);
+      int limitIndex = setStatementFieldByRange(keyRange, statement, 1);
+      statement.setInt(limitIndex, limit);
       LOG.trace("SQL statement: {}", statement);
 
       ResultSet resultSet = statement.executeQuery();
@@ -272,12 +335,13 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   }
 
   /**
-   * Generates a SELECT query for scanning over all the provided ranges. For each of the range, it
-   * generates a where clause using the {@link #appendRange(StringBuilder, Range)} method. The where
-   * clause of each range are OR together. E.g.
+   * Generates a SELECT query for scanning over all the provided ranges. Singleton ranges with the
+   * same fields are matched as a set using a VALUES list. For each of the other ranges, it
+   * generates a where clause using the {@link #appendRange(StringBuilder, Range, List)} method.
+   * The where clauses are OR together. E.g.
    *
-   * <p>SELECT * FROM table WHERE (key1 = ? AND key2 = ?) OR (key1 = ? AND key2 = ?) OR ((key3 >=
-   * ?) AND (key3 <= ?)) OR ((key4 >= ?) AND (key4 <= ?)) LIMIT limit
+   * <p>SELECT * FROM table WHERE (key1,key2) IN (VALUES (?,?),(?,?)) OR ((key3 >= ?) AND (key3 <=
+   * ?)) OR (key3 = ? AND (key4) >= (?) AND (key4) <= (?)) ORDER BY ... LIMIT ?
    *
    * @param singletonRanges the list of singleton ranges to scan
    * @param ranges the list of ranges to scan
@@ -286,46 +350,46 @@ public class PostgreSqlStructuredTable implements StructuredTable {
    */
   private PreparedStatement prepareMultiScanQuery(Collection<Range> singletonRanges,
       Collection<Range> ranges, int limit) throws SQLException {
-    // TODO: CDAP-19734, refactor cases like
-    //  (namespace >= 'default' and namespace <= 'default' and app >='a' and app <= 'b')
-    //  to (namespace = 'default' and app >='a' and app <= 'b')
     StringBuilder query = new StringBuilder("SELECT * FROM ")
         .append(tableSchema.getTableId().getName()).append(" WHERE ");
+    List<Field<?>> parameters = new ArrayList<>();
 
-    // Generates "(key1 = ? AND key2 = ?) OR (key1 = ? AND key2 = ?)..." clause
-    String separator = "";
-    Collection<Field<?>> singletonFields = new ArrayList<>();
+    // Group the singletons by the field names, each group becomes a "(key1,key2) IN (VALUES ...)"
+    Map<List<String>, List<Range>> singletonGroups = new LinkedHashMap<>();
     for (Range singleton : singletonRanges) {
-      query
-          .append(separator)
-          .append(singleton.getBegin().stream().map(field -> field.getName() + " = ?")
-              .collect(Collectors.joining(" AND ", "(", ")")));
+      List<String> names = singleton.getBegin().stream().map(Field::getName)
+          .collect(Collectors.toList());
+      singletonGroups.computeIfAbsent(names, k -> new ArrayList<>()).add(singleton);
+    }
+
+    String separator = "";
+    for (Map.Entry<List<String>, List<Range>> entry : singletonGroups.entrySet()) {
+      query.append(separator);
+      appendInValues(query, entry.getKey(), entry.getValue().size());
+      entry.getValue().forEach(singleton -> parameters.addAll(singleton.getBegin()));
       separator = " OR ";
-      singletonFields.addAll(singleton.getBegin());
     }
 
-    // Generates the ((key3 >= ?) AND (key3 <= ?)) OR ((key4 >= ?) AND (key4 <= ?))
+    // Generates the ((key3 >= ?) AND (key3 <= ?)) OR (key3 = ? AND (key4) >= (?) AND ...)
     if (!ranges.isEmpty()) {
       separator = singletonRanges.isEmpty() ? "(" : " OR (";
       for (Range range : ranges) {
         query.append(separator).append("(");
-        appendRange(query, range);
+        appendRange(query, range, parameters);
         query.append(")");
         separator = " OR ";
       }
       query.append(")");
     }
     query.append(getOrderByClause(tableSchema.getPrimaryKeys()));
-    query.append(" LIMIT ").append(limit).append(";");
+    query.append(" LIMIT ?;");
 
     PreparedStatement statement = connection.prepareStatement(query.toString());
     statement.setFetchSize(fetchSize);
 
     // Set the parameters
-    int index = setFields(statement, singletonFields, 1);
-    for (Range range : ranges) {
-      index = setStatementFieldByRange(range, statement, index);
-    }
+    int index = setFields(statement, parameters, 1);
+    statement.setInt(index, limit);
     return statement;
   }
 
@@ -339,7 +403,8 @@ public class PostgreSqlStructuredTable implements StructuredTable {
           "is not an indexed column");
     }
 
-    String sql = getReadQuery(Collections.singleton(index), null, false);
+    String sql = queryCache.getQuery(createShape("index.scan", index.getName()),
+        () -> getReadQuery(Collections.singleton(index), null, false));
     // We don't close the statement here because once it is closed, the result set is also closed.
     try {
       PreparedStatement statement = connection.prepareStatement(sql);
@@ -382,7 +447,13 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     LOG.trace("Table {}: Scan range {} with filterIndexes {} limit {} sortOrder {}",
         tableSchema.getTableId(), keyRange, filterIndexes, limit, sortOrder);
 
-    String scanQuery = getScanIndexesQuery(keyRange, limit, filterIndexes, fieldsToSort, sortOrder);
+    List<Object> shape = createShape("index.range.scan", keyRange);
+    addFilterIndexesShape(shape, filterIndexes);
+    shape.add(fieldsToSort);
+    shape.add(sortOrder);
+    Collection<Field<?>> indexes = filterIndexes;
+    String scanQuery = queryCache.getQuery(shape,
+        () -> getScanIndexesQuery(keyRange, indexes, fieldsToSort, sortOrder));
     // Since in getScanIndexesQuery we directly set the NULL checks, we need to skip the null fields
     filterIndexes = filterIndexes.stream().filter(f -> f.getValue() != null)
         .collect(Collectors.toList());
@@ -391,7 +462,8 @@ public class PostgreSqlStructuredTable implements StructuredTable {
       PreparedStatement statement = connection.prepareStatement(scanQuery);
       statement.setFetchSize(fetchSize);
       int nextIndex = setStatementFieldByRange(keyRange, statement, 1);
-      setFields(statement, filterIndexes, nextIndex);
+      int limitIndex = setFields(statement, filterIndexes, nextIndex);
+      statement.setInt(limitIndex, limit);
       LOG.trace("SQL statement: {}", statement);
 
       ResultSet resultSet = statement.executeQuery();
@@ -415,13 +487,17 @@ public class PostgreSqlStructuredTable implements StructuredTable {
           "is not an indexed column or primary key");
     }
 
-    String scanQuery = getScanQuery(keyRange, limit, Collections.singleton(orderByField),
-        sortOrder);
+    List<Object> shape = createShape("sort.range.scan", keyRange);
+    shape.add(orderByField);
+    shape.add(sortOrder);
+    String scanQuery = queryCache.getQuery(shape,
+        () -> getScanQuery(keyRange, Collections.singleton(orderByField), sortOrder));
 
     try {
       PreparedStatement statement = connection.prepareStatement(scanQuery);
       statement.setFetchSize(fetchSize);
-      setStatementFieldByRange(keyRange, statement);
+      int limitIndex = setStatementFieldByRange(keyRange, statement, 1);
+      statement.setInt(limitIndex, limit);
       LOG.trace("SQL statement: {}", statement);
 
       ResultSet resultSet = statement.executeQuery();
@@ -456,7 +532,10 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
 
     // First compare
-    String readQuery = getReadQuery(keys, Collections.singleton(oldValue.getName()), true);
+    List<Object> shape = createShape("read.for.update", keys);
+    shape.add(oldValue.getName());
+    String readQuery = queryCache.getQuery(shape,
+        () -> getReadQuery(keys, Collections.singleton(oldValue.getName()), true));
     try (PreparedStatement statement = connection.prepareStatement(readQuery)) {
       statement.setFetchSize(fetchSize);
       int index = 1;
@@ -515,7 +594,8 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     List<Field<?>> fieldsWithValue = new ArrayList<>(keys);
     // If the row does not exist, insert it with long field = amount
     fieldsWithValue.add(Fields.longField(column, amount));
-    String sql = getWriteSqlQuery(fieldsWithValue, column);
+    List<Object> shape = createShape("increment", fieldsWithValue);
+    String sql = queryCache.getQuery(shape, () -> getWriteSqlQuery(fieldsWithValue, column));
     try (PreparedStatement statement = connection.prepareStatement(sql)) {
       int index = 1;
       for (Field<?> key : fieldsWithValue) {
@@ -537,7 +617,7 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   public void delete(Collection<Field<?>> keys) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Delete with keys {}", tableSchema.getTableId(), keys);
     fieldValidator.validatePrimaryKeys(keys, false);
-    String sqlQuery = getDeleteQuery(keys);
+    String sqlQuery = getCachedDeleteQuery(keys);
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
       int index = 1;
       for (Field<?> key : keys) {
@@ -552,11 +632,28 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+      throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Delete with multiple keys {}", tableSchema.getTableId(), multiKeys);
+    for (Collection<Field<?>> keys : multiKeys) {
+      fieldValidator.validatePrimaryKeys(keys, false);
+    }
+
+    try {
+      executeBatch(multiKeys, this::getCachedDeleteQuery);
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to delete %d rows from table %s",
+          multiKeys.size(), tableSchema.getTableId().getName()), e);
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", tableSchema.getTableId(), keyRange);
     fieldValidator.validateScanRange(keyRange);
-    String sql = getDeleteAllStatement(keyRange);
+    String sql = queryCache.getQuery(createShape("deleteAll", keyRange),
+        () -> getDeleteAllStatement(keyRange));
     try (PreparedStatement statement = connection.prepareStatement(sql)) {
       setStatementFieldByRange(keyRange, statement);
       LOG.trace("SQL statement: {}", statement);
@@ -583,13 +680,12 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   @Override
   public long count(Collection<Range> keyRanges) throws IOException {
     LOG.trace("Table {}: count with ranges {}", tableSchema.getTableId(), keyRanges);
-    String sql = getCountStatement(keyRanges, Collections.emptyList());
+    String sql = getCachedCountStatement(keyRanges, Collections.emptyList());
     try (PreparedStatement statement = connection.prepareStatement(sql)) {
       statement.setFetchSize(fetchSize);
       setStatementFieldByRange(keyRanges, statement, 1);
       LOG.trace("SQL statement: {}", statement);
 
-      statement.executeQuery();
       try (ResultSet resultSet = statement.executeQuery()) {
         if (!resultSet.next()) {
           LOG.warn("Failed to get count from table {}", tableSchema.getTableId().getName());
@@ -607,7 +703,7 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   public long count(Collection<Range> keyRanges,
       Collection<Field<?>> filterIndexes) throws IOException {
     LOG.trace("Table {}: count with ranges {}", tableSchema.getTableId(), keyRanges);
-    String sql = getCountStatement(keyRanges, filterIndexes);
+    String sql = getCachedCountStatement(keyRanges, filterIndexes);
     // Since in getCountStatement we directly set the NULL checks, we need to skip the null fields
     filterIndexes = filterIndexes.stream().filter(f -> f.getValue() != null)
         .collect(Collectors.toList());
@@ -618,7 +714,6 @@ public class PostgreSqlStructuredTable implements StructuredTable {
       setFields(statement, filterIndexes, nextIndex);
 
       LOG.trace("SQL statement: {}", statement);
-      statement.executeQuery();
 
       try (ResultSet resultSet = statement.executeQuery()) {
         if (!resultSet.next()) {
@@ -643,7 +738,7 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   }
 
   private void upsertInternal(Collection<Field<?>> fields) throws IOException {
-    String sqlQuery = getWriteSqlQuery(fields, null);
+    String sqlQuery = getWriteQuery(fields);
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
       int index = 1;
       for (Field<?> field : fields) {
@@ -658,8 +753,56 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
   }
 
+  /**
+   * Executes a statement for each of the given rows using JDBC batching. Consecutive rows with the
+   * same list of field names share the same {@link PreparedStatement}, and the batch is sent to the
+   * server every {@link #WRITE_BATCH_SIZE} rows. The order of the rows is preserved.
+   *
+   * @param rows the rows to execute the statement for
+   * @param sqlFunction function to generate the sql query for a row
+   */
+  private void executeBatch(Collection<? extends Collection<Field<?>>> rows,
+      Function<Collection<Field<?>>, String> sqlFunction) throws SQLException {
+    PreparedStatement statement = null;
+    List<String> statementFieldNames = null;
+    int batchSize = 0;
+    try {
+      for (Collection<Field<?>> fields : rows) {
+        List<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toList());
+        if (!fieldNames.equals(statementFieldNames)) {
+          if (statement != null) {
+            if (batchSize > 0) {
+              statement.executeBatch();
+            }
+            statement.close();
+          }
+          statement = connection.prepareStatement(sqlFunction.apply(fields));
+          statementFieldNames = fieldNames;
+          batchSize = 0;
+        }
+        setFields(statement, fields, 1);
+        statement.addBatch();
+        if (++batchSize >= WRITE_BATCH_SIZE) {
+          LOG.trace("SQL batch statement: {}", statement);
+          statement.executeBatch();
+          batchSize = 0;
+        }
+      }
+      if (statement != null && batchSize > 0) {
+        LOG.trace("SQL batch statement: {}", statement);
+        statement.executeBatch();
+      }
+    } finally {
+      if (statement != null) {
+        statement.close();
+      }
+    }
+  }
+
   private void updateRangeInternal(Range keyRange, Collection<Field<?>> fields) throws IOException {
-    String sqlQuery = getUpdateRangeSqlQuery(keyRange, fields);
+    List<Object> shape = createShape("updateAll", keyRange);
+    addFieldNamesShape(shape, fields);
+    String sqlQuery = queryCache.getQuery(shape, () -> getUpdateRangeSqlQuery(keyRange, fields));
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
       int index = 1;
       // set field values to update
@@ -677,7 +820,8 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   }
 
   private void updateInternal(Collection<Field<?>> fields) throws IOException {
-    String sqlQuery = getUpdateSqlQuery(fields);
+    String sqlQuery = queryCache.getQuery(createShape("update", fields),
+        () -> getUpdateSqlQuery(fields));
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
       Map<Boolean, List<Field<?>>> lists = fields.stream().collect(
           Collectors.partitioningBy(field -> tableSchema.isPrimaryKeyColumn(field.getName())));
@@ -713,7 +857,9 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     LOG.trace("Table {}: Read with keys {} and columns {}", tableSchema.getTableId(), keys,
         columns);
     fieldValidator.validatePrimaryKeys(keys, false);
-    String readQuery = getReadQuery(keys, columns, false);
+    List<Object> shape = createShape("read", keys);
+    shape.add(columns);
+    String readQuery = queryCache.getQuery(shape, () -> getReadQuery(keys, columns, false));
     try (PreparedStatement statement = connection.prepareStatement(readQuery)) {
       statement.setFetchSize(fetchSize);
 
@@ -941,15 +1087,15 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   /**
    * Get the scan query for the range given. For example, if the range provides key1, key2 as the
    * beginning and end to scan, both rows are inclusive, it will generate the following query:
-   * SELECT * FROM simpletable WHERE (key1,key2)>=(?,?) AND (key1,key2)<=(?,?) LIMIT 10;
+   * SELECT * FROM simpletable WHERE (key1,key2)>=(?,?) AND (key1,key2)<=(?,?) LIMIT ?; The limit
+   * is the last parameter of the query.
    *
    * @param range the range to scan.
-   * @param limit limit number of row
    * @param fieldsToSort The fields to be sorted, have to be indexed or primary keys
    * @param sortOrder sort order
    * @return the scan query
    */
-  private String getScanQuery(Range range, int limit, Collection<String> fieldsToSort,
+  private String getScanQuery(Range range, Collection<String> fieldsToSort,
       SortOrder sortOrder) {
     StringBuilder queryString = new StringBuilder("SELECT * FROM ").append(
         tableSchema.getTableId().getName());
@@ -959,20 +1105,20 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
 
     queryString.append(getOrderByClause(fieldsToSort, sortOrder));
-    queryString.append(" LIMIT ").append(limit).append(";");
+    queryString.append(" LIMIT ?;");
     return queryString.toString();
   }
 
   /**
-   * Get the scan query for the given range and index field.
+   * Get the scan query for the given range and index field. The limit is the last parameter of
+   * the query.
    *
    * @param range the range to scan.
-   * @param limit limit number of row
    * @param filterIndexes index fields
    * @param sortOrder sort order by primary keys
    * @return the scan query
    */
-  private String getScanIndexesQuery(Range range, int limit, Collection<Field<?>> filterIndexes,
+  private String getScanIndexesQuery(Range range, Collection<Field<?>> filterIndexes,
       Collection<String> fieldsToSort, SortOrder sortOrder) {
     StringBuilder queryString = new StringBuilder("SELECT * FROM ")
         .append(tableSchema.getTableId().getName())
@@ -991,7 +1137,7 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
 
     queryString.append(getOrderByClause(fieldsToSort, sortOrder));
-    queryString.append(" LIMIT ").append(limit).append(";");
+    queryString.append(" LIMIT ?;");
     return queryString.toString();
   }
 
@@ -1005,6 +1151,60 @@ public class PostgreSqlStructuredTable implements StructuredTable {
         range.getEndBound().equals(Range.Bound.INCLUSIVE) ? "<=" : "<");
   }
 
+  /**
+   * Appends the where clause of a range to the query, and adds the fields to be set as parameters
+   * to the given list. If the begin and the end of the range start with the same fields of equal
+   * values, the common prefix is matched with equality, so that the database can use the primary
+   * key index for it. E.g. the range from (namespace, app) = ('default', 'a') to ('default', 'b')
+   * becomes namespace = ? AND (app) >= (?) AND (app) <= (?) instead of (namespace, app) >= (?, ?)
+   * AND (namespace, app) <= (?, ?). Both forms select the same rows.
+   */
+  private void appendRange(StringBuilder query, Range range, List<Field<?>> parameters) {
+    List<Field<?>> begin = new ArrayList<>(range.getBegin());
+    List<Field<?>> end = new ArrayList<>(range.getEnd());
+    int prefix = 0;
+    while (prefix < begin.size() && prefix < end.size()
+        && begin.get(prefix).getValue() != null && begin.get(prefix).equals(end.get(prefix))) {
+      prefix++;
+    }
+
+    // If nothing is left after the prefix on an exclusive bound, the range is empty.
+    // Keep the original clause in that case, as well as when there is no common prefix.
+    boolean hasBeginRemaining = prefix < begin.size();
+    boolean hasEndRemaining = prefix < end.size();
+    if (prefix == 0
+        || (!hasBeginRemaining && range.getBeginBound() == Range.Bound.EXCLUSIVE)
+        || (!hasEndRemaining && range.getEndBound() == Range.Bound.EXCLUSIVE)) {
+      appendRange(query, range);
+      parameters.addAll(begin);
+      parameters.addAll(end);
+      return;
+    }
+
+    StringJoiner joiner = new StringJoiner(" AND ");
+    for (Field<?> field : begin.subList(0, prefix)) {
+      joiner.add(field.getName() + " = ?");
+      parameters.add(field);
+    }
+    if (hasBeginRemaining) {
+      StringBuilder bound = new StringBuilder();
+      List<Field<?>> remaining = begin.subList(prefix, begin.size());
+      appendScanBound(bound, remaining,
+          range.getBeginBound().equals(Range.Bound.INCLUSIVE) ? ">=" : ">");
+      joiner.add(bound);
+      parameters.addAll(remaining);
+    }
+    if (hasEndRemaining) {
+      StringBuilder bound = new StringBuilder();
+      List<Field<?>> remaining = end.subList(prefix, end.size());
+      appendScanBound(bound, remaining,
+          range.getEndBound().equals(Range.Bound.INCLUSIVE) ? "<=" : "<");
+      joiner.add(bound);
+      parameters.addAll(remaining);
+    }
+    query.append(joiner);
+  }
+
   private void appendScanBound(StringBuilder sb,
       Collection<Field<?>> keys, String comparator) {
     if (keys.isEmpty()) {
@@ -1039,13 +1239,22 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     return statement.toString();
   }
 
+  private String getCachedCountStatement(Collection<Range> ranges,
+      Collection<Field<?>> filterIndexes) {
+    List<Object> shape = createShape("count");
+    for (Range range : ranges) {
+      fieldValidator.validateScanRange(range);
+      addRangeShape(shape, range);
+    }
+    addFilterIndexesShape(shape, filterIndexes);
+    return queryCache.getQuery(shape, () -> getCountStatement(ranges, filterIndexes));
+  }
+
   private String getCountStatement(Collection<Range> ranges, Collection<Field<?>> filterIndexes) {
     StringBuilder statement = new StringBuilder("SELECT COUNT(*) FROM ").append(
         tableSchema.getTableId().getName());
     boolean whereAdded = false;
     for (Range range : ranges) {
-      fieldValidator.validateScanRange(range);
-
       if (!range.getBegin().isEmpty() || !range.getEnd().isEmpty()) {
         if (!whereAdded) {
           // first WHERE condition
@@ -1104,6 +1313,71 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     return joiner.toString();
   }
 
+  private String getWriteQuery(Collection<Field<?>> fields) {
+    return queryCache.getQuery(createShape("write", fields), () -> getWriteSqlQuery(fields, null));
+  }
+
+  private String getCachedDeleteQuery(Collection<Field<?>> keys) {
+    return queryCache.getQuery(createShape("delete", keys), () -> getDeleteQuery(keys));
+  }
+
+  /**
+   * Creates the shape of an operation for looking up the {@link SqlQueryCache}. The shape starts
+   * with the operation name, followed by the given parts.
+   */
+  private static List<Object> createShape(String operation, Object... parts) {
+    List<Object> shape = new ArrayList<>(parts.length + 8);
+    shape.add(operation);
+    Collections.addAll(shape, parts);
+    return shape;
+  }
+
+  private static List<Object> createShape(String operation, Collection<Field<?>> fields) {
+    List<Object> shape = createShape(operation);
+    addFieldNamesShape(shape, fields);
+    return shape;
+  }
+
+  private static List<Object> createShape(String operation, Range range) {
+    List<Object> shape = createShape(operation);
+    addRangeShape(shape, range);
+    return shape;
+  }
+
+  /**
+   * Adds the names of the fields to the shape, which determines the columns and the parameter
+   * positions of the fields in the query.
+   */
+  private static void addFieldNamesShape(List<Object> shape, Collection<Field<?>> fields) {
+    for (Field<?> field : fields) {
+      shape.add(field.getName());
+    }
+  }
+
+  /**
+   * Adds the shape of a range, which is the bound and the field names of both ends. The bounds
+   * also serve as separators between the field names of the two ends.
+   */
+  private static void addRangeShape(List<Object> shape, Range range) {
+    shape.add(range.getBeginBound());
+    addFieldNamesShape(shape, range.getBegin());
+    shape.add(range.getEndBound());
+    addFieldNamesShape(shape, range.getEnd());
+  }
+
+  /**
+   * Adds the shape of the filter indexes. Null values are part of the shape since they are
+   * translated to "IS NULL" instead of a parameter in the query.
+   */
+  private static void addFilterIndexesShape(List<Object> shape,
+      Collection<Field<?>> filterIndexes) {
+    shape.add(filterIndexes.size());
+    for (Field<?> index : filterIndexes) {
+      shape.add(index.getName());
+      shape.add(index.getValue() == null);
+    }
+  }
+
   private Field<?> createField(String name, FieldType.Type type, Object value) {
     switch (type) {
       case BYTES:
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.spi.data.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.spi.data.table.StructuredTableSchema;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A cache of the SQL queries generated for a {@link StructuredTableSchema}. Queries are keyed by the
+ * shape of the operation, e.g. the names of the key fields, the range bounds and the sort order,
+ * but never by the field values, which are always passed as parameters of the prepared statement.
+ * Hence operations of the same shape share the same SQL string, which also allows the JDBC driver
+ * and the connection pool to reuse the server side prepared statement.
+ */
+public final class SqlQueryCache {
+
+  private final Cache<List<Object>, String> queries;
+  private final MetricsCollector metricsCollector;
+  private final String hitMetric;
+  private final String missMetric;
+
+  SqlQueryCache(StructuredTableSchema schema, MetricsCollector metricsCollector, int maxSize) {
+    this.queries = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    this.metricsCollector = metricsCollector;
+    String metricPrefix = Constants.Metrics.StructuredTable.METRICS_PREFIX
+        + schema.getTableId().getName() + ".query.cache.";
+    this.hitMetric = metricPrefix + "hit";
+    this.missMetric = metricPrefix + "miss";
+  }
+
+  /**
+   * Returns the SQL query of the given operation shape, generating it if it is not in the cache.
+   *
+   * @param shape the operation shape. It must uniquely identify the SQL query generated.
+   * @param queryGenerator the generator for the SQL query if it is not in the cache
+   * @return the SQL query
+   */
+  String getQuery(List<Object> shape, Supplier<String> queryGenerator) {
+    String query = queries.getIfPresent(shape);
+    if (query != null) {
+      metricsCollector.increment(hitMetric, 1L);
+      return query;
+    }
+    metricsCollector.increment(missMetric, 1L);
+    query = queryGenerator.get();
+    queries.put(shape, query);
+    return query;
+  }
+}
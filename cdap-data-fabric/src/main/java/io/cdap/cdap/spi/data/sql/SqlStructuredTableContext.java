@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.spi.data.sql;
 
+import com.google.common.cache.LoadingCache;
 import io.cdap.cdap.api.metrics.MetricsCollector;
 import io.cdap.cdap.spi.data.StructuredTable;
 import io.cdap.cdap.spi.data.StructuredTableAdmin;
@@ -24,6 +25,7 @@ import io.cdap.cdap.spi.data.StructuredTableInstantiationException;
 import io.cdap.cdap.spi.data.TableNotFoundException;
 import io.cdap.cdap.spi.data.common.MetricStructuredTable;
 import io.cdap.cdap.spi.data.table.StructuredTableId;
+import io.cdap.cdap.spi.data.table.StructuredTableSchema;
 import java.io.IOException;
 import java.sql.Connection;
 
@@ -37,14 +39,17 @@ public class SqlStructuredTableContext implements StructuredTableContext {
   private final MetricsCollector metricsCollector;
   private final boolean emitTimeMetrics;
   private final int scanFetchSize;
+  private final LoadingCache<StructuredTableSchema, SqlQueryCache> queryCaches;
 
   public SqlStructuredTableContext(StructuredTableAdmin structuredTableAdmin, Connection connection,
-      MetricsCollector metricsCollector, boolean emitTimeMetrics, int scanFetchSize) {
+      MetricsCollector metricsCollector, boolean emitTimeMetrics, int scanFetchSize,
+      LoadingCache<StructuredTableSchema, SqlQueryCache> queryCaches) {
     this.admin = structuredTableAdmin;
     this.connection = connection;
     this.metricsCollector = metricsCollector;
     this.emitTimeMetrics = emitTimeMetrics;
     this.scanFetchSize = scanFetchSize;
+    this.queryCaches = queryCaches;
   }
 
   @Override
@@ -52,9 +57,10 @@ public class SqlStructuredTableContext implements StructuredTableContext {
       throws StructuredTableInstantiationException, TableNotFoundException {
 
     try {
+      StructuredTableSchema schema = admin.getSchema(tableId);
       return new MetricStructuredTable(tableId,
-          new PostgreSqlStructuredTable(connection, admin.getSchema(tableId),
-              scanFetchSize), metricsCollector, emitTimeMetrics);
+          new PostgreSqlStructuredTable(connection, schema, scanFetchSize,
+              queryCaches.getUnchecked(schema)), metricsCollector, emitTimeMetrics);
     } catch (IOException e) {
       throw new StructuredTableInstantiationException(tableId, "Failed to get the table schema", e);
     }
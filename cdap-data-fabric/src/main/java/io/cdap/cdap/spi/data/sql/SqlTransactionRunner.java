@@ -17,10 +17,14 @@
 package io.cdap.cdap.spi.data.sql;
 
 import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.spi.data.StructuredTableAdmin;
+import io.cdap.cdap.spi.data.table.StructuredTableSchema;
 import io.cdap.cdap.spi.data.transaction.TransactionException;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TxRunnable;
@@ -37,12 +41,15 @@ import org.slf4j.LoggerFactory;
 public class SqlTransactionRunner implements TransactionRunner {
 
   private static final Logger LOG = LoggerFactory.getLogger(SqlTransactionRunner.class);
+  // Maximum number of distinct queries cached for each table
+  private static final int QUERY_CACHE_SIZE = 256;
 
   private final StructuredTableAdmin admin;
   private final DataSource dataSource;
   private final MetricsCollectionService metricsCollectionService;
   private final boolean emitTimeMetrics;
   private final int scanFetchSize;
+  private final LoadingCache<StructuredTableSchema, SqlQueryCache> queryCaches;
 
   public SqlTransactionRunner(StructuredTableAdmin tableAdmin, DataSource dataSource,
       MetricsCollectionService metricsCollectionService,
@@ -52,6 +59,17 @@ public class SqlTransactionRunner implements TransactionRunner {
     this.metricsCollectionService = metricsCollectionService;
     this.emitTimeMetrics = emitTimeMetrics;
     this.scanFetchSize = scanFetchSize;
+    // Use weak keys so that the cache is keyed by the schema identity. When the schema of a table
+    // is updated, the admin creates a new schema object, hence the queries are regenerated.
+    this.queryCaches = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build(new CacheLoader<StructuredTableSchema, SqlQueryCache>() {
+          @Override
+          public SqlQueryCache load(StructuredTableSchema schema) {
+            return new SqlQueryCache(schema, metricsCollectionService.getContext(
+                Constants.Metrics.STORAGE_METRICS_TAGS), QUERY_CACHE_SIZE);
+          }
+        });
   }
 
   @Override
@@ -72,7 +90,7 @@ public class SqlTransactionRunner implements TransactionRunner {
       connection.setAutoCommit(false);
       runnable.run(
           new SqlStructuredTableContext(admin, connection, metricsCollector, emitTimeMetrics,
-              this.scanFetchSize));
+              this.scanFetchSize, queryCaches));
       connection.commit();
     } catch (Exception e) {
       List<Throwable> causes = Throwables.getCausalChain(e);
@@ -496,6 +496,108 @@ public abstract class BufferingTableTest<T extends BufferingTable> extends Table
     }
   }
 
+  @Test
+  public void testFlushBufferEarly() throws Exception {
+    // flush the buffer after every write
+    DatasetProperties props = DatasetProperties.builder()
+      .add(BufferingTable.BUFFER_FLUSH_THRESHOLD_BYTES, 1)
+      .build();
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE, props);
+    admin.create();
+    try (BufferingTable table = getTable(CONTEXT1, MY_TABLE, props);
+         BufferingTable table2 = getTable(CONTEXT1, MY_TABLE, props);
+         BufferingTable table3 = getTable(CONTEXT1, MY_TABLE)) {
+      Transaction tx1 = txClient.startShort();
+      table.startTx(tx1);
+      table.put(R1, C1, L1);
+      table.put(R2, C2, L2);
+      table.put(R1, C2, L3);
+      table.delete(R2, C2);
+      Assert.assertEquals(0L, table.getBufferSize());
+      table.put(R3, C3, L3);
+
+      // flushed writes are visible in the same transaction
+      TableAssert.assertRow(table.get(R1), R1, a(C1, C2), lb(1, 3));
+      Assert.assertTrue(table.get(R2).isEmpty());
+      List<Row> rows = table.get(Lists.newArrayList(new Get(R1), new Get(R3)));
+      Assert.assertEquals(2, rows.size());
+      TableAssert.assertRow(rows.get(0), R1, a(C1, C2), lb(1, 3));
+      TableAssert.assertRow(rows.get(1), R3, a(C3), lb(3));
+      TableAssert.assertScan(a(R1, R3), aa(a(C1, L1, C2, L3), a(C3, L3)), table, new Scan(null, null));
+
+      // but not in other transactions
+      Transaction tx2 = txClient.startShort();
+      table2.startTx(tx2);
+      Assert.assertTrue(table2.get(R1).isEmpty());
+      Assert.assertTrue(table2.commitTx());
+      txClient.commitOrThrow(tx2);
+      table2.postTxCommit();
+
+      // changes that were flushed are still used for conflict detection
+      Assert.assertEquals(3, table.getTxChanges().size());
+
+      // rolling back undoes the flushed writes
+      Assert.assertTrue(table.rollbackTx());
+      txClient.abort(tx1);
+
+      Transaction tx3 = txClient.startShort();
+      table.startTx(tx3);
+      rows = table.get(Lists.newArrayList(new Get(R1), new Get(R2), new Get(R3)));
+      Assert.assertEquals(3, rows.size());
+      for (Row row : rows) {
+        Assert.assertTrue(row.isEmpty());
+      }
+      table.put(R1, C1, L1);
+      table.put(R2, C2, L2);
+      txClient.canCommitOrThrow(tx3, table.getTxChanges());
+      Assert.assertTrue(table.commitTx());
+      txClient.commitOrThrow(tx3);
+      table.postTxCommit();
+
+      Transaction tx4 = txClient.startShort();
+      table2.startTx(tx4);
+      TableAssert.assertScan(a(R1, R2), aa(a(C1, L1), a(C2, L2)), table2, new Scan(null, null));
+      Assert.assertTrue(table2.commitTx());
+      txClient.commitOrThrow(tx4);
+      table2.postTxCommit();
+
+      // every kind of write is counted in the buffer size, and flushed once it reaches the threshold
+      Transaction tx5 = txClient.startShort();
+      table3.startTx(tx5);
+      table.startTx(tx5);
+      long bufferSize = table3.getBufferSize();
+      table3.delete(R1, C1);
+      Assert.assertTrue(table3.getBufferSize() > bufferSize);
+      bufferSize = table3.getBufferSize();
+      table3.delete(R2);
+      Assert.assertTrue(table3.getBufferSize() > bufferSize);
+      bufferSize = table3.getBufferSize();
+      Assert.assertEquals(1L, table3.incrementAndGet(R3, C3, 1L));
+      Assert.assertTrue(table3.getBufferSize() > bufferSize);
+      bufferSize = table3.getBufferSize();
+      table3.increment(R3, C3, 1L);
+      Assert.assertTrue(table3.getBufferSize() > bufferSize);
+      bufferSize = table3.getBufferSize();
+      Assert.assertTrue(table3.compareAndSwap(R3, C3, L2, L3));
+      Assert.assertTrue(table3.getBufferSize() > bufferSize);
+
+      table.delete(R1, C1);
+      Assert.assertEquals(0L, table.getBufferSize());
+      table.delete(R2);
+      Assert.assertEquals(0L, table.getBufferSize());
+      Assert.assertEquals(1L, table.incrementAndGet(R3, C3, 1L));
+      Assert.assertEquals(0L, table.getBufferSize());
+      Assert.assertTrue(table.compareAndSwap(R3, C3, L1, L2));
+      Assert.assertEquals(0L, table.getBufferSize());
+      TableAssert.assertScan(a(R3), aa(a(C3, L2)), table, new Scan(null, null));
+      Assert.assertTrue(table3.rollbackTx());
+      Assert.assertTrue(table.rollbackTx());
+      txClient.abort(tx5);
+    } finally {
+      admin.drop();
+    }
+  }
+
   private void verify123(BufferingTable table) throws Exception {
     byte[] row = new byte[] {1};
     byte[] col = new byte[] {2};
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.spi.data.sql;
+
+import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.spi.data.table.StructuredTableId;
+import io.cdap.cdap.spi.data.table.StructuredTableSchema;
+import io.cdap.cdap.spi.data.table.StructuredTableSpecification;
+import io.cdap.cdap.spi.data.table.field.Fields;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for {@link SqlQueryCache}.
+ */
+public class SqlQueryCacheTest {
+
+  @Test
+  public void testCache() throws Exception {
+    StructuredTableSchema schema = new StructuredTableSchema(
+        new StructuredTableSpecification.Builder()
+            .withId(new StructuredTableId("test"))
+            .withFields(Fields.stringType("key"), Fields.stringType("col"))
+            .withPrimaryKeys("key")
+            .build());
+    MetricsCollector metricsCollector = Mockito.mock(MetricsCollector.class);
+    SqlQueryCache cache = new SqlQueryCache(schema, metricsCollector, 10);
+
+    AtomicInteger generated = new AtomicInteger();
+    String query = cache.getQuery(Arrays.asList("read", "key"),
+        () -> "SELECT * FROM test WHERE key=?;" + generated.incrementAndGet());
+    Assert.assertEquals("SELECT * FROM test WHERE key=?;1", query);
+
+    // Same shape should get the same query without generating it again
+    query = cache.getQuery(Arrays.asList("read", "key"),
+        () -> "SELECT * FROM test WHERE key=?;" + generated.incrementAndGet());
+    Assert.assertEquals("SELECT * FROM test WHERE key=?;1", query);
+
+    // Different shape should generate a new query
+    query = cache.getQuery(Arrays.asList("delete", "key"),
+        () -> "DELETE FROM test WHERE key=?;" + generated.incrementAndGet());
+    Assert.assertEquals("DELETE FROM test WHERE key=?;2", query);
+
+    Mockito.verify(metricsCollector, Mockito.times(1))
+        .increment("structured.table.test.query.cache.hit", 1L);
+    Mockito.verify(metricsCollector, Mockito.times(2))
+        .increment("structured.table.test.query.cache.miss", 1L);
+  }
+}
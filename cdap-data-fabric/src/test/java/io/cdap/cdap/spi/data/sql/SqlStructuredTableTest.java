@@ -21,25 +21,40 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Scopes;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.guice.ConfigModule;
 import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
 import io.cdap.cdap.data.runtime.StorageModule;
+import io.cdap.cdap.spi.data.StructuredRow;
+import io.cdap.cdap.spi.data.StructuredTable;
 import io.cdap.cdap.spi.data.StructuredTableAdmin;
 import io.cdap.cdap.spi.data.StructuredTableTest;
+import io.cdap.cdap.spi.data.table.StructuredTableId;
+import io.cdap.cdap.spi.data.table.StructuredTableSpecification;
+import io.cdap.cdap.spi.data.table.field.Fields;
+import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Test;
 
 /**
  * Test for SQL structured table.
  */
 public class SqlStructuredTableTest extends StructuredTableTest {
+  private static final int STATEMENT_CACHE_QUERIES = 2;
+
   private static EmbeddedPostgres pg;
   private static StructuredTableAdmin tableAdmin;
   private static TransactionRunner transactionRunner;
@@ -48,6 +63,7 @@ public class SqlStructuredTableTest extends StructuredTableTest {
   public static void beforeClass() throws Exception {
     CConfiguration cConf = CConfiguration.create();
     populateCConf(cConf);
+    cConf.setInt(Constants.Dataset.DATA_STORAGE_SQL_STATEMENT_CACHE_QUERIES, STATEMENT_CACHE_QUERIES);
     pg = PostgresInstantiator.createAndStart(cConf, TEMP_FOLDER.newFolder());
 
     Injector injector = Guice.createInjector(
@@ -84,6 +100,64 @@ public class SqlStructuredTableTest extends StructuredTableTest {
     }
   }
 
+  @Test
+  public void testOpenScansMoreThanStatementCache() throws Exception {
+    StructuredTableSpecification spec = new StructuredTableSpecification.Builder()
+      .withId(new StructuredTableId("scanTable"))
+      .withFields(Fields.intType("key"), Fields.stringType("value"))
+      .withPrimaryKeys("key")
+      .build();
+    tableAdmin.createOrUpdate(spec);
+    try {
+      int numRows = 10;
+      TransactionRunners.run(transactionRunner, context -> {
+        StructuredTable table = context.getTable(spec.getTableId());
+        for (int i = 0; i < numRows; i++) {
+          table.upsert(Arrays.asList(Fields.intField("key", i), Fields.stringField("value", "v" + i)));
+        }
+      });
+
+      // Keep more scans open in one transaction than the number of statements cached for the connection,
+      // alternating between two queries so that cached statements are evicted while scans still use them.
+      int numScans = STATEMENT_CACHE_QUERIES * 4;
+      List<List<Integer>> results = TransactionRunners.run(transactionRunner, context -> {
+        StructuredTable table = context.getTable(spec.getTableId());
+        List<CloseableIterator<StructuredRow>> scans = new ArrayList<>();
+        try {
+          for (int i = 0; i < numScans; i++) {
+            Range range = i % 2 == 0
+              ? Range.from(Collections.singleton(Fields.intField("key", i)), Range.Bound.INCLUSIVE)
+              : Range.to(Collections.singleton(Fields.intField("key", i)), Range.Bound.EXCLUSIVE);
+            scans.add(table.scan(range, numRows));
+          }
+          List<List<Integer>> keys = new ArrayList<>();
+          for (CloseableIterator<StructuredRow> scan : scans) {
+            List<Integer> scanKeys = new ArrayList<>();
+            scan.forEachRemaining(row -> scanKeys.add(row.getInteger("key")));
+            keys.add(scanKeys);
+          }
+          return keys;
+        } finally {
+          for (CloseableIterator<StructuredRow> scan : scans) {
+            scan.close();
+          }
+        }
+      });
+
+      for (int i = 0; i < numScans; i++) {
+        int begin = i % 2 == 0 ? i : 0;
+        int end = i % 2 == 0 ? numRows : i;
+        List<Integer> expected = new ArrayList<>();
+        for (int key = begin; key < end; key++) {
+          expected.add(key);
+        }
+        Assert.assertEquals(expected, results.get(i));
+      }
+    } finally {
+      tableAdmin.drop(spec.getTableId());
+    }
+  }
+
   @Override
   protected StructuredTableAdmin getStructuredTableAdmin() {
     return tableAdmin;
@@ -0,0 +1,437 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.format.io;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.data.schema.SchemaHash;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.common.io.Encoder;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Compiles record {@link Schema Schemas} into trees of encoders and decoders for {@link
+ * StructuredRecord}, such that a schema is interpreted once instead of once per record. The
+ * compiled codecs produce the same binary format as the interpreting {@link
+ * StructuredRecordDatumWriter} and {@link StructuredRecordDatumReader}, and are cached by {@link
+ * SchemaHash}.
+ */
+final class StructuredRecordCodecs {
+
+  private static final int MAX_CACHED_SCHEMAS = 1000;
+
+  private static final Cache<SchemaHash, RecordEncoder> ENCODERS = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_SCHEMAS)
+      .build();
+  private static final Cache<SchemaHash, RecordDecoder> DECODERS = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_SCHEMAS)
+      .build();
+
+  private StructuredRecordCodecs() {
+    // no-op
+  }
+
+  /**
+   * Returns the {@link RecordEncoder} for the given record schema.
+   */
+  static RecordEncoder getEncoder(Schema schema) {
+    SchemaHash schemaHash = schema.getSchemaHash();
+    RecordEncoder encoder = ENCODERS.getIfPresent(schemaHash);
+    if (encoder == null) {
+      // Compilation is idempotent, hence it is ok if multiple threads compile the same schema
+      encoder = (RecordEncoder) compileEncoder(schema, new HashMap<>());
+      ENCODERS.put(schemaHash, encoder);
+    }
+    return encoder;
+  }
+
+  /**
+   * Returns the {@link RecordDecoder} for the given record schema.
+   */
+  static RecordDecoder getDecoder(Schema schema) {
+    SchemaHash schemaHash = schema.getSchemaHash();
+    RecordDecoder decoder = DECODERS.getIfPresent(schemaHash);
+    if (decoder == null) {
+      // Compilation is idempotent, hence it is ok if multiple threads compile the same schema
+      decoder = (RecordDecoder) compileDecoder(schema, new HashMap<>());
+      DECODERS.put(schemaHash, decoder);
+    }
+    return decoder;
+  }
+
+  /**
+   * Encodes a value of a specific {@link Schema}.
+   */
+  interface ValueEncoder {
+
+    void encode(Encoder encoder, @Nullable Object value) throws IOException;
+  }
+
+  /**
+   * Decodes a value of a specific {@link Schema}.
+   */
+  interface ValueDecoder {
+
+    @Nullable
+    Object decode(Decoder decoder) throws IOException;
+  }
+
+  /**
+   * Creates a {@link ValueEncoder} for the given schema.
+   *
+   * @param schema the {@link Schema} of the values to encode
+   * @param records the record encoders created so far, for handling recursive records
+   */
+  private static ValueEncoder compileEncoder(Schema schema, Map<Schema, RecordEncoder> records) {
+    switch (schema.getType()) {
+      case NULL:
+        return (encoder, value) -> encoder.writeNull();
+      case BOOLEAN:
+        return (encoder, value) -> encoder.writeBool((Boolean) value);
+      case INT:
+        return (encoder, value) -> encoder.writeInt((Integer) value);
+      case LONG:
+        return (encoder, value) -> encoder.writeLong((Long) value);
+      case FLOAT:
+        return (encoder, value) -> encoder.writeFloat((Float) value);
+      case DOUBLE:
+        return (encoder, value) -> encoder.writeDouble((Double) value);
+      case BYTES:
+        return StructuredRecordDatumWriter::encodeBytes;
+      case STRING:
+        return (encoder, value) -> encoder.writeString((String) value);
+      case ENUM:
+        return (encoder, value) -> {
+          String enumValue = value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+          encoder.writeInt(schema.getEnumIndex(enumValue));
+        };
+      case ARRAY:
+        return new ArrayEncoder(compileEncoder(schema.getComponentSchema(), records));
+      case MAP:
+        Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+        return new MapEncoder(compileEncoder(mapSchema.getKey(), records),
+            compileEncoder(mapSchema.getValue(), records));
+      case RECORD:
+        RecordEncoder recordEncoder = records.get(schema);
+        if (recordEncoder == null) {
+          recordEncoder = new RecordEncoder(schema);
+          records.put(schema, recordEncoder);
+          List<Schema.Field> fields = schema.getFields();
+          for (int i = 0; i < fields.size(); i++) {
+            recordEncoder.fieldEncoders[i] = compileEncoder(fields.get(i).getSchema(), records);
+          }
+        }
+        return recordEncoder;
+      case UNION:
+        List<Schema> unionSchemas = schema.getUnionSchemas();
+        ValueEncoder[] encoders = new ValueEncoder[unionSchemas.size()];
+        for (int i = 0; i < encoders.length; i++) {
+          encoders[i] = compileEncoder(unionSchemas.get(i), records);
+        }
+        return new UnionEncoder(schema, encoders);
+      default:
+        throw new IllegalArgumentException("Unsupported schema: " + schema);
+    }
+  }
+
+  /**
+   * Creates a {@link ValueDecoder} for the given schema.
+   *
+   * @param schema the {@link Schema} of the values to decode
+   * @param records the record decoders created so far, for handling recursive records
+   */
+  private static ValueDecoder compileDecoder(Schema schema, Map<Schema, RecordDecoder> records) {
+    switch (schema.getType()) {
+      case NULL:
+        return decoder -> {
+          decoder.readNull();
+          return null;
+        };
+      case BOOLEAN:
+        return Decoder::readBool;
+      case INT:
+        return Decoder::readInt;
+      case LONG:
+        return Decoder::readLong;
+      case FLOAT:
+        return Decoder::readFloat;
+      case DOUBLE:
+        return Decoder::readDouble;
+      case BYTES:
+        return Decoder::readBytes;
+      case STRING:
+        return Decoder::readString;
+      case ENUM:
+        return decoder -> schema.getEnumValue(decoder.readInt());
+      case ARRAY:
+        return new ArrayDecoder(compileDecoder(schema.getComponentSchema(), records));
+      case MAP:
+        Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+        return new MapDecoder(compileDecoder(mapSchema.getKey(), records),
+            compileDecoder(mapSchema.getValue(), records));
+      case RECORD:
+        RecordDecoder recordDecoder = records.get(schema);
+        if (recordDecoder == null) {
+          recordDecoder = new RecordDecoder(schema);
+          records.put(schema, recordDecoder);
+          List<Schema.Field> fields = schema.getFields();
+          for (int i = 0; i < fields.size(); i++) {
+            recordDecoder.fieldDecoders[i] = compileDecoder(fields.get(i).getSchema(), records);
+          }
+        }
+        return recordDecoder;
+      case UNION:
+        List<Schema> unionSchemas = schema.getUnionSchemas();
+        ValueDecoder[] decoders = new ValueDecoder[unionSchemas.size()];
+        for (int i = 0; i < decoders.length; i++) {
+          decoders[i] = compileDecoder(unionSchemas.get(i), records);
+        }
+        return decoder -> {
+          int idx = decoder.readInt();
+          if (idx < 0 || idx >= decoders.length) {
+            throw new IOException("Invalid union index " + idx + " for schema " + schema);
+          }
+          return decoders[idx].decode(decoder);
+        };
+      default:
+        throw new IllegalArgumentException("Unsupported schema: " + schema);
+    }
+  }
+
+  /**
+   * Encoder for {@link StructuredRecord} of a given record schema.
+   */
+  static final class RecordEncoder implements ValueEncoder {
+
+    private final Schema schema;
+    private final Schema.Field[] fields;
+    private final ValueEncoder[] fieldEncoders;
+
+    private RecordEncoder(Schema schema) {
+      this.schema = schema;
+      this.fields = schema.getFields().toArray(new Schema.Field[0]);
+      this.fieldEncoders = new ValueEncoder[fields.length];
+    }
+
+    @Override
+    public void encode(Encoder encoder, @Nullable Object value) throws IOException {
+      if (!(value instanceof StructuredRecord)) {
+        throw new IOException("Expected StructuredRecord type. Got: " + value.getClass());
+      }
+
+      StructuredRecord record = (StructuredRecord) value;
+      // Fields can be accessed by position if the record has the same schema
+      Schema recordSchema = record.getSchema();
+      boolean sameSchema = recordSchema == schema || recordSchema.equals(schema);
+
+      for (int i = 0; i < fields.length; i++) {
+        Object fieldValue = sameSchema ? record.get(i) : record.get(fields[i].getName());
+        try {
+          fieldEncoders[i].encode(encoder, fieldValue);
+        } catch (ClassCastException e) {
+          // happens if the record is constructed incorrectly.
+          throw new IllegalArgumentException(
+              String.format(
+                  "A value for field '%s' is of type '%s', which does not match schema '%s'. ",
+                  fields[i].getName(), fieldValue.getClass().getName(), fields[i].getSchema()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Decoder for {@link StructuredRecord} of a given record schema.
+   */
+  static final class RecordDecoder implements ValueDecoder {
+
+    private final Schema schema;
+    private final ValueDecoder[] fieldDecoders;
+
+    private RecordDecoder(Schema schema) {
+      this.schema = schema;
+      this.fieldDecoders = new ValueDecoder[schema.getFields().size()];
+    }
+
+    @Override
+    public StructuredRecord decode(Decoder decoder) throws IOException {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (int i = 0; i < fieldDecoders.length; i++) {
+        builder.set(i, fieldDecoders[i].decode(decoder));
+      }
+      return builder.build();
+    }
+  }
+
+  /**
+   * Encoder for array values, which can either be a {@link Collection} or a Java array.
+   */
+  private static final class ArrayEncoder implements ValueEncoder {
+
+    private final ValueEncoder elementEncoder;
+
+    private ArrayEncoder(ValueEncoder elementEncoder) {
+      this.elementEncoder = elementEncoder;
+    }
+
+    @Override
+    public void encode(Encoder encoder, @Nullable Object array) throws IOException {
+      if (array instanceof Collection) {
+        Collection<?> collection = (Collection<?>) array;
+        encoder.writeInt(collection.size());
+        for (Object element : collection) {
+          elementEncoder.encode(encoder, element);
+        }
+      } else if (array.getClass().isArray()) {
+        int size = Array.getLength(array);
+        encoder.writeInt(size);
+        for (int i = 0; i < size; i++) {
+          elementEncoder.encode(encoder, Array.get(array, i));
+        }
+      } else {
+        throw new IOException("Expects either Collection or array. Got: " + array.getClass());
+      }
+      encoder.writeInt(0);
+    }
+  }
+
+  /**
+   * Encoder for {@link Map} values.
+   */
+  private static final class MapEncoder implements ValueEncoder {
+
+    private final ValueEncoder keyEncoder;
+    private final ValueEncoder valueEncoder;
+
+    private MapEncoder(ValueEncoder keyEncoder, ValueEncoder valueEncoder) {
+      this.keyEncoder = keyEncoder;
+      this.valueEncoder = valueEncoder;
+    }
+
+    @Override
+    public void encode(Encoder encoder, @Nullable Object map) throws IOException {
+      if (!(map instanceof Map)) {
+        throw new IOException("Expects Map type. Got: " + map.getClass());
+      }
+      encoder.writeInt(((Map<?, ?>) map).size());
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) map).entrySet()) {
+        keyEncoder.encode(encoder, entry.getKey());
+        valueEncoder.encode(encoder, entry.getValue());
+      }
+      encoder.writeInt(0);
+    }
+  }
+
+  /**
+   * Encoder for union values. The union branch is picked by the runtime type of the value, which is
+   * resolved to the first branch with a matching {@link Schema.Type}.
+   */
+  private static final class UnionEncoder implements ValueEncoder {
+
+    private final Schema schema;
+    private final ValueEncoder[] encoders;
+    // Union branch index for each Schema.Type, indexed by the type ordinal
+    private final int[] typeIndexes;
+
+    private UnionEncoder(Schema schema, ValueEncoder[] encoders) {
+      this.schema = schema;
+      this.encoders = encoders;
+      this.typeIndexes = new int[Schema.Type.values().length];
+      Arrays.fill(typeIndexes, -1);
+
+      List<Schema> unionSchemas = schema.getUnionSchemas();
+      for (int i = unionSchemas.size() - 1; i >= 0; i--) {
+        typeIndexes[unionSchemas.get(i).getType().ordinal()] = i;
+      }
+    }
+
+    @Override
+    public void encode(Encoder encoder, @Nullable Object value) throws IOException {
+      Schema.Type type = StructuredRecordDatumWriter.getSchemaType(value);
+      int idx = typeIndexes[type.ordinal()];
+      if (idx < 0) {
+        throw new IOException("Value type " + type + " not valid in union: " + schema);
+      }
+      encoder.writeInt(idx);
+      encoders[idx].encode(encoder, value);
+    }
+  }
+
+  /**
+   * Decoder for array values, which are decoded into a {@link List}.
+   */
+  private static final class ArrayDecoder implements ValueDecoder {
+
+    private final ValueDecoder elementDecoder;
+
+    private ArrayDecoder(ValueDecoder elementDecoder) {
+      this.elementDecoder = elementDecoder;
+    }
+
+    @Override
+    public Collection<?> decode(Decoder decoder) throws IOException {
+      int size = decoder.readInt();
+      List<Object> array = new ArrayList<>(size);
+
+      while (size != 0) {
+        for (int i = 0; i < size; i++) {
+          array.add(elementDecoder.decode(decoder));
+        }
+        size = decoder.readInt();
+      }
+      return array;
+    }
+  }
+
+  /**
+   * Decoder for {@link Map} values.
+   */
+  private static final class MapDecoder implements ValueDecoder {
+
+    private final ValueDecoder keyDecoder;
+    private final ValueDecoder valueDecoder;
+
+    private MapDecoder(ValueDecoder keyDecoder, ValueDecoder valueDecoder) {
+      this.keyDecoder = keyDecoder;
+      this.valueDecoder = valueDecoder;
+    }
+
+    @Override
+    public Map<?, ?> decode(Decoder decoder) throws IOException {
+      int size = decoder.readInt();
+      Map<Object, Object> map = new LinkedHashMap<>(size);
+
+      while (size != 0) {
+        for (int i = 0; i < size; i++) {
+          map.put(keyDecoder.decode(decoder), valueDecoder.decode(decoder));
+        }
+        size = decoder.readInt();
+      }
+      return map;
+    }
+  }
+}
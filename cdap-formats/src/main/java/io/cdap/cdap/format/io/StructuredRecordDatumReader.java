@@ -29,15 +29,32 @@ import java.util.Map;
 
 /**
  * A {@link DatumReader} for reading {@link StructuredRecord}.
+ *
+ * <p>Unless this class is extended, records are decoded with decoders compiled once per record
+ * schema, instead of interpreting the schema for every record.</p>
  */
 public class StructuredRecordDatumReader implements DatumReader<StructuredRecord> {
 
+  // Sub-classes can override any of the decode methods, hence they can't use compiled decoders
+  private final boolean useCompiledDecoder = getClass() == StructuredRecordDatumReader.class;
+  // The compiled decoder of the schema last seen, which is usually the same for all records
+  private volatile CompiledDecoder lastDecoder;
+
   @Override
   public StructuredRecord read(Decoder decoder, Schema sourceSchema) throws IOException {
     if (sourceSchema.getType() != Schema.Type.RECORD) {
       throw new IOException("Expected schema of type RECORD. Got: " + sourceSchema.getType());
     }
-    return decodeRecord(decoder, sourceSchema);
+    if (!useCompiledDecoder) {
+      return decodeRecord(decoder, sourceSchema);
+    }
+    CompiledDecoder compiled = lastDecoder;
+    if (compiled == null || compiled.schema != sourceSchema) {
+      compiled = new CompiledDecoder(sourceSchema,
+          StructuredRecordCodecs.getDecoder(sourceSchema));
+      lastDecoder = compiled;
+    }
+    return compiled.decoder.decode(decoder);
   }
 
   /**
@@ -158,8 +175,9 @@ public class StructuredRecordDatumReader implements DatumReader<StructuredRecord
    */
   protected StructuredRecord decodeRecord(Decoder decoder, Schema schema) throws IOException {
     StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    for (Schema.Field field : schema.getFields()) {
-      builder.set(field.getName(), decode(decoder, field.getSchema()));
+    List<Schema.Field> fields = schema.getFields();
+    for (int i = 0; i < fields.size(); i++) {
+      builder.set(i, decode(decoder, fields.get(i).getSchema()));
     }
     return builder.build();
   }
@@ -176,4 +194,18 @@ public class StructuredRecordDatumReader implements DatumReader<StructuredRecord
   protected Object decodeUnion(Decoder decoder, Schema schema) throws IOException {
     return decode(decoder, schema.getUnionSchema(decoder.readInt()));
   }
+
+  /**
+   * A record schema together with its compiled decoder.
+   */
+  private static final class CompiledDecoder {
+
+    private final Schema schema;
+    private final StructuredRecordCodecs.RecordDecoder decoder;
+
+    private CompiledDecoder(Schema schema, StructuredRecordCodecs.RecordDecoder decoder) {
+      this.schema = schema;
+      this.decoder = decoder;
+    }
+  }
 }
@@ -27,11 +27,15 @@ import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
  * A {@link DatumWriter} for writing out {@link StructuredRecord} to {@link Encoder}.
+ *
+ * <p>Unless this class is extended, records are encoded with encoders compiled once per record
+ * schema, instead of interpreting the schema for every record.</p>
  */
 public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord> {
 
@@ -52,9 +56,24 @@ public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord
           .build()
   );
 
+  // Sub-classes can override any of the encode methods, hence they can't use compiled encoders
+  private final boolean useCompiledEncoder = getClass() == StructuredRecordDatumWriter.class;
+  // The compiled encoder of the schema last seen, which is usually the same for all records
+  private volatile CompiledEncoder lastEncoder;
+
   @Override
   public void encode(StructuredRecord data, Encoder encoder) throws IOException {
-    encode(encoder, data.getSchema(), data);
+    if (!useCompiledEncoder) {
+      encode(encoder, data.getSchema(), data);
+      return;
+    }
+    Schema schema = data.getSchema();
+    CompiledEncoder compiled = lastEncoder;
+    if (compiled == null || compiled.schema != schema) {
+      compiled = new CompiledEncoder(schema, StructuredRecordCodecs.getEncoder(schema));
+      lastEncoder = compiled;
+    }
+    compiled.encoder.encode(encoder, data);
   }
 
   /**
@@ -329,9 +348,16 @@ public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord
       throw new IOException("Expected StructuredRecord type. Got: " + record.getClass());
     }
 
+    StructuredRecord structuredRecord = (StructuredRecord) record;
+    // Fields can be accessed by position if the record has the same schema instance
+    boolean sameSchema = structuredRecord.getSchema() == recordSchema;
+    List<Schema.Field> fields = recordSchema.getFields();
+
     encodeRecordBegin(encoder, recordSchema);
-    for (Schema.Field field : recordSchema.getFields()) {
-      encodeRecordField(encoder, field, ((StructuredRecord) record).get(field.getName()));
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      encodeRecordField(encoder, field,
+          sameSchema ? structuredRecord.get(i) : structuredRecord.get(field.getName()));
     }
     encodeRecordEnd(encoder, recordSchema);
   }
@@ -350,7 +376,7 @@ public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord
     throw new IOException("Value type " + type + " not valid in union: " + unionSchema);
   }
 
-  private void encodeBytes(Encoder encoder, Object value) throws IOException {
+  static void encodeBytes(Encoder encoder, Object value) throws IOException {
     if (value instanceof ByteBuffer) {
       encodeBytes(encoder, (ByteBuffer) value);
     } else if (value.getClass().isArray() && value.getClass().getComponentType()
@@ -362,7 +388,7 @@ public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord
     }
   }
 
-  private void encodeBytes(Encoder encoder, ByteBuffer buffer) throws IOException {
+  private static void encodeBytes(Encoder encoder, ByteBuffer buffer) throws IOException {
     if (buffer.hasArray()) {
       encoder.writeBytes(buffer.array(), buffer.arrayOffset() + buffer.position(),
           buffer.remaining());
@@ -375,7 +401,7 @@ public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord
     }
   }
 
-  private Schema.Type getSchemaType(@Nullable Object value) throws IOException {
+  static Schema.Type getSchemaType(@Nullable Object value) throws IOException {
     if (value == null) {
       return Schema.Type.NULL;
     }
@@ -401,4 +427,18 @@ public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord
 
     throw new IOException("Unsupported type found in StructuredRecord: " + cls);
   }
+
+  /**
+   * A record schema together with its compiled encoder.
+   */
+  private static final class CompiledEncoder {
+
+    private final Schema schema;
+    private final StructuredRecordCodecs.RecordEncoder encoder;
+
+    private CompiledEncoder(Schema schema, StructuredRecordCodecs.RecordEncoder encoder) {
+      this.schema = schema;
+      this.encoder = encoder;
+    }
+  }
 }
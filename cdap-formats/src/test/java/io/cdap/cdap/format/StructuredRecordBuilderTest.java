@@ -249,6 +249,43 @@ public class StructuredRecordBuilderTest {
     StructuredRecord.builder(schema).setDate("y", date).build();
   }
 
+  @Test
+  public void testIndexAccess() {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("z", Schema.of(Schema.Type.LONG)));
+    Assert.assertEquals(0, schema.getFieldIndex("x"));
+    Assert.assertEquals(2, schema.getFieldIndex("z"));
+    Assert.assertEquals(-1, schema.getFieldIndex("w"));
+
+    StructuredRecord byIndex = StructuredRecord.builder(schema).set(0, 1).set(2, 3L).build();
+    StructuredRecord byName = StructuredRecord.builder(schema).set("z", 3L).set("x", 1).build();
+    Assert.assertEquals(byName, byIndex);
+    Assert.assertEquals(byName.hashCode(), byIndex.hashCode());
+    Assert.assertEquals(1, (int) byIndex.get("x"));
+    Assert.assertNull(byIndex.get(1));
+    Assert.assertEquals(3L, (long) byName.get(2));
+    Assert.assertNull(byName.get("w"));
+  }
+
+  @Test
+  public void testSetIndexNonNullable() {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    thrown.expect(UnexpectedFormatException.class);
+    StructuredRecord.builder(schema).set(0, null);
+  }
+
+  @Test
+  public void testMissingNonNullableField() {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("y", Schema.of(Schema.Type.INT)));
+    thrown.expect(UnexpectedFormatException.class);
+    thrown.expectMessage("Field y must contain a value.");
+    StructuredRecord.builder(schema).set(0, 1).build();
+  }
+
   @Test
   public void testInvalidNestedUnionSchemaType() {
     Schema schema = Schema.recordOf("x", Schema.Field.of("x", Schema.unionOf(
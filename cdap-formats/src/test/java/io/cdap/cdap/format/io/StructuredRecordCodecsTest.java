@@ -0,0 +1,416 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.format.io;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.common.io.Encoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StructuredRecordCodecs}, which are used by {@link StructuredRecordDatumWriter}
+ * and {@link StructuredRecordDatumReader}. The compiled codecs are checked against the
+ * interpreting ones, which are used by sub-classes of the writer and the reader.
+ */
+public class StructuredRecordCodecsTest {
+
+  private static final Schema NESTED_SCHEMA = Schema.recordOf(
+      "nested",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+  private static final Schema SCHEMA = Schema.recordOf(
+      "record",
+      Schema.Field.of("boolean", Schema.of(Schema.Type.BOOLEAN)),
+      Schema.Field.of("int", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("long", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("float", Schema.of(Schema.Type.FLOAT)),
+      Schema.Field.of("double", Schema.of(Schema.Type.DOUBLE)),
+      Schema.Field.of("string", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("bytes", Schema.of(Schema.Type.BYTES)),
+      Schema.Field.of("buffer", Schema.of(Schema.Type.BYTES)),
+      Schema.Field.of("enum", Schema.enumWith("A", "B", "C")),
+      Schema.Field.of("strings", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("ints", Schema.arrayOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("map", Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                          Schema.nullableOf(Schema.of(Schema.Type.LONG)))),
+      Schema.Field.of("nullable", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("null", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("nested", NESTED_SCHEMA),
+      Schema.Field.of("nestedArray", Schema.arrayOf(NESTED_SCHEMA)),
+      Schema.Field.of("date", Schema.of(Schema.LogicalType.DATE)),
+      Schema.Field.of("time", Schema.of(Schema.LogicalType.TIME_MICROS)),
+      Schema.Field.of("timestamp", Schema.of(Schema.LogicalType.TIMESTAMP_MILLIS)),
+      Schema.Field.of("decimal", Schema.decimalOf(10, 2)),
+      Schema.Field.of("datetime", Schema.nullableOf(Schema.of(Schema.LogicalType.DATETIME))));
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+        .set("boolean", true)
+        .set("int", Integer.MIN_VALUE)
+        .set("long", Long.MAX_VALUE)
+        .set("float", 1.5f)
+        .set("double", -2.25d)
+        .set("string", "string")
+        .set("bytes", Bytes.toBytes("bytes"))
+        .set("buffer", ByteBuffer.wrap(Bytes.toBytes("xbufferx"), 1, 6))
+        .set("enum", "B")
+        .set("strings", ImmutableList.of("a", "b"))
+        .set("ints", new int[] {1, 2, 3})
+        .set("map", ImmutableMap.of("k1", 1L, "k2", 2L))
+        .set("nullable", "value")
+        .set("null", null)
+        .set("nested", StructuredRecord.builder(NESTED_SCHEMA).set("id", 1).build())
+        .set("nestedArray", ImmutableList.of(
+            StructuredRecord.builder(NESTED_SCHEMA).set("id", 2).set("name", "two").build(),
+            StructuredRecord.builder(NESTED_SCHEMA).set("id", 3).build()))
+        .setDate("date", LocalDate.of(2024, 2, 29))
+        .setTime("time", LocalTime.of(12, 34, 56, 789000))
+        .setTimestamp("timestamp", ZonedDateTime.of(2024, 1, 2, 3, 4, 5, 6000000, ZoneOffset.UTC))
+        .setDecimal("decimal", new BigDecimal("12345678.90"))
+        .setDateTime("datetime", LocalDateTime.of(2024, 1, 2, 3, 4, 5))
+        .build();
+
+    StructuredRecord decoded = verifyRoundTrip(record);
+
+    Assert.assertTrue(decoded.get("boolean"));
+    Assert.assertEquals(Integer.MIN_VALUE, (int) decoded.get("int"));
+    Assert.assertEquals(Long.MAX_VALUE, (long) decoded.get("long"));
+    Assert.assertEquals(1.5f, decoded.<Float>get("float"), 0f);
+    Assert.assertEquals(-2.25d, decoded.<Double>get("double"), 0d);
+    Assert.assertEquals("string", decoded.get("string"));
+    Assert.assertEquals(ByteBuffer.wrap(Bytes.toBytes("bytes")), decoded.get("bytes"));
+    Assert.assertEquals(ByteBuffer.wrap(Bytes.toBytes("buffer")), decoded.get("buffer"));
+    Assert.assertEquals("B", decoded.get("enum"));
+    Assert.assertEquals(ImmutableList.of("a", "b"), decoded.get("strings"));
+    Assert.assertEquals(ImmutableList.of(1, 2, 3), decoded.get("ints"));
+    Assert.assertEquals(ImmutableMap.of("k1", 1L, "k2", 2L), decoded.get("map"));
+    Assert.assertEquals("value", decoded.get("nullable"));
+    Assert.assertNull(decoded.get("null"));
+    Assert.assertEquals(record.get("nested"), decoded.get("nested"));
+    Assert.assertEquals(record.get("nestedArray"), decoded.get("nestedArray"));
+    Assert.assertEquals(record.getDate("date"), decoded.getDate("date"));
+    Assert.assertEquals(record.getTime("time"), decoded.getTime("time"));
+    Assert.assertEquals(record.getTimestamp("timestamp"), decoded.getTimestamp("timestamp"));
+    Assert.assertEquals(record.getDecimal("decimal"), decoded.getDecimal("decimal"));
+    Assert.assertEquals(record.getDateTime("datetime"), decoded.getDateTime("datetime"));
+  }
+
+  @Test
+  public void testMultiBranchUnion() throws IOException {
+    Schema schema = Schema.recordOf(
+        "union",
+        Schema.Field.of("union", Schema.unionOf(
+            Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING), NESTED_SCHEMA,
+            Schema.arrayOf(Schema.of(Schema.Type.LONG)), Schema.of(Schema.Type.BYTES),
+            Schema.of(Schema.Type.NULL))));
+
+    List<Object> values = Arrays.asList(
+        1, "string", StructuredRecord.builder(NESTED_SCHEMA).set("id", 1).set("name", "one").build(),
+        ImmutableList.of(1L, 2L), ByteBuffer.wrap(Bytes.toBytes("bytes")), null);
+    for (Object value : values) {
+      StructuredRecord decoded = verifyRoundTrip(StructuredRecord.builder(schema).set("union", value).build());
+      Assert.assertEquals(value, decoded.get("union"));
+    }
+
+    // values of a type that is not in the union are rejected by both codecs
+    StructuredRecord record = StructuredRecord.builder(schema).set("union", 1.5d).build();
+    for (StructuredRecordDatumWriter writer : getWriters()) {
+      try {
+        writer.encode(record, new TestEncoder(new ByteArrayOutputStream()));
+        Assert.fail("Expected IOException");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testRecursiveRecord() throws IOException {
+    Schema schema = Schema.recordOf(
+        "node",
+        Schema.Field.of("value", Schema.of(Schema.Type.INT)),
+        Schema.Field.of("children", Schema.arrayOf(Schema.recordOf("node"))),
+        Schema.Field.of("next", Schema.nullableOf(Schema.recordOf("node"))));
+
+    StructuredRecord leaf = StructuredRecord.builder(schema)
+        .set("value", 3)
+        .set("children", ImmutableList.of())
+        .build();
+    StructuredRecord next = StructuredRecord.builder(schema)
+        .set("value", 2)
+        .set("children", ImmutableList.of(leaf, leaf))
+        .set("next", leaf)
+        .build();
+    StructuredRecord head = StructuredRecord.builder(schema)
+        .set("value", 1)
+        .set("children", ImmutableList.of())
+        .set("next", next)
+        .build();
+
+    StructuredRecord decoded = verifyRoundTrip(head);
+    Assert.assertEquals(head, decoded);
+    StructuredRecord decodedNext = decoded.get("next");
+    Assert.assertEquals(2, (int) decodedNext.get("value"));
+    Assert.assertEquals(ImmutableList.of(leaf, leaf), decodedNext.get("children"));
+    Assert.assertNull(decodedNext.<StructuredRecord>get("next").get("next"));
+  }
+
+  @Test
+  public void testNestedRecordWithDifferentSchema() throws IOException {
+    // the nested record has a different schema than the field, hence its fields are encoded by name
+    Schema nestedSchema = Schema.recordOf(
+        "nested",
+        Schema.Field.of("extra", Schema.of(Schema.Type.LONG)),
+        Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+        Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+    Schema schema = Schema.recordOf("record", Schema.Field.of("nested", NESTED_SCHEMA));
+    StructuredRecord record = StructuredRecord.builder(schema)
+        .set("nested", StructuredRecord.builder(nestedSchema)
+            .set("extra", 1L).set("name", "name").set("id", 2).build())
+        .build();
+
+    StructuredRecord decoded = verifyRoundTrip(record);
+    Assert.assertEquals(StructuredRecord.builder(NESTED_SCHEMA).set("id", 2).set("name", "name").build(),
+                        decoded.get("nested"));
+  }
+
+  @Test
+  public void testCodecsCached() {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+    Schema sameSchema = Schema.recordOf("record", Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+
+    Assert.assertSame(StructuredRecordCodecs.getEncoder(schema), StructuredRecordCodecs.getEncoder(sameSchema));
+    Assert.assertSame(StructuredRecordCodecs.getDecoder(schema), StructuredRecordCodecs.getDecoder(sameSchema));
+  }
+
+  /**
+   * Encodes the given record with the compiled and the interpreting writers, which must produce the same bytes,
+   * and decodes it with the compiled and the interpreting readers, which must produce the same record.
+   *
+   * @return the decoded record
+   */
+  private StructuredRecord verifyRoundTrip(StructuredRecord record) throws IOException {
+    byte[] encoded = null;
+    for (StructuredRecordDatumWriter writer : getWriters()) {
+      // records are encoded twice, to make sure that cached codecs are reused correctly
+      for (int i = 0; i < 2; i++) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writer.encode(record, new TestEncoder(os));
+        if (encoded == null) {
+          encoded = os.toByteArray();
+        } else {
+          Assert.assertArrayEquals(encoded, os.toByteArray());
+        }
+      }
+    }
+
+    StructuredRecord decoded = null;
+    for (StructuredRecordDatumReader reader : getReaders()) {
+      for (int i = 0; i < 2; i++) {
+        TestDecoder decoder = new TestDecoder(new ByteArrayInputStream(encoded));
+        StructuredRecord result = reader.read(decoder, record.getSchema());
+        Assert.assertEquals(0, decoder.available());
+        if (decoded == null) {
+          decoded = result;
+        } else {
+          Assert.assertEquals(decoded, result);
+        }
+      }
+    }
+    return decoded;
+  }
+
+  private List<StructuredRecordDatumWriter> getWriters() {
+    // sub-classes use the interpreting writer
+    return Arrays.asList(new StructuredRecordDatumWriter(), new StructuredRecordDatumWriter() { });
+  }
+
+  private List<StructuredRecordDatumReader> getReaders() {
+    // sub-classes use the interpreting reader
+    return Arrays.asList(new StructuredRecordDatumReader(), new StructuredRecordDatumReader() { });
+  }
+
+  /**
+   * A simple binary {@link Encoder} for the tests.
+   */
+  private static final class TestEncoder implements Encoder {
+
+    private final DataOutputStream output;
+
+    TestEncoder(ByteArrayOutputStream os) {
+      this.output = new DataOutputStream(os);
+    }
+
+    @Override
+    public Encoder writeNull() {
+      return this;
+    }
+
+    @Override
+    public Encoder writeBool(boolean b) throws IOException {
+      output.writeBoolean(b);
+      return this;
+    }
+
+    @Override
+    public Encoder writeInt(int i) throws IOException {
+      output.writeInt(i);
+      return this;
+    }
+
+    @Override
+    public Encoder writeLong(long l) throws IOException {
+      output.writeLong(l);
+      return this;
+    }
+
+    @Override
+    public Encoder writeFloat(float f) throws IOException {
+      output.writeFloat(f);
+      return this;
+    }
+
+    @Override
+    public Encoder writeDouble(double d) throws IOException {
+      output.writeDouble(d);
+      return this;
+    }
+
+    @Override
+    public Encoder writeString(String s) throws IOException {
+      output.writeUTF(s);
+      return this;
+    }
+
+    @Override
+    public Encoder writeBytes(byte[] bytes) throws IOException {
+      return writeBytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public Encoder writeBytes(byte[] bytes, int off, int len) throws IOException {
+      output.writeInt(len);
+      output.write(bytes, off, len);
+      return this;
+    }
+
+    @Override
+    public Encoder writeBytes(ByteBuffer bytes) throws IOException {
+      return writeBytes(Bytes.toBytes(bytes));
+    }
+  }
+
+  /**
+   * A {@link Decoder} for the bytes written by {@link TestEncoder}.
+   */
+  private static final class TestDecoder implements Decoder {
+
+    private final DataInputStream input;
+
+    TestDecoder(ByteArrayInputStream is) {
+      this.input = new DataInputStream(is);
+    }
+
+    int available() throws IOException {
+      return input.available();
+    }
+
+    @Override
+    public Object readNull() {
+      return null;
+    }
+
+    @Override
+    public boolean readBool() throws IOException {
+      return input.readBoolean();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+      return input.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+      return input.readLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+      return input.readFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+      return input.readDouble();
+    }
+
+    @Override
+    public String readString() throws IOException {
+      return input.readUTF();
+    }
+
+    @Override
+    public ByteBuffer readBytes() throws IOException {
+      byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      return ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public void skipFloat() throws IOException {
+      readFloat();
+    }
+
+    @Override
+    public void skipDouble() throws IOException {
+      readDouble();
+    }
+
+    @Override
+    public void skipString() throws IOException {
+      readString();
+    }
+
+    @Override
+    public void skipBytes() throws IOException {
+      readBytes();
+    }
+  }
+}
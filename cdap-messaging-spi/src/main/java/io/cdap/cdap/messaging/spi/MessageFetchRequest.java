@@ -40,4 +40,12 @@ public interface MessageFetchRequest {
 
   int getLimit();
 
+  /**
+   * Returns the maximum number of milliseconds to wait for new messages if there is no message
+   * available when the request is served. A non-positive value means no waiting.
+   */
+  default long getWaitMillis() {
+    return 0L;
+  }
+
 }
@@ -29,10 +29,15 @@ import org.junit.Assert;
 import org.junit.Test;
 import scala.collection.JavaConversions;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Unit test for {@link DataFrames} class.
@@ -246,4 +251,76 @@ public class DataFramesTest {
     Assert.assertEquals(Arrays.asList("a", "b", "c", null),
                         record.<StructuredRecord>get("recordField").<Collection<String>>get("array"));
   }
+
+  @Test
+  public void testRecordSchemaChanges() {
+    Schema schema = Schema.recordOf("x",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    // same fields in a different order
+    Schema reordered = Schema.recordOf("x",
+                                       Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                       Schema.Field.of("a", Schema.of(Schema.Type.INT)));
+    StructType dataType = DataFrames.toDataType(schema);
+
+    // records with different schemas are converted with the same cached converter
+    Row row1 = DataFrames.toRow(StructuredRecord.builder(schema).set("a", 1).set("b", "one").build(), dataType);
+    Row row2 = DataFrames.toRow(StructuredRecord.builder(reordered).set("a", 2).set("b", "two").build(), dataType);
+    Row row3 = DataFrames.toRow(StructuredRecord.builder(schema).set("a", 3).build(), dataType);
+    Assert.assertEquals(RowFactory.create(1, "one"), row1);
+    Assert.assertEquals(RowFactory.create(2, "two"), row2);
+    Assert.assertEquals(RowFactory.create(3, null), row3);
+
+    StructuredRecord record = DataFrames.fromRow(row2, reordered);
+    Assert.assertEquals(2, record.<Integer>get("a").intValue());
+    Assert.assertEquals("two", record.<String>get("b"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingNonNullableField() {
+    Schema schema = Schema.recordOf("x", Schema.Field.of("a", Schema.of(Schema.Type.INT)));
+    Schema other = Schema.recordOf("x", Schema.Field.of("b", Schema.of(Schema.Type.INT)));
+    DataFrames.toRow(StructuredRecord.builder(other).set("b", 1).build(), DataFrames.toDataType(schema));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullNonNullableField() {
+    Schema schema = Schema.recordOf("x", Schema.Field.of("a", Schema.of(Schema.Type.INT)));
+    DataFrames.fromRow(RowFactory.create((Object) null), schema);
+  }
+
+  @Test
+  public void testConcurrentConversion() throws Exception {
+    Schema schema = Schema.recordOf("x",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema reordered = Schema.recordOf("x",
+                                       Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                       Schema.Field.of("a", Schema.of(Schema.Type.INT)));
+    StructType dataType = DataFrames.toDataType(schema);
+
+    // converters are shared between threads, which convert records with different schemas
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        Schema recordSchema = i % 2 == 0 ? schema : reordered;
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 10000; j++) {
+            StructuredRecord record = StructuredRecord.builder(recordSchema).set("a", j).set("b", "v" + j).build();
+            Row row = DataFrames.toRow(record, dataType);
+            Assert.assertEquals(RowFactory.create(j, "v" + j), row);
+            StructuredRecord converted = DataFrames.fromRow(row, schema);
+            Assert.assertEquals(j, converted.<Integer>get("a").intValue());
+            Assert.assertEquals("v" + j, converted.<String>get("b"));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
@@ -73,18 +73,7 @@ public class SpannerStructuredTable implements StructuredTable {
 
   @Override
   public void upsert(Collection<Field<?>> fields) throws InvalidFieldException {
-    Map<String, Field<?>> fieldMap = fields.stream()
-        .collect(Collectors.toMap(Field::getName, Function.identity()));
-    List<Field<?>> primaryKeyFields = new ArrayList<>();
-
-    for (String key : schema.getPrimaryKeys()) {
-      Field<?> field = fieldMap.get(key);
-      if (field == null) {
-        throw new InvalidFieldException(schema.getTableId(), key,
-            "Missing primary key field " + key);
-      }
-      primaryKeyFields.add(field);
-    }
+    List<Field<?>> primaryKeyFields = getPrimaryKeyFields(fields);
 
     // Cloud Spanner doesn't support upsert. The best we can do is to read the existing row and update it if it exists
     // in the same transaction.
@@ -97,8 +86,53 @@ public class SpannerStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+      throws InvalidFieldException {
+    if (multiFields.isEmpty()) {
+      return;
+    }
+
+    List<Key> rowKeys = new ArrayList<>(multiFields.size());
+    KeySet.Builder keySetBuilder = KeySet.newBuilder();
+    for (Collection<Field<?>> fields : multiFields) {
+      Key key = getKey(getPrimaryKeyFields(fields));
+      rowKeys.add(key);
+      keySetBuilder.addKey(key);
+    }
+
+    // Cloud Spanner doesn't support upsert. Find all the existing rows with a single read,
+    // then insert or update each row with a single batch DML call in the same transaction.
+    Set<Key> existingKeys = new HashSet<>();
+    List<String> keyColumns = schema.getPrimaryKeys();
+    try (ResultSet resultSet = transactionContext.read(schema.getTableId().getName(),
+        keySetBuilder.build(), keyColumns)) {
+      while (resultSet.next()) {
+        existingKeys.add(
+            getKey(new SpannerStructuredRow(schema, resultSet.getCurrentRowAsStruct())
+                .getPrimaryKeys()));
+      }
+    }
+
+    List<Statement> statements = new ArrayList<>(multiFields.size());
+    int idx = 0;
+    for (Collection<Field<?>> fields : multiFields) {
+      // A row inserted earlier in the batch exists for the subsequent statements
+      if (existingKeys.add(rowKeys.get(idx++))) {
+        statements.add(getInsertStatement(fields));
+      } else {
+        statements.add(getUpdateStatement(fields));
+      }
+    }
+    transactionContext.batchUpdate(statements);
+  }
+
   @Override
   public void update(Collection<Field<?>> fields) throws InvalidFieldException {
+    transactionContext.executeUpdate(getUpdateStatement(fields));
+  }
+
+  private Statement getUpdateStatement(Collection<Field<?>> fields) throws InvalidFieldException {
     List<Field<?>> primaryKeyFields = new ArrayList<>();
     List<Field<?>> updateFields = new ArrayList<>();
     Set<String> fieldNames = new HashSet<>();
@@ -126,13 +160,11 @@ public class SpannerStructuredTable implements StructuredTable {
 
     LOG.trace("Updating row: {}", sql);
 
-    Statement statement = fields.stream()
+    return fields.stream()
         .reduce(Statement.newBuilder(sql),
             (builder, field) -> builder.bind(field.getName()).to(getValue(field)),
             (builder1, builder2) -> builder1)
         .build();
-
-    transactionContext.executeUpdate(statement);
   }
 
   @Override
@@ -360,18 +392,33 @@ public class SpannerStructuredTable implements StructuredTable {
 
   @Override
   public void delete(Collection<Field<?>> keys) throws InvalidFieldException {
+    transactionContext.executeUpdate(getDeleteStatement(keys));
+  }
+
+  private Statement getDeleteStatement(Collection<Field<?>> keys) throws InvalidFieldException {
     fieldValidator.validatePrimaryKeys(keys, false);
     String sql = "DELETE FROM " + escapeName(schema.getTableId().getName()) + " WHERE "
         + keys.stream().map(f -> escapeName(f.getName()) + " = @" + f.getName())
         .collect(Collectors.joining(" AND "));
 
-    Statement statement = keys.stream()
+    return keys.stream()
         .reduce(Statement.newBuilder(sql),
             (builder, field) -> builder.bind(field.getName()).to(getValue(field)),
             (builder1, builder2) -> builder1)
         .build();
+  }
 
-    transactionContext.executeUpdate(statement);
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+      throws InvalidFieldException {
+    if (multiKeys.isEmpty()) {
+      return;
+    }
+    List<Statement> statements = new ArrayList<>(multiKeys.size());
+    for (Collection<Field<?>> keys : multiKeys) {
+      statements.add(getDeleteStatement(keys));
+    }
+    transactionContext.batchUpdate(statements);
   }
 
   @Override
@@ -568,6 +615,10 @@ public class SpannerStructuredTable implements StructuredTable {
   }
 
   private void insert(Collection<Field<?>> fields) throws InvalidFieldException {
+    transactionContext.executeUpdate(getInsertStatement(fields));
+  }
+
+  private Statement getInsertStatement(Collection<Field<?>> fields) throws InvalidFieldException {
     List<Field<?>> insertFields = new ArrayList<>();
     for (Field<?> field : fields) {
       fieldValidator.validateField(field);
@@ -582,13 +633,33 @@ public class SpannerStructuredTable implements StructuredTable {
 
     LOG.trace("Inserting row: {}", sql);
 
-    Statement statement = fields.stream()
+    return fields.stream()
         .reduce(Statement.newBuilder(sql),
             (builder, field) -> builder.bind(field.getName()).to(getValue(field)),
             (builder1, builder2) -> builder1)
         .build();
+  }
 
-    transactionContext.executeUpdate(statement);
+  /**
+   * Returns the primary key fields, in the schema order, from the given collection of fields.
+   *
+   * @throws InvalidFieldException if any of the primary key is missing
+   */
+  private List<Field<?>> getPrimaryKeyFields(Collection<Field<?>> fields)
+      throws InvalidFieldException {
+    Map<String, Field<?>> fieldMap = fields.stream()
+        .collect(Collectors.toMap(Field::getName, Function.identity()));
+    List<Field<?>> primaryKeyFields = new ArrayList<>();
+
+    for (String key : schema.getPrimaryKeys()) {
+      Field<?> field = fieldMap.get(key);
+      if (field == null) {
+        throw new InvalidFieldException(schema.getTableId(), key,
+            "Missing primary key field " + key);
+      }
+      primaryKeyFields.add(field);
+    }
+    return primaryKeyFields;
   }
 
   private Key createKey(Collection<Field<?>> fields) {
@@ -47,6 +47,24 @@ public interface StructuredTable extends Closeable {
    */
   void upsert(Collection<Field<?>> fields) throws InvalidFieldException, IOException;
 
+  /**
+   * Insert or replace multiple rows in the table. Each element of the collection contains the
+   * fields of one row, as described in {@link #upsert(Collection)}. The default implementation is to
+   * call {@link #upsert(Collection)} one by one. Implementations of this interface can provide an
+   * optimized version that writes the rows in batches.
+   *
+   * @param multiFields a collection of rows to write
+   * @throws InvalidFieldException if any of the fields are not part of the table schema, or the
+   *     types of the value do not match
+   * @throws IOException if there is an error writing to the table
+   */
+  default void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+      throws InvalidFieldException, IOException {
+    for (Collection<Field<?>> fields : multiFields) {
+      upsert(fields);
+    }
+  }
+
   /**
    * Update the collection of fields to the table. The fields contain the primary key and other
    * columns to update.
@@ -269,6 +287,23 @@ public interface StructuredTable extends Closeable {
    */
   void delete(Collection<Field<?>> keys) throws InvalidFieldException, IOException;
 
+  /**
+   * Delete multiple rows from the table. The default implementation is to call
+   * {@link #delete(Collection)} one by one. Implementations of this interface can provide an
+   * optimized version that deletes the rows in batches.
+   *
+   * @param multiKeys a collection of primary keys of the rows to delete
+   * @throws InvalidFieldException if any of the keys are not part of the table schema, or the
+   *     types of the value do not match
+   * @throws IOException if there is an error deleting from the table
+   */
+  default void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+      throws InvalidFieldException, IOException {
+    for (Collection<Field<?>> keys : multiKeys) {
+      delete(keys);
+    }
+  }
+
   /**
    * Delete a range of rows from the table.
    *
@@ -156,6 +156,57 @@ public abstract class StructuredTableTest {
     Assert.assertEquals(Collections.emptyList(), actual);
   }
 
+  @Test
+  public void testMultiUpsertDelete() throws Exception {
+    int max = 10;
+
+    // Write rows with a single multiUpsert, including a row that is written twice
+    List<Collection<Field<?>>> rows = new ArrayList<>();
+    for (int i = max - 1; i >= 0; i--) {
+      rows.add(Arrays.asList(Fields.intField(KEY, i),
+                             Fields.longField(KEY2, (long) i),
+                             Fields.stringField(KEY3, "key3"),
+                             Fields.stringField(STRING_COL, VAL + i),
+                             Fields.doubleField(DOUBLE_COL, (double) i),
+                             Fields.floatField(FLOAT_COL, (float) i),
+                             Fields.bytesField(BYTES_COL, Bytes.toBytes("bytes-" + i))));
+    }
+    List<Collection<Field<?>>> expected = new ArrayList<>(rows);
+    Collections.reverse(expected);
+    // The last write of the same key should win
+    rows.add(0, Arrays.asList(Fields.intField(KEY, 0),
+                              Fields.longField(KEY2, 0L),
+                              Fields.stringField(KEY3, "key3"),
+                              Fields.stringField(STRING_COL, "overwritten")));
+
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiUpsert(rows);
+    });
+    Assert.assertEquals(expected, readSimpleStructuredRows(max));
+
+    // Delete half of the rows with a single multiDelete
+    List<Collection<Field<?>>> keys = new ArrayList<>();
+    for (int i = 0; i < max; i += 2) {
+      keys.add(Arrays.asList(Fields.intField(KEY, i),
+                             Fields.longField(KEY2, (long) i),
+                             Fields.stringField(KEY3, "key3")));
+    }
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiDelete(keys);
+    });
+
+    List<Collection<Field<?>>> remaining = new ArrayList<>();
+    for (int i = 1; i < max; i += 2) {
+      remaining.add(expected.get(i));
+    }
+    Assert.assertEquals(remaining, readSimpleStructuredRows(max));
+
+    // Clean up the rest
+    deleteSimpleStructuredRows(max);
+  }
+
   @Test
   public void testMultiRead() throws Exception {
     int max = 100;
@@ -387,6 +438,35 @@ public abstract class StructuredTableTest {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testMultiScanCommonPrefix() throws Exception {
+    int max = 50;
+
+    // Rows have KEY = i / 10 and KEY2 = i, hence are sorted by i
+    List<Collection<Field<?>>> expectedAll = writeStructuredRowsWithDuplicatePrefix(max, "");
+    List<String> outputFields = Arrays.asList(KEY, KEY2, KEY3, STRING_COL, DOUBLE_COL, FLOAT_COL,
+                                              BYTES_COL);
+
+    // Ranges where the begin and the end share the same KEY
+    Collection<Range> ranges = Arrays.asList(
+      Range.create(Arrays.asList(Fields.intField(KEY, 1), Fields.longField(KEY2, 12L)), Range.Bound.INCLUSIVE,
+                   Arrays.asList(Fields.intField(KEY, 1), Fields.longField(KEY2, 15L)), Range.Bound.EXCLUSIVE),
+      Range.create(Collections.singletonList(Fields.intField(KEY, 3)), Range.Bound.INCLUSIVE,
+                   Arrays.asList(Fields.intField(KEY, 3), Fields.longField(KEY2, 31L)), Range.Bound.INCLUSIVE),
+      Range.create(Arrays.asList(Fields.intField(KEY, 4), Fields.longField(KEY2, 45L)), Range.Bound.EXCLUSIVE,
+                   Collections.singletonList(Fields.intField(KEY, 4)), Range.Bound.INCLUSIVE)
+    );
+
+    List<Collection<Field<?>>> expected = new ArrayList<>();
+    expected.addAll(expectedAll.subList(12, 15));
+    expected.addAll(expectedAll.subList(30, 32));
+    expected.addAll(expectedAll.subList(46, 50));
+    Assert.assertEquals(expected, runMultiScan(ranges, max, outputFields));
+
+    // Limit should apply to the combined result
+    Assert.assertEquals(expected.subList(0, 4), runMultiScan(ranges, 4, outputFields));
+  }
+
   @Test
   public void testPartialKeysRangeScan() throws Exception {
     int max = 100;
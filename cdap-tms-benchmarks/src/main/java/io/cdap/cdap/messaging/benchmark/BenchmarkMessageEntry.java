@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.benchmark;
+
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.proto.id.TopicId;
+import javax.annotation.Nullable;
+
+/**
+ * A non-transactional {@link MessageTable.Entry} with the payload stored inline.
+ */
+final class BenchmarkMessageEntry implements MessageTable.Entry {
+
+  private final TopicId topicId;
+  private final int generation;
+  private final long publishTimestamp;
+  private final short sequenceId;
+  private final byte[] payload;
+
+  BenchmarkMessageEntry(TopicId topicId, int generation, long publishTimestamp, short sequenceId,
+      byte[] payload) {
+    this.topicId = topicId;
+    this.generation = generation;
+    this.publishTimestamp = publishTimestamp;
+    this.sequenceId = sequenceId;
+    this.payload = payload;
+  }
+
+  @Override
+  public TopicId getTopicId() {
+    return topicId;
+  }
+
+  @Override
+  public int getGeneration() {
+    return generation;
+  }
+
+  @Override
+  public boolean isPayloadReference() {
+    return false;
+  }
+
+  @Override
+  public boolean isTransactional() {
+    return false;
+  }
+
+  @Override
+  public long getTransactionWritePointer() {
+    return -1L;
+  }
+
+  @Nullable
+  @Override
+  public byte[] getPayload() {
+    return payload;
+  }
+
+  @Override
+  public long getPublishTimestamp() {
+    return publishTimestamp;
+  }
+
+  @Override
+  public short getSequenceId() {
+    return sequenceId;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.benchmark;
+
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.messaging.DefaultTopicMetadata;
+import io.cdap.cdap.messaging.client.StoreRequestBuilder;
+import io.cdap.cdap.messaging.spi.MessagingService;
+import io.cdap.cdap.messaging.spi.RollbackDetail;
+import io.cdap.cdap.messaging.spi.StoreRequest;
+import io.cdap.cdap.proto.id.TopicId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.tephra.TxConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link MessagingService#publish(StoreRequest)} and
+ * {@link MessagingService#storePayload(StoreRequest)} of the core messaging service, which
+ * includes the concurrent writer batching in front of the LevelDB tables.
+ *
+ * <p>With the {@code sharedTopic} parameter set to {@code true}, all threads publish to the same
+ * topic, otherwise each thread publishes to its own topic.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class CoreMessagingServiceBenchmark {
+
+  /**
+   * The messaging service shared by all threads.
+   */
+  @State(Scope.Benchmark)
+  public static class ServiceState {
+
+    @Param({"none", "snappy"})
+    private String compression;
+
+    @Param({"false", "true"})
+    private boolean sharedTopic;
+
+    private final AtomicInteger topicCount = new AtomicInteger();
+    private MessagingEnvironment environment;
+    private TopicId sharedTopicId;
+
+    @Setup
+    public void setup() throws Exception {
+      CConfiguration cConf = CConfiguration.create();
+      environment = new MessagingEnvironment(cConf);
+      sharedTopicId = createTopic();
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+      environment.close();
+    }
+
+    TopicId createTopic() throws Exception {
+      TopicId topicId = new TopicId("default", "topic" + topicCount.getAndIncrement());
+      Map<String, String> properties = new HashMap<>();
+      if (!"none".equals(compression)) {
+        properties.put(DefaultTopicMetadata.COMPRESSION_KEY, compression);
+      }
+      environment.getMessagingService().createTopic(new DefaultTopicMetadata(topicId, properties));
+      return topicId;
+    }
+  }
+
+  /**
+   * Per thread state that holds the payloads to publish.
+   */
+  @State(Scope.Thread)
+  public static class PublisherState {
+
+    @Param({"1", "100"})
+    private int messagesPerRequest;
+
+    @Param({"1024"})
+    private int payloadSize;
+
+    private TopicId topicId;
+    private List<byte[]> payloads;
+    private long txWritePointer;
+
+    @Setup
+    public void setup(ServiceState serviceState) throws Exception {
+      topicId = serviceState.sharedTopic ? serviceState.sharedTopicId : serviceState.createTopic();
+
+      // Generate payloads that are partially compressible
+      payloads = new ArrayList<>(messagesPerRequest);
+      for (int i = 0; i < messagesPerRequest; i++) {
+        byte[] payload = new byte[payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        for (int j = 0; j < payloadSize / 2; j++) {
+          payload[j] = (byte) (j % 16);
+        }
+        payloads.add(payload);
+      }
+      // Write pointer in the same format as the ones generated by the transaction manager
+      txWritePointer = System.currentTimeMillis() * TxConstants.MAX_TX_PER_MS
+          + ThreadLocalRandom.current().nextLong(TxConstants.MAX_TX_PER_MS);
+    }
+  }
+
+  @Benchmark
+  public RollbackDetail publish(ServiceState serviceState, PublisherState state) throws Exception {
+    return serviceState.environment.getMessagingService().publish(
+        StoreRequestBuilder.of(state.topicId).addPayloads(state.payloads).build());
+  }
+
+  @Benchmark
+  public void storePayload(ServiceState serviceState, PublisherState state) throws Exception {
+    serviceState.environment.getMessagingService().storePayload(
+        StoreRequestBuilder.of(state.topicId)
+            .addPayloads(state.payloads)
+            .setTransaction(state.txWritePointer)
+            .build());
+  }
+}
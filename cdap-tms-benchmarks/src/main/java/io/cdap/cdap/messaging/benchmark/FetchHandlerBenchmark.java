@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.benchmark;
+
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.messaging.DefaultMessageFetchRequest;
+import io.cdap.cdap.messaging.DefaultTopicMetadata;
+import io.cdap.cdap.messaging.client.StoreRequestBuilder;
+import io.cdap.cdap.messaging.server.FetchHandler;
+import io.cdap.cdap.messaging.spi.MessageFetchRequest;
+import io.cdap.cdap.messaging.spi.MessagingService;
+import io.cdap.cdap.messaging.spi.RawMessage;
+import io.cdap.cdap.proto.id.TopicId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the fetch throughput of the {@link FetchHandler}, measured with the
+ * {@link MessagingService} client over HTTP.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class FetchHandlerBenchmark {
+
+  private static final TopicId TOPIC_ID = new TopicId("default", "fetch");
+
+  @Param({"false", "true"})
+  private boolean framedFetch;
+
+  @Param({"100", "1000"})
+  private int fetchLimit;
+
+  @Param({"1024"})
+  private int payloadSize;
+
+  @Param({"10000"})
+  private int topicMessages;
+
+  private MessagingEnvironment environment;
+  private MessagingService client;
+
+  @Setup
+  public void setup() throws Exception {
+    environment = new MessagingEnvironment(CConfiguration.create());
+    MessagingService messagingService = environment.getMessagingService();
+    messagingService.createTopic(new DefaultTopicMetadata(TOPIC_ID));
+
+    List<byte[]> payloads = new ArrayList<>();
+    for (int i = 0; i < topicMessages; i++) {
+      byte[] payload = new byte[payloadSize];
+      ThreadLocalRandom.current().nextBytes(payload);
+      payloads.add(payload);
+      if (payloads.size() == 100) {
+        messagingService.publish(StoreRequestBuilder.of(TOPIC_ID).addPayloads(payloads).build());
+        payloads.clear();
+      }
+    }
+    if (!payloads.isEmpty()) {
+      messagingService.publish(StoreRequestBuilder.of(TOPIC_ID).addPayloads(payloads).build());
+    }
+
+    client = environment.createClient(false, framedFetch);
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    environment.close();
+  }
+
+  @Benchmark
+  public void fetch(Blackhole blackhole) throws Exception {
+    MessageFetchRequest request = new DefaultMessageFetchRequest.Builder()
+        .setTopicId(TOPIC_ID)
+        .setLimit(fetchLimit)
+        .build();
+    try (CloseableIterator<RawMessage> iterator = client.fetch(request)) {
+      while (iterator.hasNext()) {
+        blackhole.consume(iterator.next());
+      }
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.benchmark;
+
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.utils.DirUtils;
+import io.cdap.cdap.messaging.DefaultTopicMetadata;
+import io.cdap.cdap.messaging.data.MessageId;
+import io.cdap.cdap.messaging.spi.TopicMetadata;
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.messaging.store.leveldb.LevelDBTableFactory;
+import io.cdap.cdap.proto.id.TopicId;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for writing to and scanning from the LevelDB message table, with data stored in a
+ * temporary directory. Each writer thread writes to its own topic.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class LevelDBMessageTableBenchmark {
+
+  private static final int PARTITION_SECONDS = 10;
+
+  /**
+   * The table factory shared by all threads, together with a topic that has messages spanning
+   * across multiple partitions for the scan benchmark.
+   */
+  @State(Scope.Benchmark)
+  public static class TableState {
+
+    @Param({"0", "2"})
+    private int readAheadThreads;
+
+    @Param({"100000"})
+    private int scanTopicMessages;
+
+    private final AtomicInteger topicCount = new AtomicInteger();
+    private File dataDir;
+    private LevelDBTableFactory tableFactory;
+    private TopicMetadata scanTopic;
+    private long scanStartTime;
+
+    @Setup
+    public void setup() throws IOException {
+      dataDir = Files.createTempDirectory("tms-benchmark").toFile();
+      CConfiguration cConf = CConfiguration.create();
+      cConf.set(Constants.CFG_LOCAL_DATA_DIR, dataDir.getAbsolutePath());
+      cConf.setInt(Constants.MessagingSystem.LOCAL_DATA_PARTITION_SECONDS, PARTITION_SECONDS);
+      cConf.setInt(Constants.MessagingSystem.LOCAL_DATA_READ_AHEAD_THREADS, readAheadThreads);
+      tableFactory = new LevelDBTableFactory(cConf);
+      tableFactory.init();
+
+      // Write one message per millisecond, which spans over multiple partitions
+      scanTopic = createTopic();
+      scanStartTime = System.currentTimeMillis() - scanTopicMessages;
+      try (MessageTable table = tableFactory.createMessageTable(scanTopic)) {
+        byte[] payload = new byte[100];
+        List<MessageTable.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < scanTopicMessages; i++) {
+          entries.add(new BenchmarkMessageEntry(scanTopic.getTopicId(), 1, scanStartTime + i,
+              (short) 0, payload));
+          if (entries.size() == 1000) {
+            table.store(entries.iterator());
+            entries.clear();
+          }
+        }
+        table.store(entries.iterator());
+      }
+    }
+
+    @TearDown
+    public void teardown() throws IOException {
+      tableFactory.close();
+      DirUtils.deleteDirectoryContents(dataDir);
+    }
+
+    TopicMetadata createTopic() {
+      TopicId topicId = new TopicId("default", "topic" + topicCount.getAndIncrement());
+      return new DefaultTopicMetadata(topicId, Collections.singletonMap(
+          DefaultTopicMetadata.GENERATION_KEY, "1"));
+    }
+  }
+
+  /**
+   * Per thread state for writing to a topic owned by the thread.
+   */
+  @State(Scope.Thread)
+  public static class WriterState {
+
+    @Param({"1", "100"})
+    private int messagesPerWrite;
+
+    @Param({"1024"})
+    private int payloadSize;
+
+    private MessageTable table;
+    private TopicId topicId;
+    private byte[] payload;
+    private long timestamp;
+
+    @Setup(Level.Trial)
+    public void setup(TableState tableState) throws IOException {
+      TopicMetadata metadata = tableState.createTopic();
+      table = tableState.tableFactory.createMessageTable(metadata);
+      topicId = metadata.getTopicId();
+      payload = new byte[payloadSize];
+      ThreadLocalRandom.current().nextBytes(payload);
+      timestamp = System.currentTimeMillis();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+      table.close();
+    }
+  }
+
+  @Benchmark
+  public void write(WriterState state) throws IOException {
+    // Each write uses a new timestamp, which is similar to how the messaging service writes
+    long timestamp = state.timestamp++;
+    List<MessageTable.Entry> entries = new ArrayList<>(state.messagesPerWrite);
+    for (int i = 0; i < state.messagesPerWrite; i++) {
+      entries.add(new BenchmarkMessageEntry(state.topicId, 1, timestamp, (short) i,
+          state.payload));
+    }
+    state.table.store(entries.iterator());
+  }
+
+  @Benchmark
+  public void scan(TableState state, ScanState scanState, Blackhole blackhole) throws IOException {
+    // Scan from a random position, which may cross partition boundaries
+    long startTime = state.scanStartTime
+        + ThreadLocalRandom.current().nextInt(state.scanTopicMessages);
+    byte[] rawId = new byte[MessageId.RAW_ID_SIZE];
+    MessageId.putRawId(startTime, (short) 0, 0L, (short) 0, rawId, 0);
+    try (CloseableIterator<MessageTable.Entry> iterator = scanState.table.fetch(
+        state.scanTopic, new MessageId(rawId), true, scanState.scanLimit, null)) {
+      while (iterator.hasNext()) {
+        blackhole.consume(iterator.next());
+      }
+    }
+  }
+
+  /**
+   * Per thread state for scanning the scan topic.
+   */
+  @State(Scope.Thread)
+  public static class ScanState {
+
+    @Param({"1000"})
+    private int scanLimit;
+
+    private MessageTable table;
+
+    @Setup(Level.Trial)
+    public void setup(TableState tableState) throws IOException {
+      table = tableState.tableFactory.createMessageTable(tableState.scanTopic);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+      table.close();
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.benchmark;
+
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.messaging.cache.MessageCache;
+import io.cdap.cdap.messaging.store.MessageFilter;
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.messaging.store.cache.OffHeapMessageCache;
+import io.cdap.cdap.proto.id.TopicId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for adding to and scanning from the {@link MessageCache}, with a single publisher
+ * and multiple concurrent fetchers as in the messaging service.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Group)
+public class MessageCacheBenchmark {
+
+  private static final TopicId TOPIC_ID = new TopicId("system", "benchmark");
+
+  @Param({"heap", "offheap"})
+  private String cacheType;
+
+  @Param({"1024"})
+  private int payloadSize;
+
+  @Param({"10"})
+  private int messagesPerAdd;
+
+  @Param({"100"})
+  private int scanLimit;
+
+  @Param({"64"})
+  private int cacheSizeMB;
+
+  private MessageCache<MessageTable.Entry> cache;
+  private byte[] payload;
+  private volatile long lastTimestamp;
+
+  @Setup
+  public void setup() {
+    long hardLimit = cacheSizeMB * 1024L * 1024L;
+    MessageCache.Limits limits = new MessageCache.Limits(hardLimit / 2, hardLimit * 7 / 10,
+        hardLimit);
+    if ("offheap".equals(cacheType)) {
+      cache = new OffHeapMessageCache(TOPIC_ID, limits, 4 * 1024 * 1024, new NoopMetricsContext());
+    } else {
+      cache = new MessageCache<>(new EntryComparator(), new EntryWeigher(), limits,
+          new NoopMetricsContext());
+    }
+    payload = new byte[payloadSize];
+    ThreadLocalRandom.current().nextBytes(payload);
+
+    // Fill up the cache to the min retain size such that scans have entries to read
+    long entries = hardLimit / 2 / (payloadSize + 64);
+    while (entries > 0) {
+      add();
+      entries -= messagesPerAdd;
+    }
+  }
+
+  /**
+   * Adds a batch of entries to the cache. There can only be one thread calling this method, as
+   * required by {@link MessageCache#addAll}.
+   */
+  @Benchmark
+  @Group("addScan")
+  @GroupThreads(1)
+  public void add() {
+    long timestamp = lastTimestamp + 1;
+    List<MessageTable.Entry> entries = new ArrayList<>(messagesPerAdd);
+    for (int i = 0; i < messagesPerAdd; i++) {
+      entries.add(new BenchmarkMessageEntry(TOPIC_ID, 1, timestamp, (short) i, payload));
+    }
+    cache.addAll(entries.iterator());
+    lastTimestamp = timestamp;
+  }
+
+  /**
+   * Scans entries close to the tail of the cache, which is where fetchers that keep up with the
+   * publisher read from.
+   */
+  @Benchmark
+  @Group("addScan")
+  @GroupThreads(3)
+  public void scan(Blackhole blackhole) {
+    long startTimestamp = Math.max(0L, lastTimestamp - scanLimit / messagesPerAdd);
+    MessageTable.Entry startEntry = new BenchmarkMessageEntry(TOPIC_ID, 1, startTimestamp,
+        (short) 0, null);
+    try (MessageCache.Scanner<MessageTable.Entry> scanner =
+        cache.scan(startEntry, true, scanLimit, MessageFilter.<MessageTable.Entry>alwaysAccept())) {
+      while (scanner.hasNext()) {
+        blackhole.consume(scanner.next());
+      }
+    }
+  }
+
+  /**
+   * Orders entries by publish timestamp and sequence id, which is the same as the row key ordering
+   * in the message table for a single topic generation.
+   */
+  private static final class EntryComparator implements Comparator<MessageTable.Entry> {
+
+    @Override
+    public int compare(MessageTable.Entry entry1, MessageTable.Entry entry2) {
+      int cmp = Long.compare(entry1.getPublishTimestamp(), entry2.getPublishTimestamp());
+      return cmp != 0 ? cmp : Short.compare(entry1.getSequenceId(), entry2.getSequenceId());
+    }
+  }
+
+  /**
+   * Weighs entries by the payload size plus a fixed overhead.
+   */
+  private static final class EntryWeigher implements MessageCache.Weigher<MessageTable.Entry> {
+
+    @Override
+    public int weight(MessageTable.Entry entry) {
+      byte[] payload = entry.getPayload();
+      return 64 + (payload == null ? 0 : payload.length);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.benchmark;
+
+import io.cdap.cdap.messaging.MessagingUtils;
+import io.cdap.cdap.messaging.data.MessageId;
+import io.cdap.cdap.messaging.store.MessageTableKey;
+import io.cdap.cdap.proto.id.TopicId;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for encoding and decoding {@link MessageId} and {@link MessageTableKey}, which happen
+ * for every message published and fetched.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageEncodingBenchmark {
+
+  private byte[] rawId;
+  private byte[] rowKey;
+  private MessageTableKey tableKey;
+  private long timestamp;
+
+  @Setup
+  public void setup() {
+    rawId = new byte[MessageId.RAW_ID_SIZE];
+    MessageId.putRawId(System.currentTimeMillis(), (short) 1, 0L, (short) 0, rawId, 0);
+
+    byte[] topic = MessagingUtils.toDataKeyPrefix(new TopicId("default", "benchmark"), 1);
+    tableKey = MessageTableKey.fromTopic(topic);
+    tableKey.set(System.currentTimeMillis(), (short) 1);
+    rowKey = tableKey.getRowKey().clone();
+    timestamp = System.currentTimeMillis();
+  }
+
+  @Benchmark
+  public byte[] encodeMessageId() {
+    MessageId.putRawId(timestamp++, (short) 1, 0L, (short) 0, rawId, 0);
+    return rawId;
+  }
+
+  @Benchmark
+  public void decodeMessageId(Blackhole blackhole) {
+    MessageId messageId = new MessageId(rawId);
+    blackhole.consume(messageId.getPublishTimestamp());
+    blackhole.consume(messageId.getSequenceId());
+    blackhole.consume(messageId.getPayloadWriteTimestamp());
+    blackhole.consume(messageId.getPayloadSequenceId());
+  }
+
+  @Benchmark
+  public byte[] encodeTableKey() {
+    tableKey.set(timestamp++, (short) 1);
+    return tableKey.getRowKey();
+  }
+
+  @Benchmark
+  public MessageTableKey decodeTableKey() {
+    return MessageTableKey.fromRowKey(rowKey);
+  }
+
+  @Benchmark
+  public MessageTableKey decodeTableKeyInPlace() {
+    tableKey.setFromRowKey(rowKey);
+    return tableKey;
+  }
+}
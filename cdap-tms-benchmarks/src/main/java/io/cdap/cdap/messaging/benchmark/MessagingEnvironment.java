@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.benchmark;
+
+import com.google.common.util.concurrent.Service;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.guice.ConfigModule;
+import io.cdap.cdap.common.guice.InMemoryDiscoveryModule;
+import io.cdap.cdap.common.guice.RemoteAuthenticatorModules;
+import io.cdap.cdap.common.internal.remote.RemoteClientFactory;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
+import io.cdap.cdap.common.utils.DirUtils;
+import io.cdap.cdap.messaging.client.ClientMessagingService;
+import io.cdap.cdap.messaging.guice.MessagingServerRuntimeModule;
+import io.cdap.cdap.messaging.server.MessagingHttpService;
+import io.cdap.cdap.messaging.spi.MessagingService;
+import io.cdap.cdap.security.auth.context.AuthenticationContextModules;
+import io.cdap.cdap.security.authorization.AuthorizationEnforcementModule;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+
+/**
+ * The messaging service running in local mode, backed by LevelDB in a temporary directory. It is
+ * the same setup as the messaging service in the sandbox, except metrics are not collected.
+ */
+final class MessagingEnvironment implements Closeable {
+
+  private final File dataDir;
+  private final Injector injector;
+  private final MessagingService messagingService;
+  private MessagingHttpService httpService;
+
+  /**
+   * Creates and starts the messaging service.
+   *
+   * @param cConf the configuration to use. The local data directory will be overridden.
+   */
+  MessagingEnvironment(CConfiguration cConf) throws IOException {
+    this.dataDir = Files.createTempDirectory("tms-benchmark").toFile();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, dataDir.getAbsolutePath());
+    cConf.set(Constants.MessagingSystem.HTTP_SERVER_BIND_ADDRESS,
+        InetAddress.getLoopbackAddress().getHostName());
+
+    this.injector = Guice.createInjector(
+        new ConfigModule(cConf),
+        RemoteAuthenticatorModules.getNoOpModule(),
+        new InMemoryDiscoveryModule(),
+        new AuthenticationContextModules().getNoOpModule(),
+        new AuthorizationEnforcementModule().getNoOpModules(),
+        new MessagingServerRuntimeModule().getInMemoryModules(),
+        new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(MetricsCollectionService.class).toInstance(new NoOpMetricsCollectionService());
+          }
+        }
+    );
+    this.messagingService = injector.getInstance(MessagingService.class);
+    if (messagingService instanceof Service) {
+      ((Service) messagingService).startAndWait();
+    }
+  }
+
+  /**
+   * Returns the {@link MessagingService} that operates directly on the tables.
+   */
+  MessagingService getMessagingService() {
+    return messagingService;
+  }
+
+  /**
+   * Starts the {@link MessagingHttpService} if it is not yet started and returns a
+   * {@link MessagingService} that talks to it.
+   */
+  synchronized MessagingService createClient(boolean compressPayload, boolean framedFetch) {
+    if (httpService == null) {
+      httpService = injector.getInstance(MessagingHttpService.class);
+      httpService.startAndWait();
+    }
+    return new ClientMessagingService(injector.getInstance(RemoteClientFactory.class),
+        compressPayload, framedFetch);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      if (httpService != null) {
+        httpService.stopAndWait();
+      }
+      if (messagingService instanceof Service) {
+        ((Service) messagingService).stopAndWait();
+      }
+    } finally {
+      DirUtils.deleteDirectoryContents(dataDir);
+    }
+  }
+}
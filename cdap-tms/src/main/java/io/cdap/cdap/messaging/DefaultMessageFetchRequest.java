@@ -30,6 +30,7 @@ public class DefaultMessageFetchRequest implements MessageFetchRequest {
 
   // by default there is virtually no limit
   private int limit = Integer.MAX_VALUE;
+  private long waitMillis;
 
   private DefaultMessageFetchRequest(
       TopicId topicId,
@@ -37,13 +38,15 @@ public class DefaultMessageFetchRequest implements MessageFetchRequest {
       boolean includeStart,
       Long startTime,
       Transaction transaction,
-      int limit) {
+      int limit,
+      long waitMillis) {
     this.topicId = topicId;
     this.startOffset = startOffset;
     this.includeStart = includeStart;
     this.startTime = startTime;
     this.transaction = transaction;
     this.limit = limit;
+    this.waitMillis = waitMillis;
   }
 
   @Override
@@ -76,6 +79,11 @@ public class DefaultMessageFetchRequest implements MessageFetchRequest {
     return limit;
   }
 
+  @Override
+  public long getWaitMillis() {
+    return waitMillis;
+  }
+
   public static class Builder {
 
     private TopicId topicId;
@@ -86,6 +94,7 @@ public class DefaultMessageFetchRequest implements MessageFetchRequest {
 
     // by default there is virtually no limit
     private int limit = Integer.MAX_VALUE;
+    private long waitMillis;
 
     public Builder setTopicId(TopicId topicId) {
       this.topicId = topicId;
@@ -152,9 +161,25 @@ public class DefaultMessageFetchRequest implements MessageFetchRequest {
       return this;
     }
 
+    /**
+     * Sets the maximum time to wait for new messages if there is no message available. By
+     * default, there is no waiting.
+     *
+     * @param waitMillis maximum number of milliseconds to wait
+     * @return this instance
+     */
+    public Builder setWaitMillis(long waitMillis) {
+      if (waitMillis < 0) {
+        throw new IllegalArgumentException(
+            "Invalid message fetching wait time. Wait time must be >= 0");
+      }
+      this.waitMillis = waitMillis;
+      return this;
+    }
+
     public MessageFetchRequest build() {
       return new DefaultMessageFetchRequest(
-          topicId, startOffset, includeStart, startTime, transaction, limit);
+          topicId, startOffset, includeStart, startTime, transaction, limit, waitMillis);
     }
   }
 }
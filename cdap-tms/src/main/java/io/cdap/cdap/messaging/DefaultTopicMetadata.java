@@ -26,6 +26,7 @@ import java.util.Objects;
 public class DefaultTopicMetadata implements TopicMetadata{
   public static final String GENERATION_KEY = MessagingUtils.Constants.GENERATION_KEY;
   public static final String TTL_KEY = MessagingUtils.Constants.TTL_KEY;
+  public static final String COMPRESSION_KEY = "compression";
 
   private final TopicId topicId;
   private final Map<String, String> properties;
@@ -140,6 +141,7 @@ public class DefaultTopicMetadata implements TopicMetadata{
   private void validateProperties() {
     validateTTL();
     validateGeneration();
+    validateCompression();
   }
 
   /**
@@ -187,6 +189,20 @@ public class DefaultTopicMetadata implements TopicMetadata{
     }
   }
 
+  /**
+   * Validates the optional "compression" property of the given topic.
+   *
+   * @throws IllegalArgumentException if the compression is not supported.
+   */
+  private void validateCompression() {
+    try {
+      PayloadCodec.fromName(properties.get(COMPRESSION_KEY));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "Invalid compression property for topic " + topicId + ". " + e.getMessage(), e);
+    }
+  }
+
   /**
    * Turns a list of {@link Object} into a {@link Map} by using even index objects as keys and the
    * following odd index objects as values. The {@link Object#toString()} method will be used to
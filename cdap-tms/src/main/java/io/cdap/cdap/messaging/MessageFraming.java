@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging;
+
+import io.cdap.cdap.messaging.spi.RawMessage;
+import io.netty.buffer.ByteBuf;
+import java.io.DataInputStream;
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * Helper class for the length-prefixed binary framing of messages in the fetch response. It is
+ * used instead of the avro encoding when the client sends an {@code Accept} header with the
+ * {@link #CONTENT_TYPE}. Each message is encoded as
+ *
+ * <pre>
+ *   [id length (4)][id][payload length (4)][payload]
+ * </pre>
+ *
+ * and the end of the response body marks the end of the messages.
+ */
+public final class MessageFraming {
+
+  public static final String CONTENT_TYPE = "application/x-cdap-messages";
+
+  private static final int LENGTH_SIZE = Integer.BYTES;
+
+  /**
+   * Returns the number of bytes needed to encode the given message.
+   */
+  public static int getFrameSize(RawMessage message) {
+    return LENGTH_SIZE + message.getId().length + LENGTH_SIZE + message.getPayload().length;
+  }
+
+  /**
+   * Writes the given message to the given {@link ByteBuf}.
+   */
+  public static void writeMessage(RawMessage message, ByteBuf buffer) {
+    byte[] id = message.getId();
+    byte[] payload = message.getPayload();
+    buffer.writeInt(id.length)
+        .writeBytes(id)
+        .writeInt(payload.length)
+        .writeBytes(payload);
+  }
+
+  /**
+   * Reads a message from the given {@link DataInputStream}.
+   *
+   * @return the message or {@code null} if the end of stream is reached
+   * @throws java.io.EOFException if the stream ends in the middle of a message
+   * @throws IOException if failed to read from the stream
+   */
+  @Nullable
+  public static RawMessage readMessage(DataInputStream input) throws IOException {
+    int firstByte = input.read();
+    if (firstByte < 0) {
+      return null;
+    }
+    int idLength = (firstByte << 24) | (input.readUnsignedByte() << 16)
+        | (input.readUnsignedByte() << 8) | input.readUnsignedByte();
+    byte[] id = new byte[idLength];
+    input.readFully(id);
+    byte[] payload = new byte[input.readInt()];
+    input.readFully(payload);
+    return new RawMessage.Builder().setId(id).setPayload(payload).build();
+  }
+
+  private MessageFraming() {
+    // protect the constructor
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging;
+
+import io.cdap.cdap.messaging.spi.TopicMetadata;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Codecs for compressing message payloads of a topic. The codec is chosen with the
+ * {@link DefaultTopicMetadata#COMPRESSION_KEY} topic property and cannot be changed after the
+ * topic is created, hence all payloads stored for a topic generation are encoded with the same
+ * codec.
+ *
+ * <p>Each payload is compressed on its own rather than as part of its publish batch. Every
+ * message is stored in its own row with its own message id, which consumers use to resume
+ * fetching from any message. Compressing a batch into a single frame would require addressing
+ * messages inside a row, which neither the message ids nor the table layouts support. Payloads of
+ * a few dozen bytes therefore gain little, and compression is best suited to topics whose payloads
+ * are at least a few hundred bytes.</p>
+ */
+public enum PayloadCodec {
+
+  NONE {
+    @Override
+    public byte[] compress(byte[] payload) {
+      return payload;
+    }
+
+    @Override
+    public byte[] decompress(byte[] payload) {
+      return payload;
+    }
+  },
+
+  SNAPPY {
+    @Override
+    public byte[] compress(byte[] payload) {
+      try {
+        return Snappy.compress(payload);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to compress payload with snappy", e);
+      }
+    }
+
+    @Override
+    public byte[] decompress(byte[] payload) {
+      try {
+        return Snappy.uncompress(payload);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to decompress payload with snappy", e);
+      }
+    }
+  },
+
+  DEFLATE {
+    @Override
+    public byte[] compress(byte[] payload) {
+      Deflater deflater = DEFLATERS.get();
+      deflater.reset();
+      deflater.setInput(payload);
+      deflater.finish();
+      ByteArrayOutputStream os = new ByteArrayOutputStream(payload.length / 2 + 16);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while (!deflater.finished()) {
+        int len = deflater.deflate(buffer);
+        os.write(buffer, 0, len);
+      }
+      return os.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] payload) {
+      Inflater inflater = INFLATERS.get();
+      inflater.reset();
+      inflater.setInput(payload);
+      ByteArrayOutputStream os = new ByteArrayOutputStream(payload.length * 2);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      try {
+        while (!inflater.finished()) {
+          int len = inflater.inflate(buffer);
+          if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            throw new IOException("Unexpected end of deflate payload");
+          }
+          os.write(buffer, 0, len);
+        }
+      } catch (DataFormatException | IOException e) {
+        throw new UncheckedIOException("Failed to decompress payload with deflate",
+            e instanceof IOException ? (IOException) e : new IOException(e));
+      }
+      return os.toByteArray();
+    }
+  };
+
+  private static final int BUFFER_SIZE = 4096;
+
+  // Deflater and Inflater hold native zlib streams that are expensive to create, hence they are
+  // reused by each thread instead of being created for every payload
+  private static final ThreadLocal<Deflater> DEFLATERS =
+      ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+  private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+  /**
+   * Compresses the given payload.
+   */
+  public abstract byte[] compress(byte[] payload);
+
+  /**
+   * Decompresses the given payload that was compressed by the {@link #compress(byte[])} method.
+   */
+  public abstract byte[] decompress(byte[] payload);
+
+  /**
+   * Returns the {@link PayloadCodec} for the given topic.
+   *
+   * @throws IllegalArgumentException if the topic has an unsupported compression
+   */
+  public static PayloadCodec fromTopic(TopicMetadata topicMetadata) {
+    return fromName(topicMetadata.getProperties().get(DefaultTopicMetadata.COMPRESSION_KEY));
+  }
+
+  /**
+   * Returns the {@link PayloadCodec} of the given name.
+   *
+   * @param name name of the codec or {@code null} for no compression
+   * @throws IllegalArgumentException if the name is not a supported codec
+   */
+  public static PayloadCodec fromName(@Nullable String name) {
+    if (name == null || name.isEmpty()) {
+      return NONE;
+    }
+    try {
+      return valueOf(name.toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format(
+          "Unsupported compression '%s'. Supported compressions are %s", name,
+          Arrays.toString(values())), e);
+    }
+  }
+}
@@ -37,6 +37,7 @@ import io.cdap.cdap.common.http.DefaultHttpRequestConfig;
 import io.cdap.cdap.common.internal.remote.RemoteClient;
 import io.cdap.cdap.common.internal.remote.RemoteClientFactory;
 import io.cdap.cdap.internal.io.ExposedByteArrayOutputStream;
+import io.cdap.cdap.messaging.MessageFraming;
 import io.cdap.cdap.messaging.spi.MessageFetchRequest;
 import io.cdap.cdap.messaging.spi.MessagingService;
 import io.cdap.cdap.messaging.spi.RollbackDetail;
@@ -52,6 +53,8 @@ import io.cdap.common.http.HttpRequest;
 import io.cdap.common.http.HttpRequestConfig;
 import io.cdap.common.http.HttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -104,17 +107,26 @@ public final class ClientMessagingService implements MessagingService {
 
   private final RemoteClient remoteClient;
   private final boolean compressPayload;
+  private final boolean framedFetch;
 
   @Inject
   public ClientMessagingService(CConfiguration cConf, RemoteClientFactory remoteClientFactory) {
-    this(remoteClientFactory, cConf.getBoolean(Constants.MessagingSystem.HTTP_COMPRESS_PAYLOAD));
+    this(remoteClientFactory, cConf.getBoolean(Constants.MessagingSystem.HTTP_COMPRESS_PAYLOAD),
+        cConf.getBoolean(Constants.MessagingSystem.HTTP_CLIENT_FRAMED_FETCH));
   }
 
   @VisibleForTesting
   public ClientMessagingService(RemoteClientFactory remoteClientFactory, boolean compressPayload) {
+    this(remoteClientFactory, compressPayload, false);
+  }
+
+  @VisibleForTesting
+  public ClientMessagingService(RemoteClientFactory remoteClientFactory, boolean compressPayload,
+      boolean framedFetch) {
     this.remoteClient = remoteClientFactory.createRemoteClient(
         Constants.Service.MESSAGING_SERVICE, HTTP_REQUEST_CONFIG, "/v1/namespaces/");
     this.compressPayload = compressPayload;
+    this.framedFetch = framedFetch;
   }
 
   @Override
@@ -385,19 +397,25 @@ public final class ClientMessagingService implements MessagingService {
    */
   private void verifyContentType(Map<String, ? extends Collection<String>> headers,
       String requiredContentType) {
+    if (!requiredContentType.equalsIgnoreCase(getContentType(headers))) {
+      throw new IllegalArgumentException(
+          "Only " + requiredContentType + " content type is support.");
+    }
+  }
+
+  /**
+   * Returns the content-type in the header or {@code null} if it is absent.
+   */
+  @Nullable
+  private String getContentType(Map<String, ? extends Collection<String>> headers) {
     // Netty 4.1 has all headers set with lower case name
     // However, the cdap-http library doesn't handle it well, hence we iterate all headers instead of lookup in here
-    boolean passed = false;
     for (Map.Entry<String, ? extends Collection<String>> entry : headers.entrySet()) {
       if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(entry.getKey())) {
-        passed = requiredContentType.equalsIgnoreCase(Iterables.getFirst(entry.getValue(), null));
-        break;
+        return Iterables.getFirst(entry.getValue(), null);
       }
     }
-    if (!passed) {
-      throw new IllegalArgumentException(
-          "Only " + requiredContentType + " content type is support.");
-    }
+    return null;
   }
 
   @Override
@@ -430,6 +448,21 @@ public final class ClientMessagingService implements MessagingService {
     if (compressPayload) {
       urlConn.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
     }
+    if (framedFetch) {
+      // Server that doesn't support the framing will ignore it and respond with avro
+      urlConn.setRequestProperty(HttpHeaders.ACCEPT,
+          MessageFraming.CONTENT_TYPE + ", avro/binary");
+    }
+    long waitMillis = messageFetchRequest.getWaitMillis();
+    if (waitMillis > 0) {
+      urlConn.setRequestProperty(Constants.MessagingSystem.HTTP_FETCH_WAIT_HEADER,
+          Long.toString(waitMillis));
+      // Extend the read timeout as the server can hold the request until the wait time elapsed
+      int readTimeout = urlConn.getReadTimeout();
+      if (readTimeout > 0) {
+        urlConn.setReadTimeout((int) Math.min(Integer.MAX_VALUE, readTimeout + waitMillis));
+      }
+    }
 
     // Send the request
     Encoder encoder = EncoderFactory.get().directBinaryEncoder(urlConn.getOutputStream(), null);
@@ -460,6 +493,11 @@ public final class ClientMessagingService implements MessagingService {
           }
         },
         "Failed to update topic " + messageFetchRequest.getTopicId());
+
+    String contentType = getContentType(urlConn.getHeaderFields());
+    if (framedFetch && MessageFraming.CONTENT_TYPE.equalsIgnoreCase(contentType)) {
+      return createFramedIterator(urlConn);
+    }
     verifyContentType(urlConn.getHeaderFields(), "avro/binary");
 
     // Decode the avro array manually instead of using DatumReader in order to support streaming
@@ -515,6 +553,33 @@ public final class ClientMessagingService implements MessagingService {
     };
   }
 
+  /**
+   * Creates a {@link CloseableIterator} of {@link RawMessage} by decoding the response body in the
+   * {@link MessageFraming} format.
+   */
+  private CloseableIterator<RawMessage> createFramedIterator(HttpURLConnection urlConn)
+      throws IOException {
+    DataInputStream input = new DataInputStream(
+        new BufferedInputStream(decompressIfNeeded(urlConn, urlConn.getInputStream())));
+    return new AbstractCloseableIterator<RawMessage>() {
+      @Override
+      protected RawMessage computeNext() {
+        try {
+          RawMessage message = MessageFraming.readMessage(input);
+          return message == null ? endOfData() : message;
+        } catch (IOException e) {
+          throw Throwables.propagate(e);
+        }
+      }
+
+      @Override
+      public void close() {
+        Closeables.closeQuietly(input);
+        urlConn.disconnect();
+      }
+    };
+  }
+
   /**
    * Based on the given {@link HttpURLConnection} content encoding, optionally wrap the given {@link
    * InputStream} with either gzip or deflate decompression.
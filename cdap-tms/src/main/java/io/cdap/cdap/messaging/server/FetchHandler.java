@@ -28,17 +28,22 @@ import io.cdap.cdap.common.io.ByteBuffers;
 import io.cdap.cdap.common.logging.LogSamplers;
 import io.cdap.cdap.common.logging.Loggers;
 import io.cdap.cdap.messaging.DefaultMessageFetchRequest;
+import io.cdap.cdap.messaging.MessageFraming;
+import io.cdap.cdap.messaging.spi.MessageFetchRequest;
 import io.cdap.cdap.messaging.spi.MessagingService;
 import io.cdap.cdap.messaging.Schemas;
 import io.cdap.cdap.messaging.spi.RawMessage;
+import io.cdap.cdap.messaging.service.MessagePublishNotifier;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.http.AbstractHttpHandler;
 import io.cdap.http.BodyProducer;
+import io.cdap.http.HandlerContext;
 import io.cdap.http.HttpResponder;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
@@ -51,6 +56,12 @@ import java.nio.channels.ClosedChannelException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -66,6 +77,8 @@ import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.tephra.TransactionCodec;
+import org.apache.twill.common.Cancellable;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -85,12 +98,37 @@ public final class FetchHandler extends AbstractHttpHandler {
   );
 
   private final MessagingService messagingService;
+  private final MessagePublishNotifier publishNotifier;
+  private final long maxWaitMillis;
+  private final int waitThreads;
   private int messageChunkSize;
+  private ScheduledExecutorService waitExecutor;
 
   @Inject
-  FetchHandler(CConfiguration cConf, MessagingService messagingService) {
+  FetchHandler(CConfiguration cConf, MessagingService messagingService,
+      MessagePublishNotifier publishNotifier) {
     this.messagingService = messagingService;
+    this.publishNotifier = publishNotifier;
     this.messageChunkSize = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE);
+    this.maxWaitMillis = cConf.getLong(Constants.MessagingSystem.HTTP_SERVER_FETCH_MAX_WAIT_MS);
+    this.waitThreads = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_FETCH_WAIT_THREADS);
+  }
+
+  @Override
+  public void init(HandlerContext context) {
+    super.init(context);
+    // Executor for retrying fetches of long polling requests. It is needed so that waiting
+    // requests don't occupy the netty threads.
+    waitExecutor = Executors.newScheduledThreadPool(waitThreads,
+        Threads.createDaemonThreadFactory("messaging-fetch-wait-%d"));
+  }
+
+  @Override
+  public void destroy(HandlerContext context) {
+    super.destroy(context);
+    if (waitExecutor != null) {
+      waitExecutor.shutdownNow();
+    }
   }
 
   @POST
@@ -112,22 +150,68 @@ public final class FetchHandler extends AbstractHttpHandler {
     DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(
         Schemas.V1.ConsumeRequest.SCHEMA);
 
+    // Use the binary framing if the client accepts it, otherwise fallback to avro
+    boolean framed = request.headers().containsValue(HttpHeaderNames.ACCEPT,
+        MessageFraming.CONTENT_TYPE, true);
+    long waitMillis = getWaitMillis(request);
+
     // Fetch the messages
-    CloseableIterator<RawMessage> iterator = fetchMessages(datumReader.read(null, decoder),
+    MessageFetchRequest fetchRequest = createFetchRequest(datumReader.read(null, decoder),
         topicId);
+    CloseableIterator<RawMessage> iterator = messagingService.fetch(fetchRequest);
+    if (waitMillis <= 0 || iterator.hasNext()) {
+      sendMessages(responder, iterator, framed);
+      return;
+    }
+
+    // No message is available, wait for new messages asynchronously so that the handler thread
+    // is not blocked.
+    iterator.close();
+    new LongPollFetch(fetchRequest, responder, framed).start(waitMillis);
+  }
+
+  /**
+   * Returns the number of milliseconds to wait for new messages as requested by the client,
+   * capped by the maximum allowed.
+   */
+  private long getWaitMillis(FullHttpRequest request) throws BadRequestException {
+    String waitHeader = request.headers().get(Constants.MessagingSystem.HTTP_FETCH_WAIT_HEADER);
+    if (waitHeader == null) {
+      return 0L;
+    }
+    try {
+      return Math.min(Math.max(0L, Long.parseLong(waitHeader)), maxWaitMillis);
+    } catch (NumberFormatException e) {
+      throw new BadRequestException("Invalid value for header "
+          + Constants.MessagingSystem.HTTP_FETCH_WAIT_HEADER + ": " + waitHeader);
+    }
+  }
+
+  /**
+   * Sends the messages from the given iterator as the response. The iterator will be closed when
+   * the response is completed.
+   */
+  private void sendMessages(HttpResponder responder, CloseableIterator<RawMessage> iterator,
+      boolean framed) {
     try {
-      responder.sendContent(HttpResponseStatus.OK,
-          new MessagesBodyProducer(iterator, messageChunkSize),
-          new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE, "avro/binary"));
+      if (framed) {
+        responder.sendContent(HttpResponseStatus.OK,
+            new FramedMessagesBodyProducer(iterator, messageChunkSize),
+            new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE,
+                MessageFraming.CONTENT_TYPE));
+      } else {
+        responder.sendContent(HttpResponseStatus.OK,
+            new MessagesBodyProducer(iterator, messageChunkSize),
+            new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE, "avro/binary"));
+      }
     } catch (Throwable t) {
       iterator.close();
       throw t;
     }
   }
 
-  /** Creates a {@link CloseableIterator} of {@link RawMessage} based on the given fetch request. */
-  private CloseableIterator<RawMessage> fetchMessages(GenericRecord fetchRequest, TopicId topicId)
-      throws IOException, TopicNotFoundException {
+  /** Creates a {@link MessageFetchRequest} based on the given fetch request record. */
+  private MessageFetchRequest createFetchRequest(GenericRecord fetchRequest, TopicId topicId) {
     DefaultMessageFetchRequest.Builder fetchRequestBuilder =
         new DefaultMessageFetchRequest.Builder();
 
@@ -162,7 +246,104 @@ public final class FetchHandler extends AbstractHttpHandler {
           TRANSACTION_CODEC.decode(ByteBuffers.getByteArray(encodedTx)));
     }
 
-    return messagingService.fetch(fetchRequestBuilder.build());
+    return fetchRequestBuilder.build();
+  }
+
+  /**
+   * Serves a fetch request that has no message available by retrying the fetch whenever new
+   * messages are published to the topic, until there are messages or the wait time has elapsed.
+   */
+  private final class LongPollFetch {
+
+    private final MessageFetchRequest fetchRequest;
+    private final HttpResponder responder;
+    private final boolean framed;
+    private final AtomicBoolean completed;
+    private volatile Cancellable listenerCancellable;
+    private volatile ScheduledFuture<?> timeoutFuture;
+
+    LongPollFetch(MessageFetchRequest fetchRequest, HttpResponder responder, boolean framed) {
+      this.fetchRequest = fetchRequest;
+      this.responder = responder;
+      this.framed = framed;
+      this.completed = new AtomicBoolean();
+    }
+
+    void start(long waitMillis) {
+      try {
+        timeoutFuture = waitExecutor.schedule(() -> fetch(true), waitMillis,
+            TimeUnit.MILLISECONDS);
+        waitExecutor.execute(() -> fetch(false));
+      } catch (RejectedExecutionException e) {
+        // The handler is being destroyed
+        complete(null, e);
+      }
+    }
+
+    /**
+     * Fetches messages and sends the response if there are messages or if it is the final fetch.
+     */
+    private void fetch(boolean isFinal) {
+      if (completed.get()) {
+        return;
+      }
+      try {
+        if (!isFinal) {
+          // Add the listener before fetching to make sure no publish in between will be missed
+          Cancellable cancellable = listenerCancellable;
+          if (cancellable != null) {
+            cancellable.cancel();
+          }
+          listenerCancellable = publishNotifier.addListener(fetchRequest.getTopicId(),
+              this::retry);
+        }
+        CloseableIterator<RawMessage> iterator = messagingService.fetch(fetchRequest);
+        if (isFinal || iterator.hasNext()) {
+          complete(iterator, null);
+        } else {
+          iterator.close();
+        }
+      } catch (Throwable t) {
+        complete(null, t);
+      }
+    }
+
+    private void retry() {
+      try {
+        waitExecutor.execute(() -> fetch(false));
+      } catch (RejectedExecutionException e) {
+        complete(null, e);
+      }
+    }
+
+    private void complete(@Nullable CloseableIterator<RawMessage> iterator,
+        @Nullable Throwable failure) {
+      if (!completed.compareAndSet(false, true)) {
+        if (iterator != null) {
+          iterator.close();
+        }
+        return;
+      }
+
+      Cancellable cancellable = listenerCancellable;
+      if (cancellable != null) {
+        cancellable.cancel();
+      }
+      ScheduledFuture<?> future = timeoutFuture;
+      if (future != null) {
+        future.cancel(false);
+      }
+
+      if (iterator != null) {
+        sendMessages(responder, iterator, framed);
+      } else if (failure instanceof TopicNotFoundException) {
+        responder.sendString(HttpResponseStatus.NOT_FOUND, failure.getMessage());
+      } else {
+        LOG.warn("Failed to fetch messages from topic {}", fetchRequest.getTopicId(), failure);
+        responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR,
+            failure == null ? "Failed to fetch messages" : failure.getMessage());
+      }
+    }
   }
 
   /**
@@ -261,20 +442,85 @@ public final class FetchHandler extends AbstractHttpHandler {
     @Override
     public void handleError(@Nullable Throwable cause) {
       iterator.close();
-      // Since response header is already sent, there is nothing we can send back to client. Simply log the failure
-      if (cause instanceof SocketException
-          || cause instanceof ClosedChannelException
-          || (cause instanceof IOException && KNOWN_IO_EXCEPTION_MESSAGES.contains(
-          cause.getMessage()))) {
-        // This can easily caused by client close connection prematurely. Don't want to flood the log.
-        LOG.trace("Connection closed by client prematurely while sending messages back to client",
-            cause);
-      } else {
-        // Use sampling logger to log to avoid flooding the log if there is any systematic failure
-        SAMPLING_LOG.warn("Exception raised when sending messages back to client", cause);
-        // Also log a trace to provide a way to see every error if needed
-        LOG.trace("Exception raised when sending messages back to client", cause);
+      logSendError(cause);
+    }
+  }
+
+  /**
+   * A {@link BodyProducer} to send back messages using the {@link MessageFraming}. Messages are
+   * written directly into pooled direct buffers, which are released by netty after being written
+   * to the channel, hence there is no intermediate copy as in the avro encoding.
+   */
+  private static class FramedMessagesBodyProducer extends BodyProducer {
+
+    private final CloseableIterator<RawMessage> iterator;
+    private final List<RawMessage> messages;
+    private final int messageChunkSize;
+
+    FramedMessagesBodyProducer(CloseableIterator<RawMessage> iterator, int messageChunkSize) {
+      this.iterator = iterator;
+      this.messages = new ArrayList<>();
+      this.messageChunkSize = messageChunkSize;
+    }
+
+    @Override
+    public ByteBuf nextChunk() {
+      // Empty buffer signals the end of response
+      if (!iterator.hasNext()) {
+        return Unpooled.EMPTY_BUFFER;
       }
+
+      // Try to buffer up to buffer size
+      int size = 0;
+      messages.clear();
+      while (iterator.hasNext() && size < messageChunkSize) {
+        RawMessage message = iterator.next();
+        messages.add(message);
+        size += MessageFraming.getFrameSize(message);
+      }
+
+      ByteBuf chunk = PooledByteBufAllocator.DEFAULT.directBuffer(size, size);
+      try {
+        for (RawMessage message : messages) {
+          MessageFraming.writeMessage(message, chunk);
+        }
+      } catch (Throwable t) {
+        chunk.release();
+        throw t;
+      }
+      messages.clear();
+      return chunk;
+    }
+
+    @Override
+    public void finished() {
+      iterator.close();
+    }
+
+    @Override
+    public void handleError(@Nullable Throwable cause) {
+      iterator.close();
+      logSendError(cause);
+    }
+  }
+
+  /**
+   * Logs the failure of sending messages back to the client.
+   */
+  private static void logSendError(@Nullable Throwable cause) {
+    // Since response header is already sent, there is nothing we can send back to client. Simply log the failure
+    if (cause instanceof SocketException
+        || cause instanceof ClosedChannelException
+        || (cause instanceof IOException && KNOWN_IO_EXCEPTION_MESSAGES.contains(
+        cause.getMessage()))) {
+      // This can easily caused by client close connection prematurely. Don't want to flood the log.
+      LOG.trace("Connection closed by client prematurely while sending messages back to client",
+          cause);
+    } else {
+      // Use sampling logger to log to avoid flooding the log if there is any systematic failure
+      SAMPLING_LOG.warn("Exception raised when sending messages back to client", cause);
+      // Also log a trace to provide a way to see every error if needed
+      LOG.trace("Exception raised when sending messages back to client", cause);
     }
   }
 }
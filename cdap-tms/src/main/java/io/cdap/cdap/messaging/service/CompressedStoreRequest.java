@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.service;
+
+import com.google.common.collect.Iterators;
+import io.cdap.cdap.messaging.DefaultStoreRequest;
+import io.cdap.cdap.messaging.PayloadCodec;
+import io.cdap.cdap.messaging.spi.StoreRequest;
+import java.util.Iterator;
+
+/**
+ * A {@link StoreRequest} that compresses the payloads of another {@link StoreRequest} with a
+ * {@link PayloadCodec} when they are being iterated. Payloads are compressed one at a time since
+ * each of them is stored as a separate message, as explained in {@link PayloadCodec}.
+ */
+final class CompressedStoreRequest extends DefaultStoreRequest {
+
+  private final StoreRequest delegate;
+  private final PayloadCodec codec;
+
+  CompressedStoreRequest(StoreRequest delegate, PayloadCodec codec) {
+    super(delegate.getTopicId(), delegate.isTransactional(),
+        delegate.getTransactionWritePointer());
+    this.delegate = delegate;
+    this.codec = codec;
+  }
+
+  @Override
+  public boolean hasPayload() {
+    return delegate.hasPayload();
+  }
+
+  @Override
+  public Iterator<byte[]> iterator() {
+    return Iterators.transform(delegate.iterator(), codec::compress);
+  }
+}
@@ -30,6 +30,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -63,6 +64,7 @@ final class ConcurrentMessageWriter implements Closeable {
 
   private final StoreRequestWriter<?> messagesWriter;
   private final MetricsCollector metricsCollector;
+  private final Runnable persistListener;
   private final PendingStoreQueue pendingStoreQueue;
   private final AtomicBoolean writerFlag;
   private final AtomicBoolean closed;
@@ -84,8 +86,23 @@ final class ConcurrentMessageWriter implements Closeable {
    *     class.
    */
   ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector) {
+    this(messagesWriter, metricsCollector, () -> { });
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param messagesWriter the {@link StoreRequestWriter} for persisting {@link StoreRequest}.
+   * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this
+   *     class.
+   * @param persistListener a {@link Runnable} to be called after store requests are persisted
+   *     successfully.
+   */
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector,
+      Runnable persistListener) {
     this.messagesWriter = messagesWriter;
     this.metricsCollector = metricsCollector;
+    this.persistListener = persistListener;
     this.pendingStoreQueue = new PendingStoreQueue(metricsCollector);
     this.writerFlag = new AtomicBoolean();
     this.closed = new AtomicBoolean();
@@ -144,11 +161,16 @@ final class ConcurrentMessageWriter implements Closeable {
     if (!writerFlag.compareAndSet(false, true)) {
       return false;
     }
+    boolean persisted;
     try {
-      pendingStoreQueue.persist(messagesWriter);
+      persisted = pendingStoreQueue.persist(messagesWriter);
     } finally {
       writerFlag.set(false);
     }
+    // Notify outside of the writer flag to not block other writers
+    if (persisted) {
+      persistListener.run();
+    }
     return true;
   }
 
@@ -192,8 +214,11 @@ final class ConcurrentMessageWriter implements Closeable {
 
     /**
      * Persists all {@link PendingStoreRequest} currently in the queue with the given writer.
+     *
+     * @return {@code true} if there were requests in the queue and they were persisted
+     *     successfully
      */
-    void persist(StoreRequestWriter<?> writer) {
+    boolean persist(StoreRequestWriter<?> writer) {
       // Capture all current events.
       // The reason for capturing instead of using a live iterator is to avoid the possible case of infinite write
       // time. E.g. while generating the entry to write to the storage table, a new store request get enqueued.
@@ -209,11 +234,25 @@ final class ConcurrentMessageWriter implements Closeable {
 
       metricsCollector.gauge("persist.queue.size", inflightRequests.size());
 
+      if (inflightRequests.isEmpty()) {
+        return false;
+      }
+
+      // All requests in the batch are written with a single call to the writer, which syncs once.
+      // The ratio of "persist.requested" to "persist.batches" is the average batch size.
+      metricsCollector.increment("persist.batches", 1L);
+      metricsCollector.gauge("persist.batch.size", inflightRequests.size());
+      long startNanos = System.nanoTime();
       try {
         writer.write(inflightRequests.iterator());
         completeAll(null);
+        return true;
       } catch (Throwable t) {
         completeAll(t);
+        return false;
+      } finally {
+        metricsCollector.gauge("persist.latency.ms",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
       }
     }
 
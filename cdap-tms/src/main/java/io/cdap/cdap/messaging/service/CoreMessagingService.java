@@ -41,6 +41,7 @@ import io.cdap.cdap.messaging.spi.MessageFetchRequest;
 import io.cdap.cdap.messaging.spi.MessagingService;
 import io.cdap.cdap.messaging.MessagingServiceUtils;
 import io.cdap.cdap.messaging.MessagingUtils;
+import io.cdap.cdap.messaging.PayloadCodec;
 import io.cdap.cdap.messaging.spi.RollbackDetail;
 import io.cdap.cdap.messaging.spi.StoreRequest;
 import io.cdap.cdap.messaging.spi.TopicMetadata;
@@ -53,6 +54,7 @@ import io.cdap.cdap.messaging.store.TableFactory;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -61,6 +63,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -69,6 +72,7 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.tephra.TxConstants;
 import org.apache.tephra.util.TxUtils;
+import org.apache.twill.common.Cancellable;
 import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -90,6 +94,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private final TimeProvider timeProvider;
   private final MetricsCollectionService metricsCollectionService;
   private final long txMaxLifeTimeInMillis;
+  private MessagePublishNotifier publishNotifier;
 
   @Inject
   protected CoreMessagingService(
@@ -128,6 +133,16 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
             cConf.getLong(
                 TxConstants.Manager.CFG_TX_MAX_LIFETIME,
                 TxConstants.Manager.DEFAULT_TX_MAX_LIFETIME));
+    this.publishNotifier = new MessagePublishNotifier();
+  }
+
+  /**
+   * Sets the {@link MessagePublishNotifier} to notify when new messages are published. It is shared
+   * with the http handler for serving long polling fetch requests.
+   */
+  @Inject(optional = true)
+  void setPublishNotifier(MessagePublishNotifier publishNotifier) {
+    this.publishNotifier = publishNotifier;
   }
 
   @Override
@@ -149,6 +164,13 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   @Override
   public void updateTopic(TopicMetadata topicMetadata) throws TopicNotFoundException, IOException {
     try (MetadataTable metadataTable = createMetadataTable()) {
+      // Compression cannot be changed since existing payloads are encoded with it
+      TopicMetadata existing = metadataTable.getMetadata(topicMetadata.getTopicId());
+      if (PayloadCodec.fromTopic(existing) != PayloadCodec.fromTopic(topicMetadata)) {
+        throw new IllegalArgumentException("The " + DefaultTopicMetadata.COMPRESSION_KEY
+            + " property cannot be changed for topic " + topicMetadata.getTopicId());
+      }
+
       Map<String, String> properties = createDefaultProperties();
       properties.putAll(topicMetadata.getProperties());
       metadataTable.updateTopic(
@@ -188,7 +210,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       if (request.isTransactional()) {
         ensureValidTxLifetime(request.getTransactionWritePointer());
       }
-      return messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      return messageTableWriterCache.get(request.getTopicId())
+          .persist(compressIfNeeded(request, metadata), metadata);
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -200,7 +223,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   public void storePayload(StoreRequest request) throws TopicNotFoundException, IOException {
     try {
       TopicMetadata metadata = topicCache.get(request.getTopicId());
-      payloadTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      payloadTableWriterCache.get(request.getTopicId())
+          .persist(compressIfNeeded(request, metadata), metadata);
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -266,6 +290,15 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     LOG.info("Core Messaging Service stopped");
   }
 
+  /**
+   * Returns a {@link StoreRequest} that compresses the payloads if the topic has compression
+   * enabled, otherwise returns the given request.
+   */
+  private StoreRequest compressIfNeeded(StoreRequest request, TopicMetadata metadata) {
+    PayloadCodec codec = PayloadCodec.fromTopic(metadata);
+    return codec == PayloadCodec.NONE ? request : new CompressedStoreRequest(request, codec);
+  }
+
   private void ensureValidTxLifetime(long transactionWritePointer) throws IOException {
     long txTimestamp = TxUtils.getTimestamp(transactionWritePointer);
     boolean validLifetime = (txTimestamp + txMaxLifeTimeInMillis) > System.currentTimeMillis();
@@ -399,7 +432,11 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
                             Constants.Metrics.Tag.TABLE,
                             messageTable ? "message" : "payload"));
 
-                return new ConcurrentMessageWriter(messagesWriter, metricsContext);
+                // Only messages written to the message table are visible to fetchers
+                return messageTable
+                    ? new ConcurrentMessageWriter(messagesWriter, metricsContext,
+                        () -> publishNotifier.published(topicId))
+                    : new ConcurrentMessageWriter(messagesWriter, metricsContext);
               }
             });
   }
@@ -445,6 +482,41 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   @Override
   public CloseableIterator<RawMessage> fetch(MessageFetchRequest messageFetchRequest)
       throws TopicNotFoundException, IOException {
+    long waitMillis = messageFetchRequest.getWaitMillis();
+    if (waitMillis <= 0) {
+      return fetchMessages(messageFetchRequest);
+    }
+
+    // Wait until new messages are published to the topic or the wait time has elapsed
+    long deadline = System.currentTimeMillis() + waitMillis;
+    while (true) {
+      CountDownLatch published = new CountDownLatch(1);
+      // Add the listener before fetching to make sure no publish in between will be missed
+      Cancellable cancellable = publishNotifier.addListener(messageFetchRequest.getTopicId(),
+          published::countDown);
+      try {
+        CloseableIterator<RawMessage> iterator = fetchMessages(messageFetchRequest);
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || iterator.hasNext()) {
+          return iterator;
+        }
+        iterator.close();
+        published.await(remaining, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for messages from "
+            + messageFetchRequest.getTopicId());
+      } finally {
+        cancellable.cancel();
+      }
+    }
+  }
+
+  /**
+   * Fetches messages based on the given {@link MessageFetchRequest} without waiting.
+   */
+  private CloseableIterator<RawMessage> fetchMessages(MessageFetchRequest messageFetchRequest)
+      throws TopicNotFoundException, IOException {
     TopicMetadata metadata = getTopic(messageFetchRequest.getTopicId());
 
     MessageTable messageTable = createMessageTable(metadata);
@@ -535,6 +607,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     private final TopicMetadata topicMetadata;
     private final TopicId topicId;
     private final MessageTable messageTable;
+    private final PayloadCodec payloadCodec;
     private RawMessage nextMessage;
     private MessageTable.Entry messageEntry;
     private CloseableIterator<PayloadTable.Entry> payloadIterator;
@@ -554,6 +627,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       this.topicId = topicMetadata.getTopicId();
       this.messageTable = messageTable;
       this.payloadTableProvider = payloadTableProvider;
+      this.payloadCodec = PayloadCodec.fromTopic(topicMetadata);
       this.inclusive = messageFetchRequest.isIncludeStart();
       this.messageLimit = messageFetchRequest.getLimit();
 
@@ -616,7 +690,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
           nextMessage =
               new RawMessage.Builder()
                   .setId(createMessageId(messageEntry, payloadEntry))
-                  .setPayload(payloadEntry.getPayload())
+                  .setPayload(payloadCodec.decompress(payloadEntry.getPayload()))
                   .build();
           break;
         }
@@ -661,7 +735,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
             nextMessage =
                 new RawMessage.Builder()
                     .setId(createMessageId(messageEntry, null))
-                    .setPayload(messageEntry.getPayload())
+                    .setPayload(payloadCodec.decompress(messageEntry.getPayload()))
                     .build();
           }
         } else {
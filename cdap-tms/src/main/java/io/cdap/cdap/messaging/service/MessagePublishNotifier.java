@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.service;
+
+import com.google.inject.Singleton;
+import io.cdap.cdap.proto.id.TopicId;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.twill.common.Cancellable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Notifies listeners when new messages are persisted to the message table of a topic. It is used
+ * for long polling fetch requests, such that fetching can be retried as soon as new messages are
+ * available instead of at a fixed interval.
+ */
+@Singleton
+public final class MessagePublishNotifier {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MessagePublishNotifier.class);
+
+  private final ConcurrentMap<TopicId, Set<Runnable>> listeners = new ConcurrentHashMap<>();
+
+  /**
+   * Adds a listener to be called once when new messages are persisted to the given topic. The
+   * listener is called from the publishing thread, hence it should return quickly. The listener is
+   * removed after it is called.
+   *
+   * @param topicId the topic to listen on
+   * @param listener the listener to call
+   * @return a {@link Cancellable} to remove the listener
+   */
+  public Cancellable addListener(TopicId topicId, Runnable listener) {
+    listeners.compute(topicId, (key, topicListeners) -> {
+      Set<Runnable> result = topicListeners == null ? ConcurrentHashMap.newKeySet() : topicListeners;
+      result.add(listener);
+      return result;
+    });
+    return () -> listeners.computeIfPresent(topicId, (key, topicListeners) -> {
+      topicListeners.remove(listener);
+      return topicListeners.isEmpty() ? null : topicListeners;
+    });
+  }
+
+  /**
+   * Notifies all listeners of the given topic that new messages were persisted.
+   */
+  void published(TopicId topicId) {
+    Set<Runnable> topicListeners = listeners.remove(topicId);
+    if (topicListeners == null) {
+      return;
+    }
+    for (Runnable listener : topicListeners) {
+      try {
+        listener.run();
+      } catch (Throwable t) {
+        LOG.warn("Exception raised when notifying message publish on topic {}", topicId, t);
+      }
+    }
+  }
+}
@@ -37,6 +37,8 @@ import javax.annotation.Nullable;
  */
 public class DefaultMessageTableCacheProvider implements MessageTableCacheProvider {
 
+  private static final String OFF_HEAP_CACHE_TYPE = "offheap";
+
   private final CConfiguration cConf;
   private final MetricsCollectionService metricsCollectionService;
   private Map<TopicId, MessageCache<MessageTable.Entry>> topicMessageCaches;
@@ -76,9 +78,16 @@ public class DefaultMessageTableCacheProvider implements MessageTableCacheProvid
               // In future, it can be adjusted dynamically based on metrics
               MessageCache.Limits limits = new MessageCache.Limits(hardLimit / 2,
                   hardLimit * 7 / 10, hardLimit);
+              boolean offHeap = OFF_HEAP_CACHE_TYPE.equalsIgnoreCase(
+                  cConf.get(Constants.MessagingSystem.CACHE_TYPE));
+              int segmentSize =
+                  cConf.getInt(Constants.MessagingSystem.CACHE_SEGMENT_SIZE_KB) * 1024;
               for (TopicId topic : systemTopics) {
-                caches.put(topic, new MessageCache<>(comparator, weigher, limits,
-                    createMetricsContext(cConf, topic, metricsCollectionService)));
+                MetricsContext metricsContext = createMetricsContext(cConf, topic,
+                    metricsCollectionService);
+                caches.put(topic, offHeap
+                    ? new OffHeapMessageCache(topic, limits, segmentSize, metricsContext)
+                    : new MessageCache<MessageTable.Entry>(comparator, weigher, limits, metricsContext));
               }
             }
           }
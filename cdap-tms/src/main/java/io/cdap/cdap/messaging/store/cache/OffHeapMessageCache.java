@@ -0,0 +1,501 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.messaging.cache.MessageCache;
+import io.cdap.cdap.messaging.store.MessageFilter;
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.proto.id.TopicId;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MessageCache} for {@link MessageTable.Entry} of a single topic that stores the entries
+ * in off-heap memory. Entries are serialized into a ring of fixed size, direct memory segments,
+ * hence there is no per-entry object retained on the heap. This cache leverages the same TMS
+ * properties as the {@link MessageCache}:
+ *
+ * - Single writer, concurrent fetchers - Ordered, unique entry (row key)
+ *
+ * Each segment is a slotted page. Serialized entries are appended from the beginning of the
+ * segment, while the offset of each entry is written to a slot growing from the end of it. Since
+ * entries are appended in increasing order, lookup within a segment is a binary search over the
+ * slots. The number of entries in a segment is published through a volatile field after the entry
+ * is fully written, which makes the append path lock-free and allows fetchers to scan concurrently
+ * without blocking the publisher.
+ *
+ * Eviction happens on whole segments. When a new segment is needed and the total allocated size
+ * would exceed the hard limit, the oldest segments are dropped from the ring. Segments are never
+ * reused after eviction, so a fetcher holding a segment keeps seeing consistent content, and the
+ * direct memory is released when the segment is garbage collected. The reduce trigger and min
+ * retain limits are not used by this cache.
+ */
+public class OffHeapMessageCache extends MessageCache<MessageTable.Entry> {
+
+  private static final String METRICS_WEIGHT = "cache.weight";
+  private static final String METRICS_ENTRIES_ADDED = "cache.entries.added";
+  private static final String METRICS_ENTRIES_REMOVED = "cache.entries.removed";
+  private static final String METRICS_ADD_REQUESTS = "cache.add.requests";
+  private static final String METRICS_SCAN_REQUESTS = "cache.scan.requests";
+  private static final String METRICS_SEGMENTS_EVICTED = "cache.segments.evicted";
+
+  private final TopicId topicId;
+  private final int segmentSize;
+  private final MetricsContext metricsContext;
+  private final AtomicReference<List<Segment>> segments;
+  private final AtomicBoolean adding;
+  // Bumped after entries are marked as rolled back, which makes the rollback flag visible to scans
+  private final AtomicInteger rollbackCount;
+
+  /**
+   * Creates a new instance of the cache.
+   *
+   * @param topicId the topic that this cache is for
+   * @param limits the limits for the cache. Only the hard limit is used, which is the maximum
+   *     number of bytes of off-heap memory allocated by this cache
+   * @param segmentSize the size in bytes of each segment
+   * @param metricsContext a {@link MetricsContext} for emitting metrics about this cache.
+   */
+  public OffHeapMessageCache(TopicId topicId, Limits limits, int segmentSize,
+      MetricsContext metricsContext) {
+    super(new MessageTableEntryComparator(), new MessageTableEntryWeigher(), limits,
+        metricsContext);
+    Preconditions.checkArgument(segmentSize > Segment.HEADER_SIZE + Segment.SLOT_SIZE,
+        "Segment size must be larger than %s bytes", Segment.HEADER_SIZE + Segment.SLOT_SIZE);
+    this.topicId = topicId;
+    this.segmentSize = segmentSize;
+    this.metricsContext = metricsContext;
+    this.segments = new AtomicReference<>(ImmutableList.<Segment>of());
+    this.adding = new AtomicBoolean();
+    this.rollbackCount = new AtomicInteger();
+  }
+
+  @Override
+  public void addAll(Iterator<MessageTable.Entry> entries) {
+    if (!adding.compareAndSet(false, true)) {
+      // This is to guard against bug, otherwise this shouldn't happen
+      throw new ConcurrentModificationException(
+          "The MessageCache.addAll method shouldn't be called concurrently by multiple threads.");
+    }
+
+    try {
+      int entriesAdded = 0;
+      while (entries.hasNext()) {
+        MessageTable.Entry entry = entries.next();
+        List<Segment> current = segments.get();
+        Segment tail = current.isEmpty() ? null : current.get(current.size() - 1);
+
+        // Entries must be in strictly increasing order and larger than everything in the cache
+        int tailSize = tail == null ? 0 : tail.getSize();
+        if (tailSize > 0 && tail.compareKey(tailSize - 1, entry) >= 0) {
+          // Clear the cache to reset state. This is just for precaution, as this shouldn't happen,
+          // unless there is bug in the TMS system (from the caller side).
+          clear();
+          throw new IllegalArgumentException("Cache entry must be in strictly increasing order. "
+              + "Entry " + entry + " is smaller than or equal to "
+              + tail.decode(topicId, tailSize - 1));
+        }
+
+        if (tail == null || !tail.append(entry)) {
+          tail = addSegment(Segment.getRecordSize(entry));
+          // If the entry is too large to be cached, all earlier entries were evicted to make sure
+          // entries in the cache are always contiguous.
+          if (tail == null || !tail.append(entry)) {
+            continue;
+          }
+        }
+        entriesAdded++;
+      }
+
+      metricsContext.increment(METRICS_ADD_REQUESTS, 1L);
+      metricsContext.increment(METRICS_ENTRIES_ADDED, entriesAdded);
+    } finally {
+      adding.set(false);
+    }
+  }
+
+  @Override
+  public Scanner<MessageTable.Entry> scan(MessageTable.Entry startEntry, boolean includeStart,
+      int limit, MessageFilter<MessageTable.Entry> filter) {
+    // Read the rollback count first to make sure rollbacks happened before the scan are visible
+    rollbackCount.get();
+    List<Segment> snapshot = segments.get();
+    List<MessageTable.Entry> entries = new ArrayList<>();
+    MessageTable.Entry firstInCache = null;
+
+    // Segments in the snapshot are never modified, except for entries appended to the last one,
+    // hence the scan doesn't need any locking.
+    boolean done = false;
+    for (Segment segment : snapshot) {
+      int size = segment.getSize();
+      if (size == 0) {
+        continue;
+      }
+      if (firstInCache == null) {
+        firstInCache = segment.decode(topicId, 0);
+      }
+      for (int i = segment.search(size, startEntry, includeStart); i < size; i++) {
+        if (entries.size() >= limit) {
+          done = true;
+          break;
+        }
+        MessageTable.Entry entry = segment.decode(topicId, i);
+        MessageFilter.Result result = filter.apply(entry);
+        if (result == MessageFilter.Result.ACCEPT) {
+          entries.add(entry);
+        } else if (result == MessageFilter.Result.HOLD) {
+          // Hold means not to scan more, so just break
+          done = true;
+          break;
+        }
+      }
+      if (done) {
+        break;
+      }
+    }
+
+    metricsContext.increment(METRICS_SCAN_REQUESTS, 1L);
+    return new ListScanner(entries.iterator(), firstInCache);
+  }
+
+  @Override
+  public void updateEntries(MessageTable.Entry startEntry, MessageTable.Entry endEntry,
+      EntryUpdater<MessageTable.Entry> updater) {
+    try {
+      for (Segment segment : segments.get()) {
+        int size = segment.getSize();
+        for (int i = segment.search(size, startEntry, true);
+            i < size && segment.compareKey(i, endEntry) <= 0; i++) {
+          CachingMessageTable.CacheMessageTableEntry entry = segment.decode(topicId, i);
+          updater.updateEntry(entry);
+          // Only the rollback flag can be altered on cached entries.
+          if (entry.isRollback()) {
+            segment.markRollback(i);
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      clear();
+      throw e;
+    } finally {
+      rollbackCount.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void resize(Limits limits) {
+    super.resize(limits);
+    evict(limits.getHardLimit());
+  }
+
+  /**
+   * Returns the number of bytes of off-heap memory currently allocated by this cache.
+   */
+  @VisibleForTesting
+  long getAllocatedSize() {
+    return getAllocatedSize(segments.get());
+  }
+
+  /**
+   * Returns the number of segments currently in this cache.
+   */
+  @VisibleForTesting
+  int getSegmentCount() {
+    return segments.get().size();
+  }
+
+  /**
+   * Adds a new segment to the end of the ring, evicting the oldest segments as needed to stay
+   * within the hard limit.
+   *
+   * @param recordSize size of the record that triggers the addition of the new segment
+   * @return the new segment or {@code null} if the record is larger than the hard limit, in which
+   *     case all segments are evicted
+   */
+  @Nullable
+  private Segment addSegment(int recordSize) {
+    long hardLimit = getLimits().getHardLimit();
+    int capacity = Math.max(segmentSize, recordSize + Segment.SLOT_SIZE);
+    if (capacity > hardLimit) {
+      evict(0L);
+      return null;
+    }
+
+    Segment segment = new Segment(capacity);
+    while (true) {
+      List<Segment> current = segments.get();
+      long allocated = getAllocatedSize(current) + capacity;
+      int evictCount = 0;
+      while (allocated > hardLimit) {
+        allocated -= current.get(evictCount++).getCapacity();
+      }
+      List<Segment> newSegments = ImmutableList.<Segment>builder()
+          .addAll(current.subList(evictCount, current.size()))
+          .add(segment)
+          .build();
+      if (segments.compareAndSet(current, newSegments)) {
+        emitEvictMetrics(current.subList(0, evictCount));
+        metricsContext.gauge(METRICS_WEIGHT, allocated);
+        return segment;
+      }
+    }
+  }
+
+  /**
+   * Evicts the oldest segments until the total allocated size is not larger than the given size.
+   */
+  private void evict(long maxSize) {
+    while (true) {
+      List<Segment> current = segments.get();
+      long allocated = getAllocatedSize(current);
+      int evictCount = 0;
+      while (allocated > maxSize) {
+        allocated -= current.get(evictCount++).getCapacity();
+      }
+      if (evictCount == 0) {
+        return;
+      }
+      if (segments.compareAndSet(current,
+          ImmutableList.copyOf(current.subList(evictCount, current.size())))) {
+        emitEvictMetrics(current.subList(0, evictCount));
+        metricsContext.gauge(METRICS_WEIGHT, allocated);
+        return;
+      }
+    }
+  }
+
+  private void emitEvictMetrics(List<Segment> evicted) {
+    if (evicted.isEmpty()) {
+      return;
+    }
+    int entriesRemoved = 0;
+    for (Segment segment : evicted) {
+      entriesRemoved += segment.getSize();
+    }
+    metricsContext.increment(METRICS_SEGMENTS_EVICTED, evicted.size());
+    metricsContext.increment(METRICS_ENTRIES_REMOVED, entriesRemoved);
+  }
+
+  private static long getAllocatedSize(List<Segment> segments) {
+    long size = 0L;
+    for (Segment segment : segments) {
+      size += segment.getCapacity();
+    }
+    return size;
+  }
+
+  /**
+   * A {@link Scanner} over the entries copied out of the segments.
+   */
+  private static final class ListScanner extends AbstractIterator<MessageTable.Entry>
+      implements Scanner<MessageTable.Entry> {
+
+    private final Iterator<MessageTable.Entry> iterator;
+    private final MessageTable.Entry firstInCache;
+
+    private ListScanner(Iterator<MessageTable.Entry> iterator,
+        @Nullable MessageTable.Entry firstInCache) {
+      this.iterator = iterator;
+      this.firstInCache = firstInCache;
+    }
+
+    @Override
+    protected MessageTable.Entry computeNext() {
+      return iterator.hasNext() ? iterator.next() : endOfData();
+    }
+
+    @Nullable
+    @Override
+    public MessageTable.Entry getFirstInCache() {
+      return firstInCache;
+    }
+
+    @Override
+    public void close() {
+      // no-op
+    }
+  }
+
+  /**
+   * A fixed size block of direct memory storing serialized entries. The layout of each entry is:
+   *
+   * <pre>
+   *   [generation (4)][publish timestamp (8)][sequence id (2)][flags (1)]
+   *   [transaction write pointer (8)][payload length (4)][payload]
+   * </pre>
+   *
+   * A payload length of {@code -1} means the entry is a payload reference. The offsets of entries
+   * are stored in 4 bytes slots from the end of the segment, with the first entry in the last slot.
+   */
+  private static final class Segment {
+
+    private static final int GENERATION_OFFSET = 0;
+    private static final int PUBLISH_TIMESTAMP_OFFSET = GENERATION_OFFSET + Integer.BYTES;
+    private static final int SEQUENCE_ID_OFFSET = PUBLISH_TIMESTAMP_OFFSET + Long.BYTES;
+    private static final int FLAGS_OFFSET = SEQUENCE_ID_OFFSET + Short.BYTES;
+    private static final int TX_WRITE_POINTER_OFFSET = FLAGS_OFFSET + 1;
+    private static final int PAYLOAD_LENGTH_OFFSET = TX_WRITE_POINTER_OFFSET + Long.BYTES;
+    private static final int HEADER_SIZE = PAYLOAD_LENGTH_OFFSET + Integer.BYTES;
+    private static final int SLOT_SIZE = Integer.BYTES;
+
+    private static final byte FLAG_TRANSACTIONAL = 0x01;
+    private static final byte FLAG_ROLLBACK = 0x02;
+
+    private final ByteBuffer buffer;
+    // Only used by the writer thread
+    private final ByteBuffer writeBuffer;
+    // Number of entries that are fully written and visible to readers
+    private volatile int size;
+
+    private Segment(int capacity) {
+      this.buffer = ByteBuffer.allocateDirect(capacity);
+      this.writeBuffer = buffer.duplicate();
+    }
+
+    static int getRecordSize(MessageTable.Entry entry) {
+      byte[] payload = entry.getPayload();
+      return HEADER_SIZE + (payload == null ? 0 : payload.length);
+    }
+
+    int getCapacity() {
+      return buffer.capacity();
+    }
+
+    int getSize() {
+      return size;
+    }
+
+    /**
+     * Appends the given entry to this segment. This method must only be called by the single
+     * writer thread.
+     *
+     * @return {@code true} if the entry was appended, {@code false} if there is not enough space
+     */
+    boolean append(MessageTable.Entry entry) {
+      int index = size;
+      int slot = getSlot(index);
+      int position = writeBuffer.position();
+      if (position + getRecordSize(entry) > slot) {
+        return false;
+      }
+
+      byte[] payload = entry.getPayload();
+      writeBuffer
+          .putInt(entry.getGeneration())
+          .putLong(entry.getPublishTimestamp())
+          .putShort(entry.getSequenceId())
+          .put(entry.isTransactional() ? FLAG_TRANSACTIONAL : 0)
+          .putLong(entry.getTransactionWritePointer())
+          .putInt(payload == null ? -1 : payload.length);
+      if (payload != null) {
+        writeBuffer.put(payload);
+      }
+      writeBuffer.putInt(slot, position);
+
+      // Publish the entry to readers
+      size = index + 1;
+      return true;
+    }
+
+    /**
+     * Returns the index of the first entry that is larger than (or equal to, if inclusive) the
+     * given entry, or {@code size} if there is no such entry.
+     */
+    int search(int size, MessageTable.Entry entry, boolean inclusive) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        int cmp = compareKey(mid, entry);
+        if (cmp < 0 || (cmp == 0 && !inclusive)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Compares the key of the entry at the given index with the given entry, using the same order
+     * as the {@link MessageTableEntryComparator}.
+     */
+    int compareKey(int index, MessageTable.Entry entry) {
+      int offset = getOffset(index);
+      int cmp = Integer.compare(buffer.getInt(offset + GENERATION_OFFSET), entry.getGeneration());
+      if (cmp != 0) {
+        return cmp;
+      }
+      cmp = Long.compare(buffer.getLong(offset + PUBLISH_TIMESTAMP_OFFSET),
+          entry.getPublishTimestamp());
+      if (cmp != 0) {
+        return cmp;
+      }
+      return Integer.compare(buffer.getShort(offset + SEQUENCE_ID_OFFSET) & 0xFFFF,
+          entry.getSequenceId() & 0xFFFF);
+    }
+
+    /**
+     * Decodes the entry at the given index into a new on-heap entry.
+     */
+    CachingMessageTable.CacheMessageTableEntry decode(TopicId topicId, int index) {
+      int offset = getOffset(index);
+      int payloadLength = buffer.getInt(offset + PAYLOAD_LENGTH_OFFSET);
+      byte[] payload = null;
+      if (payloadLength >= 0) {
+        payload = new byte[payloadLength];
+        ByteBuffer readBuffer = buffer.duplicate();
+        readBuffer.position(offset + HEADER_SIZE);
+        readBuffer.get(payload);
+      }
+      byte flags = buffer.get(offset + FLAGS_OFFSET);
+      return new CachingMessageTable.CacheMessageTableEntry(topicId,
+          buffer.getInt(offset + GENERATION_OFFSET),
+          (flags & FLAG_TRANSACTIONAL) != 0,
+          buffer.getLong(offset + TX_WRITE_POINTER_OFFSET),
+          payload,
+          buffer.getLong(offset + PUBLISH_TIMESTAMP_OFFSET),
+          buffer.getShort(offset + SEQUENCE_ID_OFFSET),
+          (flags & FLAG_ROLLBACK) != 0);
+    }
+
+    void markRollback(int index) {
+      int flagsIndex = getOffset(index) + FLAGS_OFFSET;
+      buffer.put(flagsIndex, (byte) (buffer.get(flagsIndex) | FLAG_ROLLBACK));
+    }
+
+    private int getOffset(int index) {
+      return buffer.getInt(getSlot(index));
+    }
+
+    private int getSlot(int index) {
+      return buffer.capacity() - (index + 1) * SLOT_SIZE;
+    }
+  }
+}
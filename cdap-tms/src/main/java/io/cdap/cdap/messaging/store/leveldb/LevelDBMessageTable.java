@@ -33,6 +33,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import javax.annotation.Nullable;
 import org.iq80.leveldb.DB;
@@ -75,9 +76,24 @@ final class LevelDBMessageTable extends AbstractMessageTable {
   }
 
   private final LevelDBPartitionManager partitionManager;
+  @Nullable
+  private final Executor readAheadExecutor;
 
   LevelDBMessageTable(LevelDBPartitionManager partitionManager) {
+    this(partitionManager, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param partitionManager the {@link LevelDBPartitionManager} for the topic
+   * @param readAheadExecutor if not {@code null}, scans open the next partition in the
+   *     background using the given executor
+   */
+  LevelDBMessageTable(LevelDBPartitionManager partitionManager,
+      @Nullable Executor readAheadExecutor) {
     this.partitionManager = partitionManager;
+    this.readAheadExecutor = readAheadExecutor;
   }
 
   @Override
@@ -100,8 +116,7 @@ final class LevelDBMessageTable extends AbstractMessageTable {
     };
 
     return new PartitionedDBScanIterator<>(partitions.iterator(), scanRequest.getStartRow(),
-        scanRequest.getStopRow(),
-        decodeFunction);
+        scanRequest.getStopRow(), decodeFunction, readAheadExecutor);
   }
 
   @Override
@@ -110,6 +125,8 @@ final class LevelDBMessageTable extends AbstractMessageTable {
     // write the batch when the next entry is outside of the current partition
     LevelDBPartition partition = null;
     WriteBatch writeBatch = null;
+    byte[] firstKey = null;
+    byte[] lastKey = null;
     while (entries.hasNext()) {
       RawMessageTableEntry entry = entries.next();
       byte[] rowKey = entry.getKey().getRowKey();
@@ -119,27 +136,37 @@ final class LevelDBMessageTable extends AbstractMessageTable {
       if (partition == null || publishTime < partition.getStartTime()
           || publishTime >= partition.getEndTime()) {
         if (partition != null) {
-          try {
-            partition.getLevelDB().write(writeBatch, WRITE_OPTIONS);
-          } finally {
-            writeBatch.close();
-          }
+          write(partition, writeBatch, firstKey, lastKey);
         }
         partition = partitionManager.getOrCreatePartition(publishTime);
         writeBatch = partition.getLevelDB().createWriteBatch();
+        firstKey = null;
       }
 
       // LevelDB doesn't make copies, and since we reuse RawMessageTableEntry object, we need to create copies.
-      writeBatch.put(Arrays.copyOf(rowKey, rowKey.length),
-          encodeValue(entry.getTxPtr(), entry.getPayload()));
+      lastKey = Arrays.copyOf(rowKey, rowKey.length);
+      if (firstKey == null) {
+        firstKey = lastKey;
+      }
+      writeBatch.put(lastKey, encodeValue(entry.getTxPtr(), entry.getPayload()));
     }
 
     if (partition != null) {
-      try {
-        partition.getLevelDB().write(writeBatch, WRITE_OPTIONS);
-      } finally {
-        writeBatch.close();
-      }
+      write(partition, writeBatch, firstKey, lastKey);
+    }
+  }
+
+  /**
+   * Writes a {@link WriteBatch} containing rows between the given first and last keys to the given
+   * partition.
+   */
+  private void write(LevelDBPartition partition, WriteBatch writeBatch, byte[] firstKey,
+      byte[] lastKey) throws IOException {
+    try {
+      partition.updateKeyRange(firstKey, lastKey);
+      partition.getLevelDB().write(writeBatch, WRITE_OPTIONS);
+    } finally {
+      writeBatch.close();
     }
   }
 
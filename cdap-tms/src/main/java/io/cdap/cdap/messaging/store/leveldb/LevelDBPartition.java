@@ -16,27 +16,80 @@
 
 package io.cdap.cdap.messaging.store.leveldb;
 
+import com.google.common.annotations.VisibleForTesting;
+import io.cdap.cdap.api.common.Bytes;
 import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import javax.annotation.Nullable;
 import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * One partition of a MessageTable, backed by a LevelDB table.
+ *
+ * It also maintains an index of the minimum and maximum row keys in the partition, which is used
+ * to skip partitions that cannot contain rows in a scan range. The LevelDB implementation in use
+ * doesn't support seeking to the last key, so the key range is saved to a file in the partition
+ * directory when the partition is closed, and loaded from it without opening the table when the
+ * partition is used again. The file is deleted before a write widens the range, so that it never
+ * holds a range narrower than the rows in the table. If there is no such file, for example after
+ * a crash, the minimum key is loaded from the table and the maximum key stays unknown.
  */
 public class LevelDBPartition implements Closeable {
 
+  private static final Logger LOG = LoggerFactory.getLogger(LevelDBPartition.class);
+
+  @VisibleForTesting
+  static final String KEY_RANGE_FILE = "KEYRANGE";
+  private static final int KEY_RANGE_VERSION = 1;
+
   private final File file;
   private final long startTime;
   private final long endTime;
   private final Supplier levelDBSupplier;
   private volatile DB levelDB;
 
+  // Key range index, guarded by this
+  private boolean keyRangeLoaded;
+  private boolean maxKeyKnown;
+  private byte[] minKey;
+  private byte[] maxKey;
+  // Whether the key range file holds the current key range
+  private boolean keyRangeSaved;
+
   public LevelDBPartition(File file, long startTime, long endTime, Supplier levelDBSupplier) {
+    this(file, startTime, endTime, levelDBSupplier, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param file the directory of the partition
+   * @param startTime the inclusive start publish time of the partition
+   * @param endTime the exclusive end publish time of the partition
+   * @param levelDBSupplier the {@link Supplier} to open the LevelDB table
+   * @param newPartition {@code true} if the partition is newly created and has no data
+   */
+  public LevelDBPartition(File file, long startTime, long endTime, Supplier levelDBSupplier,
+      boolean newPartition) {
     this.file = file;
     this.startTime = startTime;
     this.endTime = endTime;
     this.levelDBSupplier = levelDBSupplier;
+    this.keyRangeLoaded = newPartition;
+    this.maxKeyKnown = newPartition;
   }
 
   public File getFile() {
@@ -63,8 +116,171 @@ public class LevelDBPartition implements Closeable {
     return levelDB;
   }
 
+  /**
+   * Returns whether the LevelDB table of this partition is opened.
+   */
+  @VisibleForTesting
+  boolean isOpened() {
+    return levelDB != null;
+  }
+
+  /**
+   * Returns whether this partition may contain rows between the given start and stop row keys.
+   *
+   * @param startRow the inclusive start row or {@code null} to start from the first row
+   * @param stopRow the exclusive stop row or {@code null} to scan to the last row
+   * @return {@code false} if it is certain that there is no row in the range
+   */
+  public synchronized boolean mayContain(@Nullable byte[] startRow, @Nullable byte[] stopRow)
+      throws IOException {
+    loadKeyRange();
+
+    // Empty partition
+    if (minKey == null) {
+      return false;
+    }
+    if (stopRow != null && Bytes.compareTo(minKey, stopRow) >= 0) {
+      return false;
+    }
+    return !(maxKeyKnown && startRow != null && Bytes.compareTo(maxKey, startRow) < 0);
+  }
+
+  /**
+   * Updates the key range index before rows between the given keys are written to this partition.
+   * The range must be widened before the write, so that a concurrent scan never skips this
+   * partition once the rows are visible. A failed write only leaves the range wider than needed.
+   *
+   * @param firstKey the smallest key to be written
+   * @param lastKey the largest key to be written
+   */
+  public synchronized void updateKeyRange(byte[] firstKey, byte[] lastKey) throws IOException {
+    // Load the range first, otherwise a concurrent load may happen before the rows are written
+    loadKeyRange();
+    boolean widenMin = minKey == null || Bytes.compareTo(firstKey, minKey) < 0;
+    boolean widenMax = maxKeyKnown && (maxKey == null || Bytes.compareTo(lastKey, maxKey) > 0);
+    if ((widenMin || widenMax) && keyRangeSaved) {
+      deleteKeyRangeFile();
+      keyRangeSaved = false;
+    }
+    if (widenMin) {
+      minKey = firstKey;
+    }
+    if (widenMax) {
+      maxKey = lastKey;
+    }
+  }
+
+  /**
+   * Loads the key range from the key range file, or the minimum key from the table if there is no
+   * such file, if the key range is not loaded yet.
+   */
+  private void loadKeyRange() throws IOException {
+    if (keyRangeLoaded) {
+      return;
+    }
+    if (readKeyRangeFile()) {
+      keyRangeLoaded = true;
+      keyRangeSaved = true;
+      maxKeyKnown = true;
+      return;
+    }
+    try (DBIterator iterator = getLevelDB().iterator()) {
+      iterator.seekToFirst();
+      if (iterator.hasNext()) {
+        Map.Entry<byte[], byte[]> entry = iterator.next();
+        minKey = entry.getKey();
+      }
+    }
+    keyRangeLoaded = true;
+  }
+
+  /**
+   * Reads the key range from the key range file.
+   *
+   * @return {@code true} if the key range was read, {@code false} if there is no valid key range
+   *     file
+   */
+  private boolean readKeyRangeFile() {
+    Path path = file.toPath().resolve(KEY_RANGE_FILE);
+    if (!Files.exists(path)) {
+      return false;
+    }
+    try (DataInputStream is = new DataInputStream(Files.newInputStream(path))) {
+      if (is.readInt() != KEY_RANGE_VERSION) {
+        LOG.warn("Ignoring key range file {} with unknown version", path);
+        return false;
+      }
+      if (is.readBoolean()) {
+        minKey = readKey(is);
+        maxKey = readKey(is);
+      } else {
+        minKey = null;
+        maxKey = null;
+      }
+      return true;
+    } catch (IOException e) {
+      LOG.warn("Failed to read key range file {}. Loading the key range from the table.", path, e);
+      minKey = null;
+      maxKey = null;
+      return false;
+    }
+  }
+
+  /**
+   * Saves the key range to the key range file if it is fully known and not saved yet.
+   */
+  private void saveKeyRange() throws IOException {
+    if (!keyRangeLoaded || !maxKeyKnown || keyRangeSaved) {
+      return;
+    }
+    Path path = file.toPath().resolve(KEY_RANGE_FILE);
+    Path tmpPath = file.toPath().resolve(KEY_RANGE_FILE + ".tmp");
+    try (OutputStream os = Files.newOutputStream(tmpPath);
+        DataOutputStream dos = new DataOutputStream(os)) {
+      dos.writeInt(KEY_RANGE_VERSION);
+      dos.writeBoolean(minKey != null);
+      if (minKey != null) {
+        writeKey(dos, minKey);
+        writeKey(dos, maxKey);
+      }
+    }
+    Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    keyRangeSaved = true;
+  }
+
+  /**
+   * Deletes the key range file, and syncs the partition directory so that the file cannot reappear
+   * after a crash once rows outside of the saved range are written.
+   */
+  private void deleteKeyRangeFile() throws IOException {
+    Files.deleteIfExists(file.toPath().resolve(KEY_RANGE_FILE));
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Directories cannot be synced on some platforms
+      LOG.trace("Failed to sync directory {}", file, e);
+    }
+  }
+
+  private static byte[] readKey(DataInputStream is) throws IOException {
+    byte[] key = new byte[is.readInt()];
+    is.readFully(key);
+    return key;
+  }
+
+  private static void writeKey(DataOutputStream os, byte[] key) throws IOException {
+    os.writeInt(key.length);
+    os.write(key);
+  }
+
   @Override
-  public void close() throws IOException {
+  public synchronized void close() throws IOException {
+    try {
+      saveKeyRange();
+    } catch (IOException e) {
+      // The key range is loaded from the table when the partition is used again
+      LOG.warn("Failed to save the key range of partition {}", file, e);
+    }
     if (levelDB != null) {
       levelDB.close();
     }
@@ -269,8 +269,10 @@ public class LevelDBPartitionManager implements Closeable {
 
   private LevelDBPartition createPartition(File topicDir, long start, long end) throws IOException {
     File dbPath = getPartitionDir(topicDir, start, end);
+    boolean newPartition = !dbPath.exists();
     ensureDirExists(dbPath);
-    return new LevelDBPartition(dbPath, start, end, () -> LEVEL_DB_FACTORY.open(dbPath, dbOptions));
+    return new LevelDBPartition(dbPath, start, end, () -> LEVEL_DB_FACTORY.open(dbPath, dbOptions),
+        newPartition);
   }
 
   private File ensureDirExists(File dir) throws IOException {
@@ -43,9 +43,11 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.apache.twill.common.Threads;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.Options;
@@ -72,6 +74,8 @@ public final class LevelDBTableFactory implements TableFactory {
   private final ConcurrentMap<File, DB> levelDBs;
   private final ConcurrentMap<File, LevelDBPartitionManager> partitionedLevelDBs;
   private final long partitionSizeMillis;
+  @Nullable
+  private final ExecutorService readAheadExecutor;
 
   private LevelDBMetadataTable metadataTable;
 
@@ -101,6 +105,11 @@ public final class LevelDBTableFactory implements TableFactory {
     this.partitionedLevelDBs = new ConcurrentHashMap<>();
     this.partitionSizeMillis =
         cConf.getLong(Constants.MessagingSystem.LOCAL_DATA_PARTITION_SECONDS) * 1000;
+    int readAheadThreads = cConf.getInt(Constants.MessagingSystem.LOCAL_DATA_READ_AHEAD_THREADS);
+    this.readAheadExecutor = readAheadThreads > 0
+        ? Executors.newFixedThreadPool(readAheadThreads,
+            Threads.createDaemonThreadFactory("leveldb-tms-read-ahead-%d"))
+        : null;
   }
 
   @Override
@@ -179,7 +188,8 @@ public final class LevelDBTableFactory implements TableFactory {
 
   @Override
   public MessageTable createMessageTable(TopicMetadata topicMetadata) throws IOException {
-    return new LevelDBMessageTable(getPartitionedLevelDB(topicMetadata, messageTableName));
+    return new LevelDBMessageTable(getPartitionedLevelDB(topicMetadata, messageTableName),
+        readAheadExecutor);
   }
 
   @Override
@@ -189,6 +199,9 @@ public final class LevelDBTableFactory implements TableFactory {
 
   @Override
   public void close() {
+    if (readAheadExecutor != null) {
+      readAheadExecutor.shutdownNow();
+    }
     LevelDBMetadataTable metadataTable;
     synchronized (this) {
       metadataTable = this.metadataTable;
@@ -21,10 +21,18 @@ import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.BiFunction;
+import javax.annotation.Nullable;
 
 /**
- * An iterator that scans over multiple partitions of a MessageTable.
+ * An iterator that scans over multiple partitions of a MessageTable. Partitions that cannot contain
+ * rows in the scan range are skipped without being scanned. If a read-ahead {@link Executor} is
+ * provided, the next partition is opened in the background while the current partition is being
+ * consumed. The rows of a partition are only read once the scan reaches it, so that rows written to
+ * the partition in the meantime are not missed by the scan.
  *
  * @param <T> type of object to scan
  */
@@ -34,20 +42,39 @@ public class PartitionedDBScanIterator<T> extends AbstractCloseableIterator<T> {
   private final byte[] startRow;
   private final byte[] stopRow;
   private final BiFunction<byte[], byte[], T> decodeFunction;
+  @Nullable
+  private final Executor readAheadExecutor;
   private boolean closed;
   private CloseableIterator<Map.Entry<byte[], byte[]>> currentPartition;
+  private CompletableFuture<LevelDBPartition> nextPartition;
 
   public PartitionedDBScanIterator(Iterator<LevelDBPartition> partitionIter, byte[] startRow,
       byte[] stopRow,
       BiFunction<byte[], byte[], T> decodeFunction) throws IOException {
+    this(partitionIter, startRow, stopRow, decodeFunction, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param partitionIter the partitions to scan in order
+   * @param startRow the inclusive start row
+   * @param stopRow the exclusive stop row
+   * @param decodeFunction function to decode row key and value
+   * @param readAheadExecutor if not {@code null}, the executor for opening the next partition
+   *     in the background
+   */
+  public PartitionedDBScanIterator(Iterator<LevelDBPartition> partitionIter, byte[] startRow,
+      byte[] stopRow, BiFunction<byte[], byte[], T> decodeFunction,
+      @Nullable Executor readAheadExecutor) throws IOException {
     this.partitionIter = partitionIter;
     this.startRow = startRow;
     this.stopRow = stopRow;
     this.decodeFunction = decodeFunction;
+    this.readAheadExecutor = readAheadExecutor;
     this.closed = false;
-    this.currentPartition = partitionIter.hasNext()
-        ? new DBScanIterator(partitionIter.next().getLevelDB(), startRow, stopRow)
-        : CloseableIterator.empty();
+    this.currentPartition = openNextPartition();
+    readAhead();
   }
 
   @Override
@@ -57,17 +84,13 @@ public class PartitionedDBScanIterator<T> extends AbstractCloseableIterator<T> {
     }
 
     if (!currentPartition.hasNext()) {
-      while (partitionIter.hasNext()) {
-        try {
-          currentPartition = new DBScanIterator(partitionIter.next().getLevelDB(), startRow,
-              stopRow);
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
-        if (currentPartition.hasNext()) {
-          break;
-        }
+      currentPartition.close();
+      try {
+        currentPartition = openNextPartition();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
       }
+      readAhead();
     }
 
     if (!currentPartition.hasNext()) {
@@ -83,8 +106,71 @@ public class PartitionedDBScanIterator<T> extends AbstractCloseableIterator<T> {
     try {
       currentPartition.close();
     } finally {
+      // The partition being read ahead has no iterator opened, hence there is nothing to close
+      nextPartition = null;
       endOfData();
       closed = true;
     }
   }
+
+  /**
+   * Starts opening the next partition in the background if read-ahead is enabled and there are
+   * more partitions to scan. Only the LevelDB table and the key range of the partition are loaded,
+   * no iterator is created until the scan reaches the partition, since the iterator would not see
+   * rows written after its creation.
+   */
+  private void readAhead() {
+    if (readAheadExecutor == null || !currentPartition.hasNext() || !partitionIter.hasNext()) {
+      return;
+    }
+    LevelDBPartition partition = partitionIter.next();
+    try {
+      nextPartition = CompletableFuture.supplyAsync(() -> {
+        try {
+          partition.mayContain(startRow, stopRow);
+        } catch (IOException e) {
+          // Ignore it here, since it will be raised again when the scan reaches the partition
+        }
+        return partition;
+      }, readAheadExecutor);
+    } catch (RejectedExecutionException e) {
+      // Fallback to open the partition when the scan reaches it
+      nextPartition = CompletableFuture.completedFuture(partition);
+    }
+  }
+
+  /**
+   * Returns the next partition to scan, either from the read-ahead or from the partition iterator.
+   *
+   * @return the next partition or {@code null} if there are no more partitions
+   */
+  @Nullable
+  private LevelDBPartition takeNextPartition() {
+    if (nextPartition != null) {
+      CompletableFuture<LevelDBPartition> future = nextPartition;
+      nextPartition = null;
+      return future.join();
+    }
+    return partitionIter.hasNext() ? partitionIter.next() : null;
+  }
+
+  /**
+   * Opens the next partition that has rows in the scan range.
+   *
+   * @return an iterator positioned at the start row or an empty iterator if there are no more rows
+   */
+  private CloseableIterator<Map.Entry<byte[], byte[]>> openNextPartition() throws IOException {
+    LevelDBPartition partition = takeNextPartition();
+    while (partition != null) {
+      if (partition.mayContain(startRow, stopRow)) {
+        DBScanIterator iterator = new DBScanIterator(partition.getLevelDB(), startRow, stopRow);
+        if (iterator.hasNext()) {
+          return iterator;
+        }
+        iterator.close();
+      }
+      partition = takeNextPartition();
+    }
+    return CloseableIterator.empty();
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging;
+
+import com.google.common.base.Strings;
+import io.cdap.cdap.api.common.Bytes;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PayloadCodec}.
+ */
+public class PayloadCodecTest {
+
+  @Test
+  public void testRoundTrip() {
+    byte[] random = new byte[20000];
+    new Random(0).nextBytes(random);
+    byte[][] payloads = {
+        new byte[0],
+        Bytes.toBytes("{\"message\":1}"),
+        Bytes.toBytes(Strings.repeat("{\"message\":1}", 1000)),
+        random,
+    };
+
+    for (PayloadCodec codec : PayloadCodec.values()) {
+      // Payloads are compressed and decompressed twice, to check that the codecs can be reused
+      for (int i = 0; i < 2; i++) {
+        for (byte[] payload : payloads) {
+          Assert.assertArrayEquals(codec.toString(), payload,
+              codec.decompress(codec.compress(payload)));
+        }
+      }
+    }
+
+    byte[] repetitive = payloads[2];
+    Assert.assertTrue(PayloadCodec.DEFLATE.compress(repetitive).length < repetitive.length / 10);
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void testTruncatedDeflatePayload() {
+    byte[] compressed = PayloadCodec.DEFLATE.compress(
+        Bytes.toBytes(Strings.repeat("{\"message\":1}", 1000)));
+    PayloadCodec.DEFLATE.decompress(Arrays.copyOf(compressed, compressed.length / 2));
+  }
+
+  @Test
+  public void testFromName() {
+    Assert.assertEquals(PayloadCodec.NONE, PayloadCodec.fromName(null));
+    Assert.assertEquals(PayloadCodec.NONE, PayloadCodec.fromName(""));
+    Assert.assertEquals(PayloadCodec.SNAPPY, PayloadCodec.fromName("snappy"));
+    Assert.assertEquals(PayloadCodec.DEFLATE, PayloadCodec.fromName("Deflate"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedName() {
+    PayloadCodec.fromName("lz4");
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.messaging.server;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
 import com.google.common.collect.Iterators;
 import com.google.inject.AbstractModule;
@@ -60,6 +61,10 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.tephra.Transaction;
 import org.apache.tephra.TxConstants;
@@ -78,11 +83,13 @@ import org.junit.runners.Parameterized;
 @RunWith(Parameterized.class)
 public class MessagingHttpServiceTest {
 
-  @Parameterized.Parameters(name = "{index}: compressPayload = {0}")
+  @Parameterized.Parameters(name = "{index}: compressPayload = {0}, framedFetch = {1}")
   public static Collection<Object[]> parameters() {
     return Arrays.asList(new Object[][]{
-      {false},
-      {true},
+      {false, false},
+      {true, false},
+      {false, true},
+      {true, true},
     });
   }
 
@@ -90,12 +97,14 @@ public class MessagingHttpServiceTest {
   public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
 
   private final boolean compressPayload;
+  private final boolean framedFetch;
   private CConfiguration cConf;
   private MessagingHttpService httpService;
   private MessagingService client;
 
-  public MessagingHttpServiceTest(boolean compressPayload) {
+  public MessagingHttpServiceTest(boolean compressPayload, boolean framedFetch) {
     this.compressPayload = compressPayload;
+    this.framedFetch = framedFetch;
   }
 
   @Before
@@ -127,7 +136,8 @@ public class MessagingHttpServiceTest {
 
     httpService = injector.getInstance(MessagingHttpService.class);
     httpService.startAndWait();
-    client = new ClientMessagingService(injector.getInstance(RemoteClientFactory.class), compressPayload);
+    client = new ClientMessagingService(injector.getInstance(RemoteClientFactory.class), compressPayload,
+                                        framedFetch);
   }
 
   @After
@@ -716,4 +726,90 @@ public class MessagingHttpServiceTest {
                           .map(RawMessage::getPayload)
                           .map(Bytes::toString).collect(Collectors.toList()));
   }
+
+  @Test
+  public void testLongPollFetch() throws Exception {
+    TopicId topicId = new NamespaceId("ns1").topic("testLongPollFetch");
+    client.createTopic(new DefaultTopicMetadata(topicId));
+
+    // Fetch on an empty topic should return empty after the wait time
+    Stopwatch stopwatch = new Stopwatch().start();
+    try (CloseableIterator<RawMessage> iterator = client.fetch(
+        new DefaultMessageFetchRequest.Builder().setTopicId(topicId).setWaitMillis(200).build())) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(stopwatch.elapsed(TimeUnit.MILLISECONDS) >= 200);
+
+    // Publish a message in the background while the fetch is waiting
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> publishFuture = executor.submit(() -> {
+        TimeUnit.MILLISECONDS.sleep(500);
+        return client.publish(StoreRequestBuilder.of(topicId).addPayload("m1").build());
+      });
+
+      stopwatch.reset().start();
+      List<RawMessage> messages = new ArrayList<>();
+      try (CloseableIterator<RawMessage> iterator = client.fetch(
+          new DefaultMessageFetchRequest.Builder().setTopicId(topicId).setWaitMillis(20000)
+              .build())) {
+        Iterators.addAll(messages, iterator);
+      }
+      publishFuture.get();
+
+      // The fetch should return as soon as the message is published
+      Assert.assertTrue(stopwatch.elapsed(TimeUnit.MILLISECONDS) < 20000);
+      Assert.assertEquals(Collections.singletonList("m1"),
+                          messages.stream()
+                            .map(RawMessage::getPayload)
+                            .map(Bytes::toString).collect(Collectors.toList()));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    client.deleteTopic(topicId);
+  }
+
+  @Test
+  public void testCompressedTopic() throws Exception {
+    for (String compression : Arrays.asList("snappy", "deflate")) {
+      TopicId topicId = new NamespaceId("ns1").topic("testCompressedTopic" + compression);
+      client.createTopic(new DefaultTopicMetadata(topicId, DefaultTopicMetadata.COMPRESSION_KEY,
+                                                  compression));
+
+      // Publish non-transactional messages to the message table and
+      // transactional messages to the payload table
+      List<String> expected = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        String payload = Strings.repeat("{\"message\":" + i + "}", 100);
+        expected.add(payload);
+        client.publish(StoreRequestBuilder.of(topicId).addPayload(payload).build());
+      }
+      for (int i = 10; i < 20; i++) {
+        String payload = Strings.repeat("{\"message\":" + i + "}", 100);
+        expected.add(payload);
+        client.storePayload(StoreRequestBuilder.of(topicId).addPayload(payload)
+                              .setTransaction(1L).build());
+      }
+      client.publish(StoreRequestBuilder.of(topicId).setTransaction(1L).build());
+
+      // Messages should be decompressed when fetched
+      try (CloseableIterator<RawMessage> iterator =
+          client.fetch(new DefaultMessageFetchRequest.Builder().setTopicId(topicId).build())) {
+        List<String> actual = new ArrayList<>();
+        iterator.forEachRemaining(message -> actual.add(Bytes.toString(message.getPayload())));
+        Assert.assertEquals(expected, actual);
+      }
+
+      // Changing the compression of an existing topic is not allowed
+      try {
+        client.updateTopic(new DefaultTopicMetadata(topicId));
+        Assert.fail("Expected IllegalArgumentException");
+      } catch (IllegalArgumentException e) {
+        // Expected
+      }
+
+      client.deleteTopic(topicId);
+    }
+  }
 }
@@ -37,7 +37,9 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
@@ -269,6 +271,52 @@ public class ConcurrentMessageWriterTest {
     }
   }
 
+  @Test
+  public void testBatchMetrics() throws InterruptedException {
+    TopicId topicId = new NamespaceId("ns1").topic("t1");
+    final TopicMetadata metadata = new DefaultTopicMetadata(topicId, new HashMap<String, String>(), 1);
+    int requestCount = 3;
+
+    // Block all persist calls until all requests are enqueued, so that they are written in one batch
+    final CountDownLatch latch = new CountDownLatch(requestCount);
+    final Map<String, Long> counters = new ConcurrentHashMap<>();
+    final Map<String, Long> gauges = new ConcurrentHashMap<>();
+    TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider());
+    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new MetricsCollector() {
+      @Override
+      public void increment(String metricName, long value) {
+        counters.merge(metricName, value, Long::sum);
+        if ("persist.requested".equals(metricName)) {
+          latch.countDown();
+          Uninterruptibles.awaitUninterruptibly(latch);
+        }
+      }
+
+      @Override
+      public void gauge(String metricName, long value) {
+        gauges.put(metricName, value);
+      }
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(requestCount);
+    for (int i = 0; i < requestCount; i++) {
+      final StoreRequest request = new TestStoreRequest(topicId, Arrays.asList("1", "2", "3"));
+      executor.submit(() -> {
+        writer.persist(request, metadata);
+        return null;
+      });
+    }
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    Assert.assertEquals(requestCount * 3, testWriter.getMessages().get(topicId).size());
+    Assert.assertEquals(Long.valueOf(requestCount), counters.get("persist.requested"));
+    Assert.assertEquals(Long.valueOf(requestCount), counters.get("persist.success"));
+    Assert.assertEquals(Long.valueOf(1L), counters.get("persist.batches"));
+    Assert.assertEquals(Long.valueOf(requestCount), gauges.get("persist.batch.size"));
+    Assert.assertTrue(gauges.get("persist.latency.ms") >= 0L);
+  }
+
   /**
    * A {@link StoreRequestWriter} that turns all payloads to {@link RawMessage} and stores it in a List.
    */
@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.cache;
+
+import com.google.common.collect.Lists;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.messaging.DefaultTopicMetadata;
+import io.cdap.cdap.messaging.MessagingUtils;
+import io.cdap.cdap.messaging.cache.MessageCache;
+import io.cdap.cdap.messaging.spi.TopicMetadata;
+import io.cdap.cdap.messaging.store.ImmutableMessageTableEntry;
+import io.cdap.cdap.messaging.store.MessageFilter;
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.proto.id.NamespaceId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link OffHeapMessageCache}.
+ */
+public class OffHeapMessageCacheTest {
+
+  private static final TopicMetadata METADATA = new DefaultTopicMetadata(
+      NamespaceId.DEFAULT.topic("test"), DefaultTopicMetadata.GENERATION_KEY, 1,
+      DefaultTopicMetadata.TTL_KEY, 86400);
+  private static final MessageFilter<MessageTable.Entry> ACCEPT_ALL = MessageFilter.alwaysAccept();
+
+  @Test
+  public void testBasic() {
+    OffHeapMessageCache cache = new OffHeapMessageCache(METADATA.getTopicId(),
+        new MessageCache.Limits(0, 0, 4096), 1024, new NoopMetricsContext());
+
+    List<MessageTable.Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      entries.add(createEntry(i, null));
+    }
+    cache.addAll(entries.iterator());
+    Assert.assertEquals(1, cache.getSegmentCount());
+
+    // Scan all entries
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+        ACCEPT_ALL)) {
+      Assert.assertEquals(0L, scanner.getFirstInCache().getPublishTimestamp());
+      assertEntries(0, 10, Lists.newArrayList(scanner));
+    }
+
+    // Scan exclusive with limit
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(5), false, 3,
+        ACCEPT_ALL)) {
+      Assert.assertEquals(0L, scanner.getFirstInCache().getPublishTimestamp());
+      assertEntries(6, 3, Lists.newArrayList(scanner));
+    }
+
+    // Scan with a filter that holds at the 8th entry
+    MessageFilter<MessageTable.Entry> holdAtEight = new MessageFilter<MessageTable.Entry>() {
+      @Override
+      public Result apply(MessageTable.Entry entry) {
+        return entry.getPublishTimestamp() == 8 ? Result.HOLD : Result.ACCEPT;
+      }
+    };
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(5), true, 100,
+        holdAtEight)) {
+      assertEntries(5, 3, Lists.newArrayList(scanner));
+    }
+
+    // Adding entries that are not in increasing order should fail and clear the cache
+    try {
+      cache.addAll(Collections.singletonList(createEntry(3, null)).iterator());
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    Assert.assertEquals(0, cache.getSegmentCount());
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+        ACCEPT_ALL)) {
+      Assert.assertNull(scanner.getFirstInCache());
+      Assert.assertFalse(scanner.hasNext());
+    }
+  }
+
+  @Test
+  public void testSegmentEviction() {
+    // Each entry takes 41 bytes including the slot, hence each segment can hold two entries
+    OffHeapMessageCache cache = new OffHeapMessageCache(METADATA.getTopicId(),
+        new MessageCache.Limits(0, 0, 300), 100, new NoopMetricsContext());
+
+    for (int i = 0; i < 100; i++) {
+      cache.addAll(Collections.singletonList(createEntry(i, null)).iterator());
+      Assert.assertTrue(cache.getAllocatedSize() <= 300);
+    }
+    Assert.assertEquals(3, cache.getSegmentCount());
+
+    // The cache should have the last 6 entries, which are contiguous
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+        ACCEPT_ALL)) {
+      Assert.assertEquals(94L, scanner.getFirstInCache().getPublishTimestamp());
+      assertEntries(94, 6, Lists.newArrayList(scanner));
+    }
+
+    // An entry larger than the hard limit cannot be cached, hence all entries should be evicted
+    cache.addAll(Collections.singletonList(createEntry(100, new byte[300], null)).iterator());
+    Assert.assertEquals(0, cache.getSegmentCount());
+
+    // An entry larger than the segment size gets its own segment
+    cache.addAll(Collections.singletonList(createEntry(101, new byte[150], null)).iterator());
+    Assert.assertEquals(1, cache.getSegmentCount());
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+        ACCEPT_ALL)) {
+      List<MessageTable.Entry> entries = Lists.newArrayList(scanner);
+      Assert.assertEquals(1, entries.size());
+      Assert.assertEquals(150, entries.get(0).getPayload().length);
+    }
+
+    // Resizing to zero should evict everything
+    cache.clear();
+    Assert.assertEquals(0L, cache.getAllocatedSize());
+  }
+
+  @Test
+  public void testRollback() {
+    OffHeapMessageCache cache = new OffHeapMessageCache(METADATA.getTopicId(),
+        new MessageCache.Limits(0, 0, 4096), 256, new NoopMetricsContext());
+
+    List<MessageTable.Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      entries.add(createEntry(i, Bytes.toBytes((long) i)));
+    }
+    cache.addAll(entries.iterator());
+    Assert.assertTrue(cache.getSegmentCount() > 1);
+
+    // Rollback entries across segments
+    cache.updateEntries(lookup(3), lookup(7), new MessageCache.EntryUpdater<MessageTable.Entry>() {
+      @Override
+      public void updateEntry(MessageTable.Entry entry) {
+        ((CachingMessageTable.CacheMessageTableEntry) entry).rollback();
+      }
+    });
+
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+        ACCEPT_ALL)) {
+      List<MessageTable.Entry> result = Lists.newArrayList(scanner);
+      assertEntries(0, 10, result);
+      for (MessageTable.Entry entry : result) {
+        long timestamp = entry.getPublishTimestamp();
+        Assert.assertTrue(entry.isTransactional());
+        Assert.assertEquals(timestamp, entry.getTransactionWritePointer());
+        Assert.assertEquals(timestamp >= 3 && timestamp <= 7,
+            ((CachingMessageTable.CacheMessageTableEntry) entry).isRollback());
+      }
+    }
+  }
+
+  private void assertEntries(long startTimestamp, int count, List<MessageTable.Entry> entries) {
+    Assert.assertEquals(count, entries.size());
+    for (int i = 0; i < count; i++) {
+      MessageTable.Entry entry = entries.get(i);
+      Assert.assertEquals(METADATA.getTopicId(), entry.getTopicId());
+      Assert.assertEquals(METADATA.getGeneration(), entry.getGeneration());
+      Assert.assertEquals(startTimestamp + i, entry.getPublishTimestamp());
+      Assert.assertEquals(String.format("Payload %02d", startTimestamp + i),
+          Bytes.toString(entry.getPayload()));
+    }
+  }
+
+  private MessageTable.Entry lookup(long publishTimestamp) {
+    return new CachingMessageTable.CacheMessageTableEntry(METADATA, publishTimestamp, (short) 0);
+  }
+
+  private MessageTable.Entry createEntry(long publishTimestamp, @Nullable byte[] txWritePointer) {
+    return createEntry(publishTimestamp, Bytes.toBytes(String.format("Payload %02d",
+        publishTimestamp)), txWritePointer);
+  }
+
+  private MessageTable.Entry createEntry(long publishTimestamp, byte[] payload,
+      @Nullable byte[] txWritePointer) {
+    byte[] key = Bytes.concat(
+        MessagingUtils.toDataKeyPrefix(METADATA.getTopicId(), METADATA.getGeneration()),
+        Bytes.toBytes(publishTimestamp), Bytes.toBytes((short) 0));
+    return new ImmutableMessageTableEntry(key, payload, txWritePointer);
+  }
+}
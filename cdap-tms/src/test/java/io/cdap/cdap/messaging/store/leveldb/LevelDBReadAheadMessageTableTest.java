@@ -0,0 +1,277 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.leveldb;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.messaging.DefaultTopicMetadata;
+import io.cdap.cdap.messaging.data.MessageId;
+import io.cdap.cdap.messaging.spi.TopicMetadata;
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.messaging.store.MessageTableTest;
+import io.cdap.cdap.messaging.store.MetadataTable;
+import io.cdap.cdap.messaging.store.TestMessageEntry;
+import io.cdap.cdap.proto.id.TopicId;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link LevelDBMessageTable} with partition read-ahead enabled.
+ */
+public class LevelDBReadAheadMessageTableTest extends MessageTableTest {
+
+  private static final int PARTITION_SECONDS = 10;
+
+  @ClassRule
+  public static TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static LevelDBTableFactory tableFactory;
+
+  @BeforeClass
+  public static void init() throws IOException {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, tmpFolder.newFolder().getAbsolutePath());
+    cConf.set(Constants.MessagingSystem.LOCAL_DATA_PARTITION_SECONDS,
+        Integer.toString(PARTITION_SECONDS));
+    cConf.setInt(Constants.MessagingSystem.LOCAL_DATA_READ_AHEAD_THREADS, 2);
+    tableFactory = new LevelDBTableFactory(cConf);
+  }
+
+  @AfterClass
+  public static void finish() {
+    tableFactory.close();
+  }
+
+  @Override
+  protected MessageTable getMessageTable(TopicMetadata topicMetadata) throws Exception {
+    return tableFactory.createMessageTable(topicMetadata);
+  }
+
+  @Override
+  protected MetadataTable getMetadataTable() throws Exception {
+    return tableFactory.createMetadataTable();
+  }
+
+  @Test
+  public void testMultiPartitionScan() throws Exception {
+    TopicId topicId = new TopicId("default", "readahead");
+    TopicMetadata metadata = new DefaultTopicMetadata(topicId, Collections.singletonMap(
+        DefaultTopicMetadata.GENERATION_KEY, "1"));
+
+    try (MessageTable table = tableFactory.createMessageTable(metadata)) {
+      // Write one message every 3 seconds, which spans over multiple partitions
+      List<MessageTable.Entry> writes = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        writes.add(new TestMessageEntry(topicId, 1, i * 3000L, 0, null, new byte[]{(byte) i}));
+      }
+      table.store(writes.iterator());
+
+      // Scan from the beginning with a limit smaller than the number of messages
+      byte[] messageId = new byte[MessageId.RAW_ID_SIZE];
+      MessageId.putRawId(0L, (short) 0, 0L, (short) 0, messageId, 0);
+      try (CloseableIterator<MessageTable.Entry> iter =
+          table.fetch(metadata, new MessageId(messageId), true, 15, null)) {
+        for (int i = 0; i < 15; i++) {
+          Assert.assertTrue(iter.hasNext());
+          Assert.assertEquals(i * 3000L, iter.next().getPublishTimestamp());
+        }
+        Assert.assertFalse(iter.hasNext());
+      }
+
+      // Scan from a message in the middle exclusively
+      MessageId.putRawId(30000L, (short) 0, 0L, (short) 0, messageId, 0);
+      try (CloseableIterator<MessageTable.Entry> iter =
+          table.fetch(metadata, new MessageId(messageId), false, 100, null)) {
+        for (int i = 11; i < 20; i++) {
+          Assert.assertTrue(iter.hasNext());
+          Assert.assertEquals(i * 3000L, iter.next().getPublishTimestamp());
+        }
+        Assert.assertFalse(iter.hasNext());
+      }
+    }
+  }
+
+  @Test
+  public void testPartitionKeyRange() throws Exception {
+    File dir = tmpFolder.newFolder();
+    Options options = new Options().createIfMissing(true);
+
+    // A new partition knows both the min and max keys
+    LevelDBPartition partition = new LevelDBPartition(dir, 0L, 1000L,
+        () -> Iq80DBFactory.factory.open(dir, options), true);
+    try {
+      Assert.assertFalse(partition.mayContain(null, null));
+
+      DB levelDB = partition.getLevelDB();
+      partition.updateKeyRange(Bytes.toBytes(10L), Bytes.toBytes(20L));
+      levelDB.put(Bytes.toBytes(10L), Bytes.toBytes("a"));
+      levelDB.put(Bytes.toBytes(20L), Bytes.toBytes("b"));
+
+      Assert.assertTrue(partition.mayContain(null, null));
+      Assert.assertTrue(partition.mayContain(Bytes.toBytes(20L), null));
+      Assert.assertFalse(partition.mayContain(Bytes.toBytes(21L), null));
+      Assert.assertFalse(partition.mayContain(null, Bytes.toBytes(10L)));
+      Assert.assertTrue(partition.mayContain(null, Bytes.toBytes(11L)));
+    } finally {
+      partition.close();
+    }
+
+    // A closed partition saves its key range, which is loaded again without opening the table
+    File keyRangeFile = new File(dir, LevelDBPartition.KEY_RANGE_FILE);
+    Assert.assertTrue(keyRangeFile.exists());
+    partition = new LevelDBPartition(dir, 0L, 1000L,
+        () -> Iq80DBFactory.factory.open(dir, options));
+    try {
+      Assert.assertTrue(partition.mayContain(Bytes.toBytes(20L), null));
+      Assert.assertFalse(partition.mayContain(Bytes.toBytes(21L), null));
+      Assert.assertFalse(partition.mayContain(null, Bytes.toBytes(10L)));
+      Assert.assertFalse(partition.isOpened());
+
+      // Widening the range deletes the saved range before the rows are written
+      partition.updateKeyRange(Bytes.toBytes(25L), Bytes.toBytes(25L));
+      Assert.assertFalse(keyRangeFile.exists());
+      partition.getLevelDB().put(Bytes.toBytes(25L), Bytes.toBytes("c"));
+      Assert.assertTrue(partition.mayContain(Bytes.toBytes(21L), null));
+      Assert.assertFalse(partition.mayContain(Bytes.toBytes(26L), null));
+    } finally {
+      partition.close();
+    }
+    Assert.assertTrue(keyRangeFile.exists());
+
+    // Without a saved key range, such as after a crash, the min key is loaded from the table, but
+    // the max key is unknown
+    Assert.assertTrue(keyRangeFile.delete());
+    partition = new LevelDBPartition(dir, 0L, 1000L,
+        () -> Iq80DBFactory.factory.open(dir, options));
+    try {
+      Assert.assertTrue(partition.mayContain(Bytes.toBytes(26L), null));
+      Assert.assertFalse(partition.mayContain(null, Bytes.toBytes(10L)));
+      Assert.assertTrue(partition.mayContain(null, Bytes.toBytes(11L)));
+    } finally {
+      partition.close();
+    }
+    Assert.assertFalse(keyRangeFile.exists());
+
+    // Updating the range of an existing partition before it is loaded includes the new keys
+    File emptyDir = tmpFolder.newFolder();
+    partition = new LevelDBPartition(emptyDir, 0L, 1000L,
+        () -> Iq80DBFactory.factory.open(emptyDir, options));
+    try {
+      partition.updateKeyRange(Bytes.toBytes(30L), Bytes.toBytes(30L));
+      Assert.assertTrue(partition.mayContain(null, null));
+      Assert.assertTrue(partition.mayContain(null, Bytes.toBytes(31L)));
+      Assert.assertFalse(partition.mayContain(null, Bytes.toBytes(30L)));
+    } finally {
+      partition.close();
+    }
+  }
+
+  @Test
+  public void testReopenedTableSkipsPartitions() throws Exception {
+    TopicId topicId = new TopicId("default", "reopen");
+    TopicMetadata metadata = new DefaultTopicMetadata(topicId, Collections.singletonMap(
+        DefaultTopicMetadata.GENERATION_KEY, "1"));
+    File topicDir = tmpFolder.newFolder();
+    Options options = new Options().createIfMissing(true);
+    long partitionMillis = PARTITION_SECONDS * 1000L;
+
+    // Write to the first half of two partitions
+    LevelDBPartitionManager partitionManager =
+        new LevelDBPartitionManager(topicDir, options, partitionMillis);
+    try (MessageTable table = new LevelDBMessageTable(partitionManager)) {
+      List<MessageTable.Entry> writes = new ArrayList<>();
+      for (long publishTime : new long[]{0L, 3000L, 10000L, 13000L}) {
+        writes.add(new TestMessageEntry(topicId, 1, publishTime, 0, null, Bytes.toBytes(publishTime)));
+      }
+      table.store(writes.iterator());
+    } finally {
+      partitionManager.close();
+    }
+
+    // After reopening, a scan that starts after the last row of the first partition skips it
+    // without opening its table
+    partitionManager = new LevelDBPartitionManager(topicDir, options, partitionMillis);
+    try (MessageTable table = new LevelDBMessageTable(partitionManager)) {
+      byte[] messageId = new byte[MessageId.RAW_ID_SIZE];
+      MessageId.putRawId(5000L, (short) 0, 0L, (short) 0, messageId, 0);
+      List<Long> publishTimes = new ArrayList<>();
+      try (CloseableIterator<MessageTable.Entry> iter =
+          table.fetch(metadata, new MessageId(messageId), true, 100, null)) {
+        while (iter.hasNext()) {
+          publishTimes.add(iter.next().getPublishTimestamp());
+        }
+      }
+      Assert.assertEquals(Arrays.asList(10000L, 13000L), publishTimes);
+
+      List<LevelDBPartition> partitions = new ArrayList<>(partitionManager.getPartitions(0L));
+      Assert.assertEquals(2, partitions.size());
+      Assert.assertFalse(partitions.get(0).isOpened());
+      Assert.assertTrue(partitions.get(1).isOpened());
+    } finally {
+      partitionManager.close();
+    }
+  }
+
+  @Test
+  public void testWriteToReadAheadPartition() throws Exception {
+    TopicId topicId = new TopicId("default", "readaheadwrite");
+    TopicMetadata metadata = new DefaultTopicMetadata(topicId, Collections.singletonMap(
+        DefaultTopicMetadata.GENERATION_KEY, "1"));
+
+    try (MessageTable table = tableFactory.createMessageTable(metadata)) {
+      // Write messages to the first two partitions
+      List<MessageTable.Entry> writes = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        writes.add(new TestMessageEntry(topicId, 1, i * 5000L, 0, null, new byte[]{(byte) i}));
+      }
+      table.store(writes.iterator());
+
+      byte[] messageId = new byte[MessageId.RAW_ID_SIZE];
+      MessageId.putRawId(0L, (short) 0, 0L, (short) 0, messageId, 0);
+      try (CloseableIterator<MessageTable.Entry> iter =
+          table.fetch(metadata, new MessageId(messageId), true, 100, null)) {
+        Assert.assertTrue(iter.hasNext());
+        Assert.assertEquals(0L, iter.next().getPublishTimestamp());
+
+        // Write to the partition that is being read ahead, the scan must still see the message
+        table.store(Collections.<MessageTable.Entry>singletonList(
+            new TestMessageEntry(topicId, 1, 19000L, 0, null, new byte[]{(byte) 4})).iterator());
+
+        for (long publishTime : new long[]{5000L, 10000L, 15000L, 19000L}) {
+          Assert.assertTrue(iter.hasNext());
+          Assert.assertEquals(publishTime, iter.next().getPublishTimestamp());
+        }
+        Assert.assertFalse(iter.hasNext());
+      }
+    }
+  }
+}
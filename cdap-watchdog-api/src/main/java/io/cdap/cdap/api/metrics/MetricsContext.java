@@ -48,4 +48,29 @@ public interface MetricsContext extends MetricsCollector {
    * @param value corresponding value
    */
   void event(String metricName, long value);
+
+  /**
+   * Returns a {@link Counter} for incrementing the given metric in this context. Callers that
+   * increment the same metric frequently should obtain the {@link Counter} once and reuse it, which
+   * avoids resolving the metric by name on every increment.
+   *
+   * @param metricName name of the metric
+   * @return a {@link Counter} for the metric
+   */
+  default Counter counter(String metricName) {
+    return value -> increment(metricName, value);
+  }
+
+  /**
+   * A handle for incrementing a counter metric in a {@link MetricsContext}.
+   */
+  interface Counter {
+
+    /**
+     * Increment the metric value at the current time.
+     *
+     * @param value value to increment by
+     */
+    void increment(long value);
+  }
 }
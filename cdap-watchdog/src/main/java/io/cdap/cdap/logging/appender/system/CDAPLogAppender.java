@@ -60,6 +60,7 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
   private String dirPermissions;
   private String filePermissions;
   private int syncIntervalBytes;
+  private long indexIntervalBytes;
   private long maxFileLifetimeMs;
   private long maxFileSizeInBytes;
   private ScheduledExecutorService scheduledExecutorService;
@@ -107,6 +108,14 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     this.syncIntervalBytes = syncIntervalBytes;
   }
 
+  /**
+   * Sets the interval in bytes between entries of the time index written for each log file. The
+   * index is not written if it is not positive. This is called by the logback framework.
+   */
+  public void setIndexIntervalBytes(long indexIntervalBytes) {
+    this.indexIntervalBytes = indexIntervalBytes;
+  }
+
   /**
    * Sets the maximum lifetime of a file. This is called by the logback framework.
    */
@@ -163,9 +172,14 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
       logFileManager = new LogFileManager(dirPermissions, filePermissions, maxFileLifetimeMs,
           maxFileSizeInBytes,
           syncIntervalBytes,
+          indexIntervalBytes,
           new FileMetaDataWriter(context.getTransactionRunner()),
           context.getLocationFactory());
-      if (context.getInstanceId() == 0 && !disableLogCleanerForTest) {
+      // Only the first log saver instance cleans up logs. If the log buffer pipeline is sharded,
+      // only the appender of its first shard does, which is the one without the shard property.
+      if (context.getInstanceId() == 0
+          && context.getProperty(Constants.LogBuffer.LOG_BUFFER_PIPELINE_SHARD) == null
+          && !disableLogCleanerForTest) {
         scheduledExecutorService =
             Executors.newSingleThreadScheduledExecutor(
                 Threads.createDaemonThreadFactory("log-clean-up"));
@@ -50,6 +50,7 @@ public final class LogFileManager implements Flushable, Syncable {
   private final String dirPermissions;
   private final String filePermissions;
   private final int syncIntervalBytes;
+  private final long indexIntervalBytes;
   private final long maxLifetimeMillis;
   private final long maxFileSizeInBytes;
   private final Map<LogPathIdentifier, LogFileOutputStream> outputStreamMap;
@@ -59,11 +60,20 @@ public final class LogFileManager implements Flushable, Syncable {
   LogFileManager(String dirPermissions, String filePermissions,
       long maxFileLifetimeMs, long maxFileSizeInBytes, int syncIntervalBytes,
       FileMetaDataWriter fileMetaDataWriter, LocationFactory locationFactory) {
+    this(dirPermissions, filePermissions, maxFileLifetimeMs, maxFileSizeInBytes, syncIntervalBytes,
+        0L, fileMetaDataWriter, locationFactory);
+  }
+
+  LogFileManager(String dirPermissions, String filePermissions,
+      long maxFileLifetimeMs, long maxFileSizeInBytes, int syncIntervalBytes,
+      long indexIntervalBytes, FileMetaDataWriter fileMetaDataWriter,
+      LocationFactory locationFactory) {
     this.dirPermissions = dirPermissions;
     this.filePermissions = filePermissions;
     this.maxLifetimeMillis = maxFileLifetimeMs;
     this.maxFileSizeInBytes = maxFileSizeInBytes;
     this.syncIntervalBytes = syncIntervalBytes;
+    this.indexIntervalBytes = indexIntervalBytes;
     this.fileMetaDataWriter = fileMetaDataWriter;
     this.logsDirectoryLocation = locationFactory.create("logs");
     this.outputStreamMap = new HashMap<>();
@@ -101,7 +111,8 @@ public final class LogFileManager implements Flushable, Syncable {
       long timestamp) throws IOException {
     TimeStampLocation location = createLocation(identifier);
     LogFileOutputStream logFileOutputStream = new LogFileOutputStream(
-        location.getLocation(), filePermissions, syncIntervalBytes, location.getTimeStamp(),
+        location.getLocation(), filePermissions, syncIntervalBytes, indexIntervalBytes,
+        location.getTimeStamp(),
         new Closeable() {
           @Override
           public void close() throws IOException {
@@ -19,9 +19,11 @@ package io.cdap.cdap.logging.appender.system;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.io.Closeables;
 import io.cdap.cdap.common.io.ByteBuffers;
+import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.io.Syncable;
 import io.cdap.cdap.logging.serialize.LoggingEvent;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import io.cdap.cdap.logging.write.LogFileIndex;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
@@ -45,21 +47,33 @@ import org.slf4j.LoggerFactory;
 class LogFileOutputStream implements Closeable, Flushable, Syncable {
 
   private static final Logger LOG = LoggerFactory.getLogger(LogFileOutputStream.class);
+  // rough size of an encoded event besides its message, used if the event is not already encoded
+  private static final int EVENT_OVERHEAD_BYTES = 256;
 
   private final Location location;
+  private final String filePermissions;
   private final long createTime;
   private final Closeable closeable;
   private final LoggingEventSerializer serializer;
+  private final long indexIntervalBytes;
 
   private OutputStream outputStream;
   private DataFileWriter<GenericRecord> dataFileWriter;
   private long fileSize;
+  private LogFileIndex.Builder indexBuilder;
+  private long bytesSinceIndexed;
 
-  LogFileOutputStream(Location location, String filePermissions,
-      int syncIntervalBytes, long createTime, Closeable closeable) throws IOException {
+  /**
+   * Creates a log file that is indexed every {@code indexIntervalBytes}, or not indexed if it is
+   * not positive. See {@link LogFileIndex}.
+   */
+  LogFileOutputStream(Location location, String filePermissions, int syncIntervalBytes,
+      long indexIntervalBytes, long createTime, Closeable closeable) throws IOException {
     this.location = location;
+    this.filePermissions = filePermissions;
     this.closeable = closeable;
     this.serializer = new LoggingEventSerializer();
+    this.indexIntervalBytes = indexIntervalBytes;
 
     Schema schema = serializer.getAvroSchema();
     try {
@@ -71,6 +85,10 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
       this.dataFileWriter.setSyncInterval(syncIntervalBytes);
       this.createTime = createTime;
       this.fileSize = 0;
+      if (indexIntervalBytes > 0) {
+        // the first segment starts right after the file header
+        this.indexBuilder = new LogFileIndex.Builder().addSegment(dataFileWriter.sync());
+      }
     } catch (IOException e) {
       Closeables.closeQuietly(outputStream);
       Closeables.closeQuietly(dataFileWriter);
@@ -83,18 +101,40 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   }
 
   void append(ILoggingEvent event) throws IOException {
+    long size = appendEvent(event);
+    if (indexBuilder == null) {
+      return;
+    }
+    indexBuilder.addEvent(event);
+    bytesSinceIndexed += size;
+    if (bytesSinceIndexed >= indexIntervalBytes) {
+      // end the current block so that the next segment of the index starts at a sync position
+      fileSize = dataFileWriter.sync();
+      indexBuilder.addSegment(fileSize);
+      bytesSinceIndexed = 0;
+    }
+  }
+
+  /**
+   * Appends the event to the file and returns its approximate size in bytes.
+   */
+  private long appendEvent(ILoggingEvent event) throws IOException {
     // If the event is already a LoggingEvent, we don't need to re-encode.
     if (event instanceof LoggingEvent) {
       ByteBuffer encoded = ((LoggingEvent) event).getEncoded();
       if (encoded != null) {
         // TODO: CDAP-8735 Remove the copying after upgraded to Avro 1.7.4+
-        dataFileWriter.appendEncoded(ByteBuffers.copy(encoded));
-      } else {
-        dataFileWriter.append(((LoggingEvent) event).getRecord());
+        ByteBuffer copy = ByteBuffers.copy(encoded);
+        int size = copy.remaining();
+        dataFileWriter.appendEncoded(copy);
+        return size;
       }
-      return;
+      dataFileWriter.append(((LoggingEvent) event).getRecord());
+    } else {
+      dataFileWriter.append(serializer.toGenericRecord(event));
     }
-    dataFileWriter.append(serializer.toGenericRecord(event));
+    String message = event.getFormattedMessage();
+    return EVENT_OVERHEAD_BYTES + (message == null ? 0 : message.length());
   }
 
   /**
@@ -135,8 +175,26 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
     LOG.trace("Closing file {}", location);
     try {
       dataFileWriter.close();
+      writeIndex();
     } finally {
       closeable.close();
     }
   }
+
+  private void writeIndex() {
+    if (indexBuilder == null || !indexBuilder.hasEvents()) {
+      return;
+    }
+    try {
+      indexBuilder.build().write(location, filePermissions);
+    } catch (IOException e) {
+      // the log file can still be read without the index
+      LOG.warn("Failed to write the index of log file {}", location, e);
+      try {
+        Locations.deleteQuietly(LogFileIndex.getIndexLocation(location));
+      } catch (IOException ex) {
+        LOG.trace("Failed to get the index location of log file {}", location, ex);
+      }
+    }
+  }
 }
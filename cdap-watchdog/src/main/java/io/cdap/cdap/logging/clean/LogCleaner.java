@@ -17,6 +17,7 @@
 package io.cdap.cdap.logging.clean;
 
 import io.cdap.cdap.common.io.Locations;
+import io.cdap.cdap.logging.write.LogFileIndex;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -69,8 +70,11 @@ public class LogCleaner {
     int failureCount = 0;
     for (FileMetadataCleaner.DeletedEntry deletedEntry : deleteEntries) {
       try {
-        boolean status = Locations.getLocationFromAbsolutePath(locationFactory,
-            deletedEntry.getPath()).delete();
+        Location logFile = Locations.getLocationFromAbsolutePath(locationFactory,
+            deletedEntry.getPath());
+        // the index is deleted first, since it is not needed without the log file
+        Locations.deleteQuietly(LogFileIndex.getIndexLocation(logFile));
+        boolean status = logFile.delete();
         if (!status) {
           failureCount++;
           LOG.warn("File {} delete failed", deletedEntry.getPath());
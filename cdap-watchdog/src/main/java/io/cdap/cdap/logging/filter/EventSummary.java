@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.filter;
+
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Summary of a group of log events, such as a segment of a log file, which lets a {@link Filter}
+ * tell that none of the events can match without reading them.
+ */
+public interface EventSummary {
+
+  /**
+   * Returns the highest level of the events, as returned by
+   * {@link ch.qos.logback.classic.Level#toInt()}.
+   */
+  int getMaxLevel();
+
+  /**
+   * Returns the values of the given MDC key in the events, or {@code null} if they are not known.
+   */
+  @Nullable
+  Set<String> getMdcValues(String key);
+}
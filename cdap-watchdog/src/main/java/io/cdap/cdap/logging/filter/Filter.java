@@ -25,6 +25,14 @@ public interface Filter {
 
   boolean match(ILoggingEvent event);
 
+  /**
+   * Returns whether any of the events with the given summary can match this filter. Returns
+   * {@code true} by default, which means that the events have to be matched one by one.
+   */
+  default boolean mayMatch(EventSummary summary) {
+    return true;
+  }
+
   Filter EMPTY_FILTER = new EmptyFilter();
 
   /**
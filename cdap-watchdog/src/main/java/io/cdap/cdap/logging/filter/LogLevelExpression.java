@@ -35,6 +35,11 @@ public class LogLevelExpression implements Filter {
     return event.getLevel().isGreaterOrEqual(getLevel());
   }
 
+  @Override
+  public boolean mayMatch(EventSummary summary) {
+    return summary.getMaxLevel() >= getLevel().toInt();
+  }
+
   public Level getLevel() {
     return level;
   }
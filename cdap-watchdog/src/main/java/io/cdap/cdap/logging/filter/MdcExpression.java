@@ -18,6 +18,7 @@ package io.cdap.cdap.logging.filter;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.base.Objects;
+import java.util.Set;
 
 /**
  * Represents an expression that can match a key,value in MDC.
@@ -38,6 +39,12 @@ public class MdcExpression implements Filter {
     return value != null && value.equals(getValue());
   }
 
+  @Override
+  public boolean mayMatch(EventSummary summary) {
+    Set<String> values = summary.getMdcValues(getKey());
+    return values == null || values.contains(getValue());
+  }
+
   public String getKey() {
     return key;
   }
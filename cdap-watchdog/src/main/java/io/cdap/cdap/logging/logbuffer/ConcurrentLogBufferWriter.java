@@ -71,6 +71,7 @@ public class ConcurrentLogBufferWriter implements Closeable {
     this.pendingRequestQueue = new PendingRequestQueue();
     this.logBufferWriter = new LogBufferWriter(cConf.get(Constants.LogBuffer.LOG_BUFFER_BASE_DIR),
         cConf.getLong(Constants.LogBuffer.LOG_BUFFER_MAX_FILE_SIZE_BYTES),
+        cConf.getBoolean(Constants.LogBuffer.LOG_BUFFER_SYNC_ON_WRITE),
         cleaner);
     this.pipelines = pipelines;
     this.writerFlag = new AtomicBoolean();
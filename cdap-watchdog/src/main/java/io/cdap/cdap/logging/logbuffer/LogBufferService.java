@@ -179,8 +179,22 @@ public class LogBufferService extends AbstractIdleService {
    * Load log buffer pipelines.
    */
   private List<LogBufferProcessorPipeline> loadLogPipelines() {
-    Map<String, LogPipelineSpecification<AppenderContext>> specs = new LogPipelineLoader(
-        cConf).load(contextProvider);
+    LogPipelineLoader pipelineLoader = new LogPipelineLoader(cConf);
+    Map<String, LogPipelineSpecification<AppenderContext>> specs = pipelineLoader.load(
+        contextProvider);
+    // Load the pipelines again for each additional shard, so that each shard has its own appenders.
+    // The shard is set on the appender contexts, so that housekeeping such as log cleanup is only
+    // done by the appenders of the first shard.
+    int shardCount = cConf.getInt(Constants.LogBuffer.LOG_BUFFER_PIPELINE_SHARDS);
+    List<Map<String, LogPipelineSpecification<AppenderContext>>> shardSpecs = new ArrayList<>();
+    for (int i = 1; i < shardCount; i++) {
+      String shard = Integer.toString(i);
+      shardSpecs.add(pipelineLoader.load(() -> {
+        AppenderContext shardContext = contextProvider.get();
+        shardContext.putProperty(Constants.LogBuffer.LOG_BUFFER_PIPELINE_SHARD, shard);
+        return shardContext;
+      }));
+    }
     int pipelineCount = specs.size();
     List<LogBufferProcessorPipeline> bufferPipelines = new ArrayList<>();
     // Create one LogBufferProcessorPipeline per spec
@@ -196,9 +210,18 @@ public class LogBufferService extends AbstractIdleService {
 
       LogBufferCheckpointManager checkpointManager = new LogBufferCheckpointManager(txRunner,
           pipelineSpec.getCheckpointPrefix());
-      LogBufferProcessorPipeline pipeline = new LogBufferProcessorPipeline(
-          new LogProcessorPipelineContext(cConf, context.getName(), context,
-              context.getMetricsContext(), context.getInstanceId()), config,
+      List<LogProcessorPipelineContext> contexts = new ArrayList<>();
+      contexts.add(new LogProcessorPipelineContext(cConf, context.getName(), context,
+          context.getMetricsContext(), context.getInstanceId()));
+      for (Map<String, LogPipelineSpecification<AppenderContext>> shardSpec : shardSpecs) {
+        AppenderContext shardContext = shardSpec.get(pipelineSpec.getName()).getContext();
+        // The shard is part of the name, so that each shard emits its own pipeline metrics
+        String shardName = String.format("%s.shard%s", shardContext.getName(),
+            shardContext.getProperty(Constants.LogBuffer.LOG_BUFFER_PIPELINE_SHARD));
+        contexts.add(new LogProcessorPipelineContext(cConf, shardName, shardContext,
+            shardContext.getMetricsContext(), shardContext.getInstanceId()));
+      }
+      LogBufferProcessorPipeline pipeline = new LogBufferProcessorPipeline(contexts, config,
           checkpointManager, 0);
       RetryStrategy retryStrategy = RetryStrategies.fromConfiguration(cConf, "system.log.process.");
       pipelines.add(new RetryOnStartFailureService(() -> pipeline, retryStrategy));
@@ -19,25 +19,23 @@ package io.cdap.cdap.logging.logbuffer;
 import com.google.common.io.Closeables;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
-import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.Flushable;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import org.apache.twill.common.Threads;
-import org.apache.twill.filesystem.LocalLocationFactory;
-import org.apache.twill.filesystem.Location;
-import org.apache.twill.filesystem.LocationFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,34 +47,59 @@ import org.slf4j.LoggerFactory;
  * <length> <log_event>
  * length = Avro encoded int32 for size in bytes for the log event log_event = Avro encoded log
  * bytes
+ *
+ * Files are written through a memory mapping, which sizes the file up to its max size before it is
+ * written. A length of zero marks the end of the events in a file that was not closed, and files
+ * are truncated to the size of their events when they are closed. Since all the events of a write
+ * are flushed together, they can also be synced to disk together. Only the bytes written since the
+ * last sync are synced. Mapped regions are unmapped as soon as they are no longer written to.
  */
 public class LogBufferWriter implements Flushable, Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(LogBufferWriter.class);
   private static final String FILE_SUFFIX = ".buf";
   private final LoggingEventSerializer logEventSerializer;
-  private final LocationFactory locationFactory;
+  private final File baseDir;
   private final long maxFileSizeInBytes;
+  private final boolean syncOnWrite;
   private final Runnable cleaner;
   private final ExecutorService executorService;
   private Future<?> cleanerFuture;
 
-  // output stream to write to
-  private OutputStream currOutputStream;
+  // channel of the current open file
+  private FileChannel currChannel;
+  // region of the current open file that is mapped for writing, starting at some offset
+  private MappedByteBuffer currBuffer;
   // offset in current open file
   private long currOffset;
+  // offset in current open file up to which events are synced to disk
+  private long syncedOffset;
   // cache to store monotonically increasing id for file id
   private long currFileId;
-  private long writtenBytes;
+  private boolean closed;
 
   public LogBufferWriter(String logBufferBaseDir, long maxFileSize, Runnable cleaner)
       throws IOException {
-    File baseDir = new File(logBufferBaseDir);
+    this(logBufferBaseDir, maxFileSize, false, cleaner);
+  }
+
+  /**
+   * Creates a log buffer writer.
+   *
+   * @param logBufferBaseDir base directory for log buffer files
+   * @param maxFileSize max size of a log buffer file after which it is rotated
+   * @param syncOnWrite whether to sync the events of each write to disk
+   * @param cleaner runnable to clean up log buffer files, which is run when files are rotated
+   * @throws IOException if there is any error while creating the log buffer file
+   */
+  public LogBufferWriter(String logBufferBaseDir, long maxFileSize, boolean syncOnWrite,
+      Runnable cleaner) throws IOException {
+    this.baseDir = new File(logBufferBaseDir);
     // make sure base dir already exists, if not create it.
     Files.createDirectories(baseDir.toPath());
-    this.locationFactory = new LocalLocationFactory(baseDir);
     // max file size after which rotation should happen.
     this.maxFileSizeInBytes = maxFileSize;
+    this.syncOnWrite = syncOnWrite;
     this.cleaner = cleaner;
     // Mark cleaner future as completed when its initialized
     this.cleanerFuture = CompletableFuture.completedFuture(0);
@@ -86,8 +109,7 @@ public class LogBufferWriter implements Flushable, Closeable {
 
     // scan file names under base dir and get next monotonically increasing file id
     this.currFileId = getNextFileId(baseDir);
-    this.currOutputStream = new BufferedOutputStream(
-        locationFactory.create(getFileName(currFileId)).getOutputStream());
+    this.currChannel = openFile(currFileId);
   }
 
   /**
@@ -98,7 +120,10 @@ public class LogBufferWriter implements Flushable, Closeable {
    * @throws IOException if there is any problem while writing to log buffer
    */
   public Iterable<LogBufferEvent> write(Iterator<byte[]> events) throws IOException {
-    List<LogBufferEvent> offsets = new LinkedList<>();
+    if (closed) {
+      throw new IOException("Log buffer writer is already closed.");
+    }
+    List<LogBufferEvent> offsets = new ArrayList<>();
     while (events.hasNext()) {
       byte[] event = events.next();
       LogBufferFileOffset offset = write(event);
@@ -106,7 +131,7 @@ public class LogBufferWriter implements Flushable, Closeable {
           new LogBufferEvent(logEventSerializer.fromBytes(ByteBuffer.wrap(event)), event.length,
               offset));
     }
-    currOutputStream.flush();
+    flush();
     return offsets;
   }
 
@@ -122,42 +147,103 @@ public class LogBufferWriter implements Flushable, Closeable {
     long startFileId = currFileId;
     long startOffset = currOffset;
 
+    MappedByteBuffer buffer = getBuffer(Bytes.SIZEOF_INT + eventBytes.length);
+    // write actual log event before its size, so that an event which is partially written when the
+    // process dies is not read, as the size is still zero
+    int position = buffer.position();
+    buffer.position(position + Bytes.SIZEOF_INT);
+    buffer.put(eventBytes);
     // write size of the log event
-    currOutputStream.write(Bytes.toBytes(eventBytes.length));
-    currOffset = currOffset + Bytes.SIZEOF_INT;
-    // write actual log event
-    currOutputStream.write(eventBytes);
-    currOffset = currOffset + eventBytes.length;
-
-    // update number of bytes written so far
-    writtenBytes = writtenBytes + (currOffset - startOffset);
+    buffer.putInt(position, eventBytes.length);
+    currOffset = currOffset + Bytes.SIZEOF_INT + eventBytes.length;
 
     // If number of written bytes exceed the max file size, then rotate the file
-    if (writtenBytes >= maxFileSizeInBytes) {
-      currOutputStream = new BufferedOutputStream(rotateFile(currOutputStream).getOutputStream());
+    if (currOffset >= maxFileSizeInBytes) {
+      rotateFile();
     }
 
     // the file id and file pos in offset is where current event is written.
     return new LogBufferFileOffset(startFileId, startOffset);
   }
 
+  /**
+   * Returns the mapped region of the current file to write to, with at least the given number of
+   * bytes remaining.
+   */
+  private MappedByteBuffer getBuffer(int size) throws IOException {
+    if (currBuffer == null || currBuffer.remaining() < size) {
+      // the events in the current region must be synced before it is unmapped
+      flush();
+      MappedBuffers.unmap(currBuffer);
+      currBuffer = null;
+      // map the rest of the file up to its max size, or enough for the event if it is bigger
+      long mapSize = Math.min(Math.max(maxFileSizeInBytes - currOffset, size), Integer.MAX_VALUE);
+      currBuffer = currChannel.map(FileChannel.MapMode.READ_WRITE, currOffset, mapSize);
+    }
+    return currBuffer;
+  }
+
+  /**
+   * Syncs the events written since the last sync to disk if sync on write is enabled. Otherwise
+   * this is a no-op, since events written to the mapped file are already visible to readers of the
+   * file.
+   */
   @Override
   public void flush() throws IOException {
-    currOutputStream.flush();
+    if (!syncOnWrite || currOffset <= syncedOffset) {
+      return;
+    }
+    // Forcing the current region would sync all of it, up to the max file size. Instead, only the
+    // written range is mapped and forced, which syncs the same pages of the file.
+    MappedByteBuffer written = currChannel.map(FileChannel.MapMode.READ_WRITE, syncedOffset,
+        currOffset - syncedOffset);
+    try {
+      written.force();
+    } finally {
+      MappedBuffers.unmap(written);
+    }
+    syncedOffset = currOffset;
   }
 
   @Override
   public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
     try {
-      currOutputStream.flush();
+      closeFile();
     } catch (IOException e) {
-      LOG.warn("Error while flushing log buffer output stream.", e);
+      LOG.warn("Error while closing log buffer file.", e);
     }
-
-    Closeables.closeQuietly(currOutputStream);
     executorService.shutdown();
   }
 
+  /**
+   * Opens the log buffer file with the given id for writing.
+   */
+  private FileChannel openFile(long fileId) throws IOException {
+    return new RandomAccessFile(new File(baseDir, getFileName(fileId)), "rw").getChannel();
+  }
+
+  /**
+   * Closes the current log buffer file, after truncating it to the size of its events.
+   */
+  private void closeFile() throws IOException {
+    try {
+      try {
+        flush();
+      } finally {
+        // the file must be unmapped before it is truncated
+        MappedBuffers.unmap(currBuffer);
+        currBuffer = null;
+      }
+      currChannel.truncate(currOffset);
+    } finally {
+      Closeables.closeQuietly(currChannel);
+    }
+  }
+
   /**
    * Returns next monotonically increasing file id. The method scans all the files under base path
    * and returns max file id + 1.
@@ -181,22 +267,20 @@ public class LogBufferWriter implements Flushable, Closeable {
   /**
    * Rotates the log buffer file.
    */
-  private Location rotateFile(OutputStream currOutputStream) throws IOException {
-    currOutputStream.flush();
-    // close current location output stream
-    Closeables.closeQuietly(currOutputStream);
+  private void rotateFile() throws IOException {
+    // close current log buffer file
+    closeFile();
 
-    writtenBytes = 0;
     currOffset = 0;
+    syncedOffset = 0;
     // update current file id to next monotonically increasing file id
     currFileId = currFileId + 1;
-    Location rotatedLocation = locationFactory.create(getFileName(currFileId));
+    currChannel = openFile(currFileId);
     // executes log buffer cleaner runnable. Only submit cleaner thread if future is complete. This is because if the
     // rotation is happening faster than clean up, there can be multiple clean up tasks in executorService.
     if (cleanerFuture.isDone()) {
       cleanerFuture = executorService.submit(cleaner);
     }
-    return rotatedLocation;
   }
 
   private String getFileName(long fileId) {
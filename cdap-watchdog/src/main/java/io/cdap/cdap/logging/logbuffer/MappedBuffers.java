@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.logbuffer;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility methods for memory mapped log buffer files.
+ *
+ * A {@link MappedByteBuffer} is only unmapped when it is garbage collected, and the disk space of
+ * a deleted file is not released while a mapping of it exists. Mappings of log buffer files are
+ * therefore unmapped explicitly as soon as they are no longer used. A buffer must never be
+ * accessed after it is unmapped.
+ */
+public final class MappedBuffers {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MappedBuffers.class);
+  private static final Unmapper UNMAPPER = createUnmapper();
+
+  private MappedBuffers() {
+  }
+
+  /**
+   * Unmaps the given buffer if it is a memory mapping. Other buffers are ignored.
+   *
+   * @param buffer the buffer returned by {@link java.nio.channels.FileChannel#map}, or
+   *     {@code null}
+   */
+  public static void unmap(@Nullable ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect()) {
+      return;
+    }
+    try {
+      UNMAPPER.unmap(buffer);
+    } catch (Exception e) {
+      // The buffer is still unmapped when it is garbage collected
+      LOG.debug("Failed to unmap memory mapped buffer", e);
+    }
+  }
+
+  private static Unmapper createUnmapper() {
+    // Java 9 and later
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      Object unsafe = field.get(null);
+      return buffer -> invokeCleaner.invoke(unsafe, buffer);
+    } catch (Exception e) {
+      // Fallback to the Java 8 cleaner
+    }
+
+    try {
+      Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+      Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      return buffer -> {
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleanMethod.invoke(cleaner);
+        }
+      };
+    } catch (Exception e) {
+      LOG.warn("Memory mapped buffers cannot be unmapped explicitly. "
+          + "They will be unmapped when they are garbage collected.", e);
+      return buffer -> { };
+    }
+  }
+
+  /**
+   * Unmaps a direct buffer.
+   */
+  private interface Unmapper {
+
+    void unmap(ByteBuffer buffer) throws Exception;
+  }
+}
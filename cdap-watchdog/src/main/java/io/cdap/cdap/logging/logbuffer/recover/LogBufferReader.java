@@ -20,16 +20,16 @@ import com.google.common.io.Closeables;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.logging.logbuffer.LogBufferEvent;
 import io.cdap.cdap.logging.logbuffer.LogBufferFileOffset;
+import io.cdap.cdap.logging.logbuffer.MappedBuffers;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
-import java.io.BufferedInputStream;
 import java.io.Closeable;
-import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
 
 /**
@@ -121,15 +121,19 @@ public class LogBufferReader implements Closeable {
 
 
   /**
-   * Log buffer event reader to read log events from a log buffer file.
+   * Log buffer event reader to read log events from a log buffer file. The file is read through a
+   * memory mapping. A file that was not closed by the writer can have a zero length after its last
+   * event, which is read as the end of the file. The mapping is unmapped when the reader is closed,
+   * so that the file can be deleted once it is recovered.
    */
   private static final class LogBufferEventReader implements Closeable {
 
-    private static final int BUFFER_SIZE = 32 * 1024; // 32k buffer
-    private final DataInputStream inputStream;
+    private final FileChannel channel;
     private final LoggingEventSerializer serializer;
     private long fileId;
     private long pos;
+    // region of the file that is mapped for reading, starting at pos
+    private ByteBuffer buffer;
 
     LogBufferEventReader(String baseDir, long fileId) throws IOException {
       this(baseDir, fileId, 0);
@@ -138,13 +142,16 @@ public class LogBufferReader implements Closeable {
     LogBufferEventReader(String baseDir, long fileId, long pos) throws IOException {
       this.fileId = fileId;
       this.pos = pos;
-      FileInputStream fis = new FileInputStream(new File(baseDir, fileId + FILE_SUFFIX));
-      // seek to the position if the position is not zero
-      if (pos != 0) {
-        fis.getChannel().position(pos);
-      }
-      this.inputStream = new DataInputStream(new BufferedInputStream(fis, BUFFER_SIZE));
+      this.channel = new RandomAccessFile(new File(baseDir, fileId + FILE_SUFFIX), "r")
+          .getChannel();
       this.serializer = new LoggingEventSerializer();
+      try {
+        // map the file from the position to read from
+        this.buffer = map();
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
     }
 
     /**
@@ -154,9 +161,15 @@ public class LogBufferReader implements Closeable {
      * @throws IOException error while reading log buffer file
      */
     LogBufferEvent read() throws IOException {
-      int length = inputStream.readInt();
+      ByteBuffer region = getBuffer(Bytes.SIZEOF_INT);
+      int length = region.getInt(region.position());
+      if (length <= 0) {
+        throw new EOFException("No more events in log buffer file " + fileId);
+      }
+      region = getBuffer(Bytes.SIZEOF_INT + length);
+      region.position(region.position() + Bytes.SIZEOF_INT);
       byte[] eventBytes = new byte[length];
-      inputStream.read(eventBytes);
+      region.get(eventBytes);
       LogBufferEvent event = new LogBufferEvent(serializer.fromBytes(ByteBuffer.wrap(eventBytes)),
           eventBytes.length, new LogBufferFileOffset(fileId, pos));
       // update curr position to point to next event
@@ -164,12 +177,40 @@ public class LogBufferReader implements Closeable {
       return event;
     }
 
+    /**
+     * Returns the mapped region of the file, with at least the given number of bytes remaining.
+     *
+     * @throws EOFException if the file does not have enough bytes
+     */
+    private ByteBuffer getBuffer(int size) throws IOException {
+      if (buffer.remaining() < size) {
+        // the region is only smaller than the rest of the file if the file is bigger than 2GB
+        ByteBuffer region = map();
+        MappedBuffers.unmap(buffer);
+        buffer = region;
+        if (buffer.remaining() < size) {
+          throw new EOFException("Reached end of log buffer file " + fileId);
+        }
+      }
+      return buffer;
+    }
+
+    private ByteBuffer map() throws IOException {
+      long size = Math.min(channel.size() - pos, Integer.MAX_VALUE);
+      if (size <= 0) {
+        return ByteBuffer.allocate(0);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+    }
+
     /**
      * Closes this reader.
      */
     public void close() {
-      // close input stream wrapped by this reader
-      Closeables.closeQuietly(inputStream);
+      MappedBuffers.unmap(buffer);
+      buffer = null;
+      // close file channel wrapped by this reader
+      Closeables.closeQuietly(channel);
     }
   }
 }
@@ -199,4 +199,9 @@ public class LogProcessorPipelineContext implements Flushable, Syncable, Metrics
   public void event(String metricName, long value) {
     metricsContext.event(String.format("%s.%s", metricsPrefix, metricName), value);
   }
+
+  @Override
+  public Counter counter(String metricName) {
+    return metricsContext.counter(String.format("%s.%s", metricsPrefix, metricName));
+  }
 }
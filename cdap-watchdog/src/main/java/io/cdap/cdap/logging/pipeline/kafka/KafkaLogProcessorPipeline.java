@@ -83,6 +83,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
   private final KafkaPipelineConfig config;
   private final TimeEventQueueProcessor<KafkaOffset> eventQueueProcessor;
   private final MetricsContext metricsContext;
+  private final MetricsContext.Counter bytesReadCounter;
 
   private final BrokerService brokerService;
   private final KafkaOffsetResolver offsetResolver;
@@ -108,6 +109,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
         config.getEventDelayMillis(), config.getPartitions());
     this.serializer = new LoggingEventSerializer();
     this.metricsContext = context;
+    this.bytesReadCounter = context.counter("kafka.bytes.read");
     this.kafkaConsumers = new HashMap<>();
     this.offsetResolver = new KafkaOffsetResolver(brokerService, config);
   }
@@ -643,7 +645,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
       do {
         updateOffsets();
         MessageAndOffset message = kafkaMessageIterator.next();
-        metricsContext.increment("kafka.bytes.read", message.message().payloadSize());
+        bytesReadCounter.increment(message.message().payloadSize());
 
         try {
           ILoggingEvent loggingEvent = serializer.fromBytes(message.message().payload());
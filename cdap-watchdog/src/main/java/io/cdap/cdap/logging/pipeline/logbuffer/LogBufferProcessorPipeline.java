@@ -16,11 +16,16 @@
 
 package io.cdap.cdap.logging.pipeline.logbuffer;
 
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
-import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.logging.LogSamplers;
 import io.cdap.cdap.common.logging.Loggers;
+import io.cdap.cdap.common.logging.NamespaceLoggingContext;
+import io.cdap.cdap.logging.context.ApplicationLoggingContext;
 import io.cdap.cdap.logging.logbuffer.LogBufferEvent;
 import io.cdap.cdap.logging.logbuffer.LogBufferFileOffset;
 import io.cdap.cdap.logging.meta.Checkpoint;
@@ -30,20 +35,31 @@ import io.cdap.cdap.logging.pipeline.queue.ProcessedEventMetadata;
 import io.cdap.cdap.logging.pipeline.queue.ProcessorEvent;
 import io.cdap.cdap.logging.pipeline.queue.TimeEventQueueProcessor;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Log processing pipeline to process log events from log buffer. Log events are pushed to this
  * pipeline for further processing.
+ *
+ * The pipeline can be divided into shards, each with its own log processor pipeline context, and
+ * so its own appenders. Events are partitioned across the shards by namespace and application, so
+ * that the events of a program are always processed in order by the same shard. The first shard is
+ * processed by the pipeline thread, and each other shard by a thread of its own. The checkpoint of
+ * the pipeline is combined from the checkpoints of all the shards, so that it never goes past an
+ * event that some shard has not persisted yet.
  */
 public class LogBufferProcessorPipeline extends AbstractExecutionThreadService {
 
@@ -56,30 +72,41 @@ public class LogBufferProcessorPipeline extends AbstractExecutionThreadService {
   private final String name;
   private final int instanceId;
   private final LogBufferPipelineConfig config;
-  private final LogProcessorPipelineContext context;
   private final CheckpointManager<LogBufferFileOffset> checkpointManager;
-  private final MetricsContext metricsContext;
-  private final TimeEventQueueProcessor<LogBufferFileOffset> eventQueueProcessor;
-  private final BlockingQueue<LogBufferEvent> incomingEventQueue;
+  private final List<Shard> shards;
   private final Map<Integer, MutableLogBufferCheckpoint> checkpoints;
   private final CountDownLatch stopLatch;
 
   private volatile boolean stopped;
-  private long lastCheckpointTime;
-  private int unSyncedEvents;
+  private volatile Throwable shardFailure;
 
   public LogBufferProcessorPipeline(LogProcessorPipelineContext context,
       LogBufferPipelineConfig config,
       CheckpointManager<LogBufferFileOffset> checkpointManager, int instanceId) {
-    this.name = context.getName();
+    this(ImmutableList.of(context), config, checkpointManager, instanceId);
+  }
+
+  /**
+   * Creates a pipeline with one shard for each of the given contexts.
+   *
+   * @param contexts contexts of the shards, which must have different appender instances
+   * @param config config of the pipeline, where the buffer size is shared by all the shards
+   * @param checkpointManager checkpoint manager for the combined checkpoint of the shards
+   * @param instanceId instance id of the pipeline
+   */
+  public LogBufferProcessorPipeline(List<LogProcessorPipelineContext> contexts,
+      LogBufferPipelineConfig config,
+      CheckpointManager<LogBufferFileOffset> checkpointManager, int instanceId) {
+    Preconditions.checkArgument(!contexts.isEmpty(), "At least one pipeline context is required");
+    this.name = contexts.get(0).getName();
     this.instanceId = instanceId;
     this.config = config;
-    this.context = context;
     this.checkpointManager = checkpointManager;
-    this.metricsContext = context;
-    this.eventQueueProcessor = new TimeEventQueueProcessor<>(context, config.getMaxBufferSize(),
-        config.getEventDelayMillis(), ImmutableSet.of(instanceId));
-    this.incomingEventQueue = new ArrayBlockingQueue<>(INCOMING_EVENT_QUEUE_SIZE);
+    this.shards = new ArrayList<>();
+    long maxBufferSize = Math.max(1L, config.getMaxBufferSize() / contexts.size());
+    for (LogProcessorPipelineContext context : contexts) {
+      shards.add(new Shard(context, maxBufferSize));
+    }
     this.checkpoints = new HashMap<>();
     this.stopLatch = new CountDownLatch(1);
   }
@@ -92,29 +119,36 @@ public class LogBufferProcessorPipeline extends AbstractExecutionThreadService {
     checkpoints.put(0, new MutableLogBufferCheckpoint(checkpoint.getOffset().getFileId(),
         checkpoint.getOffset().getFilePos(),
         checkpoint.getMaxEventTime()));
-    context.start();
-    LOG.info("Log processor pipeline for {} with config {} started with checkpoint {}", name,
-        config, this.checkpoints);
+    for (Shard shard : shards) {
+      shard.start(checkpoint);
+    }
+    LOG.info("Log processor pipeline for {} with config {} and {} shards started with "
+        + "checkpoint {}", name, config, shards.size(), this.checkpoints);
   }
 
   @Override
   protected void run() throws Exception {
-    lastCheckpointTime = System.currentTimeMillis();
-    while (!stopped) {
-      boolean hasEventProcessed = processEvents(incomingEventQueue);
-      long now = System.currentTimeMillis();
-      long nextCheckpointDelay = trySyncAndPersistCheckpoints(now);
-
-      // If nothing has been processed (e.g. fail to append anything to appender),
-      // Wait until min(next checkpoint delay, next event delay).
-      if (!hasEventProcessed) {
-        long sleepMillis = config.getEventDelayMillis();
-        sleepMillis = Math.min(sleepMillis, nextCheckpointDelay);
-        if (sleepMillis > 0) {
-          stopLatch.await(sleepMillis, TimeUnit.MILLISECONDS);
-        }
+    List<Thread> threads = new ArrayList<>();
+    for (Shard shard : shards.subList(1, shards.size())) {
+      Thread thread = new Thread(() -> runShard(shard),
+          getServiceName() + "-" + (threads.size() + 1));
+      thread.setDaemon(true);
+      thread.start();
+      threads.add(thread);
+    }
+    try {
+      shards.get(0).run();
+    } finally {
+      // make sure that all the shards are stopped before the pipeline shuts down
+      triggerShutdown();
+      for (Thread thread : threads) {
+        thread.join();
       }
     }
+    if (shardFailure != null) {
+      Throwables.propagateIfPossible(shardFailure, Exception.class);
+      throw new Exception(shardFailure);
+    }
   }
 
   @Override
@@ -127,13 +161,9 @@ public class LogBufferProcessorPipeline extends AbstractExecutionThreadService {
   protected void shutDown() throws Exception {
     LOG.debug("Shutting down log processor pipeline for {}", name);
 
-    try {
-      context.stop();
-    } catch (Exception e) {
-      // Just log, not to fail the shutdown
-      LOG.warn("Exception raised when stopping pipeline {}", name, e);
+    for (Shard shard : shards) {
+      shard.stop();
     }
-
     persistCheckpoints();
     LOG.info("Log processor pipeline for {} stopped with latest checkpoint {}", name, checkpoints);
   }
@@ -144,27 +174,16 @@ public class LogBufferProcessorPipeline extends AbstractExecutionThreadService {
   }
 
   /**
-   * Reads events from incomingEventQueue and sends them to event processor for further processing.
+   * Runs a shard in its own thread, and stops the pipeline if the shard fails.
    */
-  private boolean processEvents(BlockingQueue<LogBufferEvent> incomingEventQueue) {
-    ProcessedEventMetadata<LogBufferFileOffset> metadata
-        = eventQueueProcessor.process(0, new LogFileOffsetTransformIterator(incomingEventQueue));
-
-    // none of the events were processed.
-    if (metadata.getTotalEventsProcessed() <= 0) {
-      return false;
+  private void runShard(Shard shard) {
+    try {
+      shard.run();
+    } catch (Throwable t) {
+      LOG.error("Log processor pipeline shard for {} failed", name, t);
+      shardFailure = t;
+      triggerShutdown();
     }
-
-    unSyncedEvents += metadata.getTotalEventsProcessed();
-    // events were processed, so update the checkpoints
-    Checkpoint<LogBufferFileOffset> checkpoint = metadata.getCheckpoints().get(instanceId);
-    MutableLogBufferCheckpoint mutableCheckpoint = checkpoints.get(instanceId);
-    MutableLogBufferFileOffset offset = mutableCheckpoint.getOffset();
-    offset.setFileId(checkpoint.getOffset().getFileId());
-    offset.setFilePos(checkpoint.getOffset().getFilePos());
-    mutableCheckpoint.setMaxEventTs(checkpoint.getMaxEventTime());
-
-    return true;
   }
 
   /**
@@ -175,9 +194,13 @@ public class LogBufferProcessorPipeline extends AbstractExecutionThreadService {
   public void processLogEvents(Iterator<LogBufferEvent> events) {
     // Don't accept any log events if the pipeline is not running
     while (!stopped && events.hasNext()) {
+      LogBufferEvent event = events.next();
+      Shard shard = getShard(event.getLogEvent());
+      // the offset must be known as dispatched before the shard can take the event
+      shard.lastDispatchedOffset = event.getOffset();
       try {
         // This call will block caller thread until the queue has free space.
-        incomingEventQueue.put(events.next());
+        shard.incomingEventQueue.put(event);
       } catch (InterruptedException e) {
         // Just ignore the exception and reset the flag
         Thread.currentThread().interrupt();
@@ -186,9 +209,50 @@ public class LogBufferProcessorPipeline extends AbstractExecutionThreadService {
   }
 
   /**
-   * Persists the checkpoints.
+   * Returns the shard to process the given event, based on its namespace and application.
    */
-  private void persistCheckpoints() {
+  private Shard getShard(ILoggingEvent event) {
+    if (shards.size() == 1) {
+      return shards.get(0);
+    }
+    Map<String, String> mdc = event.getMDCPropertyMap();
+    int hash = mdc == null ? 0 : Objects.hash(mdc.get(NamespaceLoggingContext.TAG_NAMESPACE_ID),
+        mdc.get(ApplicationLoggingContext.TAG_APPLICATION_ID));
+    return shards.get((hash & Integer.MAX_VALUE) % shards.size());
+  }
+
+  /**
+   * Combines the synced checkpoints of all the shards, and persists the combined checkpoint.
+   */
+  private synchronized void persistCheckpoints() {
+    // the checkpoint cannot go past the events that are not synced yet by some shard, and it can
+    // go up to the latest synced event if all the shards are synced
+    LogBufferFileOffset minPendingOffset = null;
+    LogBufferFileOffset maxSyncedOffset = null;
+    MutableLogBufferCheckpoint checkpoint = checkpoints.get(0);
+    long maxEventTs = checkpoint.getMaxEventTime();
+    for (Shard shard : shards) {
+      ShardCheckpoint shardCheckpoint = shard.syncedCheckpoint;
+      LogBufferFileOffset offset = shardCheckpoint.checkpoint.getOffset();
+      maxEventTs = Math.max(maxEventTs, shardCheckpoint.checkpoint.getMaxEventTime());
+      if (shard.isSynced(shardCheckpoint)) {
+        maxSyncedOffset = maxSyncedOffset == null || maxSyncedOffset.compareTo(offset) < 0
+            ? offset : maxSyncedOffset;
+      } else {
+        minPendingOffset = minPendingOffset == null || minPendingOffset.compareTo(offset) > 0
+            ? offset : minPendingOffset;
+      }
+    }
+
+    // the checkpoint never goes backward, since the events before it stay persisted
+    LogBufferFileOffset offset = minPendingOffset == null ? maxSyncedOffset : minPendingOffset;
+    MutableLogBufferFileOffset checkpointOffset = checkpoint.getOffset();
+    if (offset != null && offset.compareTo(checkpointOffset) > 0) {
+      checkpointOffset.setFileId(offset.getFileId());
+      checkpointOffset.setFilePos(offset.getFilePos());
+    }
+    checkpoint.setMaxEventTs(maxEventTs);
+
     try {
       checkpointManager.saveCheckpoints(checkpoints);
       LOG.debug("Checkpoint persisted for {} with {}", name, checkpoints);
@@ -201,31 +265,180 @@ public class LogBufferProcessorPipeline extends AbstractExecutionThreadService {
   }
 
   /**
-   * Sync the appender and persists checkpoints if it is time.
-   *
-   * @return delay in millisecond till the next sync time.
+   * A shard of the pipeline, which processes its events through its own event queue and appenders.
    */
-  private long trySyncAndPersistCheckpoints(long currentTimeMillis) {
-    if (unSyncedEvents == 0) {
+  private final class Shard {
+
+    private final LogProcessorPipelineContext context;
+    private final TimeEventQueueProcessor<LogBufferFileOffset> eventQueueProcessor;
+    private final BlockingQueue<LogBufferEvent> incomingEventQueue;
+
+    // offset of the last event pushed to this shard
+    private volatile LogBufferFileOffset lastDispatchedOffset;
+    // checkpoint of this shard when its appenders were last synced
+    private volatile ShardCheckpoint syncedCheckpoint;
+
+    private Checkpoint<LogBufferFileOffset> checkpoint;
+    private LogBufferFileOffset lastTakenOffset;
+    private long lastCheckpointTime;
+    private int unSyncedEvents;
+
+    Shard(LogProcessorPipelineContext context, long maxBufferSize) {
+      this.context = context;
+      this.eventQueueProcessor = new TimeEventQueueProcessor<>(context, maxBufferSize,
+          config.getEventDelayMillis(), ImmutableSet.of(instanceId));
+      this.incomingEventQueue = new ArrayBlockingQueue<>(INCOMING_EVENT_QUEUE_SIZE);
+    }
+
+    void start(Checkpoint<LogBufferFileOffset> checkpoint) {
+      this.checkpoint = checkpoint;
+      this.syncedCheckpoint = new ShardCheckpoint(checkpoint, null, true);
+      context.start();
+    }
+
+    void run() throws InterruptedException {
+      lastCheckpointTime = System.currentTimeMillis();
+      while (!stopped) {
+        boolean hasEventProcessed = processEvents();
+        long now = System.currentTimeMillis();
+        long nextCheckpointDelay = trySyncAndPersistCheckpoints(now);
+
+        // If nothing has been processed (e.g. fail to append anything to appender),
+        // Wait until min(next checkpoint delay, next event delay).
+        if (!hasEventProcessed) {
+          long sleepMillis = config.getEventDelayMillis();
+          sleepMillis = Math.min(sleepMillis, nextCheckpointDelay);
+          if (sleepMillis > 0) {
+            stopLatch.await(sleepMillis, TimeUnit.MILLISECONDS);
+          }
+        }
+      }
+    }
+
+    void stop() {
+      try {
+        context.stop();
+      } catch (Exception e) {
+        // Just log, not to fail the shutdown
+        LOG.warn("Exception raised when stopping pipeline {}", name, e);
+      }
+      // appenders are flushed when the context is stopped
+      syncedCheckpoint = getCheckpoint();
+    }
+
+    /**
+     * Returns whether all the events pushed to this shard were persisted when its appenders were
+     * synced with the given checkpoint.
+     */
+    boolean isSynced(ShardCheckpoint shardCheckpoint) {
+      return shardCheckpoint.queueEmpty
+          && Objects.equals(shardCheckpoint.lastTakenOffset, lastDispatchedOffset);
+    }
+
+    private ShardCheckpoint getCheckpoint() {
+      return new ShardCheckpoint(checkpoint, lastTakenOffset,
+          incomingEventQueue.isEmpty() && eventQueueProcessor.isQueueEmpty(0));
+    }
+
+    /**
+     * Reads events from incomingEventQueue and sends them to event processor for further
+     * processing.
+     */
+    private boolean processEvents() {
+      ProcessedEventMetadata<LogBufferFileOffset> metadata
+          = eventQueueProcessor.process(0, new LogFileOffsetTransformIterator(incomingEventQueue));
+
+      // none of the events were processed.
+      if (metadata.getTotalEventsProcessed() <= 0) {
+        return false;
+      }
+
+      unSyncedEvents += metadata.getTotalEventsProcessed();
+      // events were processed, so update the checkpoint
+      checkpoint = metadata.getCheckpoints().get(instanceId);
+      return true;
+    }
+
+    /**
+     * Sync the appender and persists checkpoints if it is time.
+     *
+     * @return delay in millisecond till the next sync time.
+     */
+    private long trySyncAndPersistCheckpoints(long currentTimeMillis) {
+      if (unSyncedEvents == 0) {
+        return config.getCheckpointIntervalMillis();
+      }
+      if (currentTimeMillis - config.getCheckpointIntervalMillis() < lastCheckpointTime) {
+        return config.getCheckpointIntervalMillis() - currentTimeMillis + lastCheckpointTime;
+      }
+
+      // Sync the appender and persists checkpoints
+      try {
+        context.sync();
+        // Only persist if sync succeeded. Since persistCheckpoints never throw, it's ok to be inside the try.
+        syncedCheckpoint = getCheckpoint();
+        persistCheckpoints();
+        lastCheckpointTime = currentTimeMillis;
+        context.gauge("last.checkpoint.time", lastCheckpointTime);
+        unSyncedEvents = 0;
+        LOG.debug("Events synced and checkpoint persisted for {}", name);
+      } catch (Exception e) {
+        OUTAGE_LOG.warn("Failed to sync in pipeline {}. Will be retried.", name, e);
+      }
       return config.getCheckpointIntervalMillis();
     }
-    if (currentTimeMillis - config.getCheckpointIntervalMillis() < lastCheckpointTime) {
-      return config.getCheckpointIntervalMillis() - currentTimeMillis + lastCheckpointTime;
+
+    /**
+     * Iterator to transform LogBufferEvent to ProcessorEvent.
+     */
+    private final class LogFileOffsetTransformIterator implements
+        Iterator<ProcessorEvent<LogBufferFileOffset>> {
+
+      private final BlockingQueue<LogBufferEvent> queue;
+      private int count;
+
+      LogFileOffsetTransformIterator(BlockingQueue<LogBufferEvent> queue) {
+        this.queue = queue;
+      }
+
+      @Override
+      public boolean hasNext() {
+        // if the count has reached batch size or if there are not more elements in the queue at this moment, that
+        // means no more events should be processed. So return false
+        return count < config.getBatchSize() && queue.peek() != null;
+      }
+
+      @Override
+      public ProcessorEvent<LogBufferFileOffset> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        LogBufferEvent nextEvent = queue.poll();
+        count++;
+        lastTakenOffset = nextEvent.getOffset();
+        return new ProcessorEvent<>(nextEvent.getLogEvent(), nextEvent.getEventSize(),
+            nextEvent.getOffset());
+      }
     }
+  }
 
-    // Sync the appender and persists checkpoints
-    try {
-      context.sync();
-      // Only persist if sync succeeded. Since persistCheckpoints never throw, it's ok to be inside the try.
-      persistCheckpoints();
-      lastCheckpointTime = currentTimeMillis;
-      metricsContext.gauge("last.checkpoint.time", lastCheckpointTime);
-      unSyncedEvents = 0;
-      LOG.debug("Events synced and checkpoint persisted for {}", name);
-    } catch (Exception e) {
-      OUTAGE_LOG.warn("Failed to sync in pipeline {}. Will be retried.", name, e);
-    }
-    return config.getCheckpointIntervalMillis();
+  /**
+   * The checkpoint of a shard, with the state of its queues when the checkpoint was taken.
+   */
+  private static final class ShardCheckpoint {
+
+    private final Checkpoint<LogBufferFileOffset> checkpoint;
+    @Nullable
+    private final LogBufferFileOffset lastTakenOffset;
+    private final boolean queueEmpty;
+
+    ShardCheckpoint(Checkpoint<LogBufferFileOffset> checkpoint,
+        @Nullable LogBufferFileOffset lastTakenOffset, boolean queueEmpty) {
+      this.checkpoint = checkpoint;
+      this.lastTakenOffset = lastTakenOffset;
+      this.queueEmpty = queueEmpty;
+    }
   }
 
   /**
@@ -305,37 +518,4 @@ public class LogBufferProcessorPipeline extends AbstractExecutionThreadService {
           + '}';
     }
   }
-
-  /**
-   * Iterator to transform LogBufferEvent to ProcessorEvent.
-   */
-  private final class LogFileOffsetTransformIterator implements
-      Iterator<ProcessorEvent<LogBufferFileOffset>> {
-
-    private final BlockingQueue<LogBufferEvent> queue;
-    private int count;
-
-    LogFileOffsetTransformIterator(BlockingQueue<LogBufferEvent> queue) {
-      this.queue = queue;
-    }
-
-    @Override
-    public boolean hasNext() {
-      // if the count has reached batch size or if there are not more elements in the queue at this moment, that
-      // means no more events should be processed. So return false
-      return count < config.getBatchSize() && queue.peek() != null;
-    }
-
-    @Override
-    public ProcessorEvent<LogBufferFileOffset> next() {
-      if (!hasNext()) {
-        throw new NoSuchElementException();
-      }
-
-      LogBufferEvent nextEvent = queue.poll();
-      count++;
-      return new ProcessorEvent<>(nextEvent.getLogEvent(), nextEvent.getEventSize(),
-          nextEvent.getOffset());
-    }
-  }
 }
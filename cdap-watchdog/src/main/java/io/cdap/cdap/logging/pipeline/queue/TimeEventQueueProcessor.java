@@ -46,6 +46,7 @@ public class TimeEventQueueProcessor<OFFSET extends Comparable<OFFSET>> {
   private final TimeEventQueue<ILoggingEvent, OFFSET> eventQueue;
   private final LogProcessorPipelineContext context;
   private final MetricsContext metricsContext;
+  private final MetricsContext.Counter processedMessagesCounter;
   private final long maxBufferSize;
   private final long eventDelayMillis;
 
@@ -59,6 +60,8 @@ public class TimeEventQueueProcessor<OFFSET extends Comparable<OFFSET>> {
     this.maxBufferSize = maxBufferSize;
     this.eventDelayMillis = eventDelayMillis;
     this.metricsContext = context;
+    this.processedMessagesCounter =
+        context.counter(Constants.Metrics.Name.Log.PROCESS_MESSAGES_COUNT);
     this.eventQueue = new TimeEventQueue<>(partitions);
   }
 
@@ -170,7 +173,7 @@ public class TimeEventQueueProcessor<OFFSET extends Comparable<OFFSET>> {
 
     metricsContext.gauge(Constants.Metrics.Name.Log.PROCESS_MIN_DELAY, minDelay);
     metricsContext.gauge(Constants.Metrics.Name.Log.PROCESS_MAX_DELAY, maxDelay);
-    metricsContext.increment(Constants.Metrics.Name.Log.PROCESS_MESSAGES_COUNT, eventsAppended);
+    processedMessagesCounter.increment(eventsAppended);
 
     return new ProcessedEventMetadata<>(eventsAppended, metadata);
   }
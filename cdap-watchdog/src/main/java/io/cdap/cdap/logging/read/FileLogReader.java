@@ -16,40 +16,70 @@
 
 package io.cdap.cdap.logging.read;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.logging.LoggingContext;
 import io.cdap.cdap.logging.context.LoggingContextHelper;
 import io.cdap.cdap.logging.filter.AndFilter;
 import io.cdap.cdap.logging.filter.Filter;
 import io.cdap.cdap.logging.meta.FileMetaDataReader;
 import io.cdap.cdap.logging.write.LogLocation;
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Reads log events from a file.
+ *
+ * Log files of a range are read in parallel by a bounded pool of threads, which is shared by all
+ * reads of this reader. Idle threads are released, and the pool is shut down when the reader is
+ * closed.
  */
-public class FileLogReader implements LogReader {
+@Singleton
+public class FileLogReader implements LogReader, Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(FileLogReader.class);
 
   private final FileMetaDataReader fileMetadataReader;
+  private final int parallelism;
+  private final int prefetchEvents;
+  private final ThreadPoolExecutor executor;
 
   @Inject
-  public FileLogReader(FileMetaDataReader fileMetadataReader) {
+  public FileLogReader(CConfiguration cConf, FileMetaDataReader fileMetadataReader) {
     this.fileMetadataReader = fileMetadataReader;
+    this.parallelism = cConf.getInt(Constants.Logging.READER_PARALLELISM);
+    this.prefetchEvents = cConf.getInt(Constants.Logging.READER_PREFETCH_EVENTS);
+    int threads = cConf.getInt(Constants.Logging.READER_THREADS);
+    this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        Threads.createDaemonThreadFactory("log-file-reader-%d"));
+    // threads are released when there is nothing to read, even if the reader is never closed
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
   }
 
   @Override
@@ -166,6 +196,17 @@ public class FileLogReader implements LogReader {
         };
       }
 
+      if (parallelism > 1 && sortedFilesInRange.size() > 1) {
+        // read the files in parallel, and merge files that overlap in time
+        return new ParallelLogFileIterator(sortedFilesInRange,
+            new Function<LogLocation, CloseableIterator<LogEvent>>() {
+              @Override
+              public CloseableIterator<LogEvent> apply(LogLocation file) {
+                return file.readLog(logFilter, fromTimeMs, toTimeMs, Integer.MAX_VALUE);
+              }
+            }, executor, parallelism, prefetchEvents);
+      }
+
       final Iterator<LogLocation> filesIter = sortedFilesInRange.iterator();
 
       CloseableIterator<CloseableIterator<LogEvent>> closeableIterator =
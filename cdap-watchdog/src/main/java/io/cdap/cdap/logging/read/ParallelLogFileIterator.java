@@ -0,0 +1,231 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.read;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.logging.write.LogLocation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CloseableIterator} over the events of multiple log files, which merges the events of
+ * the files by event time. Up to a given number of files are opened and read ahead in parallel, in
+ * batches of events, so that reading the next files does not wait on the latency of the file
+ * system. Files that overlap in time, such as files written by different log saver instances, are
+ * merged as soon as their first event can come next.
+ */
+final class ParallelLogFileIterator extends AbstractCloseableIterator<LogEvent> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelLogFileIterator.class);
+
+  private final Function<LogLocation, CloseableIterator<LogEvent>> fileReader;
+  private final int parallelism;
+  private final int batchSize;
+  private final ExecutorService executor;
+  // files that are not opened yet, ordered by start time
+  private final Deque<LogLocation> pendingFiles;
+  // files that are read ahead but not merged yet, ordered by start time
+  private final Deque<FileEvents> openedFiles;
+  // files that are merged, ordered by the time of their next event
+  private final PriorityQueue<FileEvents> mergedFiles;
+  private int fileCount;
+
+  /**
+   * Creates an iterator over the given files.
+   *
+   * @param sortedFiles the files to read, ordered by the time of their first event
+   * @param fileReader function to read the events of a file
+   * @param executor executor to read the files, which can be shared with other iterators
+   * @param parallelism number of files to read ahead in parallel
+   * @param batchSize number of events to read ahead for each file
+   */
+  ParallelLogFileIterator(List<LogLocation> sortedFiles,
+      Function<LogLocation, CloseableIterator<LogEvent>> fileReader, ExecutorService executor,
+      int parallelism, int batchSize) {
+    Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive");
+    Preconditions.checkArgument(batchSize > 0, "Batch size must be positive");
+    this.fileReader = fileReader;
+    this.parallelism = parallelism;
+    this.batchSize = batchSize;
+    this.executor = executor;
+    this.pendingFiles = new ArrayDeque<>(sortedFiles);
+    this.openedFiles = new ArrayDeque<>();
+    this.mergedFiles = new PriorityQueue<>(Math.max(1, parallelism), new Comparator<FileEvents>() {
+      @Override
+      public int compare(FileEvents o1, FileEvents o2) {
+        int cmp = Long.compare(o1.getTimestamp(), o2.getTimestamp());
+        return cmp == 0 ? Integer.compare(o1.index, o2.index) : cmp;
+      }
+    });
+    openFiles();
+  }
+
+  @Override
+  protected LogEvent computeNext() {
+    // merge all files whose first event can be before the next event of the merged files
+    while (true) {
+      FileEvents next = openedFiles.isEmpty() ? openFile() : openedFiles.peekFirst();
+      if (next == null) {
+        break;
+      }
+      FileEvents head = mergedFiles.peek();
+      if (head != null && next.file.getEventTimeMs() > head.getTimestamp()) {
+        break;
+      }
+      openedFiles.pollFirst();
+      merge(next);
+      openFiles();
+    }
+
+    FileEvents head = mergedFiles.poll();
+    if (head == null) {
+      close();
+      return endOfData();
+    }
+    LogEvent event = head.current;
+    merge(head);
+    openFiles();
+    return event;
+  }
+
+  @Override
+  public void close() {
+    List<FileEvents> files = new ArrayList<>(openedFiles);
+    files.addAll(mergedFiles);
+    openedFiles.clear();
+    mergedFiles.clear();
+    pendingFiles.clear();
+    for (FileEvents file : files) {
+      file.close();
+    }
+  }
+
+  /**
+   * Adds the file to the merged files if it has more events, or closes it otherwise.
+   */
+  private void merge(FileEvents file) {
+    if (file.advance()) {
+      mergedFiles.add(file);
+    } else {
+      file.close();
+    }
+  }
+
+  /**
+   * Opens the next pending files, up to the number of files to read in parallel.
+   */
+  private void openFiles() {
+    while (openedFiles.size() + mergedFiles.size() < parallelism && openFile() != null) {
+      // keep opening
+    }
+  }
+
+  @Nullable
+  private FileEvents openFile() {
+    LogLocation file = pendingFiles.pollFirst();
+    if (file == null) {
+      return null;
+    }
+    FileEvents fileEvents = new FileEvents(file, fileCount++);
+    openedFiles.addLast(fileEvents);
+    return fileEvents;
+  }
+
+  /**
+   * The events of a file, which are read in batches by the executor. The next batch is read as soon
+   * as the previous one is taken.
+   */
+  private final class FileEvents {
+
+    private final LogLocation file;
+    private final int index;
+    private CloseableIterator<LogEvent> events;
+    private boolean closed;
+    private Future<List<LogEvent>> nextBatch;
+    private Iterator<LogEvent> batch;
+    private LogEvent current;
+
+    FileEvents(LogLocation file, int index) {
+      this.file = file;
+      this.index = index;
+      this.batch = Collections.emptyIterator();
+      this.nextBatch = executor.submit(this::readBatch);
+    }
+
+    long getTimestamp() {
+      return current.getLoggingEvent().getTimeStamp();
+    }
+
+    /**
+     * Moves to the next event of the file, waiting for it to be read if needed.
+     *
+     * @return whether there is a next event
+     */
+    boolean advance() {
+      if (!batch.hasNext() && nextBatch != null) {
+        List<LogEvent> events = Futures.getUnchecked(nextBatch);
+        // a smaller batch means that the end of the file was reached
+        nextBatch = events.size() < batchSize ? null : executor.submit(this::readBatch);
+        batch = events.iterator();
+      }
+      current = batch.hasNext() ? batch.next() : null;
+      return current != null;
+    }
+
+    private synchronized List<LogEvent> readBatch() {
+      List<LogEvent> result = new ArrayList<>(batchSize);
+      if (closed) {
+        return result;
+      }
+      if (events == null) {
+        LOG.trace("Reading file {}", file.getLocation());
+        events = fileReader.apply(file);
+      }
+      while (result.size() < batchSize && events.hasNext()) {
+        result.add(events.next());
+      }
+      return result;
+    }
+
+    synchronized void close() {
+      if (nextBatch != null) {
+        nextBatch.cancel(false);
+        nextBatch = null;
+      }
+      closed = true;
+      if (events != null) {
+        events.close();
+        events = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.common.io.Locations;
+import io.cdap.cdap.logging.context.ApplicationLoggingContext;
+import io.cdap.cdap.logging.context.WorkflowProgramLoggingContext;
+import io.cdap.cdap.logging.filter.EventSummary;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sparse time index of an Avro log file, which is written next to the log file when it is
+ * closed. The file is divided into segments that start at sync positions of the file. For each
+ * segment, the index keeps the maximum timestamp of the events before the segment and the minimum
+ * timestamp of the events from the segment to the end of the file. Since events are not strictly
+ * ordered by time in a log file, this lets readers find where to start or stop reading without
+ * missing any event.
+ *
+ * The index also keeps an {@link EventSummary} of each segment, with the highest level of its
+ * events and the values of the MDC keys that identify runs and programs within a log file, so that
+ * segments that cannot match a filter are skipped without decoding their events.
+ */
+public final class LogFileIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LogFileIndex.class);
+  private static final String FILE_SUFFIX = ".idx";
+  private static final int MAGIC = 0x4c494458;
+  private static final int VERSION = 2;
+  // MDC keys with values that are kept in the summary of each segment
+  private static final List<String> SUMMARY_MDC_KEYS = ImmutableList.of(
+      ApplicationLoggingContext.TAG_RUN_ID,
+      WorkflowProgramLoggingContext.TAG_WORKFLOW_MAP_REDUCE_ID,
+      WorkflowProgramLoggingContext.TAG_WORKFLOW_SPARK_ID);
+  // values of an MDC key are not kept for a segment if it has more distinct values than this
+  private static final int MAX_SUMMARY_MDC_VALUES = 16;
+
+  private final long[] positions;
+  private final long[] maxTimesBefore;
+  private final long[] minTimesFrom;
+  private final SegmentSummary[] summaries;
+
+  private LogFileIndex(long[] positions, long[] maxTimesBefore, long[] minTimesFrom,
+      SegmentSummary[] summaries) {
+    this.positions = positions;
+    this.maxTimesBefore = maxTimesBefore;
+    this.minTimesFrom = minTimesFrom;
+    this.summaries = summaries;
+  }
+
+  /**
+   * Returns the location of the index of the given log file.
+   */
+  public static Location getIndexLocation(Location logFile) throws IOException {
+    return Locations.getParent(logFile).append(logFile.getName() + FILE_SUFFIX);
+  }
+
+  /**
+   * Reads the index of the given log file.
+   *
+   * @param logFile location of the log file
+   * @return the index, or {@code null} if the log file has no valid index
+   */
+  @Nullable
+  public static LogFileIndex read(Location logFile) {
+    Location indexLocation;
+    try {
+      indexLocation = getIndexLocation(logFile);
+    } catch (IOException e) {
+      LOG.warn("Failed to get the index location of log file {}", logFile, e);
+      return null;
+    }
+    try (DataInputStream is = new DataInputStream(indexLocation.getInputStream())) {
+      if (is.readInt() != MAGIC || is.readInt() != VERSION) {
+        LOG.warn("Ignoring index file {} with unknown format", indexLocation);
+        return null;
+      }
+      int size = is.readInt();
+      if (size <= 0) {
+        return null;
+      }
+      long[] positions = new long[size];
+      long[] maxTimesBefore = new long[size];
+      long[] minTimesFrom = new long[size];
+      SegmentSummary[] summaries = new SegmentSummary[size];
+      for (int i = 0; i < size; i++) {
+        positions[i] = is.readLong();
+        maxTimesBefore[i] = is.readLong();
+        minTimesFrom[i] = is.readLong();
+        summaries[i] = SegmentSummary.read(is);
+      }
+      return new LogFileIndex(positions, maxTimesBefore, minTimesFrom, summaries);
+    } catch (FileNotFoundException e) {
+      // files that are still open, or were written before indexes were added, have no index
+      LOG.trace("No index file found for log file {}", logFile);
+      return null;
+    } catch (IOException e) {
+      LOG.warn("Failed to read index file {}", indexLocation, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes this index for the given log file.
+   *
+   * @param logFile location of the log file
+   * @param filePermissions permissions of the index file, or an empty string to use the default
+   */
+  public void write(Location logFile, String filePermissions) throws IOException {
+    Location indexLocation = getIndexLocation(logFile);
+    try (DataOutputStream os = new DataOutputStream(
+        filePermissions.isEmpty() ? indexLocation.getOutputStream()
+            : indexLocation.getOutputStream(filePermissions))) {
+      os.writeInt(MAGIC);
+      os.writeInt(VERSION);
+      os.writeInt(positions.length);
+      for (int i = 0; i < positions.length; i++) {
+        os.writeLong(positions[i]);
+        os.writeLong(maxTimesBefore[i]);
+        os.writeLong(minTimesFrom[i]);
+        summaries[i].write(os);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of segments in the index.
+   */
+  public int size() {
+    return positions.length;
+  }
+
+  /**
+   * Returns the sync position of the start of the given segment.
+   */
+  public long getPosition(int segment) {
+    return positions[segment];
+  }
+
+  /**
+   * Returns the summary of the events of the given segment.
+   */
+  public EventSummary getSummary(int segment) {
+    return summaries[segment];
+  }
+
+  /**
+   * Returns the sync position to read from to find all events at or after the given time. All
+   * events before the returned position are before the given time.
+   */
+  public long getStartPosition(long timeMs) {
+    return positions[getStartSegment(timeMs)];
+  }
+
+  /**
+   * Returns the segment to read from to find all events at or after the given time. All events
+   * before the returned segment are before the given time.
+   */
+  public int getStartSegment(long timeMs) {
+    // maximum times before each segment are non-decreasing, find the last one before timeMs
+    int low = 0;
+    int high = positions.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (maxTimesBefore[mid] < timeMs) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the first segment from which all events are after the given time, or {@link #size()}
+   * if the last segment has events at or before the given time.
+   */
+  public int getEndSegment(long timeMs) {
+    // minimum times from each segment are non-decreasing, find the first one after timeMs
+    int low = 0;
+    int high = positions.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (minTimesFrom[mid] > timeMs) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Builder for {@link LogFileIndex}, which is given the sync positions and event times in the
+   * order they are written to the log file.
+   */
+  public static final class Builder {
+
+    private final List<Long> positions = new ArrayList<>();
+    private final List<Long> minTimes = new ArrayList<>();
+    private final List<Long> maxTimes = new ArrayList<>();
+    private final List<SegmentSummary> summaries = new ArrayList<>();
+
+    /**
+     * Starts a new segment at the given sync position. The current segment is replaced if it has no
+     * events.
+     */
+    public Builder addSegment(long position) {
+      int last = positions.size() - 1;
+      if (last >= 0 && minTimes.get(last) == Long.MAX_VALUE) {
+        positions.set(last, position);
+        return this;
+      }
+      positions.add(position);
+      minTimes.add(Long.MAX_VALUE);
+      maxTimes.add(Long.MIN_VALUE);
+      summaries.add(new SegmentSummary());
+      return this;
+    }
+
+    /**
+     * Adds an event to the current segment.
+     */
+    public Builder addEvent(ILoggingEvent event) {
+      Preconditions.checkState(!positions.isEmpty(), "A segment must be added before any event");
+      int last = positions.size() - 1;
+      long timestamp = event.getTimeStamp();
+      minTimes.set(last, Math.min(minTimes.get(last), timestamp));
+      maxTimes.set(last, Math.max(maxTimes.get(last), timestamp));
+      summaries.get(last).add(event);
+      return this;
+    }
+
+    /**
+     * Returns whether any event was added.
+     */
+    public boolean hasEvents() {
+      return !positions.isEmpty() && minTimes.get(0) != Long.MAX_VALUE;
+    }
+
+    public LogFileIndex build() {
+      int size = positions.size();
+      // the last segment may have no events
+      if (size > 0 && minTimes.get(size - 1) == Long.MAX_VALUE) {
+        size--;
+      }
+      long[] segmentPositions = new long[size];
+      long[] maxTimesBefore = new long[size];
+      long[] minTimesFrom = new long[size];
+      SegmentSummary[] segmentSummaries = summaries.subList(0, size).toArray(new SegmentSummary[0]);
+      long maxTime = Long.MIN_VALUE;
+      for (int i = 0; i < size; i++) {
+        segmentPositions[i] = positions.get(i);
+        maxTimesBefore[i] = maxTime;
+        maxTime = Math.max(maxTime, maxTimes.get(i));
+      }
+      long minTime = Long.MAX_VALUE;
+      for (int i = size - 1; i >= 0; i--) {
+        minTime = Math.min(minTime, minTimes.get(i));
+        minTimesFrom[i] = minTime;
+      }
+      return new LogFileIndex(segmentPositions, maxTimesBefore, minTimesFrom, segmentSummaries);
+    }
+  }
+
+  /**
+   * The {@link EventSummary} of a segment.
+   */
+  private static final class SegmentSummary implements EventSummary {
+
+    private int maxLevel;
+    // values of each MDC key, or null if there are too many
+    private final Map<String, Set<String>> mdcValues;
+
+    SegmentSummary() {
+      this(Level.ALL_INT, new HashMap<String, Set<String>>());
+      for (String key : SUMMARY_MDC_KEYS) {
+        mdcValues.put(key, new HashSet<String>());
+      }
+    }
+
+    private SegmentSummary(int maxLevel, Map<String, Set<String>> mdcValues) {
+      this.maxLevel = maxLevel;
+      this.mdcValues = mdcValues;
+    }
+
+    void add(ILoggingEvent event) {
+      Level level = event.getLevel();
+      maxLevel = Math.max(maxLevel, level == null ? Level.ERROR_INT : level.toInt());
+      Map<String, String> mdc = event.getMDCPropertyMap();
+      for (Map.Entry<String, Set<String>> entry : mdcValues.entrySet()) {
+        Set<String> values = entry.getValue();
+        String value = mdc == null ? null : mdc.get(entry.getKey());
+        if (values == null || value == null || values.contains(value)) {
+          continue;
+        }
+        if (values.size() < MAX_SUMMARY_MDC_VALUES) {
+          values.add(value);
+        } else {
+          entry.setValue(null);
+        }
+      }
+    }
+
+    @Override
+    public int getMaxLevel() {
+      return maxLevel;
+    }
+
+    @Nullable
+    @Override
+    public Set<String> getMdcValues(String key) {
+      // values of keys that are not summarized are not known
+      return mdcValues.get(key);
+    }
+
+    void write(DataOutputStream os) throws IOException {
+      os.writeInt(maxLevel);
+      os.writeInt(mdcValues.size());
+      for (Map.Entry<String, Set<String>> entry : mdcValues.entrySet()) {
+        os.writeUTF(entry.getKey());
+        Set<String> values = entry.getValue();
+        os.writeInt(values == null ? -1 : values.size());
+        if (values != null) {
+          for (String value : values) {
+            os.writeUTF(value);
+          }
+        }
+      }
+    }
+
+    static SegmentSummary read(DataInputStream is) throws IOException {
+      int maxLevel = is.readInt();
+      int keys = is.readInt();
+      Map<String, Set<String>> mdcValues = new HashMap<>();
+      for (int i = 0; i < keys; i++) {
+        String key = is.readUTF();
+        int size = is.readInt();
+        Set<String> values = null;
+        if (size >= 0) {
+          values = new HashSet<>();
+          for (int j = 0; j < size; j++) {
+            values.add(is.readUTF());
+          }
+        }
+        mdcValues.put(key, values);
+      }
+      return new SegmentSummary(maxLevel, mdcValues);
+    }
+  }
+}
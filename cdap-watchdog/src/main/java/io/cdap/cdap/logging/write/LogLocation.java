@@ -42,6 +42,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.SeekableInput;
 import org.apache.avro.generic.GenericDatumReader;
@@ -160,6 +161,11 @@ public class LogLocation {
       throws IOException {
     Deque<Collection<LogEvent>> logSegments = new LinkedList<>();
     int count = 0;
+    LogFileIndex index = readIndex();
+    if (index != null && nextMatchingSegment(index, logFilter, 0) >= index.size()) {
+      LOG.trace("Skipping file {} with no events matching the filter", location);
+      return ImmutableList.of();
+    }
     try {
       try (DataFileReader<GenericRecord> dataFileReader = createReader()) {
 
@@ -167,6 +173,12 @@ public class LogLocation {
           return ImmutableList.of();
         }
 
+        if (index != null) {
+          count = readLogPrev(dataFileReader, index, logFilter, fromTimeMs, maxEvents, logSegments);
+          int skip = count >= maxEvents ? count - maxEvents : 0;
+          return Lists.newArrayList(Iterables.skip(Iterables.concat(logSegments), skip));
+        }
+
         // Calculate skipLen based on fileLength
         long length = location.length();
         LOG.trace("File length {} {}", location, length);
@@ -216,6 +228,41 @@ public class LogLocation {
     return Lists.newArrayList(Iterables.skip(Iterables.concat(logSegments), skip));
   }
 
+  /**
+   * Reads the segments of the file given by its index backwards, starting from the last segment
+   * with events at or before fromTimeMs, until maxEvents are read. Segments that cannot have events
+   * matching the filter are skipped.
+   *
+   * @return the number of events read
+   */
+  private int readLogPrev(DataFileReader<GenericRecord> dataFileReader, LogFileIndex index,
+      Filter logFilter, long fromTimeMs, int maxEvents,
+      Deque<Collection<LogEvent>> logSegments) throws IOException {
+    int count = 0;
+    // all events from this segment on are after fromTimeMs
+    int segment = index.getEndSegment(fromTimeMs);
+    long endPosition = segment < index.size() ? index.getPosition(segment) : -1;
+    while (segment > 0 && count < maxEvents) {
+      segment--;
+      long startPosition = index.getPosition(segment);
+      if (!logFilter.mayMatch(index.getSummary(segment))) {
+        endPosition = startPosition;
+        continue;
+      }
+      dataFileReader.seek(startPosition);
+      List<LogEvent> logSegment = readToEndSyncPosition(dataFileReader, logFilter, fromTimeMs,
+          endPosition);
+      if (!logSegment.isEmpty()) {
+        logSegments.addFirst(logSegment);
+        count = count + logSegment.size();
+      }
+      LOG.trace("Read log events {} from indexed position {} to endPosition {}", count,
+          startPosition, endPosition);
+      endPosition = startPosition;
+    }
+    return count;
+  }
+
   /**
    * Read current block in Avro file from current block sync marker to next block sync marker
    */
@@ -230,14 +277,15 @@ public class LogLocation {
     while (dataFileReader.hasNext() && (endSyncPosition == -1 || (currentSyncPosition
         < endSyncPosition))) {
       ILoggingEvent loggingEvent = new LoggingEvent(dataFileReader.next());
-      loggingEvent.prepareForDeferredProcessing();
 
       // Stop when reached fromTimeMs
       if (loggingEvent.getTimeStamp() > fromTimeMs) {
         break;
       }
 
+      // only the fields of events that match the filter are decoded
       if (logFilter.match(loggingEvent)) {
+        loggingEvent.prepareForDeferredProcessing();
         logSegment.add(new LogEvent(loggingEvent,
             new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp())));
       }
@@ -247,6 +295,17 @@ public class LogLocation {
     return logSegment;
   }
 
+  /**
+   * Returns the first segment of the index from the given one that can have events matching the
+   * filter, or the size of the index if there is none.
+   */
+  private static int nextMatchingSegment(LogFileIndex index, Filter logFilter, int segment) {
+    while (segment < index.size() && !logFilter.mayMatch(index.getSummary(segment))) {
+      segment++;
+    }
+    return segment;
+  }
+
   /**
    * Starting from currentSyncPosition, move backwards by skipLen number of positions in each
    * iteration to find out a sync position less than currentSyncPosition
@@ -272,6 +331,9 @@ public class LogLocation {
     private final long maxEvents;
 
     private DataFileReader<GenericRecord> dataFileReader;
+    private LogFileIndex index;
+    // the segment of the index being read
+    private int segment;
 
     private ILoggingEvent loggingEvent;
     private GenericRecord datum;
@@ -288,11 +350,23 @@ public class LogLocation {
       this.maxEvents = maxEvents;
 
       try {
+        index = readIndex();
+        if (index != null) {
+          segment = nextMatchingSegment(index, logFilter, index.getStartSegment(fromTimeMs));
+          if (segment >= index.size()) {
+            LOG.trace("Skipping file {} with no events matching the filter", location);
+            return;
+          }
+        }
         dataFileReader = createReader();
-        if (dataFileReader.hasNext()) {
+        if (index != null) {
+          long position = index.getPosition(segment);
+          LOG.trace("Seeking to indexed pos {}", position);
+          dataFileReader.seek(position);
+        } else if (dataFileReader.hasNext()) {
+          // only the timestamps of events are needed to find where to start
           datum = dataFileReader.next();
           loggingEvent = new LoggingEvent(datum);
-          loggingEvent.prepareForDeferredProcessing();
 
           long prevPrevSyncPos = 0;
           long prevSyncPos = 0;
@@ -306,7 +380,6 @@ public class LogLocation {
             dataFileReader.sync(curPos);
             if (dataFileReader.hasNext()) {
               loggingEvent = new LoggingEvent(dataFileReader.next(datum));
-              loggingEvent.prepareForDeferredProcessing();
             }
           }
 
@@ -328,9 +401,8 @@ public class LogLocation {
     private void computeNext() {
       try {
         // read events from file
-        while (next == null && dataFileReader.hasNext()) {
+        while (next == null && dataFileReader != null && hasNextEvent()) {
           loggingEvent = new LoggingEvent(dataFileReader.next(datum));
-          loggingEvent.prepareForDeferredProcessing();
 
           if (loggingEvent.getTimeStamp() >= fromTimeMs && logFilter.match(loggingEvent)) {
             ++count;
@@ -338,6 +410,8 @@ public class LogLocation {
                 && loggingEvent.getTimeStamp() != prevTimestamp) {
               break;
             }
+            // only the fields of events that match the filter are decoded
+            loggingEvent.prepareForDeferredProcessing();
             next = new LogEvent(loggingEvent,
                 new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp()));
           }
@@ -351,6 +425,41 @@ public class LogLocation {
       }
     }
 
+    /**
+     * Returns whether the file has more events to read. When the reader moves to the next segment
+     * of the index, segments that cannot have events matching the filter are skipped.
+     */
+    private boolean hasNextEvent() throws IOException {
+      if (!dataFileReader.hasNext()) {
+        return false;
+      }
+      if (index == null) {
+        return true;
+      }
+      if (segment >= index.size()) {
+        return false;
+      }
+      // the sync position of the block being read tells which segment it belongs to
+      long position = dataFileReader.previousSync();
+      int current = segment;
+      while (current + 1 < index.size() && position >= index.getPosition(current + 1)) {
+        current++;
+      }
+      if (current == segment) {
+        return true;
+      }
+      segment = nextMatchingSegment(index, logFilter, current);
+      if (segment >= index.size()) {
+        return false;
+      }
+      if (segment != current) {
+        LOG.trace("Skipping to indexed pos {}", index.getPosition(segment));
+        dataFileReader.seek(index.getPosition(segment));
+        return dataFileReader.hasNext();
+      }
+      return true;
+    }
+
     @Override
     public void close() {
       try {
@@ -384,6 +493,18 @@ public class LogLocation {
     }
   }
 
+  /**
+   * Returns the index of the file, or {@code null} if it has none.
+   */
+  @Nullable
+  private LogFileIndex readIndex() {
+    // indexes are only written by the current logging framework
+    if (VERSION_0.equals(frameworkVersion)) {
+      return null;
+    }
+    return LogFileIndex.read(location);
+  }
+
   private DataFileReader<GenericRecord> createReader() throws IOException {
     boolean shouldImpersonate = this.getFrameworkVersion().equals(VERSION_0);
     return new DataFileReader<>(
@@ -20,7 +20,6 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.Uninterruptibles;
@@ -30,9 +29,13 @@ import io.cdap.cdap.api.metrics.MetricValues;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.conf.Constants;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +45,12 @@ import org.slf4j.LoggerFactory;
 /**
  * Base class for {@link MetricsCollectionService} which collect metrics through a set of cached
  * {@link AggregatedMetricsEmitter}.
+ *
+ * Emitters are grouped by the tags of the {@link MetricsContext}. Each {@link MetricsContext} keeps
+ * a reference to its group of emitters, such that updating a metric only involves a lookup by the
+ * metric name, or no lookup at all when using a {@link MetricsContext.Counter}. Emitters that have
+ * not been updated for a minute are retired by the publishing thread and their remaining values are
+ * published in the next iteration.
  */
 public abstract class AggregatedMetricsCollectionService extends AbstractExecutionThreadService
     implements MetricsCollectionService {
@@ -51,7 +60,9 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private static final long CACHE_EXPIRE_MINUTES = 1;
 
   private final LoadingCache<Map<String, String>, MetricsContext> collectors;
-  private final LoadingCache<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> emitters;
+  private final ConcurrentMap<Map<String, String>, EmitterGroup> emitters;
+  // Groups that were retired in the last iteration. Only accessed by the publishing thread.
+  private final List<EmitterGroup> retiredGroups;
   // maximum number of milliseconds to sleep between each publish
   private final long publishIntervalInMillis;
   private final CountDownLatch shutdownLatch;
@@ -64,28 +75,8 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     this.collectors = CacheBuilder.newBuilder()
         .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
         .build(createCollectorLoader());
-
-    this.emitters = CacheBuilder.newBuilder()
-        // NOTE : we don't need to have removalListener to  emit metrics, as we have expireAfterAccess set for a minute,
-        // emitters.get() is used to increment/gauge and that would reset the access time,
-        // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
-        // there wont be any loss of emitter entries.
-        .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-        .build(
-            new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
-              @Override
-              public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags)
-                  throws Exception {
-                return CacheBuilder.newBuilder()
-                    .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-                    build(new CacheLoader<String, AggregatedMetricsEmitter>() {
-                      @Override
-                      public AggregatedMetricsEmitter load(String metricName) throws Exception {
-                        return new AggregatedMetricsEmitter(metricName);
-                      }
-                    });
-              }
-            });
+    this.emitters = new ConcurrentHashMap<>();
+    this.retiredGroups = new ArrayList<>();
   }
 
   /**
@@ -133,7 +124,7 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
 
     LOG.trace("Start log collection for timestamp {}", timestamp);
 
-    Iterator<MetricValues> metrics = getMetrics(timestamp);
+    Iterator<MetricValues> metrics = getMetrics(timestamp, currentTimeMillis);
     try {
       publish(metrics);
     } catch (Throwable t) {
@@ -176,33 +167,19 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     shutdownLatch.countDown();
   }
 
-  private Iterator<MetricValues> getMetrics(final long timestamp) {
-    // NOTE : emitters.asMap does not reset the access time in cache,
-    // so it's the preferred way to access the cache entries. as we access and emit metrics every second.
-    final Iterator<Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>> iterator =
-        emitters.asMap().entrySet().iterator();
+  private Iterator<MetricValues> getMetrics(final long timestamp, final long currentTimeMillis) {
+    // Groups retired in the last iteration are emitted once more, to publish values that were
+    // updated concurrently with the retirement.
+    final List<EmitterGroup> groups = new ArrayList<>(retiredGroups);
+    retiredGroups.clear();
+    groups.addAll(emitters.values());
+    final Iterator<EmitterGroup> iterator = groups.iterator();
     return new AbstractIterator<MetricValues>() {
       @Override
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
-          // +1 because we add extra metric about how many metric values did we emit in this context (see below)
-          List<MetricValue> metricValues = Lists.newArrayListWithCapacity(
-              metricEmitters.size() + 1);
-          for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
-            MetricValue metricValue = emitterEntry.getValue().emit();
-            // skip increment by 0
-            if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
-              continue;
-            }
-            if (metricValue.getType() == MetricType.DISTRIBUTION
-                && metricValue.getBucketCounts().length == 0) {
-              continue;
-            }
-
-            metricValues.add(metricValue);
-          }
+          EmitterGroup group = iterator.next();
+          List<MetricValue> metricValues = group.emit(currentTimeMillis);
 
           if (metricValues.isEmpty()) {
             // skip if there are no metric values to send
@@ -214,13 +191,25 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
               metricValues.size() + 1));
 
           LOG.trace("Emit metric {}", metricValues);
-          return new MetricValues(entry.getKey(), timestamp, metricValues);
+          return new MetricValues(group.tags, timestamp, metricValues);
         }
         return endOfData();
       }
     };
   }
 
+  /**
+   * Returns {@code true} if the given {@link MetricValue} carries no value to publish.
+   */
+  private static boolean isEmpty(MetricValue metricValue) {
+    // skip increment by 0
+    if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
+      return true;
+    }
+    return metricValue.getType() == MetricType.DISTRIBUTION
+        && metricValue.getBucketCounts().length == 0;
+  }
+
   private CacheLoader<Map<String, String>, MetricsContext> createCollectorLoader() {
     return new CacheLoader<Map<String, String>, MetricsContext>() {
       @Override
@@ -230,22 +219,142 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     };
   }
 
+  /**
+   * The emitters of all metrics with the same tags.
+   */
+  private final class EmitterGroup {
+
+    private final Map<String, String> tags;
+    private final ConcurrentMap<String, AggregatedMetricsEmitter> metricEmitters;
+    // The following fields are only accessed by the publishing thread
+    private final Map<AggregatedMetricsEmitter, Long> idleSince;
+    private final List<AggregatedMetricsEmitter> retiredEmitters;
+    private volatile boolean retired;
+
+    private EmitterGroup(Map<String, String> tags) {
+      this.tags = tags;
+      this.metricEmitters = new ConcurrentHashMap<>();
+      this.idleSince = new IdentityHashMap<>();
+      this.retiredEmitters = new ArrayList<>();
+    }
+
+    /**
+     * Emits the values of all emitters in this group. Emitters that have been idle for longer than
+     * {@code CACHE_EXPIRE_MINUTES} are retired, and this group is retired if there is no more
+     * emitter left.
+     */
+    List<MetricValue> emit(long currentTimeMillis) {
+      // +1 because we add extra metric about how many metric values did we emit in this context
+      List<MetricValue> metricValues = new ArrayList<>(metricEmitters.size() + 1);
+
+      // Emitters retired in the last iteration are emitted for the last time
+      for (AggregatedMetricsEmitter emitter : retiredEmitters) {
+        addIfNotEmpty(metricValues, emitter.emit());
+      }
+      retiredEmitters.clear();
+
+      long expireMillis = TimeUnit.MINUTES.toMillis(CACHE_EXPIRE_MINUTES);
+      for (Map.Entry<String, AggregatedMetricsEmitter> entry : metricEmitters.entrySet()) {
+        AggregatedMetricsEmitter emitter = entry.getValue();
+        if (retired) {
+          // Emitters added concurrently when this group was retired
+          emitter.retire();
+        }
+        if (addIfNotEmpty(metricValues, emitter.emit())) {
+          idleSince.remove(emitter);
+          continue;
+        }
+        Long idleStartTime = idleSince.get(emitter);
+        if (idleStartTime == null) {
+          idleSince.put(emitter, currentTimeMillis);
+        } else if (currentTimeMillis - idleStartTime >= expireMillis) {
+          // Retire the emitter and remove it from the group. Values collected after the emit above
+          // will be emitted in the next iteration.
+          emitter.retire();
+          metricEmitters.remove(entry.getKey(), emitter);
+          idleSince.remove(emitter);
+          retiredEmitters.add(emitter);
+        }
+      }
+
+      if (!retired && metricEmitters.isEmpty() && retiredEmitters.isEmpty()) {
+        retire();
+      }
+      return metricValues;
+    }
+
+    /**
+     * Retires this group by removing it from the emitters map. Emitters that are added to this
+     * group concurrently will be emitted in the next iteration.
+     */
+    private void retire() {
+      retired = true;
+      emitters.remove(tags, this);
+      for (AggregatedMetricsEmitter emitter : metricEmitters.values()) {
+        emitter.retire();
+      }
+      retiredGroups.add(this);
+    }
+
+    private boolean addIfNotEmpty(List<MetricValue> metricValues, MetricValue metricValue) {
+      if (isEmpty(metricValue)) {
+        return false;
+      }
+      metricValues.add(metricValue);
+      return true;
+    }
+  }
+
+  /**
+   * A {@link MetricsContext.Counter} that keeps a reference to the emitter of the metric.
+   */
+  private static final class EmitterCounter implements MetricsContext.Counter {
+
+    private final MetricsContextImpl context;
+    private final String metricName;
+    private volatile AggregatedMetricsEmitter emitter;
+
+    private EmitterCounter(MetricsContextImpl context, String metricName) {
+      this.context = context;
+      this.metricName = metricName;
+      this.emitter = context.getEmitter(metricName);
+    }
+
+    @Override
+    public void increment(long value) {
+      AggregatedMetricsEmitter emitter = this.emitter;
+      if (emitter.isRetired()) {
+        emitter = context.getEmitter(metricName);
+        this.emitter = emitter;
+      }
+      emitter.increment(value);
+    }
+  }
+
   private final class MetricsContextImpl implements MetricsContext {
 
     private final Map<String, String> tags;
+    private final ConcurrentMap<String, Counter> counters;
+    private volatile EmitterGroup group;
 
     private MetricsContextImpl(final Map<String, String> tags) {
       this.tags = ImmutableMap.copyOf(tags);
+      this.counters = new ConcurrentHashMap<>();
     }
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      getEmitter(metricName).increment(value);
     }
 
     @Override
     public void gauge(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
+      getEmitter(metricName).gauge(value);
+    }
+
+    @Override
+    public Counter counter(String metricName) {
+      return counters.computeIfAbsent(metricName, name -> new EmitterCounter(this, name));
     }
 
     @Override
@@ -262,7 +371,7 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
 
     @Override
     public void event(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).event(value);
+      getEmitter(metricName).event(value);
     }
 
     @Override
@@ -276,5 +385,35 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       allTags.putAll(tags);
       return collectors.getUnchecked(allTags);
     }
+
+    /**
+     * Returns the emitter for the given metric, which is never retired at the time of the call.
+     */
+    private AggregatedMetricsEmitter getEmitter(String metricName) {
+      EmitterGroup group = this.group;
+      if (group != null) {
+        AggregatedMetricsEmitter emitter = group.metricEmitters.get(metricName);
+        if (emitter != null && !emitter.isRetired()) {
+          return emitter;
+        }
+      }
+
+      while (true) {
+        group = this.group;
+        if (group == null || group.retired) {
+          group = emitters.computeIfAbsent(tags, EmitterGroup::new);
+          this.group = group;
+        }
+        AggregatedMetricsEmitter emitter = group.metricEmitters.compute(metricName,
+            (name, existing) -> existing == null || existing.isRetired()
+                ? new AggregatedMetricsEmitter(name)
+                : existing);
+        // If the group was retired concurrently, the emitter may no longer be emitted after the
+        // next iteration, hence resolve the emitter again from a new group.
+        if (!group.retired) {
+          return emitter;
+        }
+      }
+    }
   }
 }
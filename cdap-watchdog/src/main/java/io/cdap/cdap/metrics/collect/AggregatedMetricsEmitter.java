@@ -17,21 +17,33 @@ package io.cdap.cdap.metrics.collect;
 
 import io.cdap.cdap.api.metrics.MetricType;
 import io.cdap.cdap.api.metrics.MetricValue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * {@link MetricsEmitter} that aggregates  values for a metric during collection and emit the
  * aggregated value when emit.
+ *
+ * Updating the metric is lock-free. Counter values are accumulated in a {@link LongAdder} and
+ * distribution values in a {@link Distribution}, both of them are striped to avoid contention
+ * between threads. Since resetting a {@link LongAdder} can lose concurrent updates, the emitted
+ * counter value is computed as the difference from the total seen in the last emit.
  */
 public final class AggregatedMetricsEmitter implements MetricsEmitter {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsEmitter.class);
 
   private final String name;
-  private long value;
+  private final LongAdder counter;
+  private final AtomicBoolean gaugeUpdated;
+  private volatile long gaugeValue;
+  private volatile Distribution distribution;
+  private volatile MetricType metricType = MetricType.COUNTER;
+  private volatile boolean retired;
 
-  private MetricType metricType = MetricType.COUNTER;
-  private Distribution distribution;
+  // Counter total returned by the last emit
+  private long emittedCount;
 
   public AggregatedMetricsEmitter(String name) {
     if (name == null || name.isEmpty()) {
@@ -39,44 +51,73 @@ public final class AggregatedMetricsEmitter implements MetricsEmitter {
     }
 
     this.name = name;
+    this.counter = new LongAdder();
+    this.gaugeUpdated = new AtomicBoolean();
   }
 
-  public synchronized void increment(long incrementValue) {
-    this.value += incrementValue;
-    this.metricType = MetricType.COUNTER;
+  public void increment(long incrementValue) {
+    counter.add(incrementValue);
+    setMetricType(MetricType.COUNTER);
   }
 
   @Override
   public synchronized MetricValue emit() {
+    MetricType metricType = this.metricType;
     if (metricType == MetricType.DISTRIBUTION) {
-      Distribution oldVal;
-      // TODO emit maybe made faster using CAS inside Distribution.
-      // https://cdap.atlassian.net/browse/CDAP-18792 has more context
-      oldVal = distribution;
-      distribution = null;
-      if (oldVal != null) {
-        LOG.trace("Emitting distribution metric: {}", oldVal.toString());
-        return oldVal.getMetricValue(name);
-      }
-      return new Distribution().getMetricValue(name);
+      MetricValue metricValue = distribution.getMetricValue(name);
+      LOG.trace("Emitting distribution metric: {}", metricValue);
+      return metricValue;
+    }
+    if (metricType == MetricType.GAUGE && gaugeUpdated.getAndSet(false)) {
+      return new MetricValue(name, MetricType.GAUGE, gaugeValue);
     }
 
-    MetricValue returnVal = new MetricValue(name, metricType, this.value);
-    this.value = 0;
-    this.metricType = MetricType.COUNTER;
+    long totalCount = counter.sum();
+    MetricValue returnVal = new MetricValue(name, MetricType.COUNTER, totalCount - emittedCount);
+    emittedCount = totalCount;
     return returnVal;
   }
 
-  public synchronized void gauge(long value) {
-    this.value = value;
-    this.metricType = MetricType.GAUGE;
+  public void gauge(long value) {
+    gaugeValue = value;
+    gaugeUpdated.set(true);
+    setMetricType(MetricType.GAUGE);
   }
 
-  public synchronized void event(long value) {
+  public void event(long value) {
+    Distribution distribution = this.distribution;
     if (distribution == null) {
-      distribution = new Distribution();
+      synchronized (this) {
+        distribution = this.distribution;
+        if (distribution == null) {
+          distribution = new Distribution();
+          this.distribution = distribution;
+        }
+      }
     }
     distribution.add(value);
-    this.metricType = MetricType.DISTRIBUTION;
+    setMetricType(MetricType.DISTRIBUTION);
+  }
+
+  /**
+   * Marks this emitter as retired. A retired emitter is no longer emitted after the values
+   * collected so far are emitted, hence callers should stop updating it.
+   */
+  void retire() {
+    retired = true;
+  }
+
+  /**
+   * Returns {@code true} if this emitter is retired.
+   */
+  boolean isRetired() {
+    return retired;
+  }
+
+  private void setMetricType(MetricType metricType) {
+    // Only write when it changes to avoid contention on the volatile field
+    if (this.metricType != metricType) {
+      this.metricType = metricType;
+    }
   }
 }
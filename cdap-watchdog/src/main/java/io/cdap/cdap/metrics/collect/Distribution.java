@@ -18,64 +18,44 @@ package io.cdap.cdap.metrics.collect;
 
 import io.cdap.cdap.api.metrics.MetricValue;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Class is not thread-safe. It is the caller's responsibility to ensure thread safety.
+ * A log-bucketed histogram of values. Values are put in 64 buckets, with bucket {@code n} holding
+ * values in the range of [2^(n-2), 2^(n-1)), except bucket 0 holds negative values and bucket 1
+ * holds 0.
+ *
+ * This class is thread-safe and lock-free for adding values, such that it can be updated by many
+ * threads concurrently without contention. Each bucket is a {@link LongAdder}, which is only
+ * created when the first value falls into it. Since the range of values for a metric is usually
+ * within a 256X range, only a few buckets are created in the normal case.
+ *
+ * The {@link #getMetricValue(String)} method returns the values added since the last call, which
+ * is computed as the difference from the totals seen in the last call. This is done instead of
+ * resetting the buckets, since resetting a {@link LongAdder} can lose concurrent updates.
  */
 public class Distribution {
-  /**
-   * Trying to minimize memory usage for the buckets. Using a long[64 (i.e. ROWS*COLS)] will always store 64 numbers,
-   * most of them being 0. A HashMap is an alternative, but boxing overhed is high (roughly 10X) for
-   * each long.
-   *
-   * A third alternative used is to increase array size till the highest bucket. But this involves
-   * repeatedly copying the array.
-   *
-   * The current approach strikes a balance by using an array of arrays. Ex. bucket 52 is stored in
-   * the 6th row, 5th column (6*8(i.e. ROWS) + 5th column). Initially all rows are null. The moment a bucket increases
-   * by 1, a long[8 (i.e. COLS)] is created for that row. When bucket 52 becomes non-zero, the 6th row is initialized
-   * to long[8 (i.e. COLS)] and the 5th column is increased to 1. If bucket 53 needs to be incremented, the row
-   * already exists. So the 6th column is incremented.
-   *
-   * In the worst case, this can take storage for 64 longs + 8(ROWS) row sreferences. But in the normal case,
-   * the range of values for a metric will probably within a 256X range i.e. max value <= min * 256. So at most
-   * two rows will have to be initialized, resulting in 8(COLS)*2 long number storage + 8(ROWS) object references.
-   */
-
-  /**
-   * ROWS is the number of rows in bucketCounts and COLS is the number of columns in bucketCounts.
-   * Note that ROWS*COLS MUST be less than or equal to 64 (Long.SIZE), since we are using a long
-   * bucketMask.
-   */
-  private static final int ROWS = 8;
-  private static final int COLS = 8;
-
-  private final long[][] bucketCounts = new long[ROWS][];
 
-  /**
-   * If count is zero then this field must be zero. Mean can be easily calculated from sum and
-   * count.
-   */
-  private double sum;
+  private static final int NUM_BUCKETS = Long.SIZE;
 
-  private long count;
+  private final AtomicReferenceArray<LongAdder> bucketCounts =
+      new AtomicReferenceArray<>(NUM_BUCKETS);
+  private final LongAdder sum = new LongAdder();
 
-  private int numBuckets;
+  // Totals returned by the last getMetricValue call
+  private final long[] emittedBucketCounts = new long[NUM_BUCKETS];
+  private long emittedSum;
 
   public void add(long value) {
     int bucket = findBucketNumber(value);
-    count += 1;
-    sum += value;
-
-    int i = getRow(bucket);
-    int j = getCol(bucket);
-    if (bucketCounts[i] == null) {
-      bucketCounts[i] = new long[COLS];
-    }
-    if (bucketCounts[i][j] == 0) {
-      numBuckets++;
+    LongAdder bucketCount = bucketCounts.get(bucket);
+    if (bucketCount == null) {
+      bucketCounts.compareAndSet(bucket, null, new LongAdder());
+      bucketCount = bucketCounts.get(bucket);
     }
-    bucketCounts[i][j] += 1;
+    bucketCount.increment();
+    sum.add(value);
   }
 
   private int findBucketNumber(long value) {
@@ -91,47 +71,45 @@ public class Distribution {
     return Math.min(Long.numberOfTrailingZeros(Long.highestOneBit(value)) + 2, Long.SIZE - 1);
   }
 
-  private int getRow(int bucket) {
-    // Hotspot will optimize this division
-    // https://stackoverflow.com/questions/1514949/quick-java-optimization-question
-    return bucket / COLS;
-  }
-
-  private int getCol(int bucket) {
-    // Hotspot will optimize this modulo
-    // https://stackoverflow.com/questions/29844345/how-is-the-modulo-operator-implemented-in-the-hotspot-jvm
-    return bucket % COLS;
-  }
-
-  public MetricValue getMetricValue(String metricName) {
+  /**
+   * Returns a {@link MetricValue} of type {@link io.cdap.cdap.api.metrics.MetricType#DISTRIBUTION}
+   * that contains the values added since the last call to this method.
+   */
+  public synchronized MetricValue getMetricValue(String metricName) {
     long bucketMask = 0;
-    long[] bucketCountsArr = new long[numBuckets];
-    int bucketCountIndex = 0;
-    for (int row = 0; row < ROWS; row++) {
-      if (bucketCounts[row] == null) {
+    long[] bucketCountsArr = new long[NUM_BUCKETS];
+    int numBuckets = 0;
+    for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+      LongAdder bucketCount = bucketCounts.get(bucket);
+      if (bucketCount == null) {
         continue;
       }
-      for (int col = 0; col < COLS; col++) {
-        if (bucketCounts[row][col] > 0) {
-          bucketMask |= 1L << row * COLS + col;
-          bucketCountsArr[bucketCountIndex] = bucketCounts[row][col];
-          bucketCountIndex++;
-        }
+      long total = bucketCount.sum();
+      long count = total - emittedBucketCounts[bucket];
+      if (count > 0) {
+        bucketMask |= 1L << bucket;
+        bucketCountsArr[numBuckets++] = count;
+        emittedBucketCounts[bucket] = total;
       }
     }
-    return new MetricValue(metricName, bucketCountsArr, bucketMask, sum);
+
+    // The sum can overflow over time, but the difference is still correct with two's complement
+    // as long as the sum of values since the last call fits in a long.
+    long totalSum = sum.sum();
+    long intervalSum = totalSum - emittedSum;
+    emittedSum = totalSum;
+    return new MetricValue(metricName, Arrays.copyOf(bucketCountsArr, numBuckets), bucketMask,
+        intervalSum);
   }
 
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    sb.append(String.format("Distribution {count: %d, numBuckets: %d, sum: %f ",
-        count, numBuckets, sum));
-    for (int index = 0; index < ROWS; index++) {
-      if (bucketCounts[index] != null) {
-        sb.append(String.format("Row %d: %s ", index, Arrays.toString(bucketCounts[index])));
-      } else {
-        sb.append(String.format("%d: null ", index));
+    sb.append(String.format("Distribution {sum: %d ", sum.sum()));
+    for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+      LongAdder bucketCount = bucketCounts.get(bucket);
+      if (bucketCount != null) {
+        sb.append(String.format("Bucket %d: %d ", bucket, bucketCount.sum()));
       }
     }
     sb.append("}");
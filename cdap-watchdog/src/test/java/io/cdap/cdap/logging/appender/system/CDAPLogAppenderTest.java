@@ -39,11 +39,15 @@ import io.cdap.cdap.data.runtime.SystemDatasetRuntimeModule;
 import io.cdap.cdap.logging.LoggingConfiguration;
 import io.cdap.cdap.logging.context.ApplicationLoggingContext;
 import io.cdap.cdap.logging.context.UserServiceLoggingContext;
+import io.cdap.cdap.logging.filter.AndFilter;
 import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.LogLevelExpression;
+import io.cdap.cdap.logging.filter.MdcExpression;
 import io.cdap.cdap.logging.framework.LocalAppenderContext;
 import io.cdap.cdap.logging.guice.LocalLogAppenderModule;
 import io.cdap.cdap.logging.meta.FileMetaDataReader;
 import io.cdap.cdap.logging.read.LogEvent;
+import io.cdap.cdap.logging.write.LogFileIndex;
 import io.cdap.cdap.logging.write.LogLocation;
 import io.cdap.cdap.security.auth.context.AuthenticationContextModules;
 import io.cdap.cdap.security.authorization.AuthorizationEnforcementModule;
@@ -56,6 +60,10 @@ import io.cdap.cdap.spi.data.StructuredTableAdmin;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.store.StoreDefinition;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -319,6 +327,167 @@ public class CDAPLogAppenderTest {
     }
   }
 
+  @Test
+  public void testIndexedLogFile() throws Exception {
+    FileMetaDataReader fileMetaDataReader = injector.getInstance(FileMetaDataReader.class);
+    CDAPLogAppender cdapLogAppender = new CDAPLogAppender(true);
+    AppenderContext context = new LocalAppenderContext(injector.getInstance(TransactionRunner.class),
+                                                       injector.getInstance(LocationFactory.class),
+                                                       new NoOpMetricsCollectionService());
+    context.start();
+
+    cdapLogAppender.setSyncIntervalBytes(1024 * 1024);
+    // start a new segment of the index after every event
+    cdapLogAppender.setIndexIntervalBytes(1);
+    cdapLogAppender.setMaxFileLifetimeMs(TimeUnit.DAYS.toMillis(1));
+    cdapLogAppender.setMaxFileSizeInBytes(104857600);
+    cdapLogAppender.setDirPermissions("750");
+    cdapLogAppender.setFilePermissions("640");
+    cdapLogAppender.setFileRetentionDurationDays(1);
+    cdapLogAppender.setLogCleanupIntervalMins(10);
+    cdapLogAppender.setFileCleanupBatchSize(100);
+    cdapLogAppender.setContext(context);
+    cdapLogAppender.start();
+
+    Map<String, String> properties = new HashMap<>();
+    properties.put(NamespaceLoggingContext.TAG_NAMESPACE_ID, "testIndex");
+    properties.put(ApplicationLoggingContext.TAG_APPLICATION_ID, "testApp");
+    properties.put(UserServiceLoggingContext.TAG_USER_SERVICE_ID, "testService");
+
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < 100; i++) {
+      LoggingEvent event = getLoggingEvent("io.cdap.Test",
+                                           (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(
+                                             Logger.ROOT_LOGGER_NAME), Level.ERROR, "test message " + i, properties);
+      event.setTimeStamp(startTime + i);
+      cdapLogAppender.doAppend(event);
+    }
+    cdapLogAppender.stop();
+    context.stop();
+
+    List<LogLocation> files = fileMetaDataReader.listFiles(cdapLogAppender.getLoggingPath(properties),
+                                                           0, Long.MAX_VALUE);
+    Assert.assertEquals(1, files.size());
+    LogLocation logLocation = files.get(0);
+    Assert.assertTrue(LogFileIndex.getIndexLocation(logLocation.getLocation()).exists());
+    LogFileIndex index = LogFileIndex.read(logLocation.getLocation());
+    Assert.assertNotNull(index);
+    Assert.assertEquals(100, index.size());
+    Assert.assertEquals(index.getPosition(50), index.getStartPosition(startTime + 50));
+    Assert.assertEquals(50, index.getEndSegment(startTime + 49));
+
+    // read from the middle of the file
+    List<String> messages = new ArrayList<>();
+    try (CloseableIterator<LogEvent> iterator =
+           logLocation.readLog(Filter.EMPTY_FILTER, startTime + 50, startTime + 60, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        messages.add(iterator.next().getLoggingEvent().getFormattedMessage());
+      }
+    }
+    List<String> expected = new ArrayList<>();
+    for (int i = 50; i < 60; i++) {
+      expected.add("test message " + i);
+    }
+    Assert.assertEquals(expected, messages);
+
+    // read backwards from the middle of the file
+    messages.clear();
+    Collection<LogEvent> events = logLocation.readLogPrev(Filter.EMPTY_FILTER, startTime + 59, 10);
+    for (LogEvent event : events) {
+      messages.add(event.getLoggingEvent().getFormattedMessage());
+    }
+    Assert.assertEquals(expected, messages);
+  }
+
+  @Test
+  public void testFilteredIndexedLogFile() throws Exception {
+    FileMetaDataReader fileMetaDataReader = injector.getInstance(FileMetaDataReader.class);
+    CDAPLogAppender cdapLogAppender = new CDAPLogAppender(true);
+    AppenderContext context = new LocalAppenderContext(injector.getInstance(TransactionRunner.class),
+                                                       injector.getInstance(LocationFactory.class),
+                                                       new NoOpMetricsCollectionService());
+    context.start();
+
+    cdapLogAppender.setSyncIntervalBytes(1024 * 1024);
+    // start a new segment of the index after every event
+    cdapLogAppender.setIndexIntervalBytes(1);
+    cdapLogAppender.setMaxFileLifetimeMs(TimeUnit.DAYS.toMillis(1));
+    cdapLogAppender.setMaxFileSizeInBytes(104857600);
+    cdapLogAppender.setDirPermissions("750");
+    cdapLogAppender.setFilePermissions("640");
+    cdapLogAppender.setFileRetentionDurationDays(1);
+    cdapLogAppender.setLogCleanupIntervalMins(10);
+    cdapLogAppender.setFileCleanupBatchSize(100);
+    cdapLogAppender.setContext(context);
+    cdapLogAppender.start();
+
+    Map<String, String> properties = new HashMap<>();
+    properties.put(NamespaceLoggingContext.TAG_NAMESPACE_ID, "testFilterIndex");
+    properties.put(ApplicationLoggingContext.TAG_APPLICATION_ID, "testApp");
+    properties.put(UserServiceLoggingContext.TAG_USER_SERVICE_ID, "testService");
+
+    // the first 50 events are from run0 and the rest from run1, and only the last 10 events are errors
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < 100; i++) {
+      Map<String, String> mdc = new HashMap<>(properties);
+      mdc.put(ApplicationLoggingContext.TAG_RUN_ID, i < 50 ? "run0" : "run1");
+      LoggingEvent event = getLoggingEvent("io.cdap.Test",
+                                           (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(
+                                             Logger.ROOT_LOGGER_NAME), i < 90 ? Level.INFO : Level.ERROR,
+                                           "test message " + i, mdc);
+      event.setTimeStamp(startTime + i);
+      cdapLogAppender.doAppend(event);
+    }
+    cdapLogAppender.stop();
+    context.stop();
+
+    List<LogLocation> files = fileMetaDataReader.listFiles(cdapLogAppender.getLoggingPath(properties),
+                                                           0, Long.MAX_VALUE);
+    Assert.assertEquals(1, files.size());
+    LogLocation logLocation = files.get(0);
+    LogFileIndex index = LogFileIndex.read(logLocation.getLocation());
+    Assert.assertNotNull(index);
+    Assert.assertEquals(100, index.size());
+    Assert.assertEquals(Level.INFO_INT, index.getSummary(0).getMaxLevel());
+    Assert.assertEquals(Level.ERROR_INT, index.getSummary(95).getMaxLevel());
+    Assert.assertEquals(Collections.singleton("run0"),
+                        index.getSummary(0).getMdcValues(ApplicationLoggingContext.TAG_RUN_ID));
+    Assert.assertEquals(Collections.singleton("run1"),
+                        index.getSummary(95).getMdcValues(ApplicationLoggingContext.TAG_RUN_ID));
+    Assert.assertNull(index.getSummary(0).getMdcValues(ApplicationLoggingContext.TAG_APPLICATION_ID));
+
+    List<String> expected = new ArrayList<>();
+    for (int i = 90; i < 100; i++) {
+      expected.add("test message " + i);
+    }
+
+    // segments without errors are skipped
+    Filter errorFilter = new LogLevelExpression("ERROR");
+    List<String> messages = new ArrayList<>();
+    try (CloseableIterator<LogEvent> iterator =
+           logLocation.readLog(errorFilter, startTime, Long.MAX_VALUE, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        messages.add(iterator.next().getLoggingEvent().getFormattedMessage());
+      }
+    }
+    Assert.assertEquals(expected, messages);
+
+    messages.clear();
+    for (LogEvent event : logLocation.readLogPrev(errorFilter, startTime + 99, 100)) {
+      messages.add(event.getLoggingEvent().getFormattedMessage());
+    }
+    Assert.assertEquals(expected, messages);
+
+    // no segment has errors of run0
+    Filter runFilter = new AndFilter(Arrays.asList(errorFilter,
+                                                   new MdcExpression(ApplicationLoggingContext.TAG_RUN_ID, "run0")));
+    try (CloseableIterator<LogEvent> iterator =
+           logLocation.readLog(runFilter, startTime, Long.MAX_VALUE, Integer.MAX_VALUE)) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(logLocation.readLogPrev(runFilter, startTime + 99, 100).isEmpty());
+  }
+
   private void assertLogEventDetails(LoggingEvent expectedLoggingEvent, LogLocation logLocation) throws IOException {
     Assert.assertEquals(LogLocation.VERSION_1, logLocation.getFrameworkVersion());
     Assert.assertTrue(logLocation.getLocation().exists());
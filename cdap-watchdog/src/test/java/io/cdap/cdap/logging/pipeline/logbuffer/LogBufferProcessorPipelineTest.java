@@ -20,12 +20,15 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.logging.NamespaceLoggingContext;
 import io.cdap.cdap.common.utils.Tasks;
+import io.cdap.cdap.logging.context.ApplicationLoggingContext;
 import io.cdap.cdap.logging.logbuffer.LogBufferEvent;
 import io.cdap.cdap.logging.logbuffer.LogBufferFileOffset;
 import io.cdap.cdap.logging.meta.Checkpoint;
@@ -35,7 +38,9 @@ import io.cdap.cdap.logging.pipeline.LogProcessorPipelineContext;
 import io.cdap.cdap.logging.pipeline.MockAppender;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +49,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -99,6 +105,71 @@ public class LogBufferProcessorPipelineTest {
     loggerContext.stop();
   }
 
+  @Test
+  public void testShardedAppenders() throws Exception {
+    // each shard has its own logger context and appender
+    List<LoggerContext> loggerContexts = new ArrayList<>();
+    List<MockAppender> appenders = new ArrayList<>();
+    List<LogProcessorPipelineContext> contexts = new ArrayList<>();
+    for (int shard = 0; shard < 2; shard++) {
+      LoggerContext loggerContext = LogPipelineTestUtil.createLoggerContext("WARN",
+                                                                            ImmutableMap.of("test.logger", "INFO"),
+                                                                            MockAppender.class.getName());
+      loggerContexts.add(loggerContext);
+      appenders.add(LogPipelineTestUtil.getAppender(loggerContext.getLogger(Logger.ROOT_LOGGER_NAME),
+                                                    "Test", MockAppender.class));
+      loggerContext.start();
+      contexts.add(new LogProcessorPipelineContext(CConfiguration.create(), "test", loggerContext,
+                                                   NO_OP_METRICS_CONTEXT, 0));
+    }
+    MockCheckpointManager checkpointManager = new MockCheckpointManager();
+    LogBufferPipelineConfig config = new LogBufferPipelineConfig(1024L, 300L, 500L, 4);
+    LogBufferProcessorPipeline pipeline = new LogBufferProcessorPipeline(contexts, config, checkpointManager, 0);
+    pipeline.startAndWait();
+
+    // events of different applications are interleaved in the log buffer
+    int apps = 4;
+    List<LogBufferEvent> bufferEvents = new ArrayList<>();
+    List<ILoggingEvent> events = getLoggingEvents();
+    for (int i = 0; i < events.size(); i++) {
+      for (int app = 0; app < apps; app++) {
+        LoggingEvent event = (LoggingEvent) LogPipelineTestUtil.createLoggingEvent(
+          "test.logger", events.get(i).getLevel(), "app" + app + "-" + i, events.get(i).getTimeStamp());
+        event.setMDCPropertyMap(ImmutableMap.of(NamespaceLoggingContext.TAG_NAMESPACE_ID, "default",
+                                                ApplicationLoggingContext.TAG_APPLICATION_ID, "app" + app));
+        bufferEvents.add(new LogBufferEvent(event, serializer.toBytes(event).length,
+                                            new LogBufferFileOffset(0, bufferEvents.size())));
+      }
+    }
+    pipeline.processLogEvents(bufferEvents.iterator());
+
+    // wait for all the shards to append the logs. The DEBUG messages should get filtered out.
+    Tasks.waitFor(apps * 5, () -> appenders.stream().mapToInt(appender -> appender.getEvents().size()).sum(),
+                  60, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+
+    // all the events of an application are appended in order by the same shard
+    Map<String, Integer> appShards = new HashMap<>();
+    Map<String, Long> lastTimestamps = new HashMap<>();
+    for (int shard = 0; shard < appenders.size(); shard++) {
+      int currentShard = shard;
+      for (ILoggingEvent event : appenders.get(shard).getEvents()) {
+        String app = event.getMDCPropertyMap().get(ApplicationLoggingContext.TAG_APPLICATION_ID);
+        Assert.assertEquals(shard, (int) appShards.computeIfAbsent(app, k -> currentShard));
+        Long lastTimestamp = lastTimestamps.put(app, event.getTimeStamp());
+        Assert.assertTrue(lastTimestamp == null || lastTimestamp < event.getTimeStamp());
+      }
+    }
+    Assert.assertEquals(apps, lastTimestamps.size());
+
+    pipeline.stopAndWait();
+    for (LoggerContext loggerContext : loggerContexts) {
+      loggerContext.stop();
+    }
+
+    // all the shards are synced on stop, so the checkpoint is the last event of the log buffer
+    Assert.assertEquals(new LogBufferFileOffset(0, bufferEvents.size() - 1), checkpointManager.getSavedOffset());
+  }
+
   private ImmutableList<ILoggingEvent> getLoggingEvents() {
     long now = System.currentTimeMillis();
     return ImmutableList.of(
@@ -114,10 +185,17 @@ public class LogBufferProcessorPipelineTest {
    * Checkpoint manager for unit tests.
    */
   private static final class MockCheckpointManager implements CheckpointManager<LogBufferFileOffset> {
+    private volatile LogBufferFileOffset savedOffset;
+
     @Override
     public void saveCheckpoints(Map<Integer, ? extends Checkpoint<LogBufferFileOffset>> checkpoints)
       throws IOException {
+      LogBufferFileOffset offset = checkpoints.get(0).getOffset();
+      savedOffset = new LogBufferFileOffset(offset.getFileId(), offset.getFilePos());
+    }
 
+    LogBufferFileOffset getSavedOffset() {
+      return savedOffset;
     }
 
     @Override
@@ -20,6 +20,7 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.common.logging.LoggingContext;
 import io.cdap.cdap.logging.appender.LogMessage;
 import io.cdap.cdap.logging.context.WorkerLoggingContext;
@@ -27,7 +28,9 @@ import io.cdap.cdap.logging.logbuffer.LogBufferEvent;
 import io.cdap.cdap.logging.logbuffer.LogBufferWriter;
 import io.cdap.cdap.logging.logbuffer.recover.LogBufferReader;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -71,6 +74,58 @@ public class LogBufferReaderTest {
     reader.close();
   }
 
+  @Test
+  public void testReadUnclosedFile() throws Exception {
+    String absolutePath = TMP_FOLDER.newFolder().getAbsolutePath();
+
+    // the file is sized up to the max file size before events are written to it
+    LogBufferWriter writer = new LogBufferWriter(absolutePath, 100000, true, () -> { });
+    ImmutableList<byte[]> events = getLoggingEvents();
+    Iterable<LogBufferEvent> writtenEvents = writer.write(events.iterator());
+    Assert.assertEquals(100000, new File(absolutePath, "0.buf").length());
+
+    // read the file while it is still open, as if the writer had died
+    List<LogBufferEvent> logBufferEvents = new LinkedList<>();
+    try (LogBufferReader reader = new LogBufferReader(absolutePath, 2, 0, -1, -1)) {
+      verifyEvents(logBufferEvents, reader, writtenEvents.iterator());
+    }
+
+    // the file is truncated to the size of its events when the writer is closed
+    writer.close();
+    long size = 0;
+    for (byte[] event : events) {
+      size += Bytes.SIZEOF_INT + event.length;
+    }
+    Assert.assertEquals(size, new File(absolutePath, "0.buf").length());
+  }
+
+  @Test
+  public void testSyncedWrites() throws Exception {
+    String absolutePath = TMP_FOLDER.newFolder().getAbsolutePath();
+
+    // each write is synced, and files are rotated after a few events
+    LogBufferWriter writer = new LogBufferWriter(absolutePath, 250, true, () -> { });
+    ImmutableList<byte[]> events = getLoggingEvents();
+    List<LogBufferEvent> writtenEvents = new ArrayList<>();
+    for (int i = 0; i < events.size(); i += 2) {
+      writer.write(events.subList(i, i + 2).iterator()).forEach(writtenEvents::add);
+    }
+    writer.close();
+
+    List<LogBufferEvent> logBufferEvents = new LinkedList<>();
+    try (LogBufferReader reader = new LogBufferReader(absolutePath, 2, 3, -1, -1)) {
+      verifyEvents(logBufferEvents, reader, writtenEvents.iterator());
+    }
+
+    // files can be deleted once they are read, as they are no longer mapped
+    File[] files = new File(absolutePath).listFiles();
+    Assert.assertNotNull(files);
+    Assert.assertTrue(files.length > 1);
+    for (File file : files) {
+      Assert.assertTrue(file.delete());
+    }
+  }
+
   private void verifyEvents(List<LogBufferEvent> logBufferEvents, LogBufferReader reader,
                             Iterator<LogBufferEvent> iterator) throws IOException {
     while (reader.readEvents(logBufferEvents) > 0) {
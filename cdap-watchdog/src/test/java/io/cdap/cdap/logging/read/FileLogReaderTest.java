@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.read;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.guice.ConfigModule;
+import io.cdap.cdap.common.guice.NonCustomLocationUnitTestModule;
+import io.cdap.cdap.common.logging.LoggingContext;
+import io.cdap.cdap.common.logging.ServiceLoggingContext;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
+import io.cdap.cdap.common.namespace.NamespaceQueryAdmin;
+import io.cdap.cdap.common.namespace.SimpleNamespaceQueryAdmin;
+import io.cdap.cdap.data.runtime.DataSetsModules;
+import io.cdap.cdap.data.runtime.StorageModule;
+import io.cdap.cdap.data.runtime.SystemDatasetRuntimeModule;
+import io.cdap.cdap.logging.LoggingConfiguration;
+import io.cdap.cdap.logging.appender.LogMessage;
+import io.cdap.cdap.logging.appender.system.CDAPLogAppender;
+import io.cdap.cdap.logging.context.LoggingContextHelper;
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.guice.LocalLogAppenderModule;
+import io.cdap.cdap.logging.meta.FileMetaDataReader;
+import io.cdap.cdap.logging.meta.FileMetaDataWriter;
+import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import io.cdap.cdap.logging.write.LogFileIndex;
+import io.cdap.cdap.security.auth.context.AuthenticationContextModules;
+import io.cdap.cdap.security.authorization.AuthorizationEnforcementModule;
+import io.cdap.cdap.security.authorization.AuthorizationTestModule;
+import io.cdap.cdap.security.impersonation.DefaultOwnerAdmin;
+import io.cdap.cdap.security.impersonation.OwnerAdmin;
+import io.cdap.cdap.security.impersonation.UGIProvider;
+import io.cdap.cdap.security.impersonation.UnsupportedUGIProvider;
+import io.cdap.cdap.spi.data.StructuredTableAdmin;
+import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.store.StoreDefinition;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.tephra.TransactionManager;
+import org.apache.tephra.runtime.TransactionModules;
+import org.apache.twill.filesystem.Location;
+import org.apache.twill.filesystem.LocationFactory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link FileLogReader} reading log files that overlap in time.
+ */
+public class FileLogReaderTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final LoggingContext LOGGING_CONTEXT = new ServiceLoggingContext("system", "test", "service");
+  private static final LoggingContext OTHER_CONTEXT = new ServiceLoggingContext("system", "test", "other");
+
+  private static Injector injector;
+  private static TransactionManager txManager;
+  private static CConfiguration cConf;
+  private static List<Long> expectedTimestamps;
+
+  @BeforeClass
+  public static void setUpContext() throws Exception {
+    Configuration hConf = HBaseConfiguration.create();
+    cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TMP_FOLDER.newFolder().getAbsolutePath());
+    String logBaseDir = cConf.get(LoggingConfiguration.LOG_BASE_DIR) + "/" + CDAPLogAppender.class.getSimpleName();
+    cConf.set(LoggingConfiguration.LOG_BASE_DIR, logBaseDir);
+    cConf.setInt(Constants.Logging.READER_PARALLELISM, 3);
+    cConf.setInt(Constants.Logging.READER_PREFETCH_EVENTS, 2);
+    // fewer threads than the files read in parallel by concurrent reads
+    cConf.setInt(Constants.Logging.READER_THREADS, 2);
+
+    injector = Guice.createInjector(
+      new ConfigModule(cConf, hConf),
+      new NonCustomLocationUnitTestModule(),
+      new TransactionModules().getInMemoryModules(),
+      new LocalLogAppenderModule(),
+      new DataSetsModules().getInMemoryModules(),
+      new SystemDatasetRuntimeModule().getInMemoryModules(),
+      new AuthorizationTestModule(),
+      new AuthorizationEnforcementModule().getInMemoryModules(),
+      new AuthenticationContextModules().getNoOpModule(),
+      new StorageModule(),
+      new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class);
+          bind(UGIProvider.class).to(UnsupportedUGIProvider.class);
+          bind(OwnerAdmin.class).to(DefaultOwnerAdmin.class);
+          bind(NamespaceQueryAdmin.class).to(SimpleNamespaceQueryAdmin.class);
+        }
+      }
+    );
+
+    txManager = injector.getInstance(TransactionManager.class);
+    txManager.startAndWait();
+    StoreDefinition.LogFileMetaStore.create(injector.getInstance(StructuredTableAdmin.class));
+
+    // the second and third files overlap the first one, like files written by two log saver instances
+    List<Long> timestamps = new ArrayList<>();
+    List<Long> otherTimestamps = new ArrayList<>();
+    for (long time = 100; time < 120; time += 2) {
+      timestamps.add(time);
+      otherTimestamps.add(time + 1);
+    }
+    writeFile("file1", timestamps, otherTimestamps, false);
+
+    timestamps.clear();
+    for (long time = 101; time < 120; time += 2) {
+      timestamps.add(time);
+    }
+    writeFile("file2", timestamps, Collections.<Long>emptyList(), true);
+    writeFile("file3", timestamps.subList(2, 5), Collections.<Long>emptyList(), false);
+    writeFile("file4", new ArrayList<>(Collections.nCopies(3, 200L)), Collections.<Long>emptyList(), true);
+
+    expectedTimestamps = new ArrayList<>();
+    for (long time = 100; time < 120; time++) {
+      expectedTimestamps.add(time);
+    }
+    expectedTimestamps.addAll(timestamps.subList(2, 5));
+    expectedTimestamps.addAll(Collections.nCopies(3, 200L));
+    Collections.sort(expectedTimestamps);
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    txManager.stopAndWait();
+  }
+
+  @Test
+  public void testMergeOverlappingFiles() throws Exception {
+    try (FileLogReader logReader = createLogReader()) {
+      Assert.assertEquals(expectedTimestamps, readTimestamps(logReader, 0, Long.MAX_VALUE));
+      // reads after the first one reuse the threads of the reader
+      Assert.assertEquals(expectedTimestamps, readTimestamps(logReader, 0, Long.MAX_VALUE));
+    }
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try (FileLogReader logReader = createLogReader()) {
+      List<Future<List<Long>>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(new Callable<List<Long>>() {
+          @Override
+          public List<Long> call() throws Exception {
+            return readTimestamps(logReader, 0, Long.MAX_VALUE);
+          }
+        }));
+      }
+      for (Future<List<Long>> future : futures) {
+        Assert.assertEquals(expectedTimestamps, future.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private FileLogReader createLogReader() {
+    return new FileLogReader(cConf, injector.getInstance(FileMetaDataReader.class));
+  }
+
+  private List<Long> readTimestamps(FileLogReader logReader, long fromTimeMs, long toTimeMs) {
+    List<Long> timestamps = new ArrayList<>();
+    try (CloseableIterator<LogEvent> events =
+           logReader.getLog(LOGGING_CONTEXT, fromTimeMs, toTimeMs, Filter.EMPTY_FILTER)) {
+      while (events.hasNext()) {
+        LogEvent event = events.next();
+        Assert.assertEquals("service", event.getLoggingEvent().getMDCPropertyMap().get(
+          ServiceLoggingContext.TAG_SERVICE_ID));
+        timestamps.add(event.getLoggingEvent().getTimeStamp());
+      }
+    }
+    return timestamps;
+  }
+
+  /**
+   * Writes an Avro log file with the given events in the order they are given, and adds it to the file metadata.
+   * Events of another service are interleaved, so that they must be filtered out when reading.
+   */
+  private static void writeFile(String name, List<Long> timestamps, List<Long> otherTimestamps,
+                                boolean indexed) throws Exception {
+    LocationFactory locationFactory = injector.getInstance(LocationFactory.class);
+    Location location = locationFactory.create(TMP_FOLDER.newFolder().getPath()).append(name + ".avro");
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    Schema schema = serializer.getAvroSchema();
+    LogFileIndex.Builder indexBuilder = new LogFileIndex.Builder();
+
+    try (OutputStream os = location.getOutputStream();
+         DataFileWriter<GenericRecord> dataFileWriter =
+           new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+      dataFileWriter.create(schema, os);
+      for (int i = 0; i < timestamps.size(); i++) {
+        // one segment for every two events
+        if (i % 2 == 0) {
+          indexBuilder.addSegment(dataFileWriter.sync());
+        }
+        LogMessage event = createEvent(LOGGING_CONTEXT, timestamps.get(i));
+        dataFileWriter.append(serializer.toGenericRecord(event));
+        indexBuilder.addEvent(event);
+        if (i < otherTimestamps.size()) {
+          event = createEvent(OTHER_CONTEXT, otherTimestamps.get(i));
+          dataFileWriter.append(serializer.toGenericRecord(event));
+          indexBuilder.addEvent(event);
+        }
+      }
+    }
+    if (indexed) {
+      indexBuilder.build().write(location, "");
+    }
+
+    TransactionRunner transactionRunner = injector.getInstance(TransactionRunner.class);
+    new FileMetaDataWriter(transactionRunner).writeMetaData(
+      LoggingContextHelper.getLogPathIdentifier(LOGGING_CONTEXT), timestamps.get(0), System.currentTimeMillis(),
+      location);
+  }
+
+  private static LogMessage createEvent(LoggingContext loggingContext, long timestamp) {
+    LoggingEvent event = new LoggingEvent();
+    event.setLevel(Level.INFO);
+    event.setLoggerName("test.logger");
+    event.setMessage(Long.toString(timestamp));
+    event.setTimeStamp(timestamp);
+    return new LogMessage(event, loggingContext);
+  }
+}
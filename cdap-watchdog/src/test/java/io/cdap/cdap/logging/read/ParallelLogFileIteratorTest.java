@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.read;
+
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.google.common.base.Function;
+import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.logging.write.LogLocation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelLogFileIterator}.
+ */
+public class ParallelLogFileIteratorTest {
+
+  // fewer threads than the parallelism of some iterators, like an executor shared by concurrent reads
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void init() {
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterClass
+  public static void finish() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testMergeFiles() {
+    // the second and third files overlap in time, like files written by two log saver instances
+    Map<LogLocation, List<Long>> files = new HashMap<>();
+    List<LogLocation> sortedFiles = new ArrayList<>();
+    addFile(files, sortedFiles, 1, 2, 3, 4, 5);
+    addFile(files, sortedFiles, 10, 12, 14, 16);
+    addFile(files, sortedFiles, 11, 13, 13, 20);
+    addFile(files, sortedFiles);
+    addFile(files, sortedFiles, 30, 31);
+
+    for (int parallelism = 1; parallelism <= 4; parallelism++) {
+      AtomicInteger openFiles = new AtomicInteger();
+      try (CloseableIterator<LogEvent> iterator =
+             new ParallelLogFileIterator(sortedFiles, createReader(files, openFiles), executor,
+                                         parallelism, 2)) {
+        List<Long> timestamps = new ArrayList<>();
+        while (iterator.hasNext()) {
+          timestamps.add(iterator.next().getLoggingEvent().getTimeStamp());
+        }
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 10L, 11L, 12L, 13L, 13L, 14L, 16L, 20L, 30L, 31L),
+                            timestamps);
+        Assert.assertEquals(0, openFiles.get());
+      }
+    }
+  }
+
+  @Test
+  public void testCloseBeforeEnd() {
+    Map<LogLocation, List<Long>> files = new HashMap<>();
+    List<LogLocation> sortedFiles = new ArrayList<>();
+    addFile(files, sortedFiles, 1, 2, 3, 4, 5);
+    addFile(files, sortedFiles, 2, 6, 7);
+    addFile(files, sortedFiles, 8, 9);
+
+    AtomicInteger openFiles = new AtomicInteger();
+    CloseableIterator<LogEvent> iterator =
+      new ParallelLogFileIterator(sortedFiles, createReader(files, openFiles), executor, 3, 1);
+    Assert.assertEquals(1L, iterator.next().getLoggingEvent().getTimeStamp());
+    Assert.assertEquals(2L, iterator.next().getLoggingEvent().getTimeStamp());
+    Assert.assertEquals(2L, iterator.next().getLoggingEvent().getTimeStamp());
+    iterator.close();
+    Assert.assertEquals(0, openFiles.get());
+  }
+
+  private void addFile(Map<LogLocation, List<Long>> files, List<LogLocation> sortedFiles, long... timestamps) {
+    long startTime = timestamps.length == 0 ? sortedFiles.get(sortedFiles.size() - 1).getEventTimeMs()
+      : timestamps[0];
+    LogLocation file = new LogLocation(LogLocation.VERSION_1, startTime, startTime, null, "default", null);
+    List<Long> events = new ArrayList<>();
+    for (long timestamp : timestamps) {
+      events.add(timestamp);
+    }
+    files.put(file, events);
+    sortedFiles.add(file);
+  }
+
+  private Function<LogLocation, CloseableIterator<LogEvent>> createReader(final Map<LogLocation, List<Long>> files,
+                                                                          final AtomicInteger openFiles) {
+    return new Function<LogLocation, CloseableIterator<LogEvent>>() {
+      @Override
+      public CloseableIterator<LogEvent> apply(LogLocation file) {
+        openFiles.incrementAndGet();
+        final Iterator<Long> timestamps = files.getOrDefault(file, Collections.<Long>emptyList()).iterator();
+        return new AbstractCloseableIterator<LogEvent>() {
+          private boolean closed;
+
+          @Override
+          protected LogEvent computeNext() {
+            if (!timestamps.hasNext()) {
+              return endOfData();
+            }
+            LoggingEvent event = new LoggingEvent();
+            event.setTimeStamp(timestamps.next());
+            return new LogEvent(event, new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, event.getTimeStamp()));
+          }
+
+          @Override
+          public void close() {
+            if (!closed) {
+              closed = true;
+              openFiles.decrementAndGet();
+            }
+          }
+        };
+      }
+    };
+  }
+}
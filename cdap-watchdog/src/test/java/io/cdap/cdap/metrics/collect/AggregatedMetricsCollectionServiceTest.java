@@ -23,13 +23,18 @@ import io.cdap.cdap.api.metrics.MetricValues;
 import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.test.SlowTests;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
@@ -143,6 +148,47 @@ public class AggregatedMetricsCollectionServiceTest {
     }
   }
 
+  @Category(SlowTests.class)
+  @Test
+  public void testCounter() throws Exception {
+    final BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(1000L) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    service.startAndWait();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      MetricsContext context = service.getContext(EMPTY_TAGS);
+      MetricsContext.Counter counter = context.counter(METRIC);
+      // The same counter should be returned for the same metric
+      Assert.assertSame(counter, context.counter(METRIC));
+
+      // Increment through the counter and the context concurrently, they should be aggregated
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 10000; j++) {
+            counter.increment(1);
+            context.increment(METRIC, 1);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+
+      verifyCounterMetricsValue(published, ImmutableMap.of(0, ImmutableMap.of(METRIC, 80000L)));
+    } finally {
+      executor.shutdownNow();
+      service.stopAndWait();
+    }
+  }
+
   private void verifyCounterMetricsValue(BlockingQueue<MetricValues> published,
                                          Map<Integer, Map<String, Long>> expected) throws InterruptedException {
     Map<Integer, Map<String, Long>> received = new HashMap<>();